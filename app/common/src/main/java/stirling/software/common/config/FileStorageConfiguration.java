@@ -0,0 +1,64 @@
+package stirling.software.common.config;
+
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.service.ExecutorPools;
+import stirling.software.common.service.storage.BlobStore;
+import stirling.software.common.service.storage.FsyncPolicy;
+import stirling.software.common.service.storage.LocalDiskBlobStore;
+import stirling.software.common.service.storage.MemoryBlobStore;
+
+/**
+ * Configuration for the job result storage backend. Deployments can replace the backend (for
+ * example with an S3-compatible store) by defining their own {@link BlobStore} bean.
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class FileStorageConfiguration {
+
+    private final ApplicationProperties applicationProperties;
+    private final ExecutorPools executorPools;
+
+    @Value("${stirling.tempDir:/tmp/stirling-files}")
+    private String tempDirPath;
+
+    /**
+     * Create the BlobStore bean used by FileStorage.
+     *
+     * @return The configured BlobStore
+     */
+    @Bean
+    @ConditionalOnMissingBean(BlobStore.class)
+    public BlobStore fileStorageBlobStore() {
+        ApplicationProperties.FileStorage settings =
+                applicationProperties.getSystem().getFileStorage();
+        Path root = Path.of(tempDirPath).resolve("blobs");
+        BlobStore disk =
+                new LocalDiskBlobStore(
+                        root,
+                        settings.getShardDepth(),
+                        FsyncPolicy.fromString(settings.getFsync()),
+                        executorPools.io());
+
+        if ("memory".equalsIgnoreCase(settings.getBackend())) {
+            log.info(
+                    "Using memory file storage backend ({} MB) with disk overflow at {}",
+                    settings.getMemoryTierMaxMb(),
+                    root);
+            return new MemoryBlobStore(settings.getMemoryTierMaxMb() * 1024 * 1024, disk);
+        }
+
+        log.debug("Using disk file storage backend at {}", root);
+        return disk;
+    }
+}
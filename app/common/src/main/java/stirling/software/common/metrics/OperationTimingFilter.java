@@ -0,0 +1,238 @@
+package stirling.software.common.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.Part;
+
+import stirling.software.common.model.ApplicationProperties;
+
+/**
+ * Starts an {@link OperationTrace} for every API request and publishes it once the response has
+ * been written, including responses streamed after the handler returned.
+ *
+ * <p>Three stages are recorded here. {@code upload} is the time the multipart resolver spends
+ * reading and spooling the request's parts. {@code handler} runs from entering the rest of the
+ * filter chain until the response body is opened, or the chain returns if it is not, less the
+ * upload. {@code response} is the time spent writing the body. When {@code
+ * system.operationTiming.serverTimingHeader} is set, the stages recorded by the time the body is
+ * opened are sent as a {@code Server-Timing} header.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class OperationTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final boolean serverTimingHeader;
+
+    public OperationTimingFilter(
+            MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        this.meterRegistry = meterRegistry;
+        ApplicationProperties.OperationTiming settings =
+                applicationProperties.getSystem().getOperationTiming();
+        this.enabled = settings.isEnabled();
+        this.serverTimingHeader = settings.isServerTimingHeader();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        OperationTrace trace = new OperationTrace(meterRegistry, System.nanoTime());
+        request.setAttribute(OperationTrace.REQUEST_ATTRIBUTE, trace);
+        TimedResponse timedResponse = new TimedResponse(response, trace, System.nanoTime());
+        try {
+            filterChain.doFilter(new TimedRequest(request, trace), timedResponse);
+        } finally {
+            timedResponse.endHandler();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                trace.setEndpoint(request.getMethod() + " " + pattern);
+            }
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(trace));
+            } else {
+                trace.release();
+            }
+        }
+    }
+
+    /** Releases the trace of a request whose response is written asynchronously. */
+    private record ReleaseOnComplete(OperationTrace trace) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            trace.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {}
+
+        @Override
+        public void onError(AsyncEvent event) {}
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    /** Times the first resolution of the multipart parts, which reads the whole upload. */
+    private static final class TimedRequest extends HttpServletRequestWrapper {
+
+        private final OperationTrace trace;
+        private final AtomicBoolean resolved = new AtomicBoolean();
+
+        private TimedRequest(HttpServletRequest request, OperationTrace trace) {
+            super(request);
+            this.trace = trace;
+        }
+
+        @Override
+        public Collection<Part> getParts() throws IOException, ServletException {
+            if (resolved.getAndSet(true)) {
+                return super.getParts();
+            }
+            long start = System.nanoTime();
+            try {
+                return super.getParts();
+            } finally {
+                trace.record(
+                        OperationTrace.UPLOAD,
+                        System.nanoTime() - start,
+                        Math.max(0, getContentLengthLong()));
+            }
+        }
+
+        @Override
+        public Part getPart(String name) throws IOException, ServletException {
+            // Resolves all parts, so the upload is timed on first access either way
+            getParts();
+            return super.getPart(name);
+        }
+    }
+
+    /** Times writes to the response body and adds the Server-Timing header before the first. */
+    private final class TimedResponse extends HttpServletResponseWrapper {
+
+        private final OperationTrace trace;
+        private final long handlerStartNanos;
+        private final AtomicBoolean handlerEnded = new AtomicBoolean();
+        private ServletOutputStream outputStream;
+
+        private TimedResponse(
+                HttpServletResponse response, OperationTrace trace, long handlerStartNanos) {
+            super(response);
+            this.trace = trace;
+            this.handlerStartNanos = handlerStartNanos;
+        }
+
+        /** Record the handler stage, once: the handler is done when it starts the body. */
+        private void endHandler() {
+            if (!handlerEnded.getAndSet(true)) {
+                long nanos = System.nanoTime() - handlerStartNanos;
+                trace.record(
+                        OperationTrace.HANDLER,
+                        nanos - trace.getStageNanos(OperationTrace.UPLOAD),
+                        0);
+            }
+        }
+
+        private void addServerTiming() {
+            endHandler();
+            if (serverTimingHeader && !isCommitted() && !containsHeader(SERVER_TIMING_HEADER)) {
+                setHeader(SERVER_TIMING_HEADER, trace.toServerTiming());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                addServerTiming();
+                outputStream = new TimedOutputStream(super.getOutputStream(), trace);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+    }
+
+    private static final class TimedOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final OperationTrace trace;
+
+        private TimedOutputStream(ServletOutputStream delegate, OperationTrace trace) {
+            this.delegate = delegate;
+            this.trace = trace;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            delegate.write(b);
+            trace.record(OperationTrace.RESPONSE, System.nanoTime() - start, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            delegate.write(b, off, len);
+            trace.record(OperationTrace.RESPONSE, System.nanoTime() - start, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            delegate.flush();
+            trace.record(OperationTrace.RESPONSE, System.nanoTime() - start, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
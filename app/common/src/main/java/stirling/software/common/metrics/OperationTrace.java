@@ -0,0 +1,279 @@
+package stirling.software.common.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Time spent in the stages of one API request: spooling the upload, loading and saving documents,
+ * external processes, the handler itself and writing the response.
+ *
+ * <p>{@link OperationTimingFilter} starts a trace for each API request and records its upload,
+ * handler and response stages. Code on the request thread, on job threads of {@code
+ * JobExecutorService} (which binds the trace with {@link #wrap}) and on {@code BatchExecutor}
+ * workers (which bind it with {@link #callBound}) finds it through {@link #current()} and records
+ * stages with {@link #start(String)}. A stage can be entered several times, also in parallel, and
+ * its durations and byte counts add up; stages may nest, so their sum can exceed the request's wall
+ * time.
+ *
+ * <p>When the last holder releases the trace (the request, or an async job that outlives it), every
+ * stage is published as {@code stirling.operation.stage} timer and, if it moved data, a {@code
+ * stirling.operation.stage.bytes} summary, both tagged with the endpoint and stage. The request as
+ * a whole is published as {@code stirling.operation}. Percentile histograms can be switched on with
+ * Spring Boot's {@code management.metrics.distribution.percentiles-histogram} settings.
+ */
+public final class OperationTrace {
+
+    public static final String REQUEST_ATTRIBUTE = OperationTrace.class.getName();
+
+    public static final String UPLOAD = "upload";
+    public static final String QUEUE = "queue";
+    public static final String HANDLER = "handler";
+    public static final String LOAD = "load";
+    public static final String SAVE = "save";
+    public static final String PROCESS_WAIT = "process-wait";
+    public static final String PROCESS = "process";
+    public static final String RESPONSE = "response";
+
+    private static final ThreadLocal<OperationTrace> CURRENT = new ThreadLocal<>();
+
+    /** Returned by {@link #start(String)} when no trace is active; recording is then a no-op. */
+    private static final Stage NO_STAGE = new Stage(null, null, 0);
+
+    private final MeterRegistry registry;
+    private final long startNanos;
+    private final Map<String, StageTotals> stages = new LinkedHashMap<>();
+    private final AtomicInteger holders = new AtomicInteger(1);
+    private volatile String endpoint;
+
+    private static final class StageTotals {
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+    }
+
+    /**
+     * Start a trace held by its creator, who must {@link #release()} it.
+     *
+     * @param registry where the trace is published; {@code null} only collects timings
+     * @param startNanos {@link System#nanoTime()} when the request arrived
+     */
+    public OperationTrace(MeterRegistry registry, long startNanos) {
+        this.registry = registry;
+        this.startNanos = startNanos;
+    }
+
+    /** The trace of the work running on this thread, or {@code null} if it is not traced. */
+    public static OperationTrace current() {
+        OperationTrace trace = CURRENT.get();
+        if (trace != null) {
+            return trace;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        try {
+            return attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                            instanceof OperationTrace requestTrace
+                    ? requestTrace
+                    : null;
+        } catch (IllegalStateException e) {
+            // The request has already completed
+            return null;
+        }
+    }
+
+    /** Start timing a stage of the current trace. Close the stage when it ends. */
+    public static Stage start(String stage) {
+        OperationTrace trace = current();
+        return trace == null ? NO_STAGE : new Stage(trace, stage, System.nanoTime());
+    }
+
+    /** Add a finished stage to the trace. */
+    public void record(String stage, long nanos, long bytes) {
+        StageTotals totals;
+        synchronized (stages) {
+            totals = stages.computeIfAbsent(stage, s -> new StageTotals());
+        }
+        totals.nanos.addAndGet(Math.max(0, nanos));
+        if (bytes > 0) {
+            totals.bytes.addAndGet(bytes);
+        }
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * The endpoint the trace is published under, such as {@code POST /api/v1/misc/compress-pdf}.
+     */
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /** Nanoseconds recorded for a stage so far, or 0 if it was not entered. */
+    public long getStageNanos(String stage) {
+        synchronized (stages) {
+            StageTotals totals = stages.get(stage);
+            return totals == null ? 0 : totals.nanos.get();
+        }
+    }
+
+    /**
+     * Run the supplier with this trace bound to the executing thread. The supplier is meant to run
+     * on another thread; the time until it starts is recorded as the {@code queue} stage.
+     */
+    public <T> Supplier<T> wrap(Supplier<T> supplier) {
+        long submittedNanos = System.nanoTime();
+        return () -> {
+            record(QUEUE, System.nanoTime() - submittedNanos, 0);
+            OperationTrace previous = bind();
+            try {
+                return supplier.get();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Run the work with this trace bound to the calling thread, without recording a stage. Used
+     * where the request may have completed before the work runs, so the trace cannot be found
+     * through the request attributes.
+     */
+    public <T> T callBound(Callable<T> work) throws Exception {
+        OperationTrace previous = bind();
+        try {
+            return work.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    private OperationTrace bind() {
+        OperationTrace previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    private static void restore(OperationTrace previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /** Keep the trace open for work that may finish after the request, such as an async job. */
+    public void retain() {
+        holders.incrementAndGet();
+    }
+
+    /** Give up a hold on the trace; the last release publishes it. */
+    public void release() {
+        if (holders.decrementAndGet() == 0) {
+            publish();
+        }
+    }
+
+    /**
+     * The stages recorded so far as a {@code Server-Timing} header value, ending with the time
+     * since the request arrived as {@code total}.
+     */
+    public String toServerTiming() {
+        List<String> metrics = new ArrayList<>();
+        synchronized (stages) {
+            stages.forEach((stage, totals) -> metrics.add(serverTiming(stage, totals.nanos.get())));
+        }
+        metrics.add(serverTiming("total", System.nanoTime() - startNanos));
+        return String.join(", ", metrics);
+    }
+
+    private static String serverTiming(String name, long nanos) {
+        return name + ";dur=" + String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    private void publish() {
+        String tag = endpoint;
+        if (registry == null || tag == null) {
+            return;
+        }
+        Timer.builder("stirling.operation")
+                .description("Time from receiving an API request until it was fully handled")
+                .tag("endpoint", tag)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        synchronized (stages) {
+            stages.forEach(
+                    (stage, totals) -> {
+                        Timer.builder("stirling.operation.stage")
+                                .description("Time an API request spent in one stage")
+                                .tag("endpoint", tag)
+                                .tag("stage", stage)
+                                .register(registry)
+                                .record(totals.nanos.get(), TimeUnit.NANOSECONDS);
+                        long bytes = totals.bytes.get();
+                        if (bytes > 0) {
+                            DistributionSummary.builder("stirling.operation.stage.bytes")
+                                    .description("Bytes an API request moved in one stage")
+                                    .baseUnit("bytes")
+                                    .tag("endpoint", tag)
+                                    .tag("stage", stage)
+                                    .register(registry)
+                                    .record(bytes);
+                        }
+                    });
+        }
+    }
+
+    /** A stage being timed. Closing it records its duration once. */
+    public static final class Stage implements AutoCloseable {
+
+        private final OperationTrace trace;
+        private final String name;
+        private final long startNanos;
+        private long bytes;
+        private boolean closed;
+
+        private Stage(OperationTrace trace, String name, long startNanos) {
+            this.trace = trace;
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+
+        /** Add to the bytes this stage read or wrote. */
+        public Stage addBytes(long count) {
+            if (trace != null) {
+                bytes += count;
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (trace != null && !closed) {
+                closed = true;
+                trace.record(name, System.nanoTime() - startNanos, bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package stirling.software.common.metrics;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.util.ProcessExecutor;
+
+/**
+ * Connects the {@link ProcessExecutor} instances, which are created outside Spring, to the
+ * application: they take their session limits, timeouts and adaptive concurrency settings from
+ * {@code processExecutor} in the settings and publish their {@code stirling.process.*} metrics to
+ * the application's registry.
+ */
+@Component
+public class ProcessExecutorMetrics implements MeterBinder {
+
+    public ProcessExecutorMetrics(ApplicationProperties applicationProperties) {
+        ProcessExecutor.configure(applicationProperties);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ProcessExecutor.bindMetrics(registry);
+    }
+}
@@ -334,6 +334,14 @@ public class ApplicationProperties {
         private CustomPaths customPaths = new CustomPaths();
         private String fileUploadLimit;
         private TempFileManagement tempFileManagement = new TempFileManagement();
+        private FileStorage fileStorage = new FileStorage();
+        private BatchProcessing batchProcessing = new BatchProcessing();
+        private DocumentMemory documentMemory = new DocumentMemory();
+        private CertificateValidation certificateValidation = new CertificateValidation();
+        private Rendering rendering = new Rendering();
+        private AnalysisCache analysisCache = new AnalysisCache();
+        private ExecutorPools executorPools = new ExecutorPools();
+        private OperationTiming operationTiming = new OperationTiming();
         private DatabaseBackup databaseBackup = new DatabaseBackup();
 
         public boolean isAnalyticsEnabled() {
@@ -401,6 +409,63 @@ public class ApplicationProperties {
         }
     }
 
+    @Data
+    public static class FileStorage {
+        private String backend = "disk"; // disk or memory (memory tier spilling to disk)
+        private boolean deduplicate = true;
+        private int shardDepth = 2;
+        private String fsync = "none"; // none, async or always
+        private long memoryTierMaxMb = 256;
+    }
+
+    @Data
+    public static class BatchProcessing {
+        private int maxThreads = 0; // 0 uses the number of available processors
+    }
+
+    @Data
+    public static class DocumentMemory {
+        private int budgetPercent =
+                40; // share of the max heap open documents and batch work may hold
+    }
+
+    @Data
+    public static class CertificateValidation {
+        private boolean revocationCheck = false; // query OCSP responders and CRL points, opt-in
+        private int fetchTimeoutSeconds = 5;
+        private long cacheTtlMinutes = 60; // for chain results and responses without nextUpdate
+        private String cacheDir = ""; // defaults to <configs>/cache/trust
+    }
+
+    @Data
+    public static class Rendering {
+        private int bandMemoryMb =
+                64; // largest raster buffer per page; bigger pages render in bands
+    }
+
+    @Data
+    public static class AnalysisCache {
+        private int maxMb = 32; // estimated size of the kept analysis results; 0 disables
+        private long ttlMinutes = 30; // how long results are kept after they were computed
+    }
+
+    @Data
+    public static class ExecutorPools {
+        private int cpuThreads = 0; // 0 uses the number of available processors
+        private int cpuQueueCapacity = 200;
+        private int processThreads = 0; // 0 uses twice the number of available processors
+        private int processQueueCapacity = 64;
+        private int ioThreads = 4;
+        private int ioQueueCapacity = 1000;
+        private int schedulerThreads = 2;
+    }
+
+    @Data
+    public static class OperationTiming {
+        private boolean enabled = true; // record per-stage timings of API requests as metrics
+        private boolean serverTimingHeader = false; // also send them in a Server-Timing header
+    }
+
     @Data
     public static class Html {
         private UrlSecurity urlSecurity = new UrlSecurity();
@@ -637,6 +702,14 @@ public class ApplicationProperties {
     public static class ProcessExecutor {
         private SessionLimit sessionLimit = new SessionLimit();
         private TimeoutMinutes timeoutMinutes = new TimeoutMinutes();
+        private AdaptiveConcurrency adaptiveConcurrency = new AdaptiveConcurrency();
+
+        @Data
+        public static class AdaptiveConcurrency {
+            private boolean enabled = false; // adjust session limits to the machine's load
+            private double maxLimitFactor = 2; // limits may grow to this multiple of the above
+            private double targetCpuLoad = 0.9; // limits shrink while system CPU load is higher
+        }
 
         @Data
         public static class SessionLimit {
@@ -0,0 +1,22 @@
+package stirling.software.common.model.api.converters;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class MailboxToPdfRequest extends EmlToPdfRequest {
+
+    // fileInput is an mbox file or a ZIP archive of EML files
+
+    @Schema(
+            description =
+                    "Output format: a ZIP with one PDF per message, or a single merged PDF with"
+                            + " a bookmark per message",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED,
+            allowableValues = {"zip", "pdf"},
+            defaultValue = "zip")
+    private String outputFormat = "zip";
+}
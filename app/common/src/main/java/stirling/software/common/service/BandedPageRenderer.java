@@ -0,0 +1,565 @@
+package stirling.software.common.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.RenderDestination;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.util.ExceptionUtils;
+
+/**
+ * Renders PDF pages as horizontal bands so that high-DPI rasterization needs a fixed amount of
+ * memory rather than a buffer for the whole page.
+ *
+ * <p>A page whose raster fits within the band budget is rendered in one band, exactly like {@link
+ * PDFRenderer#renderImageWithDPI}. Larger pages are split into bands of at most the budget, each
+ * rendered by replaying the page into a buffer shifted to the band's rows. Consumers see the bands
+ * in order, top to bottom: colour transforms and encoders work on one band at a time, {@link
+ * RenderedPage#drawInto} places each band on a PDF page as its own image, and {@link
+ * RenderedPage#writeImage} streams a single image file (e.g. PNG for OCR) row by row.
+ *
+ * <p>Band buffers are pooled and reused between pages and requests. The pool holds at most two
+ * bands' worth of memory and is emptied once it has gone unused for a minute, so an idle server
+ * does not keep large rasters pinned.
+ */
+@Service
+@Slf4j
+public class BandedPageRenderer {
+
+    private static final int DEFAULT_BAND_MEMORY_MB = 64;
+    private static final int POOLED_BANDS = 2;
+    private static final long IDLE_RELEASE_MILLIS = 60_000;
+
+    /** Turns one rendered band into a PDF image, e.g. {@code JPEGFactory::createFromImage}. */
+    @FunctionalInterface
+    public interface BandImageFactory {
+        PDImageXObject create(PDDocument document, BufferedImage band) throws IOException;
+    }
+
+    /** Receives the bands of a page in order. The band buffer is reused once this returns. */
+    @FunctionalInterface
+    public interface BandConsumer {
+        void accept(BufferedImage band, int top) throws IOException;
+    }
+
+    private record BufferKey(int width, int height, int type) {}
+
+    private final long bandBytes;
+    private final Map<BufferKey, Deque<BufferedImage>> pool = new HashMap<>();
+    private final long maxPooledBytes;
+    private long pooledBytes;
+    private boolean usedSinceTrim;
+
+    @Autowired
+    public BandedPageRenderer(ApplicationProperties applicationProperties) {
+        this(
+                (long)
+                                positiveOr(
+                                        applicationProperties
+                                                .getSystem()
+                                                .getRendering()
+                                                .getBandMemoryMb(),
+                                        DEFAULT_BAND_MEMORY_MB)
+                        * 1024
+                        * 1024);
+    }
+
+    public BandedPageRenderer(long bandBytes) {
+        this.bandBytes = Math.max(1, bandBytes);
+        this.maxPooledBytes = this.bandBytes * POOLED_BANDS;
+    }
+
+    /** A renderer with the default band budget, for use outside Spring. */
+    public static BandedPageRenderer withDefaults() {
+        return new BandedPageRenderer((long) DEFAULT_BAND_MEMORY_MB * 1024 * 1024);
+    }
+
+    public long getBandBytes() {
+        return bandBytes;
+    }
+
+    /** Bytes currently held by pooled band buffers. */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /** Drop the pooled buffers if none was taken or returned since the previous call. */
+    @Scheduled(fixedDelay = IDLE_RELEASE_MILLIS)
+    public synchronized void releaseIdleBuffers() {
+        if (!usedSinceTrim && pooledBytes > 0) {
+            log.debug("Releasing {} bytes of idle band buffers", pooledBytes);
+            pool.clear();
+            pooledBytes = 0;
+        }
+        usedSinceTrim = false;
+    }
+
+    /** Draw band images into {@code area}, stacked top to bottom in proportion to their heights. */
+    public static void drawStrips(
+            PDPageContentStream contentStream, List<PDImageXObject> images, PDRectangle area)
+            throws IOException {
+        long totalRows = 0;
+        for (PDImageXObject image : images) {
+            totalRows += image.getHeight();
+        }
+        float unitsPerRow = area.getHeight() / totalRows;
+        float y = area.getUpperRightY();
+        for (PDImageXObject image : images) {
+            float bandUnits = image.getHeight() * unitsPerRow;
+            y -= bandUnits;
+            contentStream.drawImage(image, area.getLowerLeftX(), y, area.getWidth(), bandUnits);
+        }
+    }
+
+    /**
+     * Prepare a page for banded rendering. Nothing is rendered until bands are requested.
+     *
+     * @param dpi resolution, as for {@link PDFRenderer#renderImageWithDPI}
+     * @param imageType {@code RGB}, {@code ARGB} or {@code GRAY}
+     */
+    public RenderedPage open(
+            PDDocument document, PDFRenderer renderer, int pageIndex, int dpi, ImageType imageType)
+            throws IOException {
+        if (imageType != ImageType.RGB
+                && imageType != ImageType.ARGB
+                && imageType != ImageType.GRAY) {
+            throw new IllegalArgumentException("Unsupported image type for banding: " + imageType);
+        }
+        PDPage page = document.getPage(pageIndex);
+        PDRectangle cropBox = page.getCropBox();
+        float scale = dpi / 72f;
+        // Same dimensions as PDFRenderer.renderImage
+        long widthPx = (long) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+        long heightPx = (long) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
+        int rotation = page.getRotation();
+        if (rotation == 90 || rotation == 270) {
+            long swap = widthPx;
+            widthPx = heightPx;
+            heightPx = swap;
+        }
+        if (widthPx > Integer.MAX_VALUE || heightPx > Integer.MAX_VALUE) {
+            throw ExceptionUtils.createOutOfMemoryDpiException(
+                    pageIndex + 1, dpi, new NegativeArraySizeException());
+        }
+        int bytesPerPixel = imageType == ImageType.GRAY ? 1 : 4;
+        long rowBytes = widthPx * bytesPerPixel;
+        int bandHeight = (int) Math.max(1, Math.min(heightPx, bandBytes / rowBytes));
+        if (bandHeight < heightPx) {
+            log.debug(
+                    "Rendering page {} ({}x{} px at {} DPI) in bands of {} rows",
+                    pageIndex + 1,
+                    widthPx,
+                    heightPx,
+                    dpi,
+                    bandHeight);
+        }
+        return new RenderedPage(
+                renderer,
+                pageIndex,
+                dpi,
+                scale,
+                imageType,
+                (int) widthPx,
+                (int) heightPx,
+                bandHeight);
+    }
+
+    private synchronized BufferedImage acquire(int width, int height, int type) {
+        usedSinceTrim = true;
+        BufferKey key = new BufferKey(width, height, type);
+        Deque<BufferedImage> free = pool.get(key);
+        if (free == null || free.isEmpty()) {
+            return null;
+        }
+        BufferedImage buffer = free.pop();
+        if (free.isEmpty()) {
+            pool.remove(key);
+        }
+        pooledBytes -= bytesOf(buffer);
+        return buffer;
+    }
+
+    private synchronized void release(BufferedImage buffer) {
+        if (buffer == null) {
+            return;
+        }
+        usedSinceTrim = true;
+        long size = bytesOf(buffer);
+        if (pooledBytes + size > maxPooledBytes) {
+            return;
+        }
+        pool.computeIfAbsent(
+                        new BufferKey(buffer.getWidth(), buffer.getHeight(), buffer.getType()),
+                        key -> new ArrayDeque<>())
+                .push(buffer);
+        pooledBytes += size;
+    }
+
+    private static long bytesOf(BufferedImage buffer) {
+        int bytesPerPixel = buffer.getType() == BufferedImage.TYPE_BYTE_GRAY ? 1 : 4;
+        return (long) buffer.getWidth() * buffer.getHeight() * bytesPerPixel;
+    }
+
+    private static int positiveOr(int value, int fallback) {
+        return value > 0 ? value : fallback;
+    }
+
+    /** One page prepared for banded rendering. Closing it returns the band buffers to the pool. */
+    public final class RenderedPage implements AutoCloseable {
+
+        private final PDFRenderer renderer;
+        private final int pageIndex;
+        private final int dpi;
+        private final float scale;
+        private final ImageType imageType;
+        private final int width;
+        private final int height;
+        private final int bandHeight;
+
+        private BufferedImage fullBand;
+        private BufferedImage lastBand;
+        private int renderedBand = -1;
+        private BufferedImage renderedImage;
+
+        private RenderedPage(
+                PDFRenderer renderer,
+                int pageIndex,
+                int dpi,
+                float scale,
+                ImageType imageType,
+                int width,
+                int height,
+                int bandHeight) {
+            this.renderer = renderer;
+            this.pageIndex = pageIndex;
+            this.dpi = dpi;
+            this.scale = scale;
+            this.imageType = imageType;
+            this.width = width;
+            this.height = height;
+            this.bandHeight = bandHeight;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getBandHeight() {
+            return bandHeight;
+        }
+
+        public int getBandCount() {
+            return (height + bandHeight - 1) / bandHeight;
+        }
+
+        /**
+         * Render one band. The returned image is only valid until the next band is rendered or the
+         * page is closed.
+         */
+        public BufferedImage renderBand(int band) throws IOException {
+            if (band == renderedBand) {
+                return renderedImage;
+            }
+            int top = band * bandHeight;
+            int rows = Math.min(bandHeight, height - top);
+            BufferedImage buffer = bufferFor(rows);
+            Graphics2D graphics = buffer.createGraphics();
+            try {
+                graphics.setBackground(
+                        imageType == ImageType.ARGB ? new Color(0, 0, 0, 0) : Color.WHITE);
+                graphics.clearRect(0, 0, width, rows);
+                graphics.translate(0, -top);
+                renderer.renderPageToGraphics(
+                        pageIndex, graphics, scale, scale, RenderDestination.EXPORT);
+            } finally {
+                graphics.dispose();
+            }
+            renderedBand = band;
+            renderedImage = buffer;
+            return buffer;
+        }
+
+        /** Render all bands in order and hand each to the consumer. */
+        public void forEachBand(BandConsumer consumer) throws IOException {
+            for (int band = 0; band < getBandCount(); band++) {
+                consumer.accept(renderBand(band), band * bandHeight);
+            }
+        }
+
+        /**
+         * Draw the page into {@code area} of a PDF page, one image per band, stacked top to bottom.
+         * A page that fits one band becomes a single image.
+         */
+        public void drawInto(
+                PDDocument document,
+                PDPageContentStream contentStream,
+                PDRectangle area,
+                BandImageFactory imageFactory)
+                throws IOException {
+            drawStrips(contentStream, createImages(document, imageFactory), area);
+        }
+
+        /**
+         * Convert every band to a PDF image, top to bottom. Use this with {@link #drawStrips} when
+         * the page being rendered is also the page being drawn on, since its content cannot be read
+         * while a content stream for it is open.
+         */
+        public List<PDImageXObject> createImages(PDDocument document, BandImageFactory imageFactory)
+                throws IOException {
+            List<PDImageXObject> images = new ArrayList<>(getBandCount());
+            forEachBand((band, top) -> images.add(imageFactory.create(document, band)));
+            return images;
+        }
+
+        /**
+         * Encode the page as one image file. For PNG the writer pulls rows one at a time, so only
+         * one band is held in memory.
+         */
+        public void writeImage(String formatName, OutputStream out) throws IOException {
+            RenderedImage image = getBandCount() == 1 ? renderBand(0) : new BandedImage(this);
+            if (!ImageIO.write(image, formatName, out)) {
+                throw new IOException("No image writer for format " + formatName);
+            }
+        }
+
+        private BufferedImage bufferFor(int rows) {
+            if (rows == bandHeight) {
+                if (fullBand == null) {
+                    fullBand = allocate(rows);
+                }
+                return fullBand;
+            }
+            if (lastBand == null) {
+                lastBand = allocate(rows);
+            }
+            return lastBand;
+        }
+
+        private BufferedImage allocate(int rows) {
+            int type =
+                    switch (imageType) {
+                        case ARGB -> BufferedImage.TYPE_INT_ARGB;
+                        case GRAY -> BufferedImage.TYPE_BYTE_GRAY;
+                        default -> BufferedImage.TYPE_INT_RGB;
+                    };
+            BufferedImage buffer = acquire(width, rows, type);
+            if (buffer != null) {
+                return buffer;
+            }
+            try {
+                return new BufferedImage(width, rows, type);
+            } catch (OutOfMemoryError | NegativeArraySizeException e) {
+                throw ExceptionUtils.createOutOfMemoryDpiException(pageIndex + 1, dpi, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            release(fullBand);
+            release(lastBand);
+            fullBand = null;
+            lastBand = null;
+            renderedImage = null;
+            renderedBand = -1;
+        }
+    }
+
+    /**
+     * A read-only {@link RenderedImage} view of a banded page whose tiles are the bands, rendered
+     * on demand. Only the most recently rendered band is held.
+     */
+    private static final class BandedImage implements RenderedImage {
+
+        private final RenderedPage page;
+        private final ColorModel colorModel;
+        private final SampleModel sampleModel;
+
+        BandedImage(RenderedPage page) throws IOException {
+            this.page = page;
+            BufferedImage first = page.renderBand(0);
+            this.colorModel = first.getColorModel();
+            this.sampleModel = first.getSampleModel();
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return java.awt.Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return colorModel;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return page.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return page.getHeight();
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return page.getBandCount();
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return page.getWidth();
+        }
+
+        @Override
+        public int getTileHeight() {
+            return page.getBandHeight();
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            BufferedImage band = band(tileY);
+            return band.getRaster()
+                    .createChild(
+                            0,
+                            0,
+                            band.getWidth(),
+                            band.getHeight(),
+                            0,
+                            tileY * page.getBandHeight(),
+                            null);
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, getWidth(), getHeight()));
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            WritableRaster raster =
+                    Raster.createWritableRaster(
+                            sampleModel.createCompatibleSampleModel(rect.width, rect.height),
+                            rect.getLocation());
+            return copyData(raster);
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            Rectangle bounds = raster.getBounds();
+            int bandHeight = page.getBandHeight();
+            int firstBand = Math.max(0, bounds.y / bandHeight);
+            int lastBand =
+                    Math.min(page.getBandCount() - 1, (bounds.y + bounds.height - 1) / bandHeight);
+            for (int tileY = firstBand; tileY <= lastBand; tileY++) {
+                Raster tile = getTile(0, tileY);
+                Rectangle overlap = tile.getBounds().intersection(bounds);
+                if (!overlap.isEmpty()) {
+                    raster.setRect(
+                            tile.createChild(
+                                    overlap.x,
+                                    overlap.y,
+                                    overlap.width,
+                                    overlap.height,
+                                    overlap.x,
+                                    overlap.y,
+                                    null));
+                }
+            }
+            return raster;
+        }
+
+        private BufferedImage band(int index) {
+            try {
+                return page.renderBand(index);
+            } catch (IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }
+    }
+}
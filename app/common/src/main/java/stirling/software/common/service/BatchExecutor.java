@@ -0,0 +1,422 @@
+package stirling.software.common.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.ToLongFunction;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.metrics.OperationTrace;
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.util.ProcessExecutor;
+
+/**
+ * Fans per-file work of multi-file requests out to the shared CPU pool of {@link ExecutorPools}.
+ *
+ * <p>Items are started in input order and results are delivered to the caller in the same order, so
+ * the caller can assemble output (pages of a PDF, entries of a ZIP) without sorting. Each item
+ * reserves an estimate of the heap it will hold from the process-wide budget of {@link
+ * MemoryBudgetManager}, which open documents draw from too; the reservation is kept until its
+ * result has been consumed. When the work ends up in an external tool, passing its {@link
+ * ProcessExecutor.Processes} type caps the fan-out at that tool's session limit so workers do not
+ * just queue up on the ProcessExecutor semaphore.
+ *
+ * <p>Page-level work on one document goes through {@link #forEachPageRange}. PDFBox documents
+ * cannot be read from several threads, so the pages are split into at most one contiguous range per
+ * worker and each worker loads a single private copy of the document for its range.
+ *
+ * <p>Request attributes and the {@link OperationTrace} of the calling thread are propagated to the
+ * workers, so tasks behave the same whether they run inline, inside an {@code @AutoJobPostMapping}
+ * job or on the pool. The pool is shared with other requests, so the calling thread runs any item
+ * the pool has not started by the time its result is due, and items the full pool refuses; a batch
+ * therefore never waits for threads that are themselves waiting. Batches started from a worker run
+ * inline.
+ */
+@Service
+@Slf4j
+public class BatchExecutor implements DisposableBean {
+
+    private static final ThreadLocal<Boolean> IN_WORKER = ThreadLocal.withInitial(() -> false);
+
+    /** How long an item waits for memory held outside the batch before it runs unreserved. */
+    static final long RESERVE_WAIT_MILLIS = 2_000;
+
+    /** Work to run for one item of a batch. */
+    @FunctionalInterface
+    public interface BatchTask<T, R> {
+        R apply(int index, T item) throws Exception;
+    }
+
+    /** Receives results in input order, on the calling thread. */
+    @FunctionalInterface
+    public interface ResultConsumer<R> {
+        void accept(int index, R result) throws IOException;
+    }
+
+    /** Consecutive pages from {@code fromPage} (inclusive) to {@code toPage} (exclusive). */
+    public record PageRange(int fromPage, int toPage) {
+
+        public int size() {
+            return toPage - fromPage;
+        }
+    }
+
+    /** Loads a private, read-only copy of the document a worker reads its page range from. */
+    @FunctionalInterface
+    public interface DocumentLoader {
+        PDDocument load() throws IOException;
+    }
+
+    /** Work on one range of pages of a document owned by the executing thread. */
+    @FunctionalInterface
+    public interface PageRangeTask<R> {
+        R apply(PDDocument document, PageRange range) throws Exception;
+    }
+
+    /** Receives the results of page ranges in page order, on the calling thread. */
+    @FunctionalInterface
+    public interface PageRangeConsumer<R> {
+        void accept(PageRange range, R result) throws IOException;
+    }
+
+    private record Pending<R>(int index, FutureTask<R> future, long reservedBytes) {}
+
+    private final int parallelism;
+    private final MemoryBudget memoryBudget;
+    private final ExecutorService pool;
+
+    /** Pools created for this executor outside Spring, shut down with it. */
+    private final ExecutorPools ownPools;
+
+    @Autowired
+    public BatchExecutor(
+            ApplicationProperties applicationProperties,
+            MemoryBudgetManager memoryBudgetManager,
+            ExecutorPools executorPools) {
+        this(
+                resolveParallelism(
+                        applicationProperties.getSystem().getBatchProcessing().getMaxThreads()),
+                memoryBudgetManager.getBudget(),
+                executorPools);
+    }
+
+    /** An executor with a budget of its own, for use outside Spring. */
+    public BatchExecutor(int parallelism, long memoryBudgetBytes) {
+        this(parallelism, new MemoryBudget(memoryBudgetBytes));
+    }
+
+    /** An executor with pools of its own, with one CPU thread per item in flight. */
+    public BatchExecutor(int parallelism, MemoryBudget memoryBudget) {
+        this(parallelism, memoryBudget, ownPools(parallelism), true);
+    }
+
+    public BatchExecutor(int parallelism, MemoryBudget memoryBudget, ExecutorPools executorPools) {
+        this(parallelism, memoryBudget, executorPools, false);
+    }
+
+    private BatchExecutor(
+            int parallelism, MemoryBudget memoryBudget, ExecutorPools executorPools, boolean own) {
+        this.parallelism = Math.max(1, parallelism);
+        this.memoryBudget = memoryBudget;
+        this.pool = executorPools.cpu();
+        this.ownPools = own ? executorPools : null;
+        log.debug("Batch executor running up to {} items at once", this.parallelism);
+    }
+
+    private static ExecutorPools ownPools(int parallelism) {
+        ApplicationProperties.ExecutorPools settings = new ApplicationProperties.ExecutorPools();
+        settings.setCpuThreads(Math.max(1, parallelism));
+        return new ExecutorPools(settings);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Run the task for every item and return the results in input order.
+     *
+     * @param items the inputs, e.g. uploaded files
+     * @param memoryEstimate heap bytes an item holds until its result is consumed
+     * @param task the per-item work
+     */
+    public <T, R> List<R> map(
+            List<T> items, ToLongFunction<? super T> memoryEstimate, BatchTask<T, R> task)
+            throws IOException {
+        List<R> results = new ArrayList<>(items.size());
+        forEachOrdered(items, memoryEstimate, task, (index, result) -> results.add(result));
+        return results;
+    }
+
+    /**
+     * Run the task for every item and hand each result to the consumer in input order. Unlike
+     * {@link #map}, memory reserved for an item is released as soon as it has been consumed, so
+     * large intermediate results never pile up.
+     */
+    public <T, R> void forEachOrdered(
+            List<T> items,
+            ToLongFunction<? super T> memoryEstimate,
+            BatchTask<T, R> task,
+            ResultConsumer<? super R> consumer)
+            throws IOException {
+        run(items, parallelism, memoryEstimate, task, consumer);
+    }
+
+    /**
+     * Like {@link #forEachOrdered(List, ToLongFunction, BatchTask, ResultConsumer)} for tasks that
+     * run an external tool, with the fan-out capped at the tool's session limit.
+     */
+    public <T, R> void forEachOrdered(
+            List<T> items,
+            ProcessExecutor.Processes processType,
+            ToLongFunction<? super T> memoryEstimate,
+            BatchTask<T, R> task,
+            ResultConsumer<? super R> consumer)
+            throws IOException {
+        int sessionLimit = ProcessExecutor.getInstance(processType).getSessionLimit();
+        run(items, Math.min(parallelism, sessionLimit), memoryEstimate, task, consumer);
+    }
+
+    /**
+     * Split pages into contiguous ranges, at most one per worker, so that each worker loads the
+     * document only once. Ranges start on a multiple of {@code pagesPerUnit}, so a task that groups
+     * pages, e.g. onto one sheet, always sees whole groups.
+     *
+     * @param pageCount number of pages, or of selected pages when ranges index a selection
+     * @param minPagesPerRange fewer pages than this per range are not worth another copy; with
+     *     fewer pages in total the result is a single range
+     */
+    public List<PageRange> splitPages(int pageCount, int minPagesPerRange, int pagesPerUnit) {
+        int unit = Math.max(1, pagesPerUnit);
+        int units = (pageCount + unit - 1) / unit;
+        if (units == 0) {
+            return List.of();
+        }
+        int minUnitsPerRange = Math.max(1, minPagesPerRange / unit);
+        int rangeCount = Math.min(parallelism, Math.max(1, units / minUnitsPerRange));
+        int unitsPerRange = (units + rangeCount - 1) / rangeCount;
+        List<PageRange> ranges = new ArrayList<>(rangeCount);
+        for (int first = 0; first < units; first += unitsPerRange) {
+            ranges.add(
+                    new PageRange(
+                            first * unit, Math.min(pageCount, (first + unitsPerRange) * unit)));
+        }
+        return ranges;
+    }
+
+    /**
+     * Run the task for every page range and hand each result to the consumer in page order. A
+     * single range, or a batch started from a worker, runs on {@code document} on the calling
+     * thread; otherwise each range runs on its own copy from {@code copies}, which is closed when
+     * the task returns.
+     *
+     * @param document the loaded document, owned by the calling thread
+     * @param ranges ranges from {@link #splitPages}
+     * @param copyBytes heap bytes a copy and its result hold until the result is consumed
+     */
+    public <R> void forEachPageRange(
+            PDDocument document,
+            List<PageRange> ranges,
+            long copyBytes,
+            DocumentLoader copies,
+            PageRangeTask<R> task,
+            PageRangeConsumer<? super R> consumer)
+            throws IOException {
+        if (ranges.size() <= 1 || IN_WORKER.get()) {
+            runInline(
+                    ranges,
+                    (index, range) -> task.apply(document, range),
+                    (index, result) -> consumer.accept(ranges.get(index), result));
+            return;
+        }
+        forEachOrdered(
+                ranges,
+                range -> copyBytes,
+                (index, range) -> {
+                    try (PDDocument copy = copies.load()) {
+                        return task.apply(copy, range);
+                    }
+                },
+                (index, result) -> consumer.accept(ranges.get(index), result));
+    }
+
+    private <T, R> void run(
+            List<T> items,
+            int maxInFlight,
+            ToLongFunction<? super T> memoryEstimate,
+            BatchTask<T, R> task,
+            ResultConsumer<? super R> consumer)
+            throws IOException {
+        if (items.isEmpty()) {
+            return;
+        }
+        if (maxInFlight <= 1 || items.size() == 1 || IN_WORKER.get()) {
+            runInline(items, task, consumer);
+            return;
+        }
+
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        OperationTrace trace = OperationTrace.current();
+        Deque<Pending<R>> pending = new ArrayDeque<>();
+        boolean budgetHeldOutside = false;
+        int next = 0;
+        try {
+            while (next < items.size() || !pending.isEmpty()) {
+                if (next < items.size() && pending.size() < maxInFlight) {
+                    T item = items.get(next);
+                    long estimate = memoryEstimate.applyAsLong(item);
+                    long reserved = memoryBudget.tryReserve(estimate);
+                    if (reserved < 0 && pending.isEmpty()) {
+                        // Nothing of ours to drain, so wait for other batches to release memory.
+                        // The caller may itself hold part of the budget (e.g. its open document),
+                        // which nobody else can release, so after one timed-out wait the batch
+                        // runs its items unreserved, one at a time.
+                        if (!budgetHeldOutside) {
+                            reserved = memoryBudget.reserve(estimate, RESERVE_WAIT_MILLIS);
+                            budgetHeldOutside = reserved < 0;
+                            if (budgetHeldOutside) {
+                                log.debug(
+                                        "Memory budget still exhausted after {} ms, running the"
+                                                + " rest of the batch without reservations",
+                                        RESERVE_WAIT_MILLIS);
+                            }
+                        }
+                        reserved = Math.max(0, reserved);
+                    }
+                    if (reserved >= 0) {
+                        pending.addLast(
+                                new Pending<>(
+                                        next,
+                                        submit(task, next, item, requestAttributes, trace),
+                                        reserved));
+                        next++;
+                        continue;
+                    }
+                }
+
+                // Either the window is full or the budget is: consume the oldest result, running
+                // it here if no worker has picked it up yet
+                Pending<R> head = pending.pollFirst();
+                try {
+                    head.future().run();
+                    consumer.accept(head.index(), head.future().get());
+                } finally {
+                    memoryBudget.release(head.reservedBytes());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch processing was interrupted");
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } finally {
+            for (Pending<R> remaining : pending) {
+                remaining.future().cancel(true);
+                memoryBudget.release(remaining.reservedBytes());
+            }
+        }
+    }
+
+    /**
+     * Queue the item on the pool. The returned task runs at most once, either on a worker or on the
+     * calling thread, which runs it when its result is due if the pool has not started or refused
+     * it.
+     */
+    private <T, R> FutureTask<R> submit(
+            BatchTask<T, R> task,
+            int index,
+            T item,
+            RequestAttributes requestAttributes,
+            OperationTrace trace) {
+        FutureTask<R> future =
+                new FutureTask<>(
+                        () -> {
+                            RequestAttributes previous =
+                                    RequestContextHolder.getRequestAttributes();
+                            IN_WORKER.set(true);
+                            if (requestAttributes != null) {
+                                RequestContextHolder.setRequestAttributes(requestAttributes);
+                            }
+                            try {
+                                return trace == null
+                                        ? task.apply(index, item)
+                                        : trace.callBound(() -> task.apply(index, item));
+                            } finally {
+                                if (previous == null) {
+                                    RequestContextHolder.resetRequestAttributes();
+                                } else {
+                                    RequestContextHolder.setRequestAttributes(previous);
+                                }
+                                IN_WORKER.remove();
+                            }
+                        });
+        try {
+            pool.execute(future);
+        } catch (RejectedExecutionException e) {
+            log.debug("CPU pool is full, running batch item {} on the calling thread", index);
+        }
+        return future;
+    }
+
+    private static <T, R> void runInline(
+            List<T> items, BatchTask<T, R> task, ResultConsumer<? super R> consumer)
+            throws IOException {
+        for (int i = 0; i < items.size(); i++) {
+            R result;
+            try {
+                result = task.apply(i, items.get(i));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Batch processing was interrupted");
+            } catch (Exception e) {
+                throw unwrap(e);
+            }
+            consumer.accept(i, result);
+        }
+    }
+
+    private static IOException unwrap(Throwable cause) {
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IOException("Batch task failed: " + cause.getMessage(), cause);
+    }
+
+    private static int resolveParallelism(int configuredThreads) {
+        return configuredThreads > 0
+                ? configuredThreads
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void destroy() {
+        if (ownPools != null) {
+            ownPools.destroy();
+        }
+    }
+}
@@ -13,15 +13,19 @@ import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.examples.util.DeletingRandomAccessFile;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
 import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
 import org.apache.pdfbox.io.ScratchFile;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import stirling.software.common.metrics.OperationTrace;
 import stirling.software.common.model.api.PDFFile;
 import stirling.software.common.util.ApplicationContextProvider;
 import stirling.software.common.util.ExceptionUtils;
@@ -64,11 +68,21 @@ public class CustomPDFDocumentFactory {
     // bound.
 
     private static final double MIN_FREE_MEMORY_PERCENTAGE = 30.0; // 30%
-    private static final long MIN_FREE_MEMORY_BYTES = 4L * 1024 * 1024 * 1024; // 4 GB
+
+    // A memory-only cache holds the parsed document next to the source bytes, so it is charged
+    // against the MemoryBudgetManager at twice the content size
+    private static final long MEMORY_ONLY_FOOTPRINT_FACTOR = 2;
 
     // Counter for tracking temporary resources
     private static final AtomicLong tempCounter = new AtomicLong(0);
 
+    private MemoryBudgetManager memoryBudgetManager = MemoryBudgetManager.withDefaultBudget();
+
+    @Autowired(required = false)
+    void setMemoryBudgetManager(MemoryBudgetManager memoryBudgetManager) {
+        this.memoryBudgetManager = memoryBudgetManager;
+    }
+
     /**
      * Main entry point for loading a PDF document from a file. Automatically selects the most
      * appropriate loading strategy.
@@ -234,6 +248,11 @@ public class CustomPDFDocumentFactory {
     /**
      * Determine the appropriate caching strategy based on file size and available memory. This
      * common method is used by both password and non-password loading paths.
+     *
+     * <p>In-memory and mixed caches reserve their expected heap from the process-wide {@link
+     * MemoryBudgetManager} when the cache is created and release it when the document is closed, or
+     * when a document that was never closed is garbage collected. If the budget cannot cover a
+     * load, that load degrades to the next more disk-bound strategy.
      */
     public StreamCacheCreateFunction getStreamCacheFunction(long contentSize) {
         long maxMemory = Runtime.getRuntime().maxMemory();
@@ -247,34 +266,89 @@ public class CustomPDFDocumentFactory {
 
         // Log memory status
         log.debug(
-                "Memory status - Free: {}MB ({}%), Used: {}MB, Max: {}MB",
+                "Memory status - Free: {}MB ({}%), Used: {}MB, Max: {}MB, Budget reserved: {}MB",
                 actualFreeMemory / (1024 * 1024),
                 String.format("%.2f", freeMemoryPercent),
                 usedMemory / (1024 * 1024),
-                maxMemory / (1024 * 1024));
+                maxMemory / (1024 * 1024),
+                memoryBudgetManager.getReservedBytes() / (1024 * 1024));
 
         // If free memory is critically low, always use file-based caching
-        if (freeMemoryPercent < MIN_FREE_MEMORY_PERCENTAGE
-                || actualFreeMemory < MIN_FREE_MEMORY_BYTES) {
+        if (freeMemoryPercent < MIN_FREE_MEMORY_PERCENTAGE) {
             log.debug(
                     "Low memory detected ({}%), forcing file-based cache",
                     String.format("%.2f", freeMemoryPercent));
             return createScratchFileCacheFunction(MemoryUsageSetting.setupTempFileOnly());
         } else if (contentSize < SMALL_FILE_THRESHOLD) {
             log.debug("Using memory-only cache for small document ({}KB)", contentSize / 1024);
-            return IOUtils.createMemoryOnlyStreamCache();
+            return budgetedCacheFunction(contentSize * MEMORY_ONLY_FOOTPRINT_FACTOR, true);
         } else if (contentSize < LARGE_FILE_THRESHOLD) {
             // For medium files (10-50MB), use a mixed approach
             log.debug(
                     "Using mixed memory/file cache for medium document ({}MB)",
                     contentSize / (1024 * 1024));
-            return createScratchFileCacheFunction(MemoryUsageSetting.setupMixed(LARGE_FILE_USAGE));
+            return budgetedCacheFunction(LARGE_FILE_USAGE, false);
         } else {
             log.debug("Using file-based cache for large document");
             return createScratchFileCacheFunction(MemoryUsageSetting.setupTempFileOnly());
         }
     }
 
+    /**
+     * Reserve heap for a memory-only or mixed cache when the cache is created. Memory-only loads
+     * that do not fit fall back to a mixed cache, and mixed ones to a temp-file-only cache.
+     */
+    private StreamCacheCreateFunction budgetedCacheFunction(long bytes, boolean memoryOnly) {
+        return () -> {
+            MemoryBudgetManager.Reservation reservation = memoryBudgetManager.tryReserve(bytes);
+            if (reservation != null) {
+                RandomAccessStreamCache cache =
+                        memoryOnly
+                                ? IOUtils.createMemoryOnlyStreamCache().create()
+                                : createScratchFileCacheFunction(
+                                                MemoryUsageSetting.setupMixed(LARGE_FILE_USAGE))
+                                        .create();
+                BudgetedStreamCache budgeted = new BudgetedStreamCache(cache, reservation);
+                // The document holds its stream cache, so a leaked document frees the cache too
+                reservation.releaseWhenUnreachable(budgeted);
+                return budgeted;
+            }
+            if (memoryOnly) {
+                log.debug("Memory budget exhausted, degrading memory-only cache to mixed");
+                return budgetedCacheFunction(LARGE_FILE_USAGE, false).create();
+            }
+            log.debug("Memory budget exhausted, degrading mixed cache to file-based");
+            return createScratchFileCacheFunction(MemoryUsageSetting.setupTempFileOnly()).create();
+        };
+    }
+
+    /** Stream cache that returns its memory reservation when the owning document is closed. */
+    private static final class BudgetedStreamCache implements RandomAccessStreamCache {
+
+        private final RandomAccessStreamCache delegate;
+        private final MemoryBudgetManager.Reservation reservation;
+
+        BudgetedStreamCache(
+                RandomAccessStreamCache delegate, MemoryBudgetManager.Reservation reservation) {
+            this.delegate = delegate;
+            this.reservation = reservation;
+        }
+
+        @Override
+        public RandomAccess createBuffer() throws IOException {
+            return delegate.createBuffer();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                delegate.close();
+            } finally {
+                reservation.close();
+            }
+        }
+    }
+
     /** Update the existing loadAdaptively method to use the common function */
     private PDDocument loadAdaptively(Object source, long contentSize) throws IOException {
         // Get the appropriate caching strategy
@@ -286,12 +360,15 @@ public class CustomPDFDocumentFactory {
             file.delete();
         }
         PDDocument document;
-        if (source instanceof File file) {
-            document = loadFromFile(file, contentSize, cacheFunction);
-        } else if (source instanceof byte[] bytes) {
-            document = loadFromBytes(bytes, contentSize, cacheFunction);
-        } else {
-            throw new IllegalArgumentException("Unsupported source type: " + source.getClass());
+        try (OperationTrace.Stage stage = OperationTrace.start(OperationTrace.LOAD)) {
+            stage.addBytes(contentSize);
+            if (source instanceof File file) {
+                document = loadFromFile(file, contentSize, cacheFunction);
+            } else if (source instanceof byte[] bytes) {
+                document = loadFromBytes(bytes, contentSize, cacheFunction);
+            } else {
+                throw new IllegalArgumentException("Unsupported source type: " + source.getClass());
+            }
         }
 
         configureResourceCacheIfNeeded(document, contentSize);
@@ -330,12 +407,15 @@ public class CustomPDFDocumentFactory {
             file.delete();
         }
         PDDocument document;
-        if (source instanceof File file) {
-            document = loadFromFileWithPassword(file, contentSize, cacheFunction, password);
-        } else if (source instanceof byte[] bytes) {
-            document = loadFromBytesWithPassword(bytes, contentSize, cacheFunction, password);
-        } else {
-            throw new IllegalArgumentException("Unsupported source type: " + source.getClass());
+        try (OperationTrace.Stage stage = OperationTrace.start(OperationTrace.LOAD)) {
+            stage.addBytes(contentSize);
+            if (source instanceof File file) {
+                document = loadFromFileWithPassword(file, contentSize, cacheFunction, password);
+            } else if (source instanceof byte[] bytes) {
+                document = loadFromBytesWithPassword(bytes, contentSize, cacheFunction, password);
+            } else {
+                throw new IllegalArgumentException("Unsupported source type: " + source.getClass());
+            }
         }
 
         configureResourceCacheIfNeeded(document, contentSize);
@@ -418,19 +498,35 @@ public class CustomPDFDocumentFactory {
     }
 
     public byte[] saveToBytes(PDDocument document) throws IOException {
-        if (document.getNumberOfPages() < 10) { // Simple heuristic
-            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                document.save(baos);
-                return baos.toByteArray();
+        try (OperationTrace.Stage stage = OperationTrace.start(OperationTrace.SAVE)) {
+            byte[] bytes;
+            if (document.getNumberOfPages() < 10) { // Simple heuristic
+                try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                    document.save(baos);
+                    bytes = baos.toByteArray();
+                }
+            } else {
+                Path tempFile = createTempFile("pdf-save-");
+
+                document.save(tempFile.toFile());
+                bytes = Files.readAllBytes(tempFile);
             }
-        } else {
-            Path tempFile = createTempFile("pdf-save-");
-
-            document.save(tempFile.toFile());
-            return Files.readAllBytes(tempFile);
+            stage.addBytes(bytes.length);
+            return bytes;
         }
     }
 
+    /**
+     * Whether the document can be saved as an incremental update, i.e. the bytes it was loaded from
+     * followed by only the objects changed since. This needs a document parsed from a file or
+     * stream whose encryption is left as it was; operations that touch a few objects, such as
+     * editing metadata or bookmarks, then avoid rewriting the whole file, and existing signatures
+     * stay valid.
+     */
+    public boolean canSaveIncrementally(PDDocument document) {
+        return document.getDocument().getStartXref() > 0 && !document.isAllSecurityToBeRemoved();
+    }
+
     // Improved password handling
     private void removePassword(PDDocument document) throws IOException {
         if (document.isEncrypted()) {
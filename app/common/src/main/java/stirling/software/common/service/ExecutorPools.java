@@ -0,0 +1,192 @@
+package stirling.software.common.service;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.util.ExecutorFactory;
+import stirling.software.common.util.RasterOps;
+
+/**
+ * The shared, bounded thread pools that background work runs on, one per kind of work.
+ *
+ * <ul>
+ *   <li>{@link #cpu()} runs the workers of {@link BatchExecutor} and the bands of {@link RasterOps}
+ *       kernels: the fan-out of rendering and other work that keeps a core busy. It has one thread
+ *       per processor by default and refuses work with a {@link
+ *       java.util.concurrent.RejectedExecutionException} once its queue is full; both users then
+ *       run the work on the submitting thread instead of starting ever more threads.
+ *   <li>{@link #process()} runs the bodies of request jobs and other tasks that may wait on
+ *       external tools. Their concurrency is capped by the ProcessExecutor session limits, so these
+ *       threads often sleep; when the pool is full the submitting thread runs the task itself,
+ *       which slows the submitter down.
+ *   <li>{@link #io()} runs background disk work, also falling back to the submitting thread.
+ *   <li>{@link #scheduler()} runs periodic housekeeping.
+ *   <li>{@link #waits()} runs tasks that only wait for work submitted elsewhere. It uses virtual
+ *       threads where available and must not be given work that uses the CPU itself.
+ * </ul>
+ *
+ * <p>Pool sizes come from {@code system.executorPools}. Queue depth, active threads and completed
+ * tasks are published per pool through Micrometer's {@code executor.*} metrics, tagged with the
+ * pool name, and refused tasks as {@code stirling.executor.rejected}.
+ */
+@Component
+@Slf4j
+public class ExecutorPools implements MeterBinder, DisposableBean {
+
+    public static final String CPU = "cpu";
+    public static final String PROCESS = "process";
+    public static final String IO = "io";
+
+    private final ThreadPoolExecutor cpu;
+    private final ThreadPoolExecutor process;
+    private final ThreadPoolExecutor io;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ExecutorService waits = ExecutorFactory.newVirtualOrCachedThreadExecutor();
+
+    private final AtomicLong cpuRejected = new AtomicLong();
+    private final AtomicLong processRejected = new AtomicLong();
+    private final AtomicLong ioRejected = new AtomicLong();
+
+    /** Whether these are the application's pools, which {@link RasterOps} runs its bands on. */
+    private boolean runsRasterBands;
+
+    @Autowired
+    public ExecutorPools(ApplicationProperties applicationProperties) {
+        this(applicationProperties.getSystem().getExecutorPools());
+        RasterOps.useExecutor(cpu, cpu.getMaximumPoolSize());
+        runsRasterBands = true;
+    }
+
+    public ExecutorPools(ApplicationProperties.ExecutorPools settings) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int cpuThreads = settings.getCpuThreads() > 0 ? settings.getCpuThreads() : processors;
+        int processThreads =
+                settings.getProcessThreads() > 0 ? settings.getProcessThreads() : 2 * processors;
+
+        this.cpu =
+                ExecutorFactory.newBoundedExecutor(
+                        "cpu-worker",
+                        cpuThreads,
+                        settings.getCpuQueueCapacity(),
+                        counting(cpuRejected, new ThreadPoolExecutor.AbortPolicy()));
+        this.process =
+                ExecutorFactory.newBoundedExecutor(
+                        "process-worker",
+                        processThreads,
+                        settings.getProcessQueueCapacity(),
+                        counting(processRejected, new ThreadPoolExecutor.CallerRunsPolicy()));
+        this.io =
+                ExecutorFactory.newBoundedExecutor(
+                        "io-worker",
+                        settings.getIoThreads(),
+                        settings.getIoQueueCapacity(),
+                        counting(ioRejected, new ThreadPoolExecutor.CallerRunsPolicy()));
+        this.scheduler = ExecutorFactory.newScheduler("scheduler", settings.getSchedulerThreads());
+        log.debug(
+                "Executor pools: cpu {} threads, process {} threads, io {} threads",
+                cpu.getMaximumPoolSize(),
+                process.getMaximumPoolSize(),
+                io.getMaximumPoolSize());
+    }
+
+    /** Pools with the default settings, for use outside Spring. */
+    public static ExecutorPools withDefaults() {
+        return new ExecutorPools(new ApplicationProperties.ExecutorPools());
+    }
+
+    public ExecutorService cpu() {
+        return cpu;
+    }
+
+    public ExecutorService process() {
+        return process;
+    }
+
+    public ExecutorService io() {
+        return io;
+    }
+
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    public ExecutorService waits() {
+        return waits;
+    }
+
+    /** Tasks refused by the named pool, or run by their submitter because the pool was full. */
+    public long getRejectedCount(String pool) {
+        return switch (pool) {
+            case CPU -> cpuRejected.get();
+            case PROCESS -> processRejected.get();
+            case IO -> ioRejected.get();
+            default -> throw new IllegalArgumentException("Unknown executor pool: " + pool);
+        };
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindPool(registry, CPU, cpu, cpuRejected);
+        bindPool(registry, PROCESS, process, processRejected);
+        bindPool(registry, IO, io, ioRejected);
+        new ExecutorServiceMetrics(scheduler, "scheduler", Tags.empty()).bindTo(registry);
+    }
+
+    private static void bindPool(
+            MeterRegistry registry, String name, ThreadPoolExecutor pool, AtomicLong rejected) {
+        new ExecutorServiceMetrics(pool, name, Tags.empty()).bindTo(registry);
+        FunctionCounter.builder("stirling.executor.rejected", rejected, AtomicLong::get)
+                .description("Tasks refused by a full pool or run by their submitter instead")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        if (runsRasterBands) {
+            RasterOps.useExecutor(null, 1);
+        }
+        for (ExecutorService pool : List.of(scheduler, waits, cpu, process, io)) {
+            pool.shutdown();
+        }
+        try {
+            for (ExecutorService pool : List.of(scheduler, waits, cpu, process, io)) {
+                if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                    pool.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (ExecutorService pool : List.of(scheduler, waits, cpu, process, io)) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static RejectedExecutionHandler counting(
+            AtomicLong counter, RejectedExecutionHandler delegate) {
+        return (task, executor) -> {
+            counter.incrementAndGet();
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+}
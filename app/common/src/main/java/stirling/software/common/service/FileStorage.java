@@ -1,30 +1,132 @@
 package stirling.software.common.service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+
 import lombok.extern.slf4j.Slf4j;
 
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.service.storage.BlobStore;
+import stirling.software.common.util.ChecksumUtils;
+
 /**
  * Service for storing and retrieving files with unique file IDs. Used by the AutoJobPostMapping
  * system to handle file references.
+ *
+ * <p>File IDs are mapped onto content-addressed blobs in a pluggable {@link BlobStore}. When
+ * deduplication is enabled, identical content is stored once and reference counted, so many jobs
+ * producing the same bytes share a single blob. Files written by earlier versions as flat
+ * UUID-named files in the storage directory can still be read and deleted.
+ *
+ * <p>Each file ID is also recorded as a small reference file under {@code blob-refs} in the storage
+ * directory, so the index survives a restart. On startup the index and reference counts are rebuilt
+ * from those files and blobs that nothing refers to are deleted. Restored files stay retrievable
+ * until they are as old as {@code stirling.jobResultExpiryMinutes}, then they are removed, since
+ * the jobs that would have cleaned them up did not survive the restart.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class FileStorage {
 
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /** Directory under the storage directory holding one reference file per file ID */
+    private static final String INDEX_DIRECTORY = "blob-refs";
+
     @Value("${stirling.tempDir:/tmp/stirling-files}")
     private String tempDirPath;
 
+    @Value("${stirling.jobResultExpiryMinutes:30}")
+    private int resultExpiryMinutes = 30;
+
     private final FileOrUploadService fileOrUploadService;
+    private final BlobStore blobStore;
+    private final boolean deduplicate;
+
+    /** File ID to blob key */
+    private final Map<String, String> fileIndex = new ConcurrentHashMap<>();
+
+    /** Blob key to number of file IDs referencing it */
+    private final Map<String, AtomicInteger> refCounts = new ConcurrentHashMap<>();
+
+    /** File IDs restored from an earlier run to the time they were stored, in epoch millis */
+    private final Map<String, Long> restoredFiles = new ConcurrentHashMap<>();
+
+    public FileStorage(
+            FileOrUploadService fileOrUploadService,
+            BlobStore blobStore,
+            ApplicationProperties applicationProperties) {
+        this.fileOrUploadService = fileOrUploadService;
+        this.blobStore = blobStore;
+        this.deduplicate = applicationProperties.getSystem().getFileStorage().isDeduplicate();
+    }
+
+    /**
+     * Rebuild the file index from the reference files left by earlier runs, drop references that
+     * have expired or whose blob is gone, and delete blobs that no file ID refers to.
+     */
+    @PostConstruct
+    public void restoreIndex() {
+        Path indexDir = getIndexDirectory();
+        long expiredBefore = System.currentTimeMillis() - getExpiryMillis();
+        int restored = 0;
+        if (Files.isDirectory(indexDir)) {
+            try (Stream<Path> refs = Files.list(indexDir)) {
+                for (Path ref : refs.toList()) {
+                    if (restoreReference(ref, expiredBefore)) {
+                        restored++;
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Could not read the file index at {}: {}", indexDir, e.getMessage());
+            }
+        }
+
+        int removed = 0;
+        try {
+            for (String key : blobStore.keys()) {
+                if (!refCounts.containsKey(key) && blobStore.delete(key)) {
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list stored blobs: {}", e.getMessage());
+        }
+
+        if (restored > 0 || removed > 0) {
+            log.info("Restored {} stored files, deleted {} unreferenced blobs", restored, removed);
+        }
+    }
+
+    /** Delete files restored from an earlier run once they are older than the result expiry. */
+    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void expireRestoredFiles() {
+        long expiredBefore = System.currentTimeMillis() - getExpiryMillis();
+        for (Map.Entry<String, Long> entry : List.copyOf(restoredFiles.entrySet())) {
+            if (entry.getValue() < expiredBefore) {
+                deleteFile(entry.getKey());
+            }
+        }
+    }
 
     /**
      * Store a file and return its unique ID
@@ -35,13 +137,15 @@ public class FileStorage {
      */
     public String storeFile(MultipartFile file) throws IOException {
         String fileId = generateFileId();
-        Path filePath = getFilePath(fileId);
-
-        // Ensure the directory exists
-        Files.createDirectories(filePath.getParent());
-
-        // Transfer the file to the storage location
-        file.transferTo(filePath.toFile());
+        Path staging = Files.createTempFile("stirling-pdf-store-", ".tmp");
+        try {
+            // Transfer the upload to disk first so it can be hashed without holding it in memory
+            file.transferTo(staging.toFile());
+            String key = deduplicate ? ChecksumUtils.checksum(staging, HASH_ALGORITHM) : newKey();
+            link(fileId, key, () -> blobStore.put(key, staging));
+        } finally {
+            Files.deleteIfExists(staging);
+        }
 
         log.debug("Stored file with ID: {}", fileId);
         return fileId;
@@ -57,13 +161,11 @@ public class FileStorage {
      */
     public String storeBytes(byte[] bytes, String originalName) throws IOException {
         String fileId = generateFileId();
-        Path filePath = getFilePath(fileId);
-
-        // Ensure the directory exists
-        Files.createDirectories(filePath.getParent());
-
-        // Write the bytes to the file
-        Files.write(filePath, bytes);
+        String key =
+                deduplicate
+                        ? ChecksumUtils.checksum(new ByteArrayInputStream(bytes), HASH_ALGORITHM)
+                        : newKey();
+        link(fileId, key, () -> blobStore.put(key, bytes));
 
         log.debug("Stored byte array with ID: {}", fileId);
         return fileId;
@@ -77,13 +179,7 @@ public class FileStorage {
      * @throws IOException If the file doesn't exist or can't be read
      */
     public MultipartFile retrieveFile(String fileId) throws IOException {
-        Path filePath = getFilePath(fileId);
-
-        if (!Files.exists(filePath)) {
-            throw new IOException("File not found with ID: " + fileId);
-        }
-
-        byte[] fileData = Files.readAllBytes(filePath);
+        byte[] fileData = retrieveBytes(fileId);
         return fileOrUploadService.toMockMultipartFile(fileId, fileData);
     }
 
@@ -95,8 +191,12 @@ public class FileStorage {
      * @throws IOException If the file doesn't exist or can't be read
      */
     public byte[] retrieveBytes(String fileId) throws IOException {
-        Path filePath = getFilePath(fileId);
+        String key = fileIndex.get(fileId);
+        if (key != null) {
+            return blobStore.read(key);
+        }
 
+        Path filePath = getLegacyFilePath(fileId);
         if (!Files.exists(filePath)) {
             throw new IOException("File not found with ID: " + fileId);
         }
@@ -105,14 +205,44 @@ public class FileStorage {
     }
 
     /**
-     * Delete a file by its ID
+     * Open a stream over a stored file without loading it into memory
+     *
+     * @param fileId The ID of the file to read
+     * @return A new input stream; the caller must close it
+     * @throws IOException If the file doesn't exist or can't be read
+     */
+    public InputStream openStream(String fileId) throws IOException {
+        String key = fileIndex.get(fileId);
+        if (key != null) {
+            return blobStore.open(key);
+        }
+
+        Path filePath = getLegacyFilePath(fileId);
+        if (!Files.exists(filePath)) {
+            throw new IOException("File not found with ID: " + fileId);
+        }
+
+        return Files.newInputStream(filePath);
+    }
+
+    /**
+     * Delete a file by its ID. The underlying blob is only removed once no other file ID references
+     * the same content.
      *
      * @param fileId The ID of the file to delete
      * @return true if the file was deleted, false otherwise
      */
     public boolean deleteFile(String fileId) {
+        String key = fileIndex.remove(fileId);
+        if (key != null) {
+            restoredFiles.remove(fileId);
+            deleteReference(fileId);
+            unlink(key);
+            return true;
+        }
+
         try {
-            Path filePath = getFilePath(fileId);
+            Path filePath = getLegacyFilePath(fileId);
             return Files.deleteIfExists(filePath);
         } catch (IOException e) {
             log.error("Error deleting file with ID: {}", fileId, e);
@@ -127,7 +257,12 @@ public class FileStorage {
      * @return true if the file exists, false otherwise
      */
     public boolean fileExists(String fileId) {
-        Path filePath = getFilePath(fileId);
+        String key = fileIndex.get(fileId);
+        if (key != null) {
+            return blobStore.contains(key);
+        }
+
+        Path filePath = getLegacyFilePath(fileId);
         return Files.exists(filePath);
     }
 
@@ -139,7 +274,12 @@ public class FileStorage {
      * @throws IOException If the file doesn't exist or can't be read
      */
     public long getFileSize(String fileId) throws IOException {
-        Path filePath = getFilePath(fileId);
+        String key = fileIndex.get(fileId);
+        if (key != null) {
+            return blobStore.size(key);
+        }
+
+        Path filePath = getLegacyFilePath(fileId);
 
         if (!Files.exists(filePath)) {
             throw new IOException("File not found with ID: " + fileId);
@@ -149,14 +289,124 @@ public class FileStorage {
     }
 
     /**
-     * Get the path for a file ID
+     * Get the number of distinct blobs currently referenced by stored files
+     *
+     * @return The number of unique blobs
+     */
+    public int getUniqueBlobCount() {
+        return refCounts.size();
+    }
+
+    /**
+     * Register a file ID against a blob and write the blob if it is not stored yet. The reference
+     * is counted before the write: a blob is only deleted together with its last reference, so once
+     * counted it can't be removed underneath the write, and the write itself runs without holding
+     * the map.
+     */
+    private void link(String fileId, String key, BlobWriter writer) throws IOException {
+        refCounts.compute(
+                key,
+                (k, count) -> {
+                    if (count == null) {
+                        return new AtomicInteger(1);
+                    }
+                    count.incrementAndGet();
+                    return count;
+                });
+        try {
+            writer.write();
+            writeReference(fileId, key);
+        } catch (IOException | RuntimeException e) {
+            unlink(key);
+            throw e;
+        }
+        fileIndex.put(fileId, key);
+    }
+
+    private void unlink(String key) {
+        refCounts.computeIfPresent(
+                key,
+                (k, count) -> {
+                    if (count.decrementAndGet() > 0) {
+                        return count;
+                    }
+                    blobStore.delete(k);
+                    return null;
+                });
+    }
+
+    /** Persist the blob key of a file ID, replacing the reference file atomically. */
+    private void writeReference(String fileId, String key) throws IOException {
+        Path indexDir = getIndexDirectory();
+        Files.createDirectories(indexDir);
+        Path staging = Files.createTempFile(indexDir, ".ref-", ".tmp");
+        try {
+            Files.writeString(staging, key);
+            try {
+                Files.move(staging, indexDir.resolve(fileId), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging, indexDir.resolve(fileId), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    private void deleteReference(String fileId) {
+        try {
+            Files.deleteIfExists(getIndexDirectory().resolve(fileId));
+        } catch (IOException e) {
+            log.warn("Error deleting the reference of file {}: {}", fileId, e.getMessage());
+        }
+    }
+
+    /**
+     * Add one reference file from an earlier run to the index, or delete it if it is a leftover
+     * staging file, has expired or points to a blob that no longer exists.
+     *
+     * @return true if the file ID was restored
+     */
+    private boolean restoreReference(Path ref, long expiredBefore) {
+        String fileId = ref.getFileName().toString();
+        try {
+            if (!fileId.startsWith(".")) {
+                long storedAt = Files.getLastModifiedTime(ref).toMillis();
+                String key = Files.readString(ref).trim();
+                if (storedAt >= expiredBefore && blobStore.contains(key)) {
+                    fileIndex.put(fileId, key);
+                    refCounts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+                    restoredFiles.put(fileId, storedAt);
+                    return true;
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Discarding unreadable file reference {}: {}", ref, e.getMessage());
+        }
+        try {
+            Files.deleteIfExists(ref);
+        } catch (IOException e) {
+            log.warn("Error deleting file reference {}: {}", ref, e.getMessage());
+        }
+        return false;
+    }
+
+    private Path getIndexDirectory() {
+        return Path.of(tempDirPath).resolve(INDEX_DIRECTORY);
+    }
+
+    private long getExpiryMillis() {
+        return TimeUnit.MINUTES.toMillis(resultExpiryMinutes);
+    }
+
+    /**
+     * Get the path of a file stored in the flat layout used before content-addressed storage
      *
      * @param fileId The ID of the file
      * @return The path to the file
      * @throws IllegalArgumentException if fileId contains path traversal characters or resolves
      *     outside base directory
      */
-    private Path getFilePath(String fileId) {
+    private Path getLegacyFilePath(String fileId) {
         // Validate fileId to prevent path traversal
         if (fileId.contains("..") || fileId.contains("/") || fileId.contains("\\")) {
             throw new IllegalArgumentException("Invalid file ID");
@@ -181,4 +431,14 @@ public class FileStorage {
     private String generateFileId() {
         return UUID.randomUUID().toString();
     }
+
+    /** Blob key used when deduplication is disabled, so every store gets its own blob */
+    private String newKey() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    @FunctionalInterface
+    private interface BlobWriter {
+        void write() throws IOException;
+    }
 }
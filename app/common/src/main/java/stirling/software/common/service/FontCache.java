@@ -0,0 +1,92 @@
+package stirling.software.common.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.util.GlyphWidthTable;
+
+/**
+ * Process-wide cache of the bundled TrueType fonts used to write text onto pages.
+ *
+ * <p>Each font file is parsed once and kept, together with its {@link GlyphWidthTable}, for the
+ * life of the process. Documents get their own {@link PDType0Font} wrapping the shared parsed font,
+ * subset-embedded when the document is saved. PDFBox reads font tables under a lock, so the same
+ * parsed font can back documents on several threads.
+ */
+@Service
+@Slf4j
+public class FontCache {
+
+    private static final int MAX_FONTS = 8;
+
+    // Evicted fonts are not closed: documents that are still being built may use them
+    private final Map<String, TrueTypeFont> fonts =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TrueTypeFont> eldest) {
+                    return size() > MAX_FONTS;
+                }
+            };
+
+    /** Classpath location of the bundled font for a stamp or watermark alphabet. */
+    public static String resourceForAlphabet(String alphabet) {
+        return switch (alphabet == null ? "" : alphabet) {
+            case "arabic" -> "static/fonts/NotoSansArabic-Regular.ttf";
+            case "japanese" -> "static/fonts/Meiryo.ttf";
+            case "korean" -> "static/fonts/malgun.ttf";
+            case "chinese" -> "static/fonts/SimSun.ttf";
+            case "thai" -> "static/fonts/NotoSansThai-Regular.ttf";
+            default -> "static/fonts/NotoSans-Regular.ttf";
+        };
+    }
+
+    /** A font for the alphabet, to be embedded into the document. */
+    public PDType0Font loadFontForAlphabet(PDDocument document, String alphabet)
+            throws IOException {
+        return loadFont(document, resourceForAlphabet(alphabet));
+    }
+
+    /** A font from a classpath resource, to be subset-embedded into the document. */
+    public PDType0Font loadFont(PDDocument document, String resourcePath) throws IOException {
+        return PDType0Font.load(document, getTrueTypeFont(resourcePath), true);
+    }
+
+    /** The parsed font for a classpath resource, parsing it on first use. */
+    public synchronized TrueTypeFont getTrueTypeFont(String resourcePath) throws IOException {
+        TrueTypeFont font = fonts.get(resourcePath);
+        if (font == null) {
+            font = parse(resourcePath);
+            fonts.put(resourcePath, font);
+        }
+        return font;
+    }
+
+    private static TrueTypeFont parse(String resourcePath) throws IOException {
+        byte[] data;
+        try (InputStream in = new ClassPathResource(resourcePath).getInputStream()) {
+            data = in.readAllBytes();
+        }
+        TrueTypeFont font = new TTFParser().parse(new RandomAccessReadBuffer(data));
+        try {
+            // Builds the width table and loads the tables it needs up front
+            GlyphWidthTable.forFont(font);
+        } catch (IOException e) {
+            font.close();
+            throw e;
+        }
+        log.debug("Parsed font {} ({} bytes)", resourcePath, data.length);
+        return font;
+    }
+}
@@ -4,11 +4,11 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -20,8 +20,8 @@ import jakarta.servlet.http.HttpServletRequest;
 
 import lombok.extern.slf4j.Slf4j;
 
+import stirling.software.common.metrics.OperationTrace;
 import stirling.software.common.model.job.JobResponse;
-import stirling.software.common.util.ExecutorFactory;
 
 /** Service for executing jobs asynchronously or synchronously */
 @Service
@@ -33,7 +33,7 @@ public class JobExecutorService {
     private final HttpServletRequest request;
     private final ResourceMonitor resourceMonitor;
     private final JobQueue jobQueue;
-    private final ExecutorService executor = ExecutorFactory.newVirtualOrCachedThreadExecutor();
+    private final ExecutorPools executorPools;
     private final long effectiveTimeoutMs;
 
     public JobExecutorService(
@@ -42,6 +42,27 @@ public class JobExecutorService {
             HttpServletRequest request,
             ResourceMonitor resourceMonitor,
             JobQueue jobQueue,
+            long asyncRequestTimeoutMs,
+            String sessionTimeout) {
+        this(
+                taskManager,
+                fileStorage,
+                request,
+                resourceMonitor,
+                jobQueue,
+                ExecutorPools.withDefaults(),
+                asyncRequestTimeoutMs,
+                sessionTimeout);
+    }
+
+    @Autowired
+    public JobExecutorService(
+            TaskManager taskManager,
+            FileStorage fileStorage,
+            HttpServletRequest request,
+            ResourceMonitor resourceMonitor,
+            JobQueue jobQueue,
+            ExecutorPools executorPools,
             @Value("${spring.mvc.async.request-timeout:1200000}") long asyncRequestTimeoutMs,
             @Value("${server.servlet.session.timeout:30m}") String sessionTimeout) {
         this.taskManager = taskManager;
@@ -49,6 +70,7 @@ public class JobExecutorService {
         this.request = request;
         this.resourceMonitor = resourceMonitor;
         this.jobQueue = jobQueue;
+        this.executorPools = executorPools;
 
         // Parse session timeout and calculate effective timeout once during initialization
         long sessionTimeoutMs = parseSessionTimeout(sessionTimeout);
@@ -99,6 +121,10 @@ public class JobExecutorService {
             int resourceWeight) {
         String jobId = UUID.randomUUID().toString();
 
+        // Job threads record their stages in the trace of the request that started the job
+        OperationTrace trace = OperationTrace.current();
+        Supplier<Object> tracedWork = trace == null ? work : trace.wrap(work);
+
         // Store the job ID in the request for potential use by other components
         if (request != null) {
             request.setAttribute("jobId", jobId);
@@ -151,7 +177,7 @@ public class JobExecutorService {
             Supplier<Object> wrappedWork =
                     () -> {
                         try {
-                            Object result = work.get();
+                            Object result = tracedWork.get();
                             processJobResult(jobId, result);
                             return result;
                         } catch (Exception e) {
@@ -165,28 +191,47 @@ public class JobExecutorService {
             // Queue the job and get the future
             CompletableFuture<ResponseEntity<?>> future =
                     jobQueue.queueJob(jobId, resourceWeight, wrappedWork, timeoutToUse);
+            if (trace != null) {
+                trace.retain();
+                future.whenComplete((result, error) -> trace.release());
+            }
 
             // Return immediately with job ID
             return ResponseEntity.ok().body(new JobResponse<>(true, jobId, null));
         } else if (async) {
             taskManager.createTask(jobId);
-            executor.execute(
-                    () -> {
-                        try {
-                            log.debug(
-                                    "Running async job {} with timeout {} ms", jobId, timeoutToUse);
-
-                            // Execute with timeout
-                            Object result = executeWithTimeout(() -> work.get(), timeoutToUse);
-                            processJobResult(jobId, result);
-                        } catch (TimeoutException te) {
-                            log.error("Job {} timed out after {} ms", jobId, timeoutToUse);
-                            taskManager.setError(jobId, "Job timed out");
-                        } catch (Exception e) {
-                            log.error("Error executing job {}: {}", jobId, e.getMessage(), e);
-                            taskManager.setError(jobId, e.getMessage());
-                        }
-                    });
+            if (trace != null) {
+                trace.retain();
+            }
+            // This thread only waits; the job itself runs on the process pool
+            executorPools
+                    .waits()
+                    .execute(
+                            () -> {
+                                try {
+                                    log.debug(
+                                            "Running async job {} with timeout {} ms",
+                                            jobId,
+                                            timeoutToUse);
+
+                                    // Execute with timeout
+                                    Object result =
+                                            executeWithTimeout(
+                                                    () -> tracedWork.get(), timeoutToUse);
+                                    processJobResult(jobId, result);
+                                } catch (TimeoutException te) {
+                                    log.error("Job {} timed out after {} ms", jobId, timeoutToUse);
+                                    taskManager.setError(jobId, "Job timed out");
+                                } catch (Exception e) {
+                                    log.error(
+                                            "Error executing job {}: {}", jobId, e.getMessage(), e);
+                                    taskManager.setError(jobId, e.getMessage());
+                                } finally {
+                                    if (trace != null) {
+                                        trace.release();
+                                    }
+                                }
+                            });
 
             return ResponseEntity.ok().body(new JobResponse<>(true, jobId, null));
         } else {
@@ -194,7 +239,7 @@ public class JobExecutorService {
                 log.debug("Running sync job with timeout {} ms", timeoutToUse);
 
                 // Execute with timeout
-                Object result = executeWithTimeout(() -> work.get(), timeoutToUse);
+                Object result = executeWithTimeout(() -> tracedWork.get(), timeoutToUse);
 
                 // If the result is already a ResponseEntity, return it directly
                 if (result instanceof ResponseEntity) {
@@ -455,10 +500,11 @@ public class JobExecutorService {
      */
     private <T> T executeWithTimeout(Supplier<T> supplier, long timeoutMs)
             throws TimeoutException, Exception {
-        // Use the same executor as other async jobs for consistency
-        // This ensures all operations run on the same thread pool
+        // Job bodies may block on external tools, so they run on the process pool and keep the CPU
+        // pool free for the work they fan out; when it is full the calling thread runs the job
         java.util.concurrent.CompletableFuture<T> future =
-                java.util.concurrent.CompletableFuture.supplyAsync(supplier, executor);
+                java.util.concurrent.CompletableFuture.supplyAsync(
+                        supplier, executorPools.process());
 
         try {
             return future.get(timeoutMs, TimeUnit.MILLISECONDS);
@@ -1,10 +1,12 @@
 package stirling.software.common.service;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.function.Supplier;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.http.ResponseEntity;
@@ -15,7 +17,6 @@ import lombok.Data;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import stirling.software.common.util.ExecutorFactory;
 import stirling.software.common.util.SpringContextHolder;
 
 /**
@@ -44,8 +45,8 @@ public class JobQueue implements SmartLifecycle {
 
     private volatile BlockingQueue<QueuedJob> jobQueue;
     private final Map<String, QueuedJob> jobMap = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private final ExecutorService jobExecutor = ExecutorFactory.newVirtualOrCachedThreadExecutor();
+    private final ExecutorPools executorPools;
+    private final List<ScheduledFuture<?>> scheduledTasks = new CopyOnWriteArrayList<>();
     private final Object queueLock = new Object(); // Lock for synchronizing queue operations
 
     private boolean shuttingDown = false;
@@ -70,7 +71,13 @@ public class JobQueue implements SmartLifecycle {
     }
 
     public JobQueue(ResourceMonitor resourceMonitor) {
+        this(resourceMonitor, ExecutorPools.withDefaults());
+    }
+
+    @Autowired
+    public JobQueue(ResourceMonitor resourceMonitor, ExecutorPools executorPools) {
         this.resourceMonitor = resourceMonitor;
+        this.executorPools = executorPools;
 
         // Initialize with dynamic capacity
         int capacity =
@@ -85,16 +92,20 @@ public class JobQueue implements SmartLifecycle {
                 baseQueueCapacity,
                 minQueueCapacity);
 
+        ScheduledExecutorService scheduler = executorPools.scheduler();
+
         // Periodically process the job queue
-        scheduler.scheduleWithFixedDelay(
-                this::processQueue, 0, queueCheckIntervalMs, TimeUnit.MILLISECONDS);
+        scheduledTasks.add(
+                scheduler.scheduleWithFixedDelay(
+                        this::processQueue, 0, queueCheckIntervalMs, TimeUnit.MILLISECONDS));
 
         // Periodically update queue capacity based on resource usage
-        scheduler.scheduleWithFixedDelay(
-                this::updateQueueCapacity,
-                10000, // Initial delay
-                30000, // 30 second interval
-                TimeUnit.MILLISECONDS);
+        scheduledTasks.add(
+                scheduler.scheduleWithFixedDelay(
+                        this::updateQueueCapacity,
+                        10000, // Initial delay
+                        30000, // 30 second interval
+                        TimeUnit.MILLISECONDS));
     }
 
     // Remove @PreDestroy to let SmartLifecycle control shutdown
@@ -111,22 +122,9 @@ public class JobQueue implements SmartLifecycle {
                     }
                 });
 
-        // Shutdown schedulers and wait for termination
-        try {
-            scheduler.shutdown();
-            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
-            }
-
-            jobExecutor.shutdown();
-            if (!jobExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                jobExecutor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            scheduler.shutdownNow();
-            jobExecutor.shutdownNow();
-        }
+        // The pools are shared, so only stop our own periodic tasks
+        scheduledTasks.forEach(task -> task.cancel(false));
+        scheduledTasks.clear();
 
         log.info(
                 "Job queue shutdown complete. Stats: total={}, rejected={}",
@@ -367,27 +365,36 @@ public class JobQueue implements SmartLifecycle {
             return;
         }
 
-        jobExecutor.execute(
-                () -> {
-                    log.debug("Executing queued job {} (queued at {})", job.jobId, job.queuedAt);
-
-                    try {
-                        // Execute with timeout
-                        Object result = executeWithTimeout(job.work, job.timeoutMs);
-
-                        // Process the result
-                        if (result instanceof ResponseEntity) {
-                            job.future.complete((ResponseEntity<?>) result);
-                        } else {
-                            job.future.complete(ResponseEntity.ok(result));
-                        }
-
-                    } catch (Exception e) {
-                        log.error(
-                                "Error executing queued job {}: {}", job.jobId, e.getMessage(), e);
-                        job.future.completeExceptionally(e);
-                    }
-                });
+        // This thread only waits; the job itself runs on the process pool
+        executorPools
+                .waits()
+                .execute(
+                        () -> {
+                            log.debug(
+                                    "Executing queued job {} (queued at {})",
+                                    job.jobId,
+                                    job.queuedAt);
+
+                            try {
+                                // Execute with timeout
+                                Object result = executeWithTimeout(job.work, job.timeoutMs);
+
+                                // Process the result
+                                if (result instanceof ResponseEntity) {
+                                    job.future.complete((ResponseEntity<?>) result);
+                                } else {
+                                    job.future.complete(ResponseEntity.ok(result));
+                                }
+
+                            } catch (Exception e) {
+                                log.error(
+                                        "Error executing queued job {}: {}",
+                                        job.jobId,
+                                        e.getMessage(),
+                                        e);
+                                job.future.completeExceptionally(e);
+                            }
+                        });
     }
 
     /**
@@ -399,7 +406,10 @@ public class JobQueue implements SmartLifecycle {
      * @throws Exception If there is an execution error
      */
     private <T> T executeWithTimeout(Supplier<T> supplier, long timeoutMs) throws Exception {
-        CompletableFuture<T> future = CompletableFuture.supplyAsync(supplier);
+        // Job bodies may block on external tools, so they run on the process pool rather than the
+        // CPU pool their batch work fans out to
+        CompletableFuture<T> future =
+                CompletableFuture.supplyAsync(supplier, executorPools.process());
 
         try {
             if (timeoutMs <= 0) {
@@ -0,0 +1,73 @@
+package stirling.software.common.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A byte budget shared by concurrent work that holds large objects on the heap, such as decoded
+ * images. Callers reserve an estimate before starting and release it when the memory is no longer
+ * referenced. Requests larger than the whole budget are clamped to the capacity so a single
+ * oversized item can still run, just not alongside anything else.
+ */
+public class MemoryBudget {
+
+    private final long capacityBytes;
+    private long reservedBytes;
+
+    public MemoryBudget(long capacityBytes) {
+        this.capacityBytes = Math.max(1, capacityBytes);
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * Reserve without waiting.
+     *
+     * @return the number of bytes actually reserved, or -1 if the budget is currently exhausted
+     */
+    public synchronized long tryReserve(long bytes) {
+        long amount = clamp(bytes);
+        if (reservedBytes + amount > capacityBytes) {
+            return -1;
+        }
+        reservedBytes += amount;
+        return amount;
+    }
+
+    /**
+     * Reserve, waiting up to {@code timeoutMillis} for enough of the budget to be released.
+     *
+     * @return the number of bytes actually reserved, to be passed to {@link #release(long)}, or -1
+     *     if the budget was still exhausted when the wait timed out
+     */
+    public synchronized long reserve(long bytes, long timeoutMillis) throws InterruptedException {
+        long amount = clamp(bytes);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (reservedBytes + amount > capacityBytes) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return -1;
+            }
+            wait(remainingMillis);
+        }
+        reservedBytes += amount;
+        return amount;
+    }
+
+    public synchronized void release(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        reservedBytes = Math.max(0, reservedBytes - bytes);
+        notifyAll();
+    }
+
+    private long clamp(long bytes) {
+        return Math.max(0, Math.min(bytes, capacityBytes));
+    }
+}
@@ -0,0 +1,214 @@
+package stirling.software.common.service;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.util.ExecutorFactory;
+
+/**
+ * The process-wide budget for heap held by open PDF documents, their stream caches and in-flight
+ * {@link BatchExecutor} work. There is deliberately only one budget, so document loads and batch
+ * work see each other's reservations and can't together hand out more than the configured share.
+ *
+ * <p>The per-document size thresholds in {@link CustomPDFDocumentFactory} cannot see how many other
+ * documents are open, so several medium-sized uploads that each pass the check can still exhaust
+ * the heap together. Every in-memory or mixed stream cache reserves its expected footprint here and
+ * releases it when the document is closed. When the budget is used up, or the heap itself is
+ * running low, reservations are refused and new loads fall back to disk-backed caching.
+ *
+ * <p>A document that is never closed would otherwise hold its reservation forever. Reservations
+ * tied to an owner with {@link Reservation#releaseWhenUnreachable} are also released once the owner
+ * has been garbage collected; such leaks are logged and counted.
+ *
+ * <p>Current reservations are published as {@code stirling.memory.budget.*} metrics.
+ */
+@Component
+@Slf4j
+public class MemoryBudgetManager implements MeterBinder {
+
+    private static final int DEFAULT_BUDGET_PERCENT = 40;
+
+    private static final Cleaner CLEANER =
+            Cleaner.create(ExecutorFactory.namedDaemonThreads("memory-budget-cleaner"));
+
+    private final MemoryBudget budget;
+    private final AtomicLong activeReservations = new AtomicLong();
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+    private final AtomicLong leaked = new AtomicLong();
+
+    @Autowired
+    public MemoryBudgetManager(ApplicationProperties applicationProperties) {
+        this(
+                budgetFromPercent(
+                        applicationProperties.getSystem().getDocumentMemory().getBudgetPercent()));
+    }
+
+    public MemoryBudgetManager(long capacityBytes) {
+        this.budget = new MemoryBudget(capacityBytes);
+        log.debug("Document memory budget: {} MB", capacityBytes / (1024 * 1024));
+    }
+
+    /** A manager sized from the default share of the max heap, for use outside Spring. */
+    public static MemoryBudgetManager withDefaultBudget() {
+        return new MemoryBudgetManager(budgetFromPercent(DEFAULT_BUDGET_PERCENT));
+    }
+
+    /**
+     * Try to reserve heap for an in-memory cache.
+     *
+     * @return the reservation, or {@code null} if the caller should use disk-backed caching
+     */
+    public Reservation tryReserve(long bytes) {
+        if (bytes <= 0) {
+            return new Reservation(0);
+        }
+        // The budget only covers what we handed out; also refuse when the live heap is short.
+        // Unlike batch work, a document that does not fit is not run alone but moved to disk.
+        if (bytes > budget.getCapacityBytes() || bytes > availableHeap()) {
+            denied.incrementAndGet();
+            return null;
+        }
+        long reserved = budget.tryReserve(bytes);
+        if (reserved < 0) {
+            denied.incrementAndGet();
+            return null;
+        }
+        granted.incrementAndGet();
+        activeReservations.incrementAndGet();
+        return new Reservation(reserved);
+    }
+
+    /** The underlying budget, for work that waits for memory instead of falling back to disk. */
+    public MemoryBudget getBudget() {
+        return budget;
+    }
+
+    public long getCapacityBytes() {
+        return budget.getCapacityBytes();
+    }
+
+    public long getReservedBytes() {
+        return budget.getReservedBytes();
+    }
+
+    public long getActiveReservations() {
+        return activeReservations.get();
+    }
+
+    public long getDeniedCount() {
+        return denied.get();
+    }
+
+    /** Reservations released because their owner was collected without closing them. */
+    public long getLeakedCount() {
+        return leaked.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(
+                        "stirling.memory.budget.reserved",
+                        this,
+                        MemoryBudgetManager::getReservedBytes)
+                .description("Heap bytes reserved by open documents, stream caches and batch work")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(
+                        "stirling.memory.budget.capacity",
+                        this,
+                        MemoryBudgetManager::getCapacityBytes)
+                .description("Heap bytes open documents and batch work may reserve in total")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(
+                        "stirling.memory.budget.reservations",
+                        this,
+                        MemoryBudgetManager::getActiveReservations)
+                .description("Open in-memory stream caches")
+                .register(registry);
+        FunctionCounter.builder("stirling.memory.budget.granted", granted, AtomicLong::get)
+                .description("Loads granted in-memory caching")
+                .register(registry);
+        FunctionCounter.builder("stirling.memory.budget.denied", denied, AtomicLong::get)
+                .description("Loads degraded to disk-backed caching")
+                .register(registry);
+        FunctionCounter.builder("stirling.memory.budget.leaked", leaked, AtomicLong::get)
+                .description("Reservations released after their document was collected unclosed")
+                .register(registry);
+    }
+
+    private static long availableHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return runtime.maxMemory() - used;
+    }
+
+    private static long budgetFromPercent(int percent) {
+        int clamped = percent > 0 ? Math.min(percent, 90) : DEFAULT_BUDGET_PERCENT;
+        return Runtime.getRuntime().maxMemory() / 100 * clamped;
+    }
+
+    /** Heap reserved for one cache. Closing it more than once releases the memory only once. */
+    public final class Reservation implements AutoCloseable {
+
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile Cleaner.Cleanable cleanable;
+
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Also release the reservation once the owner is unreachable, in case it is never closed.
+         * The owner must not be reachable from this reservation.
+         */
+        public Reservation releaseWhenUnreachable(Object owner) {
+            if (bytes > 0) {
+                cleanable = CLEANER.register(owner, this::reclaim);
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (bytes > 0 && released.compareAndSet(false, true)) {
+                budget.release(bytes);
+                activeReservations.decrementAndGet();
+                Cleaner.Cleanable registered = cleanable;
+                if (registered != null) {
+                    // Already released, so this only unregisters the owner
+                    registered.clean();
+                }
+            }
+        }
+
+        private void reclaim() {
+            if (released.compareAndSet(false, true)) {
+                budget.release(bytes);
+                activeReservations.decrementAndGet();
+                leaked.incrementAndGet();
+                log.warn(
+                        "Released {} KB of memory budget held by a document that was never closed",
+                        bytes / 1024);
+            }
+        }
+    }
+}
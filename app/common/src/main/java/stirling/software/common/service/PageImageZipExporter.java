@@ -0,0 +1,173 @@
+package stirling.software.common.service;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.util.ExceptionUtils;
+import stirling.software.common.util.ImageEncoders;
+import stirling.software.common.util.PdfUtils;
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+
+/**
+ * Converts every page of a PDF to an image file and writes the images into a ZIP archive.
+ *
+ * <p>Pages are rendered and encoded on the {@link BatchExecutor} pool while the calling thread
+ * writes the finished images into the archive in page order, straight to a temporary file. PDFBox
+ * documents cannot be rendered from several threads at once, so workers take a copy of the document
+ * from a small pool, loading another copy only when all are busy. Each page reserves its raster
+ * size from the executor's memory budget until its image has been written, which bounds both the
+ * number of pages in flight and the heap they take, whatever the page count.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PageImageZipExporter {
+
+    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final TempFileManager tempFileManager;
+    private final BatchExecutor batchExecutor;
+
+    private record EncodedPage(String entryName, byte[] data) {}
+
+    /**
+     * Render all pages and write them to a ZIP archive as {@code <baseName>_<page>.<format>}. The
+     * caller owns the returned archive.
+     *
+     * @param pdf the document to convert
+     * @param imageFormat an ImageIO format name such as PNG or JPEG
+     * @param colorType the image type pages are rendered as
+     * @param dpi the rendering resolution
+     * @param baseName prefix of the image file names
+     * @param includeAnnotations whether annotations are rendered
+     */
+    public TempFile exportToZip(
+            byte[] pdf,
+            String imageFormat,
+            ImageType colorType,
+            int dpi,
+            String baseName,
+            boolean includeAnnotations)
+            throws IOException {
+        PdfUtils.checkDpiLimit(dpi);
+        String extension = imageFormat.toLowerCase(Locale.ROOT);
+        ImageEncoders.Encoder encoder = ImageEncoders.forFormat(imageFormat);
+
+        ConcurrentLinkedQueue<PDFRenderer> idle = new ConcurrentLinkedQueue<>();
+        List<PDDocument> copies = new ArrayList<>();
+        TempFile zip = new TempFile(tempFileManager, ".zip");
+        try {
+            PDDocument document = pdfDocumentFactory.load(pdf, true);
+            copies.add(document);
+            idle.add(renderer(document, includeAnnotations));
+            long[] rasterBytes = new long[document.getNumberOfPages()];
+            for (int i = 0; i < rasterBytes.length; i++) {
+                rasterBytes[i] = rasterBytes(document.getPage(i), dpi, colorType);
+            }
+
+            try (ZipOutputStream zipOut =
+                    new ZipOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(zip.getPath())))) {
+                batchExecutor.forEachOrdered(
+                        IntStream.range(0, rasterBytes.length).boxed().toList(),
+                        page -> rasterBytes[page],
+                        (index, page) -> {
+                            PDFRenderer renderer = idle.poll();
+                            if (renderer == null) {
+                                PDDocument copy = pdfDocumentFactory.load(pdf, true);
+                                synchronized (copies) {
+                                    copies.add(copy);
+                                }
+                                renderer = renderer(copy, includeAnnotations);
+                            }
+                            BufferedImage image;
+                            try {
+                                image = render(renderer, page, dpi, colorType);
+                            } finally {
+                                idle.add(renderer);
+                            }
+                            return new EncodedPage(
+                                    String.format("%s_%d.%s", baseName, page + 1, extension),
+                                    encoder.toBytes(image));
+                        },
+                        (index, encoded) -> {
+                            zipOut.putNextEntry(new ZipEntry(encoded.entryName()));
+                            zipOut.write(encoded.data());
+                            zipOut.closeEntry();
+                        });
+            }
+            log.debug(
+                    "Converted {} pages to {} using {} document copies",
+                    rasterBytes.length,
+                    extension,
+                    copies.size());
+            return zip;
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        } finally {
+            synchronized (copies) {
+                for (PDDocument copy : copies) {
+                    copy.close();
+                }
+            }
+        }
+    }
+
+    private static PDFRenderer renderer(PDDocument document, boolean includeAnnotations) {
+        PDFRenderer renderer = new PDFRenderer(document);
+        renderer.setSubsamplingAllowed(true);
+        if (!includeAnnotations) {
+            renderer.setAnnotationsFilter(annotation -> false);
+        }
+        return renderer;
+    }
+
+    private static BufferedImage render(
+            PDFRenderer renderer, int page, int dpi, ImageType colorType) throws IOException {
+        try {
+            return renderer.renderImageWithDPI(page, dpi, colorType);
+        } catch (IllegalArgumentException e) {
+            if (e.getMessage() != null
+                    && e.getMessage().contains("Maximum size of image exceeded")) {
+                throw ExceptionUtils.createIllegalArgumentException(
+                        "error.pageTooBigForDpi",
+                        "PDF page {0} is too large to render at {1} DPI. Please try"
+                                + " a lower DPI value (recommended: 150 or less).",
+                        page + 1,
+                        dpi);
+            }
+            throw e;
+        } catch (OutOfMemoryError | NegativeArraySizeException e) {
+            throw ExceptionUtils.createOutOfMemoryDpiException(page + 1, dpi, e);
+        }
+    }
+
+    /** Heap taken by the rendered raster of a page, plus as much again for its encoded image. */
+    private static long rasterBytes(PDPage page, int dpi, ImageType colorType) {
+        PDRectangle cropBox = page.getCropBox();
+        long width = (long) Math.ceil(cropBox.getWidth() * dpi / 72f);
+        long height = (long) Math.ceil(cropBox.getHeight() * dpi / 72f);
+        long bytesPerPixel = colorType == ImageType.GRAY || colorType == ImageType.BINARY ? 1 : 4;
+        return 2 * width * height * bytesPerPixel;
+    }
+}
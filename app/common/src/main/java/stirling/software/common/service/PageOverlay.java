@@ -0,0 +1,92 @@
+package stirling.software.common.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.multipdf.LayerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * Draws pages of other documents over or under the pages of a document, as a {@link
+ * PageTransformer} for the {@link PageTransformEngine}.
+ *
+ * <p>Each distinct overlay page is imported once per document as a form XObject and every page it
+ * is applied to only references that form, so a one-page letterhead on a long document costs one
+ * import. Overlays are centred on the page's media box, as PDFBox's {@code Overlay} does. The
+ * overlay documents must stay open until the pages have been transformed.
+ */
+public class PageOverlay implements PageTransformer {
+
+    public enum Position {
+        FOREGROUND,
+        BACKGROUND
+    }
+
+    /** A page of one of the overlay documents, both zero-based. */
+    public record OverlayPage(int documentIndex, int pageIndex) {}
+
+    private record ImportedPage(PDFormXObject form, PDRectangle mediaBox) {}
+
+    private final List<PDDocument> overlays;
+    private final Map<Integer, OverlayPage> assignments;
+    private final Position position;
+
+    /**
+     * @param overlays the documents overlay pages are taken from
+     * @param assignments the overlay page for each zero-based page index; pages without one are
+     *     left unchanged
+     */
+    public PageOverlay(
+            List<PDDocument> overlays, Map<Integer, OverlayPage> assignments, Position position) {
+        this.overlays = overlays;
+        this.assignments = assignments;
+        this.position = position;
+    }
+
+    @Override
+    public void transform(PageTransformEngine.Context context, PDPage page, int pageIndex)
+            throws IOException {
+        OverlayPage overlayPage = assignments.get(pageIndex);
+        if (overlayPage == null) {
+            return;
+        }
+        ImportedPage imported =
+                context.shared(overlayPage, document -> importPage(context, overlayPage));
+
+        PDRectangle pageBox = page.getMediaBox();
+        float x = (pageBox.getWidth() - imported.mediaBox().getWidth()) / 2f;
+        float y = (pageBox.getHeight() - imported.mediaBox().getHeight()) / 2f;
+
+        boolean background = position == Position.BACKGROUND;
+        // In the foreground the existing content is wrapped so its graphics state cannot leak
+        try (PDPageContentStream contentStream =
+                new PDPageContentStream(
+                        context.getDocument(),
+                        page,
+                        background
+                                ? PDPageContentStream.AppendMode.PREPEND
+                                : PDPageContentStream.AppendMode.APPEND,
+                        true,
+                        !background)) {
+            contentStream.saveGraphicsState();
+            contentStream.transform(Matrix.getTranslateInstance(x, y));
+            contentStream.drawForm(imported.form());
+            contentStream.restoreGraphicsState();
+        }
+    }
+
+    private ImportedPage importPage(PageTransformEngine.Context context, OverlayPage overlayPage)
+            throws IOException {
+        // One layer utility per document, so resources shared by overlay pages are cloned once
+        LayerUtility layerUtility = context.shared(LayerUtility.class, LayerUtility::new);
+        PDDocument overlay = overlays.get(overlayPage.documentIndex());
+        PDFormXObject form = layerUtility.importPageAsForm(overlay, overlayPage.pageIndex());
+        return new ImportedPage(form, overlay.getPage(overlayPage.pageIndex()).getMediaBox());
+    }
+}
@@ -0,0 +1,120 @@
+package stirling.software.common.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.util.FormXObjectCache;
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+
+/**
+ * Applies {@link PageTransformer}s page by page for operations that only touch one page at a time.
+ *
+ * <p>The source is loaded through {@link CustomPDFDocumentFactory}, which keeps large documents
+ * file-backed and parses objects only when they are reached. Pages are visited in order through the
+ * page tree iterator, and the decoded-resource cache is switched off, so fonts and images used by
+ * one page are not kept while later pages are processed. Streams written by transformers go to the
+ * document's scratch storage, and the result is saved straight to a temp file rather than a byte
+ * array.
+ *
+ * <p>Unchanged resources stay shared between pages. Resources that transformers add, such as a font
+ * or a stamp, are created once per document through {@link Context#shared} and {@link
+ * Context#getForms()}.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PageTransformEngine {
+
+    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final TempFileManager tempFileManager;
+
+    /** State shared by the transformers while one document is processed. */
+    public static class Context {
+
+        private final PDDocument document;
+        private final FormXObjectCache forms;
+        private final Map<Object, Object> shared = new HashMap<>();
+
+        Context(PDDocument document) {
+            this.document = document;
+            this.forms = new FormXObjectCache(document);
+        }
+
+        public PDDocument getDocument() {
+            return document;
+        }
+
+        public int getPageCount() {
+            return document.getNumberOfPages();
+        }
+
+        /** Form XObjects drawn on several pages, built once per document. */
+        public FormXObjectCache getForms() {
+            return forms;
+        }
+
+        /** A per-document object, such as a font, created on first use. */
+        @SuppressWarnings("unchecked")
+        public <T> T shared(Object key, SharedFactory<T> factory) throws IOException {
+            Object value = shared.get(key);
+            if (value == null) {
+                value = factory.create(document);
+                shared.put(key, value);
+            }
+            return (T) value;
+        }
+    }
+
+    /** Creates a resource shared by all pages of a document. */
+    @FunctionalInterface
+    public interface SharedFactory<T> {
+        T create(PDDocument document) throws IOException;
+    }
+
+    /**
+     * Load the upload, transform every page and save the result to a temp file. The caller owns the
+     * returned file, e.g. by passing it to {@code WebResponseUtils.pdfFileToWebResponse}.
+     */
+    public TempFile transform(MultipartFile input, PageTransformer transformer) throws IOException {
+        TempFile output = new TempFile(tempFileManager, ".pdf");
+        try (PDDocument document = pdfDocumentFactory.load(input)) {
+            // Page-local work gains nothing from keeping decoded fonts and images around
+            document.setResourceCache(null);
+            transform(document, transformer);
+            try (OutputStream out =
+                    new BufferedOutputStream(Files.newOutputStream(output.getPath()))) {
+                document.save(out);
+            }
+            return output;
+        } catch (IOException | RuntimeException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    /** Transform the pages of an open document in place. */
+    public void transform(PDDocument document, PageTransformer transformer) throws IOException {
+        Context context = new Context(document);
+        Iterator<PDPage> pages = document.getPages().iterator();
+        int pageIndex = 0;
+        while (pages.hasNext()) {
+            transformer.transform(context, pages.next(), pageIndex++);
+        }
+        log.debug(
+                "Transformed {} pages with {} shared forms", pageIndex, context.getForms().size());
+    }
+}
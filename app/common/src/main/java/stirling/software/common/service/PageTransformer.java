@@ -0,0 +1,41 @@
+package stirling.software.common.service;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+
+/**
+ * An operation applied to one page at a time by the {@link PageTransformEngine}, such as rotating a
+ * page or drawing its page number. A transformer must only depend on the page it is given and on
+ * resources shared through the {@link PageTransformEngine.Context}, so that pages can be processed
+ * as they are read.
+ */
+@FunctionalInterface
+public interface PageTransformer {
+
+    /**
+     * Transform one page in place.
+     *
+     * @param pageIndex zero-based index of the page in the document
+     */
+    void transform(PageTransformEngine.Context context, PDPage page, int pageIndex)
+            throws IOException;
+
+    /** Run this transformer, then {@code next}, on each page. */
+    default PageTransformer andThen(PageTransformer next) {
+        return (context, page, pageIndex) -> {
+            transform(context, page, pageIndex);
+            next.transform(context, page, pageIndex);
+        };
+    }
+
+    /** Apply this transformer only to the given zero-based page indexes. */
+    default PageTransformer onPages(Set<Integer> pageIndexes) {
+        return (context, page, pageIndex) -> {
+            if (pageIndexes.contains(pageIndex)) {
+                transform(context, page, pageIndex);
+            }
+        };
+    }
+}
@@ -0,0 +1,134 @@
+package stirling.software.common.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.multipdf.LayerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+
+/**
+ * Builds a document whose pages are drawn from the pages of a source document, such as N-up sheets
+ * or rescaled pages, with the page import spread over several threads.
+ *
+ * <p>Importing a page as a form XObject clones its object graph and re-encodes its content, which
+ * is where these operations spend their time. {@link BatchExecutor#forEachPageRange} gives each
+ * worker one copy of the source and a contiguous range of pages, which it draws into a private
+ * document. The ranges are then attached to the output in order; this step only copies the already
+ * encoded streams. Small documents are built directly on the calling thread.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ParallelPageAssembler {
+
+    /** Fewer source pages than this per worker are not worth loading another copy for. */
+    static final int MIN_PAGES_PER_RANGE = 16;
+
+    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final TempFileManager tempFileManager;
+    private final BatchExecutor batchExecutor;
+
+    /** Draws a range of source pages onto new pages of a target document. */
+    @FunctionalInterface
+    public interface PageRangeBuilder {
+
+        /**
+         * Add the output pages for source pages {@code fromPage} (inclusive) to {@code toPage}
+         * (exclusive) to the target. The layer utility imports into the target and may be reused
+         * for every page of the range.
+         */
+        void build(
+                PDDocument source,
+                PDDocument target,
+                LayerUtility layerUtility,
+                int fromPage,
+                int toPage)
+                throws IOException;
+    }
+
+    /**
+     * Build the output from every page of the source and save it to a temp file. Ranges start on a
+     * multiple of {@code pagesPerUnit}, so a builder that groups pages, e.g. onto one sheet, always
+     * sees whole groups. The output is closed; the caller owns the returned file and the source.
+     *
+     * @param input the upload the source was loaded from, read again by each worker
+     * @param source the loaded source, used when the document is built on the calling thread
+     * @param output the new document, e.g. carrying the metadata of the source
+     */
+    public TempFile assemble(
+            MultipartFile input,
+            PDDocument source,
+            PDDocument output,
+            int pagesPerUnit,
+            PageRangeBuilder builder)
+            throws IOException {
+        List<PDDocument> rangeDocuments = new ArrayList<>();
+        TempFile result = new TempFile(tempFileManager, ".pdf");
+        try (output) {
+            List<BatchExecutor.PageRange> ranges =
+                    batchExecutor.splitPages(
+                            source.getNumberOfPages(), MIN_PAGES_PER_RANGE, pagesPerUnit);
+            if (ranges.size() <= 1) {
+                builder.build(
+                        source, output, new LayerUtility(output), 0, source.getNumberOfPages());
+            } else {
+                batchExecutor.forEachPageRange(
+                        source,
+                        ranges,
+                        input.getSize(),
+                        () -> pdfDocumentFactory.load(input, true),
+                        (rangeSource, range) -> buildRange(rangeSource, range, builder),
+                        (range, rangeDocument) -> {
+                            rangeDocuments.add(rangeDocument);
+                            for (PDPage page : rangeDocument.getPages()) {
+                                output.importPage(page);
+                            }
+                        });
+                log.debug(
+                        "Assembled {} pages from {} ranges",
+                        output.getNumberOfPages(),
+                        ranges.size());
+            }
+            // Imported pages still point at the streams of their range documents until saved
+            try (OutputStream out =
+                    new BufferedOutputStream(Files.newOutputStream(result.getPath()))) {
+                output.save(out);
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            result.close();
+            throw e;
+        } finally {
+            for (PDDocument rangeDocument : rangeDocuments) {
+                rangeDocument.close();
+            }
+        }
+    }
+
+    private PDDocument buildRange(
+            PDDocument source, BatchExecutor.PageRange range, PageRangeBuilder builder)
+            throws IOException {
+        PDDocument target = pdfDocumentFactory.createNewDocument();
+        try {
+            builder.build(
+                    source, target, new LayerUtility(target), range.fromPage(), range.toPage());
+            return target;
+        } catch (IOException | RuntimeException e) {
+            target.close();
+            throw e;
+        }
+    }
+}
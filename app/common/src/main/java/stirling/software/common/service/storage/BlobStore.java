@@ -0,0 +1,91 @@
+package stirling.software.common.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Content-addressed storage backend used by {@link stirling.software.common.service.FileStorage}.
+ * Blobs are keyed by a lowercase hex key (normally the SHA-256 of the content). Implementations
+ * must be thread-safe; reference counting and key derivation are handled by the caller.
+ */
+public interface BlobStore extends AutoCloseable {
+
+    /**
+     * Check whether a blob with the given key is present
+     *
+     * @param key The blob key
+     * @return true if the blob exists
+     */
+    boolean contains(String key);
+
+    /**
+     * Store the given bytes under the key. Storing an existing key is a no-op.
+     *
+     * @param key The blob key
+     * @param bytes The content to store
+     * @throws IOException If the blob cannot be written
+     */
+    void put(String key, byte[] bytes) throws IOException;
+
+    /**
+     * Store the content of a file under the key. The source file is consumed: implementations may
+     * move it into place, and the caller must not rely on it existing afterwards.
+     *
+     * @param key The blob key
+     * @param source A file holding the content to store
+     * @throws IOException If the blob cannot be written
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * Open a stream over the blob content
+     *
+     * @param key The blob key
+     * @return A new input stream; the caller must close it
+     * @throws IOException If the blob doesn't exist or can't be read
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Read the whole blob into memory
+     *
+     * @param key The blob key
+     * @return The blob content
+     * @throws IOException If the blob doesn't exist or can't be read
+     */
+    byte[] read(String key) throws IOException;
+
+    /**
+     * Get the size of a blob without reading it
+     *
+     * @param key The blob key
+     * @return The size in bytes
+     * @throws IOException If the blob doesn't exist
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * Delete a blob
+     *
+     * @param key The blob key
+     * @return true if the blob existed and was deleted
+     */
+    boolean delete(String key);
+
+    /**
+     * List the keys of all stored blobs, so that blobs no file ID refers to any more can be
+     * removed. Stores that cannot enumerate their content return an empty list.
+     *
+     * @return The keys of the stored blobs
+     * @throws IOException If the store cannot be listed
+     */
+    default List<String> keys() throws IOException {
+        return List.of();
+    }
+
+    /** Release background resources held by the store. */
+    @Override
+    default void close() {}
+}
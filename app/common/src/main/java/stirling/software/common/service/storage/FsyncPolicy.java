@@ -0,0 +1,24 @@
+package stirling.software.common.service.storage;
+
+import java.util.Locale;
+
+/** Controls when a {@link LocalDiskBlobStore} forces written blobs to stable storage. */
+public enum FsyncPolicy {
+    /** Leave flushing to the operating system. */
+    NONE,
+    /** Flush on a background thread after the blob has been published. */
+    ASYNC,
+    /** Flush before the blob becomes visible to readers. */
+    ALWAYS;
+
+    public static FsyncPolicy fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package stirling.software.common.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link BlobStore} that keeps each blob as a file under a hash-prefix sharded directory tree, e.g.
+ * {@code root/ab/cd/abcd1234...}. Sharding keeps every directory small so that listing and cleanup
+ * stay cheap even with hundreds of thousands of stored results.
+ *
+ * <p>Blobs are written to a temporary file in their shard directory and atomically renamed into
+ * place, so readers never observe partially written content.
+ */
+@Slf4j
+public class LocalDiskBlobStore implements BlobStore {
+
+    /** Number of hex characters used for each directory level. */
+    private static final int SHARD_WIDTH = 2;
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{8,128}");
+
+    private final Path root;
+    private final int shardDepth;
+    private final FsyncPolicy fsyncPolicy;
+    private final Executor fsyncExecutor;
+    private final ExecutorService ownedFsyncExecutor;
+
+    public LocalDiskBlobStore(Path root, int shardDepth, FsyncPolicy fsyncPolicy) {
+        this(root, shardDepth, fsyncPolicy, null);
+    }
+
+    /**
+     * @param fsyncExecutor runs deferred fsyncs for {@link FsyncPolicy#ASYNC}; it is not shut down
+     *     by {@link #close()}. When null, the store starts its own thread.
+     */
+    public LocalDiskBlobStore(
+            Path root, int shardDepth, FsyncPolicy fsyncPolicy, Executor fsyncExecutor) {
+        this.root = root.normalize().toAbsolutePath();
+        this.shardDepth = Math.max(0, Math.min(shardDepth, 3));
+        this.fsyncPolicy = fsyncPolicy == null ? FsyncPolicy.NONE : fsyncPolicy;
+        this.ownedFsyncExecutor =
+                this.fsyncPolicy == FsyncPolicy.ASYNC && fsyncExecutor == null
+                        ? Executors.newSingleThreadExecutor(
+                                r -> {
+                                    Thread t = new Thread(r, "blob-store-fsync");
+                                    t.setDaemon(true);
+                                    return t;
+                                })
+                        : null;
+        this.fsyncExecutor = ownedFsyncExecutor != null ? ownedFsyncExecutor : fsyncExecutor;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void put(String key, byte[] bytes) throws IOException {
+        Path target = resolve(key);
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path staging = Files.createTempFile(target.getParent(), ".blob-", ".tmp");
+        try {
+            try (FileChannel channel =
+                    FileChannel.open(
+                            staging,
+                            StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                    channel.force(true);
+                }
+            }
+            publish(staging, target);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = resolve(key);
+        if (Files.exists(target)) {
+            Files.deleteIfExists(source);
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path staging = Files.createTempFile(target.getParent(), ".blob-", ".tmp");
+        try {
+            // Moving into the shard directory first keeps the final rename on one filesystem
+            Files.move(source, staging, StandardCopyOption.REPLACE_EXISTING);
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                force(staging);
+            }
+            publish(staging, target);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return Files.newInputStream(resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new IOException("Blob not found: " + key, e);
+        }
+    }
+
+    @Override
+    public byte[] read(String key) throws IOException {
+        try {
+            return Files.readAllBytes(resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new IOException("Blob not found: " + key, e);
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        try {
+            return Files.size(resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new IOException("Blob not found: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) {
+        Path path = resolve(key);
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.error("Error deleting blob: {}", key, e);
+            return false;
+        }
+    }
+
+    @Override
+    public List<String> keys() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(root, shardDepth + 1)) {
+            return files.filter(Files::isRegularFile)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> KEY_PATTERN.matcher(name).matches())
+                    .toList();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownedFsyncExecutor != null) {
+            ownedFsyncExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Resolve the on-disk location of a blob
+     *
+     * @param key The blob key
+     * @return The sharded path of the blob
+     * @throws IllegalArgumentException if the key is not a lowercase hex string
+     */
+    Path resolve(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid blob key");
+        }
+        Path dir = root;
+        for (int level = 0; level < shardDepth; level++) {
+            int start = level * SHARD_WIDTH;
+            dir = dir.resolve(key.substring(start, start + SHARD_WIDTH));
+        }
+        return dir.resolve(key);
+    }
+
+    private void publish(Path staging, Path target) throws IOException {
+        try {
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Another writer stored identical content first
+            return;
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(staging, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (fsyncPolicy == FsyncPolicy.ASYNC) {
+            fsyncExecutor.execute(
+                    () -> {
+                        try {
+                            force(target);
+                        } catch (IOException ex) {
+                            log.debug("Deferred fsync failed for {}: {}", target, ex.getMessage());
+                        }
+                    });
+        }
+    }
+
+    private void force(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (NoSuchFileException e) {
+            // Deleted before the flush ran; nothing to do
+        }
+    }
+}
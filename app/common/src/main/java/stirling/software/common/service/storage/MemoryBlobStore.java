@@ -0,0 +1,131 @@
+package stirling.software.common.service.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory tier in front of another {@link BlobStore}. Blobs are held on the heap while the total
+ * stays within {@code maxBytes}; anything that does not fit is handed to the overflow store, so
+ * large results still end up on disk.
+ */
+public class MemoryBlobStore implements BlobStore {
+
+    private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final long maxBytes;
+    private final BlobStore overflow;
+
+    public MemoryBlobStore(long maxBytes, BlobStore overflow) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.overflow = overflow;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return blobs.containsKey(key) || overflow.contains(key);
+    }
+
+    @Override
+    public void put(String key, byte[] bytes) throws IOException {
+        if (contains(key)) {
+            return;
+        }
+        if (reserve(bytes.length)) {
+            if (blobs.putIfAbsent(key, bytes) != null) {
+                usedBytes.addAndGet(-bytes.length);
+            }
+            return;
+        }
+        overflow.put(key, bytes);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        if (contains(key)) {
+            Files.deleteIfExists(source);
+            return;
+        }
+        long size = Files.size(source);
+        if (size <= Integer.MAX_VALUE && reserve(size)) {
+            byte[] bytes;
+            try {
+                bytes = Files.readAllBytes(source);
+            } catch (IOException e) {
+                usedBytes.addAndGet(-size);
+                throw e;
+            }
+            if (blobs.putIfAbsent(key, bytes) != null) {
+                usedBytes.addAndGet(-size);
+            }
+            Files.deleteIfExists(source);
+            return;
+        }
+        overflow.put(key, source);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        byte[] bytes = blobs.get(key);
+        return bytes != null ? new ByteArrayInputStream(bytes) : overflow.open(key);
+    }
+
+    @Override
+    public byte[] read(String key) throws IOException {
+        byte[] bytes = blobs.get(key);
+        return bytes != null ? bytes.clone() : overflow.read(key);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        byte[] bytes = blobs.get(key);
+        return bytes != null ? bytes.length : overflow.size(key);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        byte[] removed = blobs.remove(key);
+        if (removed != null) {
+            usedBytes.addAndGet(-removed.length);
+            return true;
+        }
+        return overflow.delete(key);
+    }
+
+    @Override
+    public List<String> keys() throws IOException {
+        List<String> keys = new ArrayList<>(blobs.keySet());
+        keys.addAll(overflow.keys());
+        return keys;
+    }
+
+    @Override
+    public void close() {
+        blobs.clear();
+        usedBytes.set(0);
+        overflow.close();
+    }
+
+    private boolean reserve(long size) {
+        while (true) {
+            long current = usedBytes.get();
+            if (current + size > maxBytes) {
+                return false;
+            }
+            if (usedBytes.compareAndSet(current, current + size)) {
+                return true;
+            }
+        }
+    }
+}
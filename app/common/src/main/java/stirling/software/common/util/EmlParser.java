@@ -1,11 +1,15 @@
 package stirling.software.common.util;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -14,7 +18,12 @@ import java.util.regex.Pattern;
 
 import org.springframework.http.MediaType;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.experimental.UtilityClass;
 
 import stirling.software.common.model.api.converters.EmlToPdfRequest;
@@ -29,6 +38,8 @@ public class EmlParser {
     private static final Pattern MIME_ENCODED_PATTERN =
             Pattern.compile("=\\?([^?]+)\\?([BbQq])\\?([^?]*)\\?=");
 
+    private static final int EML_PEEK_LENGTH = 8192;
+
     private static final String DISPOSITION_ATTACHMENT = "attachment";
     private static final String TEXT_PLAIN = MediaType.TEXT_PLAIN_VALUE;
     private static final String TEXT_HTML = MediaType.TEXT_HTML_VALUE;
@@ -75,6 +86,28 @@ public class EmlParser {
         }
     }
 
+    /**
+     * Parse an email from a stream in a single pass with {@link StreamingMimeParser}. Attachment
+     * content is spilled to temp files, so the returned content must be closed.
+     */
+    public static EmailContent extractEmailContent(
+            InputStream emlStream,
+            EmlToPdfRequest request,
+            CustomHtmlSanitizer customHtmlSanitizer,
+            TempFileManager tempFileManager)
+            throws IOException {
+        if (emlStream == null) {
+            throw new IllegalArgumentException("EML file is empty or null");
+        }
+        BufferedInputStream buffered = new BufferedInputStream(emlStream, EML_PEEK_LENGTH);
+        buffered.mark(EML_PEEK_LENGTH);
+        byte[] head = buffered.readNBytes(EML_PEEK_LENGTH);
+        buffered.reset();
+        EmlProcessingUtils.validateEmlInput(head);
+
+        return StreamingMimeParser.parse(buffered, request, customHtmlSanitizer, tempFileManager);
+    }
+
     private static EmailContent extractEmailContentBasic(
             byte[] emlBytes, CustomHtmlSanitizer customHtmlSanitizer) {
         String emlContent = new String(emlBytes, StandardCharsets.UTF_8);
@@ -544,8 +577,8 @@ public class EmlParser {
                 || (contentType.toLowerCase().contains("application/") && !filename.isEmpty());
     }
 
-    private static String extractFilenameFromDisposition(String disposition) {
-        if (disposition == null || !disposition.contains("filename=")) {
+    static String extractFilenameFromDisposition(String disposition) {
+        if (disposition == null || !disposition.toLowerCase().contains("filename")) {
             return "";
         }
 
@@ -567,6 +600,9 @@ public class EmlParser {
         }
 
         // Handle regular filename=
+        if (!disposition.toLowerCase().contains("filename=")) {
+            return "";
+        }
         int filenameStart = disposition.toLowerCase().indexOf("filename=") + 9;
         int filenameEnd = disposition.indexOf(";", filenameStart);
         if (filenameEnd == -1) filenameEnd = disposition.length();
@@ -610,7 +646,7 @@ public class EmlParser {
     }
 
     @Data
-    public static class EmailContent {
+    public static class EmailContent implements AutoCloseable {
         private String subject;
         private String from;
         private String to;
@@ -623,6 +659,12 @@ public class EmlParser {
         private int attachmentCount;
         private List<EmailAttachment> attachments = new ArrayList<>();
 
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.PACKAGE)
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
+        private TempFileManager tempFileManager;
+
         public void setHtmlBody(String htmlBody) {
             this.htmlBody = htmlBody != null ? htmlBody.replaceAll("\r", "") : null;
         }
@@ -630,6 +672,27 @@ public class EmlParser {
         public void setTextBody(String textBody) {
             this.textBody = textBody != null ? textBody.replaceAll("\r", "") : null;
         }
+
+        /** Delete attachment content spilled to temp files while parsing. */
+        @Override
+        public void close() {
+            for (EmailAttachment attachment : attachments) {
+                Path dataFile = attachment.getDataFile();
+                if (dataFile == null) {
+                    continue;
+                }
+                if (tempFileManager != null) {
+                    tempFileManager.deleteTempFile(dataFile);
+                } else {
+                    try {
+                        Files.deleteIfExists(dataFile);
+                    } catch (IOException e) {
+                        // Left for the scheduled temp file cleanup
+                    }
+                }
+                attachment.setDataFile(null);
+            }
+        }
     }
 
     @Data
@@ -644,11 +707,42 @@ public class EmlParser {
         private String disposition;
         private String transferEncoding;
 
+        /** Content spilled to disk by {@link StreamingMimeParser}, used when data is null */
+        private Path dataFile;
+
         public void setData(byte[] data) {
             this.data = data;
             if (data != null) {
                 this.sizeBytes = data.length;
             }
         }
+
+        public boolean hasData() {
+            return (data != null && data.length > 0) || (dataFile != null && sizeBytes > 0);
+        }
+
+        public InputStream openData() throws IOException {
+            if (data != null) {
+                return new ByteArrayInputStream(data);
+            }
+            if (dataFile != null) {
+                return Files.newInputStream(dataFile);
+            }
+            return InputStream.nullInputStream();
+        }
+
+        public byte[] readData() {
+            if (data != null) {
+                return data;
+            }
+            if (dataFile != null) {
+                try {
+                    return Files.readAllBytes(dataFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return new byte[0];
+        }
     }
 }
@@ -29,6 +29,8 @@ public class EmlProcessingUtils {
     private static final String ATTACHMENT_BACKGROUND_COLOR = "#f9f9f9";
     private static final String ATTACHMENT_BORDER_COLOR = "#eeeeee";
 
+    private static final String ENHANCED_STYLES = buildEnhancedStyles();
+
     private static final int EML_CHECK_LENGTH = 8192;
     private static final int MIN_HEADER_COUNT_FOR_VALID_EML = 2;
 
@@ -235,9 +237,13 @@ public class EmlProcessingUtils {
     }
 
     private static void appendEnhancedStyles(StringBuilder html) {
-        String css =
-                String.format(
-                        """
+        html.append(ENHANCED_STYLES);
+    }
+
+    // The stylesheet only depends on constants, so it is built once instead of per message
+    private static String buildEnhancedStyles() {
+        return String.format(
+                """
                 body {
                   font-family: %s;
                   font-size: %dpx;
@@ -358,22 +364,20 @@ public class EmlProcessingUtils {
                   display: block;
                 }
                 """,
-                        DEFAULT_FONT_FAMILY,
-                        DEFAULT_FONT_SIZE,
-                        DEFAULT_LINE_HEIGHT,
-                        DEFAULT_TEXT_COLOR,
-                        DEFAULT_BACKGROUND_COLOR,
-                        DEFAULT_BORDER_COLOR,
-                        DEFAULT_FONT_SIZE + 4,
-                        DEFAULT_FONT_SIZE - 1,
-                        ATTACHMENT_BACKGROUND_COLOR,
-                        ATTACHMENT_BORDER_COLOR,
-                        DEFAULT_FONT_SIZE + 1,
-                        DEFAULT_FONT_SIZE - 2,
-                        DEFAULT_FONT_SIZE - 2,
-                        DEFAULT_FONT_SIZE - 3);
-
-        html.append(css);
+                DEFAULT_FONT_FAMILY,
+                DEFAULT_FONT_SIZE,
+                DEFAULT_LINE_HEIGHT,
+                DEFAULT_TEXT_COLOR,
+                DEFAULT_BACKGROUND_COLOR,
+                DEFAULT_BORDER_COLOR,
+                DEFAULT_FONT_SIZE + 4,
+                DEFAULT_FONT_SIZE - 1,
+                ATTACHMENT_BACKGROUND_COLOR,
+                ATTACHMENT_BORDER_COLOR,
+                DEFAULT_FONT_SIZE + 1,
+                DEFAULT_FONT_SIZE - 2,
+                DEFAULT_FONT_SIZE - 2,
+                DEFAULT_FONT_SIZE - 3);
     }
 
     private static void appendAttachmentsSection(
@@ -1,6 +1,7 @@
 package stirling.software.common.util;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
 import lombok.experimental.UtilityClass;
@@ -11,6 +12,9 @@ import stirling.software.common.service.CustomPDFDocumentFactory;
 @UtilityClass
 public class EmlToPdf {
 
+    /** A converted message together with its decoded subject. */
+    public record ConvertedEmail(byte[] pdf, String subject) {}
+
     public static String convertEmlToHtml(byte[] emlBytes, EmlToPdfRequest request)
             throws IOException {
         EmlProcessingUtils.validateEmlInput(emlBytes);
@@ -20,6 +24,15 @@ public class EmlToPdf {
         return EmlProcessingUtils.generateEnhancedEmailHtml(emailContent, request, null);
     }
 
+    public static String convertEmlToHtml(
+            InputStream emlStream, EmlToPdfRequest request, TempFileManager tempFileManager)
+            throws IOException {
+        try (EmlParser.EmailContent emailContent =
+                EmlParser.extractEmailContent(emlStream, request, null, tempFileManager)) {
+            return EmlProcessingUtils.generateEnhancedEmailHtml(emailContent, request, null);
+        }
+    }
+
     public static byte[] convertEmlToPdf(
             String weasyprintPath,
             EmlToPdfRequest request,
@@ -35,34 +48,105 @@ public class EmlToPdf {
         try {
             EmlParser.EmailContent emailContent =
                     EmlParser.extractEmailContent(emlBytes, request, customHtmlSanitizer);
+            return renderEmailContent(
+                    weasyprintPath,
+                    request,
+                    emailContent,
+                    pdfDocumentFactory,
+                    tempFileManager,
+                    customHtmlSanitizer);
+        } catch (IOException | InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error converting EML to PDF", e);
+        }
+    }
 
-            String htmlContent =
-                    EmlProcessingUtils.generateEnhancedEmailHtml(
-                            emailContent, request, customHtmlSanitizer);
+    /**
+     * Convert an EML message read from a stream. The message is parsed in a single pass and
+     * attachments are spilled to temp files instead of being held on the heap, which keeps memory
+     * flat when converting large messages or many messages in a row.
+     */
+    public static byte[] convertEmlToPdf(
+            String weasyprintPath,
+            EmlToPdfRequest request,
+            InputStream emlStream,
+            String fileName,
+            CustomPDFDocumentFactory pdfDocumentFactory,
+            TempFileManager tempFileManager,
+            CustomHtmlSanitizer customHtmlSanitizer)
+            throws IOException, InterruptedException {
+        return convertEmail(
+                        weasyprintPath,
+                        request,
+                        emlStream,
+                        fileName,
+                        pdfDocumentFactory,
+                        tempFileManager,
+                        customHtmlSanitizer)
+                .pdf();
+    }
 
-            byte[] pdfBytes =
-                    convertHtmlToPdf(
+    /**
+     * Convert an EML message read from a stream like {@link #convertEmlToPdf(String,
+     * EmlToPdfRequest, InputStream, String, CustomPDFDocumentFactory, TempFileManager,
+     * CustomHtmlSanitizer)}, and also return the subject it was parsed with, so callers don't need
+     * to load the PDF again to find a title for it.
+     */
+    public static ConvertedEmail convertEmail(
+            String weasyprintPath,
+            EmlToPdfRequest request,
+            InputStream emlStream,
+            String fileName,
+            CustomPDFDocumentFactory pdfDocumentFactory,
+            TempFileManager tempFileManager,
+            CustomHtmlSanitizer customHtmlSanitizer)
+            throws IOException, InterruptedException {
+
+        try (EmlParser.EmailContent emailContent =
+                EmlParser.extractEmailContent(
+                        emlStream, request, customHtmlSanitizer, tempFileManager)) {
+            byte[] pdf =
+                    renderEmailContent(
                             weasyprintPath,
                             request,
-                            htmlContent,
+                            emailContent,
+                            pdfDocumentFactory,
                             tempFileManager,
                             customHtmlSanitizer);
-
-            if (shouldAttachFiles(emailContent, request)) {
-                pdfBytes =
-                        PdfAttachmentHandler.attachFilesToPdf(
-                                pdfBytes, emailContent.getAttachments(), pdfDocumentFactory);
-            }
-
-            return pdfBytes;
-
-        } catch (IOException | InterruptedException e) {
+            return new ConvertedEmail(pdf, emailContent.getSubject());
+        } catch (IOException | InterruptedException | IllegalArgumentException e) {
             throw e;
         } catch (Exception e) {
             throw new IOException("Error converting EML to PDF", e);
         }
     }
 
+    private static byte[] renderEmailContent(
+            String weasyprintPath,
+            EmlToPdfRequest request,
+            EmlParser.EmailContent emailContent,
+            CustomPDFDocumentFactory pdfDocumentFactory,
+            TempFileManager tempFileManager,
+            CustomHtmlSanitizer customHtmlSanitizer)
+            throws IOException, InterruptedException {
+        String htmlContent =
+                EmlProcessingUtils.generateEnhancedEmailHtml(
+                        emailContent, request, customHtmlSanitizer);
+
+        byte[] pdfBytes =
+                convertHtmlToPdf(
+                        weasyprintPath, request, htmlContent, tempFileManager, customHtmlSanitizer);
+
+        if (shouldAttachFiles(emailContent, request)) {
+            pdfBytes =
+                    PdfAttachmentHandler.attachFilesToPdf(
+                            pdfBytes, emailContent.getAttachments(), pdfDocumentFactory);
+        }
+
+        return pdfBytes;
+    }
+
     private static boolean shouldAttachFiles(
             EmlParser.EmailContent emailContent, EmlToPdfRequest request) {
         return emailContent != null
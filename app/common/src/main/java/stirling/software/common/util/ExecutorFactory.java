@@ -1,16 +1,29 @@
 package stirling.software.common.util;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class ExecutorFactory {
 
+    /** Idle threads of bounded pools above their core size are stopped after this long. */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
     /**
      * Creates an ExecutorService using virtual threads if available (Java 21+), or falls back to a
      * cached thread pool on older Java versions.
+     *
+     * <p>The number of threads is unbounded, so this is only meant for tasks that spend their time
+     * waiting, such as waiting for the result of work running on a bounded pool.
      */
     public static ExecutorService newVirtualOrCachedThreadExecutor() {
         try {
@@ -28,4 +41,49 @@ public class ExecutorFactory {
 
         return Executors.newCachedThreadPool();
     }
+
+    /**
+     * Creates a pool of at most {@code threads} threads with a queue of {@code queueCapacity}
+     * waiting tasks. Tasks submitted while both are full go to the {@code rejectionHandler}.
+     * Threads are daemons named {@code <name>-<n>} and stop after a minute without work.
+     */
+    public static ThreadPoolExecutor newBoundedExecutor(
+            String name,
+            int threads,
+            int queueCapacity,
+            RejectedExecutionHandler rejectionHandler) {
+        int size = Math.max(1, threads);
+        ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(
+                        size,
+                        size,
+                        KEEP_ALIVE_SECONDS,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                        namedDaemonThreads(name),
+                        rejectionHandler);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates a scheduler with {@code threads} daemon threads named {@code <name>-<n>}. Cancelled
+     * tasks are removed from its queue straight away.
+     */
+    public static ScheduledThreadPoolExecutor newScheduler(String name, int threads) {
+        ScheduledThreadPoolExecutor scheduler =
+                new ScheduledThreadPoolExecutor(Math.max(1, threads), namedDaemonThreads(name));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /** A thread factory for daemon threads named {@code <name>-<n>}. */
+    public static ThreadFactory namedDaemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 }
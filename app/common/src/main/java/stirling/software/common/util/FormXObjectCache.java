@@ -0,0 +1,76 @@
+package stirling.software.common.util;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+
+/**
+ * Builds drawings that repeat across the pages of a document, such as stamps and watermarks, once
+ * as form XObjects so that every page references the same stream instead of repeating its
+ * operators.
+ *
+ * <p>A drawing that depends on the page, for example on its size, is cached under a key that
+ * captures that dependency; {@link #pageBoxKey(PDRectangle)} covers the common case.
+ */
+public class FormXObjectCache {
+
+    /** Draws the content of a form. The stream has the form's own resources. */
+    @FunctionalInterface
+    public interface FormPainter {
+        void paint(PDPageContentStream contentStream) throws IOException;
+    }
+
+    private final PDDocument document;
+    private final Map<Object, PDFormXObject> forms = new HashMap<>();
+
+    public FormXObjectCache(PDDocument document) {
+        this.document = document;
+    }
+
+    /** The form for the key, painting it with the given bounding box on first use. */
+    public PDFormXObject get(Object key, PDRectangle bbox, FormPainter painter) throws IOException {
+        PDFormXObject form = forms.get(key);
+        if (form == null) {
+            form = create(document, bbox, painter);
+            forms.put(key, form);
+        }
+        return form;
+    }
+
+    public int size() {
+        return forms.size();
+    }
+
+    /** A key for drawings that depend only on the given page box. */
+    public static Object pageBoxKey(PDRectangle box) {
+        return List.of(
+                box.getLowerLeftX(),
+                box.getLowerLeftY(),
+                box.getUpperRightX(),
+                box.getUpperRightY());
+    }
+
+    /**
+     * Paint a new form XObject. Its coordinates are those of the page it is drawn on, so {@code
+     * drawForm} places it without a further transform.
+     */
+    public static PDFormXObject create(PDDocument document, PDRectangle bbox, FormPainter painter)
+            throws IOException {
+        // An appearance stream is a form XObject that PDPageContentStream can write to
+        PDAppearanceStream form = new PDAppearanceStream(document);
+        form.setResources(new PDResources());
+        form.setBBox(bbox);
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, form)) {
+            painter.paint(contentStream);
+        }
+        return form;
+    }
+}
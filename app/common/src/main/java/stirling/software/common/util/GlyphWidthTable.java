@@ -0,0 +1,129 @@
+package stirling.software.common.util;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDCIDFontType2;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+/**
+ * Advance widths of a TrueType font by Unicode code point, precomputed so that measuring a string
+ * is an array lookup per character instead of an encode and width lookup through PDFBox.
+ *
+ * <p>Widths are in text space units (1/1000 em), the same scale as {@link
+ * PDFont#getStringWidth(String)}. Tables are built by {@link #forFont(TrueTypeFont)} and live as
+ * long as the font does; {@link #lookup(PDFont)} finds the table of a {@link PDType0Font} created
+ * from such a font.
+ */
+public final class GlyphWidthTable {
+
+    private static final int BMP_SIZE = 0x10000;
+
+    private static final Map<TrueTypeFont, GlyphWidthTable> TABLES = new WeakHashMap<>();
+
+    private final TrueTypeFont font;
+    private final CmapLookup cmap;
+    private final float scale;
+    // Advance widths in font units for the Basic Multilingual Plane; unmapped code points are 0
+    private final char[] bmpAdvances = new char[BMP_SIZE];
+    private final boolean[] bmpMapped = new boolean[BMP_SIZE];
+    private final int notdefAdvance;
+
+    private GlyphWidthTable(TrueTypeFont font) throws IOException {
+        this.font = font;
+        this.cmap = font.getUnicodeCmapLookup(false);
+        this.scale = 1000f / font.getUnitsPerEm();
+        this.notdefAdvance = font.getAdvanceWidth(0);
+        if (cmap == null) {
+            return;
+        }
+        for (int codePoint = 0; codePoint < BMP_SIZE; codePoint++) {
+            int gid = cmap.getGlyphId(codePoint);
+            if (gid > 0) {
+                bmpMapped[codePoint] = true;
+                bmpAdvances[codePoint] = (char) font.getAdvanceWidth(gid);
+            }
+        }
+    }
+
+    /** The table for a font, building and remembering it on first use. */
+    public static GlyphWidthTable forFont(TrueTypeFont font) throws IOException {
+        synchronized (TABLES) {
+            GlyphWidthTable table = TABLES.get(font);
+            if (table == null) {
+                table = new GlyphWidthTable(font);
+                TABLES.put(font, table);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * The table for a Type 0 font created from a font that already has one, or {@code null}. Fonts
+     * read from documents have no table; measure those through PDFBox.
+     */
+    public static GlyphWidthTable lookup(PDFont font) {
+        if (font instanceof PDType0Font type0
+                && type0.getDescendantFont() instanceof PDCIDFontType2 cidFont) {
+            TrueTypeFont trueTypeFont = cidFont.getTrueTypeFont();
+            if (trueTypeFont != null) {
+                synchronized (TABLES) {
+                    return TABLES.get(trueTypeFont);
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Whether the font has a glyph for every character of the text. */
+    public boolean canMeasure(String text) {
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (advance(codePoint) < 0) {
+                return false;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return true;
+    }
+
+    /** Width of the text in 1/1000 em; characters without a glyph count as the missing glyph. */
+    public float getStringWidth(String text) {
+        long units = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            int advance = advance(codePoint);
+            units += advance >= 0 ? advance : notdefAdvance;
+            i += Character.charCount(codePoint);
+        }
+        return units * scale;
+    }
+
+    /** Width of one code point in 1/1000 em, or -1 if the font has no glyph for it. */
+    public float getWidth(int codePoint) {
+        int advance = advance(codePoint);
+        return advance >= 0 ? advance * scale : -1;
+    }
+
+    private int advance(int codePoint) {
+        if (codePoint < BMP_SIZE) {
+            return bmpMapped[codePoint] ? bmpAdvances[codePoint] : -1;
+        }
+        if (cmap == null) {
+            return -1;
+        }
+        int gid = cmap.getGlyphId(codePoint);
+        if (gid <= 0) {
+            return -1;
+        }
+        try {
+            return font.getAdvanceWidth(gid);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
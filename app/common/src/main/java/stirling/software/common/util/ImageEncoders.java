@@ -0,0 +1,289 @@
+package stirling.software.common.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.w3c.dom.NodeList;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Encodes rendered images through ImageIO writers that are kept in a small pool per format, instead
+ * of looking up and creating a writer for every image as {@link ImageIO#write} does.
+ *
+ * <p>{@link #forFormat(String)} picks the encoder for a format name; JPEG output can be tuned with
+ * {@link JpegOptions}. Single images are encoded through an in-memory stream rather than ImageIO's
+ * default file cache. Multi-page TIFFs are written one page at a time with {@link TiffSequence}, so
+ * a long document never has to be held in memory as images.
+ */
+@Slf4j
+public final class ImageEncoders {
+
+    /** Idle writers kept per format; writers beyond this are disposed of when released. */
+    private static final int MAX_IDLE_WRITERS =
+            Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Deflate level 6 rather than the level 9 a quality of 1 selects. The output is lossless either
+     * way, and level 9 costs far more time for a few percent of size on rendered pages.
+     */
+    static final float TIFF_DEFLATE_QUALITY = 0.625f;
+
+    private static final String JPEG_NATIVE_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    private static final Map<String, ArrayBlockingQueue<ImageWriter>> IDLE_WRITERS =
+            new ConcurrentHashMap<>();
+
+    private ImageEncoders() {}
+
+    /** Writes an image in one format with fixed settings. Encoders can be shared by threads. */
+    @FunctionalInterface
+    public interface Encoder {
+        void write(BufferedImage image, OutputStream out) throws IOException;
+
+        default byte[] toBytes(BufferedImage image) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            write(image, out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * JPEG settings.
+     *
+     * @param quality compression quality from 0 to 1
+     * @param progressive whether to write a progressive rather than a baseline JPEG
+     * @param subsampleChroma whether colour is stored at half resolution (4:2:0) rather than full
+     *     resolution (4:4:4)
+     * @param optimizeHuffman whether to compute Huffman tables for the image, which makes files
+     *     smaller at the cost of a second pass
+     */
+    public record JpegOptions(
+            float quality, boolean progressive, boolean subsampleChroma, boolean optimizeHuffman) {
+
+        /** The settings {@link ImageIO#write} uses. */
+        public static final JpegOptions DEFAULT = new JpegOptions(0.75f, false, true, false);
+    }
+
+    /** Writer settings for one image; a null param or metadata leaves the writer's defaults. */
+    private record WriteSetup(ImageWriteParam param, IIOMetadata metadata) {}
+
+    @FunctionalInterface
+    private interface SetupFactory {
+        WriteSetup create(ImageWriter writer, BufferedImage image) throws IOException;
+    }
+
+    private static final SetupFactory WRITER_DEFAULTS =
+            (writer, image) -> new WriteSetup(null, null);
+
+    /** The encoder for an ImageIO format name such as {@code png}, {@code jpg} or {@code tiff}. */
+    public static Encoder forFormat(String format) {
+        String name = format.toLowerCase(Locale.ROOT);
+        return switch (name) {
+            case "jpg", "jpeg" -> jpeg(JpegOptions.DEFAULT);
+            case "tif" -> encoder("tiff", WRITER_DEFAULTS);
+            default -> encoder(name, WRITER_DEFAULTS);
+        };
+    }
+
+    /** A JPEG encoder with the given settings. */
+    public static Encoder jpeg(JpegOptions options) {
+        return encoder(
+                "jpeg",
+                (writer, image) -> {
+                    ImageWriteParam param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(options.quality());
+                    param.setProgressiveMode(
+                            options.progressive()
+                                    ? ImageWriteParam.MODE_DEFAULT
+                                    : ImageWriteParam.MODE_DISABLED);
+                    if (param instanceof JPEGImageWriteParam jpegParam) {
+                        jpegParam.setOptimizeHuffmanTables(options.optimizeHuffman());
+                    }
+                    IIOMetadata metadata =
+                            options.subsampleChroma()
+                                    ? null
+                                    : fullChromaMetadata(writer, image, param);
+                    return new WriteSetup(param, metadata);
+                });
+    }
+
+    /**
+     * Start a multi-page TIFF on the given stream. Pages are compressed losslessly, with CCITT
+     * Group 4 for black and white pages where the writer supports it and Deflate otherwise.
+     */
+    public static TiffSequence openTiffSequence(ImageOutputStream output) throws IOException {
+        return new TiffSequence(output);
+    }
+
+    /** A multi-page TIFF being written. Closing it finishes the file but not the stream. */
+    public static final class TiffSequence implements Closeable {
+
+        private final ImageWriter writer;
+        private boolean failed;
+
+        private TiffSequence(ImageOutputStream output) throws IOException {
+            ImageWriter pooled = borrow("tiff");
+            if (!pooled.canWriteSequence()) {
+                release("tiff", pooled, true);
+                pooled = sequenceWriter();
+            }
+            writer = pooled;
+            try {
+                writer.setOutput(output);
+                writer.prepareWriteSequence(null);
+            } catch (IOException | RuntimeException e) {
+                release("tiff", writer, false);
+                throw e;
+            }
+        }
+
+        private static ImageWriter sequenceWriter() throws IIOException {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("tiff");
+            while (writers.hasNext()) {
+                ImageWriter candidate = writers.next();
+                if (candidate.canWriteSequence()) {
+                    return candidate;
+                }
+                candidate.dispose();
+            }
+            throw new IIOException("No TIFF writer supports multi-page output");
+        }
+
+        /** Append a page. */
+        public void writePage(BufferedImage image) throws IOException {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            String[] types = param.getCompressionTypes();
+            boolean bilevel =
+                    image.getType() == BufferedImage.TYPE_BYTE_BINARY
+                            && image.getColorModel().getPixelSize() == 1;
+            if (bilevel && Arrays.asList(types).contains("CCITT T.6")) {
+                param.setCompressionType("CCITT T.6");
+            } else {
+                param.setCompressionType("ZLib");
+                param.setCompressionQuality(TIFF_DEFLATE_QUALITY);
+            }
+            try {
+                writer.writeToSequence(new IIOImage(image, null, null), param);
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!failed) {
+                    writer.endWriteSequence();
+                }
+            } finally {
+                release("tiff", writer, !failed);
+            }
+        }
+    }
+
+    private static Encoder encoder(String format, SetupFactory setupFactory) {
+        return (image, out) -> {
+            ImageWriter writer = borrow(format);
+            if (!writer.getOriginatingProvider().canEncodeImage(image)) {
+                release(format, writer, true);
+                writer = writerFor(format, image);
+            }
+            boolean reusable = false;
+            try (ImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+                WriteSetup setup = setupFactory.create(writer, image);
+                writer.setOutput(ios);
+                writer.write(null, new IIOImage(image, null, setup.metadata()), setup.param());
+                reusable = true;
+            } finally {
+                release(format, writer, reusable);
+            }
+        };
+    }
+
+    /** Any writer for the format that can encode the image, as {@link ImageIO#write} would use. */
+    private static ImageWriter writerFor(String format, RenderedImage image) throws IIOException {
+        Iterator<ImageWriter> writers =
+                ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(image), format);
+        if (!writers.hasNext()) {
+            throw new IIOException("No " + format + " writer can encode this image");
+        }
+        return writers.next();
+    }
+
+    private static ImageWriter borrow(String format) throws IIOException {
+        ArrayBlockingQueue<ImageWriter> idle = IDLE_WRITERS.get(format);
+        ImageWriter writer = idle == null ? null : idle.poll();
+        if (writer != null) {
+            return writer;
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IIOException("No image writer for format " + format);
+        }
+        return writers.next();
+    }
+
+    /** Return a writer to the pool, or dispose of it if it failed or the pool is full. */
+    private static void release(String format, ImageWriter writer, boolean reusable) {
+        if (reusable) {
+            try {
+                writer.reset();
+                if (IDLE_WRITERS
+                        .computeIfAbsent(format, f -> new ArrayBlockingQueue<>(MAX_IDLE_WRITERS))
+                        .offer(writer)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.debug("Discarding {} writer that could not be reset", format, e);
+            }
+        }
+        writer.dispose();
+    }
+
+    /** Default JPEG metadata for the image with every component sampled at full resolution. */
+    private static IIOMetadata fullChromaMetadata(
+            ImageWriter writer, BufferedImage image, ImageWriteParam param) throws IOException {
+        IIOMetadata metadata =
+                writer.getDefaultImageMetadata(
+                        ImageTypeSpecifier.createFromRenderedImage(image), param);
+        if (metadata == null
+                || !Arrays.asList(metadata.getMetadataFormatNames()).contains(JPEG_NATIVE_FORMAT)) {
+            return null;
+        }
+        IIOMetadataNode tree = (IIOMetadataNode) metadata.getAsTree(JPEG_NATIVE_FORMAT);
+        NodeList components = tree.getElementsByTagName("componentSpec");
+        for (int i = 0; i < components.getLength(); i++) {
+            IIOMetadataNode component = (IIOMetadataNode) components.item(i);
+            component.setAttribute("HsamplingFactor", "1");
+            component.setAttribute("VsamplingFactor", "1");
+        }
+        metadata.setFromTree(JPEG_NATIVE_FORMAT, tree);
+        return metadata;
+    }
+}
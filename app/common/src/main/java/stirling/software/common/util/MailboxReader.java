@@ -0,0 +1,233 @@
+package stirling.software.common.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import io.github.pixee.security.Filenames;
+import io.github.pixee.security.ZipSecurity;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Splits a mailbox archive into individual RFC 822 messages. Supports mbox files (mboxo and mboxrd
+ * quoting) and ZIP archives of {@code .eml} files. Each message is written to its own temp file and
+ * handed to a {@link MessageConsumer} as soon as it is complete, so callers can start converting
+ * early messages while later ones are still being read.
+ */
+@Slf4j
+public final class MailboxReader {
+
+    public static final int MAX_MESSAGES = 10_000;
+
+    private static final byte[] FROM_LINE = "From ".getBytes(StandardCharsets.US_ASCII);
+    private static final int INITIAL_LINE_CAPACITY = 256;
+
+    /** Longest line accepted in an mbox file, so a file without line breaks can't fill the heap */
+    static final int MAX_LINE_LENGTH = 5_000_000;
+
+    private MailboxReader() {}
+
+    /** Receives each message of the mailbox. The consumer owns the temp file it is given. */
+    @FunctionalInterface
+    public interface MessageConsumer {
+        void accept(int index, String name, File message) throws IOException;
+    }
+
+    public static boolean isZip(String filename) {
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    /**
+     * Read all messages from the given mailbox.
+     *
+     * @param in the mailbox content
+     * @param filename the original file name, used to tell ZIP archives from mbox files
+     * @param tempFileManager temp file manager used to stage each message
+     * @param consumer receives every message in mailbox order
+     * @return the number of messages read
+     */
+    public static int readMessages(
+            InputStream in,
+            String filename,
+            TempFileManager tempFileManager,
+            MessageConsumer consumer)
+            throws IOException {
+        if (isZip(filename)) {
+            return readZip(in, tempFileManager, consumer);
+        }
+        return readMbox(in, tempFileManager, consumer);
+    }
+
+    private static int readZip(
+            InputStream in, TempFileManager tempFileManager, MessageConsumer consumer)
+            throws IOException {
+        int count = 0;
+        try (ZipInputStream zip = ZipSecurity.createHardenedInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String entryName = entry.getName();
+                if (entry.isDirectory()
+                        || entryName.startsWith("__MACOSX/")
+                        || !entryName.toLowerCase(Locale.ROOT).endsWith(".eml")) {
+                    continue;
+                }
+                checkMessageLimit(count);
+                File message = tempFileManager.createTempFile(".eml");
+                try (OutputStream out = Files.newOutputStream(message.toPath())) {
+                    zip.transferTo(out);
+                } catch (IOException e) {
+                    tempFileManager.deleteTempFile(message);
+                    throw e;
+                }
+                String name = Filenames.toSimpleFileName(entryName);
+                consumer.accept(count++, name.substring(0, name.length() - 4), message);
+            }
+        }
+        return count;
+    }
+
+    private static int readMbox(
+            InputStream in, TempFileManager tempFileManager, MessageConsumer consumer)
+            throws IOException {
+        LineReader reader = new LineReader(in);
+        int count = 0;
+        File current = null;
+        OutputStream out = null;
+        boolean previousLineBlank = true;
+        try {
+            while (reader.next()) {
+                byte[] line = reader.buffer;
+                int contentLength = reader.contentLength();
+                if (previousLineBlank && startsWith(line, contentLength, 0, FROM_LINE)) {
+                    if (out != null) {
+                        out.close();
+                        out = null;
+                        consumer.accept(count, messageName(count), current);
+                        current = null;
+                        count++;
+                    }
+                    checkMessageLimit(count);
+                    current = tempFileManager.createTempFile(".eml");
+                    out = Files.newOutputStream(current.toPath());
+                    previousLineBlank = false;
+                    continue;
+                }
+                previousLineBlank = contentLength == 0;
+                if (out == null) {
+                    // Anything before the first separator is not part of a message
+                    continue;
+                }
+                int offset = quotedFromOffset(line, contentLength);
+                out.write(line, offset, reader.length - offset);
+            }
+            if (out != null) {
+                out.close();
+                out = null;
+                consumer.accept(count, messageName(count), current);
+                current = null;
+                count++;
+            }
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close partial mbox message", e);
+                }
+            }
+            if (current != null) {
+                tempFileManager.deleteTempFile(current);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * mboxrd escapes body lines matching {@code >*From } with one extra {@code >}; drop it so the
+     * message matches what was originally sent. mboxo only quotes plain "From " lines, which this
+     * handles too.
+     */
+    static int quotedFromOffset(byte[] line, int length) {
+        int quotes = 0;
+        while (quotes < length && line[quotes] == '>') {
+            quotes++;
+        }
+        return quotes > 0 && startsWith(line, length, quotes, FROM_LINE) ? 1 : 0;
+    }
+
+    private static boolean startsWith(byte[] line, int length, int offset, byte[] prefix) {
+        if (length - offset < prefix.length) {
+            return false;
+        }
+        return Arrays.equals(line, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static String messageName(int index) {
+        return String.format(Locale.ROOT, "message-%05d", index + 1);
+    }
+
+    private static void checkMessageLimit(int count) {
+        if (count >= MAX_MESSAGES) {
+            throw ExceptionUtils.createIllegalArgumentException(
+                    "error.mailboxTooLarge",
+                    "Mailbox contains more than {0} messages",
+                    MAX_MESSAGES);
+        }
+    }
+
+    /**
+     * Reads lines including their terminator into a reusable buffer that grows up to {@link
+     * #MAX_LINE_LENGTH}.
+     */
+    private static final class LineReader {
+
+        private final InputStream in;
+        private byte[] buffer = new byte[INITIAL_LINE_CAPACITY];
+        private int length;
+
+        LineReader(InputStream in) {
+            this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 65536);
+        }
+
+        boolean next() throws IOException {
+            length = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (length == buffer.length) {
+                    if (length >= MAX_LINE_LENGTH) {
+                        throw ExceptionUtils.createIllegalArgumentException(
+                                "error.mailboxLineTooLong",
+                                "Mailbox contains a line longer than {0} bytes",
+                                MAX_LINE_LENGTH);
+                    }
+                    buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_LINE_LENGTH));
+                }
+                buffer[length++] = (byte) b;
+                if (b == '\n') {
+                    return true;
+                }
+            }
+            return length > 0;
+        }
+
+        int contentLength() {
+            int end = length;
+            if (end > 0 && buffer[end - 1] == '\n') {
+                end--;
+            }
+            if (end > 0 && buffer[end - 1] == '\r') {
+                end--;
+            }
+            return end;
+        }
+    }
+}
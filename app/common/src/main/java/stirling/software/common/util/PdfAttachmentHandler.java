@@ -2,7 +2,6 @@ package stirling.software.common.util;
 
 import static stirling.software.common.util.AttachmentUtils.setCatalogViewerPreferences;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -72,7 +71,7 @@ public class PdfAttachmentHandler {
             List<MultipartFile> multipartAttachments = new ArrayList<>(attachments.size());
             for (int i = 0; i < attachments.size(); i++) {
                 EmlParser.EmailAttachment attachment = attachments.get(i);
-                if (attachment.getData() != null && attachment.getData().length > 0) {
+                if (attachment.hasData()) {
                     String embeddedFilename =
                             attachment.getFilename() != null
                                     ? attachment.getFilename()
@@ -124,32 +123,29 @@ public class PdfAttachmentHandler {
 
             @Override
             public boolean isEmpty() {
-                return attachment.getData() == null || attachment.getData().length == 0;
+                return !attachment.hasData();
             }
 
             @Override
             public long getSize() {
-                return attachment.getData() != null ? attachment.getData().length : 0;
+                return attachment.hasData() ? attachment.getSizeBytes() : 0;
             }
 
             @Override
             public byte @NotNull [] getBytes() {
-                return attachment.getData() != null ? attachment.getData() : new byte[0];
+                return attachment.readData();
             }
 
             @Override
-            public @NotNull InputStream getInputStream() {
-                byte[] data = attachment.getData();
-                return new ByteArrayInputStream(data != null ? data : new byte[0]);
+            public @NotNull InputStream getInputStream() throws IOException {
+                return attachment.openData();
             }
 
             @Override
             public void transferTo(@NotNull File dest) throws IOException, IllegalStateException {
-                try (FileOutputStream fos = new FileOutputStream(dest)) {
-                    byte[] data = attachment.getData();
-                    if (data != null) {
-                        fos.write(data);
-                    }
+                try (InputStream data = attachment.openData();
+                        FileOutputStream fos = new FileOutputStream(dest)) {
+                    data.transferTo(fos);
                 }
             }
         };
@@ -250,7 +246,7 @@ public class PdfAttachmentHandler {
         for (EmlParser.EmailAttachment attachment : emailContent.getAttachments()) {
             if (attachment.isEmbedded()
                     && attachment.getContentId() != null
-                    && attachment.getData() != null) {
+                    && attachment.hasData()) {
                 contentIdMap.put(attachment.getContentId(), attachment);
             }
         }
@@ -268,12 +264,12 @@ public class PdfAttachmentHandler {
             String contentId = matcher.group(1);
             EmlParser.EmailAttachment attachment = contentIdMap.get(contentId);
 
-            if (attachment != null && attachment.getData() != null) {
+            if (attachment != null && attachment.hasData()) {
                 String mimeType =
                         EmlProcessingUtils.detectMimeType(
                                 attachment.getFilename(), attachment.getContentType());
 
-                String base64Data = Base64.getEncoder().encodeToString(attachment.getData());
+                String base64Data = Base64.getEncoder().encodeToString(attachment.readData());
                 String dataUri = "data:" + mimeType + ";base64," + base64Data;
 
                 String replacement =
@@ -4,15 +4,20 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import javax.imageio.*;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -37,6 +42,7 @@ import io.github.pixee.security.Filenames;
 import lombok.extern.slf4j.Slf4j;
 
 import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.service.BatchExecutor;
 import stirling.software.common.service.CustomPDFDocumentFactory;
 
 @Slf4j
@@ -136,18 +142,13 @@ public class PdfUtils {
         return pageText.contains(phrase);
     }
 
-    public static byte[] convertFromPdf(
-            CustomPDFDocumentFactory pdfDocumentFactory,
-            byte[] inputStream,
-            String imageType,
-            ImageType colorType,
-            boolean singleImage,
-            int DPI,
-            String filename,
-            boolean includeAnnotations)
-            throws IOException, Exception {
-
-        // Validate and limit DPI to prevent excessive memory usage
+    /**
+     * Reject a DPI above the configured maximum, since rendering at high DPI values can exhaust
+     * memory.
+     *
+     * @throws IllegalArgumentException if the DPI exceeds the limit
+     */
+    public static void checkDpiLimit(int DPI) {
         int maxSafeDpi = 500; // Default maximum safe DPI
         ApplicationProperties properties =
                 ApplicationContextProvider.getBean(ApplicationProperties.class);
@@ -162,6 +163,20 @@ public class PdfUtils {
                     DPI,
                     maxSafeDpi);
         }
+    }
+
+    public static byte[] convertFromPdf(
+            CustomPDFDocumentFactory pdfDocumentFactory,
+            byte[] inputStream,
+            String imageType,
+            ImageType colorType,
+            boolean singleImage,
+            int DPI,
+            String filename,
+            boolean includeAnnotations)
+            throws IOException, Exception {
+
+        checkDpiLimit(DPI);
 
         try (PDDocument document = pdfDocumentFactory.load(inputStream)) {
             PDFRenderer pdfRenderer = new PDFRenderer(document);
@@ -178,45 +193,9 @@ public class PdfUtils {
                 if ("tiff".equals(imageType.toLowerCase())
                         || "tif".equals(imageType.toLowerCase())) {
                     // Write the images to the output stream as a TIFF with multiple frames
-                    ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
-                    ImageWriteParam param = writer.getDefaultWriteParam();
-                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-                    param.setCompressionType("ZLib");
-                    param.setCompressionQuality(1.0f);
-
-                    try (ImageOutputStream ios = ImageIO.createImageOutputStream(baos)) {
-                        writer.setOutput(ios);
-                        writer.prepareWriteSequence(null);
-
-                        for (int i = 0; i < pageCount; ++i) {
-                            BufferedImage image;
-                            try {
-                                image = pdfRenderer.renderImageWithDPI(i, DPI, colorType);
-                            } catch (IllegalArgumentException e) {
-                                if (e.getMessage() != null
-                                        && e.getMessage()
-                                                .contains("Maximum size of image exceeded")) {
-                                    throw ExceptionUtils.createIllegalArgumentException(
-                                            "error.pageTooBigForDpi",
-                                            "PDF page {0} is too large to render at {1} DPI. Please"
-                                                    + " try a lower DPI value (recommended: 150 or"
-                                                    + " less).",
-                                            i + 1,
-                                            DPI);
-                                }
-                                throw e;
-                            } catch (OutOfMemoryError e) {
-                                throw ExceptionUtils.createOutOfMemoryDpiException(i + 1, DPI, e);
-                            } catch (NegativeArraySizeException e) {
-                                throw ExceptionUtils.createOutOfMemoryDpiException(i + 1, DPI, e);
-                            }
-                            writer.writeToSequence(new IIOImage(image, null, null), param);
-                        }
-
-                        writer.endWriteSequence();
+                    try (ImageOutputStream ios = new MemoryCacheImageOutputStream(baos)) {
+                        writeTiffPages(pdfRenderer, pageCount, colorType, DPI, ios);
                     }
-
-                    writer.dispose();
                 } else {
                     // Combine all images into a single big image
 
@@ -319,13 +298,14 @@ public class PdfUtils {
                     }
 
                     // Write the image to the output stream
-                    ImageIO.write(combined, imageType, baos);
+                    ImageEncoders.forFormat(imageType).write(combined, baos);
                 }
 
                 // Log that the image was successfully written to the byte array
                 log.info("Image successfully written to byte array");
             } else {
                 // Zip the images and return as byte array
+                ImageEncoders.Encoder encoder = ImageEncoders.forFormat(imageType);
                 try (ZipOutputStream zos = new ZipOutputStream(baos)) {
                     for (int i = 0; i < pageCount; ++i) {
                         BufferedImage image;
@@ -348,7 +328,7 @@ public class PdfUtils {
                             throw ExceptionUtils.createOutOfMemoryDpiException(i + 1, DPI, e);
                         }
                         try (ByteArrayOutputStream baosImage = new ByteArrayOutputStream()) {
-                            ImageIO.write(image, imageType, baosImage);
+                            encoder.write(image, baosImage);
 
                             // Add the image to the zip file
                             zos.putNextEntry(
@@ -372,6 +352,65 @@ public class PdfUtils {
         }
     }
 
+    /**
+     * Render every page of a PDF into a multi-page TIFF file. Pages are written as they are
+     * rendered, so only one page image is held in memory at a time.
+     */
+    public static void convertToMultiPageTiff(
+            CustomPDFDocumentFactory pdfDocumentFactory,
+            byte[] inputStream,
+            ImageType colorType,
+            int DPI,
+            boolean includeAnnotations,
+            File output)
+            throws IOException {
+
+        checkDpiLimit(DPI);
+
+        try (PDDocument document = pdfDocumentFactory.load(inputStream);
+                ImageOutputStream ios = new FileImageOutputStream(output)) {
+            PDFRenderer pdfRenderer = new PDFRenderer(document);
+            pdfRenderer.setSubsamplingAllowed(true);
+            if (!includeAnnotations) {
+                pdfRenderer.setAnnotationsFilter(annotation -> false);
+            }
+            writeTiffPages(pdfRenderer, document.getNumberOfPages(), colorType, DPI, ios);
+        }
+    }
+
+    private static void writeTiffPages(
+            PDFRenderer pdfRenderer,
+            int pageCount,
+            ImageType colorType,
+            int DPI,
+            ImageOutputStream ios)
+            throws IOException {
+        try (ImageEncoders.TiffSequence tiff = ImageEncoders.openTiffSequence(ios)) {
+            for (int i = 0; i < pageCount; ++i) {
+                BufferedImage image;
+                try {
+                    image = pdfRenderer.renderImageWithDPI(i, DPI, colorType);
+                } catch (IllegalArgumentException e) {
+                    if (e.getMessage() != null
+                            && e.getMessage().contains("Maximum size of image exceeded")) {
+                        throw ExceptionUtils.createIllegalArgumentException(
+                                "error.pageTooBigForDpi",
+                                "PDF page {0} is too large to render at {1} DPI. Please try"
+                                        + " a lower DPI value (recommended: 150 or less).",
+                                i + 1,
+                                DPI);
+                    }
+                    throw e;
+                } catch (OutOfMemoryError e) {
+                    throw ExceptionUtils.createOutOfMemoryDpiException(i + 1, DPI, e);
+                } catch (NegativeArraySizeException e) {
+                    throw ExceptionUtils.createOutOfMemoryDpiException(i + 1, DPI, e);
+                }
+                tiff.writePage(image);
+            }
+        }
+    }
+
     /**
      * Converts a given Pdf file to PDF-Image.
      *
@@ -452,36 +491,59 @@ public class PdfUtils {
             String colorType,
             CustomPDFDocumentFactory pdfDocumentFactory)
             throws IOException {
+        return imageToPdf(files, fitOption, autoRotate, colorType, pdfDocumentFactory, null);
+    }
+
+    /**
+     * Convert images to a PDF with one page per image (or per TIFF frame). When a batch executor is
+     * given, images are decoded and colour converted in parallel while pages are added to the
+     * document in upload order on the calling thread.
+     */
+    public static byte[] imageToPdf(
+            MultipartFile[] files,
+            String fitOption,
+            boolean autoRotate,
+            String colorType,
+            CustomPDFDocumentFactory pdfDocumentFactory,
+            BatchExecutor batchExecutor)
+            throws IOException {
         try (PDDocument doc = pdfDocumentFactory.createNewDocument()) {
-            for (MultipartFile file : files) {
-                String contentType = file.getContentType();
-                String originalFilename = Filenames.toSimpleFileName(file.getOriginalFilename());
-                if (originalFilename != null
-                        && (originalFilename.toLowerCase().endsWith(".tiff")
-                                || originalFilename.toLowerCase().endsWith(".tif"))) {
-                    ImageReader reader = ImageIO.getImageReadersByFormatName("tiff").next();
-                    reader.setInput(ImageIO.createImageInputStream(file.getInputStream()));
-                    int numPages = reader.getNumImages(true);
-                    for (int i = 0; i < numPages; i++) {
-                        BufferedImage pageImage = reader.read(i);
-                        BufferedImage convertedImage =
-                                ImageProcessingUtils.convertColorType(pageImage, colorType);
-                        PDImageXObject pdImage =
-                                LosslessFactory.createFromImage(doc, convertedImage);
-                        addImageToDocument(doc, pdImage, fitOption, autoRotate);
+            BatchExecutor.BatchTask<MultipartFile, List<BufferedImage>> decode =
+                    (index, file) -> decodeImages(file, colorType);
+            BatchExecutor.ResultConsumer<List<BufferedImage>> addPages =
+                    (index, images) -> {
+                        String contentType = files[index].getContentType();
+                        boolean jpeg =
+                                !isTiff(files[index])
+                                        && MediaType.IMAGE_JPEG_VALUE.equals(contentType);
+                        for (BufferedImage image : images) {
+                            // Use JPEGFactory if it's JPEG since JPEG is lossy
+                            PDImageXObject pdImage =
+                                    jpeg
+                                            ? JPEGFactory.createFromImage(doc, image)
+                                            : LosslessFactory.createFromImage(doc, image);
+                            addImageToDocument(doc, pdImage, fitOption, autoRotate);
+                        }
+                    };
+
+            if (batchExecutor != null) {
+                batchExecutor.forEachOrdered(
+                        Arrays.asList(files),
+                        PdfUtils::estimateDecodedImageBytes,
+                        decode,
+                        addPages);
+            } else {
+                for (int i = 0; i < files.length; i++) {
+                    try {
+                        addPages.accept(i, decode.apply(i, files[i]));
+                    } catch (IOException | RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IOException(e);
                     }
-                } else {
-                    BufferedImage image = ImageProcessingUtils.loadImageWithExifOrientation(file);
-                    BufferedImage convertedImage =
-                            ImageProcessingUtils.convertColorType(image, colorType);
-                    // Use JPEGFactory if it's JPEG since JPEG is lossy
-                    PDImageXObject pdImage =
-                            (contentType != null && MediaType.IMAGE_JPEG_VALUE.equals(contentType))
-                                    ? JPEGFactory.createFromImage(doc, convertedImage)
-                                    : LosslessFactory.createFromImage(doc, convertedImage);
-                    addImageToDocument(doc, pdImage, fitOption, autoRotate);
                 }
             }
+
             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
             doc.save(byteArrayOutputStream);
             log.debug("PDF successfully saved to byte array");
@@ -489,6 +551,64 @@ public class PdfUtils {
         }
     }
 
+    private static boolean isTiff(MultipartFile file) {
+        String originalFilename = Filenames.toSimpleFileName(file.getOriginalFilename());
+        return originalFilename != null
+                && (originalFilename.toLowerCase().endsWith(".tiff")
+                        || originalFilename.toLowerCase().endsWith(".tif"));
+    }
+
+    private static List<BufferedImage> decodeImages(MultipartFile file, String colorType)
+            throws IOException {
+        if (!isTiff(file)) {
+            BufferedImage image = ImageProcessingUtils.loadImageWithExifOrientation(file);
+            return List.of(ImageProcessingUtils.convertColorType(image, colorType));
+        }
+        ImageReader reader = ImageIO.getImageReadersByFormatName("tiff").next();
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.getInputStream())) {
+            reader.setInput(input);
+            int numPages = reader.getNumImages(true);
+            List<BufferedImage> pages = new ArrayList<>(numPages);
+            for (int i = 0; i < numPages; i++) {
+                pages.add(ImageProcessingUtils.convertColorType(reader.read(i), colorType));
+            }
+            return pages;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Estimate the heap a decoded image holds: four bytes per pixel for the decoded raster plus the
+     * colour converted copy. Only the header is read; if the dimensions cannot be determined the
+     * compressed size is scaled instead.
+     */
+    static long estimateDecodedImageBytes(MultipartFile file) {
+        long fallback = Math.max(file.getSize(), 1) * 16;
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.getInputStream())) {
+            if (input == null) {
+                return fallback;
+            }
+            var readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return fallback;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                long perFrame = pixels * 4 * 2;
+                // Multi-page TIFFs hold every frame; count them from the compressed size
+                return isTiff(file) ? Math.max(perFrame, fallback) : perFrame;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not read image dimensions of {}", file.getOriginalFilename(), e);
+            return fallback;
+        }
+    }
+
     public static void addImageToDocument(
             PDDocument doc, PDImageXObject image, String fitOption, boolean autoRotate)
             throws IOException {
@@ -0,0 +1,157 @@
+package stirling.software.common.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Limits how many processes of one type run at once.
+ *
+ * <p>A fixed limit behaves like a fair semaphore. An adaptive limit starts at the configured value
+ * and is adjusted as processes finish (additive increase, multiplicative decrease): while callers
+ * are waiting and the machine has headroom it grows by one slot per {@code limit} completions. It
+ * shrinks by a quarter when a process timed out, or when the system CPU load is above the target
+ * while all slots were taken; load the processes of this type are not adding to is not theirs to
+ * back off from. After shrinking, the next {@code limit} completions are only observed, so that the
+ * smaller limit can take effect before it is judged. It never drops below one or exceeds its
+ * maximum.
+ */
+final class ProcessConcurrencyLimit {
+
+    private static final double BACKOFF = 0.75;
+
+    private final DoubleSupplier cpuLoad;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition available = lock.newCondition();
+    private boolean adaptive;
+    private int maxLimit;
+    private double targetCpuLoad;
+    private volatile double limit;
+    private int inFlight;
+    private int waiting;
+
+    /** Completed processes, and the count before which the limit is not shrunk again. */
+    private long completions;
+
+    private long nextBackoffAt;
+
+    /** A fixed limit. */
+    ProcessConcurrencyLimit(int limit) {
+        this(limit, limit, false, 1.0, () -> -1);
+    }
+
+    /**
+     * @param initialLimit the starting limit, and the fixed limit when not adaptive
+     * @param maxLimit the highest an adaptive limit may grow to
+     * @param targetCpuLoad system CPU load from 0 to 1 above which an adaptive limit shrinks
+     * @param cpuLoad the current system CPU load from 0 to 1, negative when unknown
+     */
+    ProcessConcurrencyLimit(
+            int initialLimit,
+            int maxLimit,
+            boolean adaptive,
+            double targetCpuLoad,
+            DoubleSupplier cpuLoad) {
+        this.cpuLoad = cpuLoad;
+        configure(initialLimit, maxLimit, adaptive, targetCpuLoad);
+    }
+
+    /**
+     * Apply new settings, with the parameters of the constructor. Processes that are running or
+     * waiting keep their slot or place, so the new limit applies to them as well.
+     */
+    void configure(int initialLimit, int maxLimit, boolean adaptive, double targetCpuLoad) {
+        lock.lock();
+        try {
+            this.limit = Math.max(1, initialLimit);
+            this.maxLimit = Math.max((int) this.limit, maxLimit);
+            this.adaptive = adaptive;
+            this.targetCpuLoad = targetCpuLoad;
+            this.nextBackoffAt = completions;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Wait for a slot. */
+    void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            waiting++;
+            try {
+                while (inFlight >= getLimit()) {
+                    available.await();
+                }
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give back a slot taken with {@link #acquire()}.
+     *
+     * @param timedOut whether the process was stopped for exceeding its timeout
+     */
+    void release(boolean timedOut) {
+        lock.lock();
+        try {
+            boolean wasFull = inFlight >= getLimit();
+            inFlight--;
+            completions++;
+            if (adaptive) {
+                boolean overloaded = timedOut || (wasFull && cpuLoad.getAsDouble() > targetCpuLoad);
+                if (overloaded) {
+                    if (completions >= nextBackoffAt) {
+                        limit = Math.max(1, limit * BACKOFF);
+                        nextBackoffAt = completions + getLimit();
+                    }
+                } else if (wasFull && waiting > 0) {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Processes that may run at the same time right now. */
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Recent CPU load of the whole machine from 0 to 1, or -1 where the JVM cannot tell. */
+    static double systemCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean sunOs) {
+            return sunOs.getCpuLoad();
+        }
+        return -1;
+    }
+}
@@ -6,36 +6,108 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import io.github.pixee.security.BoundedLineReader;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import stirling.software.common.metrics.OperationTrace;
 import stirling.software.common.model.ApplicationProperties;
 
+/**
+ * Runs external tools, limiting how many processes of each {@link Processes} type run at once.
+ *
+ * <p>Each type has its own {@link ProcessConcurrencyLimit}, fixed at the configured session limit
+ * or, with {@code processExecutor.adaptiveConcurrency.enabled}, adjusted to the load of the
+ * machine. Once {@link #bindMetrics} has been called, every run is published per type as {@code
+ * stirling.process.wait} and {@code stirling.process.duration} timers and {@code
+ * stirling.process.rss.peak} and {@code stirling.process.output} summaries, next to gauges for the
+ * current limit and the running and waiting processes. Peak memory is the largest resident set size
+ * (VmHWM) of the process and its children, sampled from {@code /proc} while it runs, and is only
+ * available on Linux.
+ */
 @Slf4j
 public class ProcessExecutor {
 
+    /** How often a running process's memory use is sampled. */
+    private static final long RSS_SAMPLE_INTERVAL_MS = 250;
+
     private static final Map<Processes, ProcessExecutor> instances = new ConcurrentHashMap<>();
-    private static ApplicationProperties applicationProperties = new ApplicationProperties();
-    private final Semaphore semaphore;
+    private static volatile ApplicationProperties applicationProperties =
+            new ApplicationProperties();
+    private static volatile MeterRegistry meterRegistry;
+    private final Processes processType;
+    private final ProcessConcurrencyLimit concurrencyLimit;
     private final boolean liveUpdates;
-    private long timeoutDuration;
+    private volatile long timeoutDuration;
 
-    private ProcessExecutor(int semaphoreLimit, boolean liveUpdates, long timeout) {
-        this.semaphore = new Semaphore(semaphoreLimit);
+    private ProcessExecutor(
+            Processes processType,
+            ProcessConcurrencyLimit concurrencyLimit,
+            boolean liveUpdates,
+            long timeout) {
+        this.processType = processType;
+        this.concurrencyLimit = concurrencyLimit;
         this.liveUpdates = liveUpdates;
         this.timeoutDuration = timeout;
     }
 
+    /**
+     * Use the application's settings. Executors that already exist keep their identity and are
+     * updated in place, so callers running or waiting on a process stay counted against the limit.
+     */
+    public static synchronized void configure(ApplicationProperties properties) {
+        applicationProperties = properties;
+        instances.forEach(
+                (type, executor) -> {
+                    configureLimit(executor.concurrencyLimit, type);
+                    executor.timeoutDuration = timeoutMinutes(type);
+                });
+    }
+
+    /** Publish metrics of all process types to the registry. */
+    public static void bindMetrics(MeterRegistry registry) {
+        meterRegistry = registry;
+        for (Processes type : Processes.values()) {
+            String tag = tagOf(type);
+            Gauge.builder(
+                            "stirling.process.limit",
+                            type,
+                            t -> getInstance(t).concurrencyLimit.getLimit())
+                    .description("Processes of this type that may run at once")
+                    .tag("process", tag)
+                    .register(registry);
+            Gauge.builder(
+                            "stirling.process.active",
+                            type,
+                            t -> getInstance(t).concurrencyLimit.getInFlight())
+                    .description("Processes of this type running now")
+                    .tag("process", tag)
+                    .register(registry);
+            Gauge.builder(
+                            "stirling.process.waiting",
+                            type,
+                            t -> getInstance(t).concurrencyLimit.getWaiting())
+                    .description("Callers waiting to start a process of this type")
+                    .tag("process", tag)
+                    .register(registry);
+        }
+    }
+
     public static ProcessExecutor getInstance(Processes processType) {
         return getInstance(processType, true);
     }
@@ -44,117 +116,140 @@ public class ProcessExecutor {
         return instances.computeIfAbsent(
                 processType,
                 key -> {
-                    int semaphoreLimit =
-                            switch (key) {
-                                case LIBRE_OFFICE ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getLibreOfficeSessionLimit();
-                                case PDFTOHTML ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getPdfToHtmlSessionLimit();
-                                case PYTHON_OPENCV ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getPythonOpenCvSessionLimit();
-                                case WEASYPRINT ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getWeasyPrintSessionLimit();
-                                case INSTALL_APP ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getInstallAppSessionLimit();
-                                case TESSERACT ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getTesseractSessionLimit();
-                                case QPDF ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getQpdfSessionLimit();
-                                case CALIBRE ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getCalibreSessionLimit();
-                                case GHOSTSCRIPT ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getGhostscriptSessionLimit();
-                                case OCR_MY_PDF ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getSessionLimit()
-                                                .getOcrMyPdfSessionLimit();
-                            };
-
-                    long timeoutMinutes =
-                            switch (key) {
-                                case LIBRE_OFFICE ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getLibreOfficeTimeoutMinutes();
-                                case PDFTOHTML ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getPdfToHtmlTimeoutMinutes();
-                                case PYTHON_OPENCV ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getPythonOpenCvTimeoutMinutes();
-                                case WEASYPRINT ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getWeasyPrintTimeoutMinutes();
-                                case INSTALL_APP ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getInstallAppTimeoutMinutes();
-                                case TESSERACT ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getTesseractTimeoutMinutes();
-                                case QPDF ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getQpdfTimeoutMinutes();
-                                case CALIBRE ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getCalibreTimeoutMinutes();
-                                case GHOSTSCRIPT ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getGhostscriptTimeoutMinutes();
-                                case OCR_MY_PDF ->
-                                        applicationProperties
-                                                .getProcessExecutor()
-                                                .getTimeoutMinutes()
-                                                .getOcrMyPdfTimeoutMinutes();
-                            };
-                    return new ProcessExecutor(semaphoreLimit, liveUpdates, timeoutMinutes);
+                    ProcessConcurrencyLimit limit =
+                            new ProcessConcurrencyLimit(
+                                    1, 1, false, 1.0, ProcessConcurrencyLimit::systemCpuLoad);
+                    configureLimit(limit, key);
+                    return new ProcessExecutor(key, limit, liveUpdates, timeoutMinutes(key));
                 });
     }
 
+    private static void configureLimit(ProcessConcurrencyLimit limit, Processes type) {
+        int sessionLimit = sessionLimit(type);
+        ApplicationProperties.ProcessExecutor.AdaptiveConcurrency adaptive =
+                applicationProperties.getProcessExecutor().getAdaptiveConcurrency();
+        limit.configure(
+                sessionLimit,
+                (int) Math.ceil(sessionLimit * adaptive.getMaxLimitFactor()),
+                adaptive.isEnabled(),
+                adaptive.getTargetCpuLoad());
+    }
+
+    private static int sessionLimit(Processes type) {
+        return switch (type) {
+            case LIBRE_OFFICE ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getLibreOfficeSessionLimit();
+            case PDFTOHTML ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getPdfToHtmlSessionLimit();
+            case PYTHON_OPENCV ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getPythonOpenCvSessionLimit();
+            case WEASYPRINT ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getWeasyPrintSessionLimit();
+            case INSTALL_APP ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getInstallAppSessionLimit();
+            case TESSERACT ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getTesseractSessionLimit();
+            case QPDF ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getQpdfSessionLimit();
+            case CALIBRE ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getCalibreSessionLimit();
+            case GHOSTSCRIPT ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getGhostscriptSessionLimit();
+            case OCR_MY_PDF ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getSessionLimit()
+                            .getOcrMyPdfSessionLimit();
+        };
+    }
+
+    private static long timeoutMinutes(Processes type) {
+        return switch (type) {
+            case LIBRE_OFFICE ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getLibreOfficeTimeoutMinutes();
+            case PDFTOHTML ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getPdfToHtmlTimeoutMinutes();
+            case PYTHON_OPENCV ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getPythonOpenCvTimeoutMinutes();
+            case WEASYPRINT ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getWeasyPrintTimeoutMinutes();
+            case INSTALL_APP ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getInstallAppTimeoutMinutes();
+            case TESSERACT ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getTesseractTimeoutMinutes();
+            case QPDF ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getQpdfTimeoutMinutes();
+            case CALIBRE ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getCalibreTimeoutMinutes();
+            case GHOSTSCRIPT ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getGhostscriptTimeoutMinutes();
+            case OCR_MY_PDF ->
+                    applicationProperties
+                            .getProcessExecutor()
+                            .getTimeoutMinutes()
+                            .getOcrMyPdfTimeoutMinutes();
+        };
+    }
+
+    /** Maximum number of processes of this type that may run at the same time. */
+    public int getSessionLimit() {
+        return concurrencyLimit.getLimit();
+    }
+
     public ProcessExecutorResult runCommandWithOutputHandling(List<String> command)
             throws IOException, InterruptedException {
         return runCommandWithOutputHandling(command, null);
@@ -164,7 +259,18 @@ public class ProcessExecutor {
             List<String> command, File workingDirectory) throws IOException, InterruptedException {
         String messages = "";
         int exitCode = 1;
-        semaphore.acquire();
+        boolean timedOut = false;
+        long peakRssBytes = 0;
+        long waitStart = System.nanoTime();
+        OperationTrace.Stage wait = OperationTrace.start(OperationTrace.PROCESS_WAIT);
+        try {
+            concurrencyLimit.acquire();
+        } finally {
+            wait.close();
+        }
+        long runStart = System.nanoTime();
+        recordTime("stirling.process.wait", runStart - waitStart, null);
+        OperationTrace.Stage run = OperationTrace.start(OperationTrace.PROCESS);
         try {
 
             log.info("Running command: " + String.join(" ", command));
@@ -229,10 +335,25 @@ public class ProcessExecutor {
             errorReaderThread.start();
             outputReaderThread.start();
 
-            // Wait for the conversion process to complete
-            boolean finished = process.waitFor(timeoutDuration, TimeUnit.MINUTES);
+            // Wait for the conversion process to complete, sampling its memory use meanwhile
+            long deadline = runStart + TimeUnit.MINUTES.toNanos(timeoutDuration);
+            boolean finished = false;
+            while (!finished) {
+                peakRssBytes = Math.max(peakRssBytes, peakRssBytes(process.toHandle()));
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                finished =
+                        process.waitFor(
+                                Math.min(
+                                        remaining,
+                                        TimeUnit.MILLISECONDS.toNanos(RSS_SAMPLE_INTERVAL_MS)),
+                                TimeUnit.NANOSECONDS);
+            }
 
             if (!finished) {
+                timedOut = true;
                 // Terminate the process
                 process.destroy();
                 // Interrupt the reader threads
@@ -287,11 +408,71 @@ public class ProcessExecutor {
                 }
             }
         } finally {
-            semaphore.release();
+            concurrencyLimit.release(timedOut);
+            run.close();
+            String outcome = timedOut ? "timeout" : exitCode == 0 ? "success" : "failure";
+            recordTime("stirling.process.duration", System.nanoTime() - runStart, outcome);
+            recordSize("stirling.process.rss.peak", peakRssBytes);
+            recordSize("stirling.process.output", messages.length());
         }
         return new ProcessExecutorResult(exitCode, messages);
     }
 
+    private static String tagOf(Processes type) {
+        return type.name().toLowerCase(Locale.ROOT);
+    }
+
+    private void recordTime(String name, long nanos, String outcome) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            return;
+        }
+        Timer.Builder timer = Timer.builder(name).tag("process", tagOf(processType));
+        if (outcome != null) {
+            timer.tag("outcome", outcome);
+        }
+        timer.register(registry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordSize(String name, long bytes) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null || bytes <= 0) {
+            return;
+        }
+        DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tag("process", tagOf(processType))
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * The largest resident set size reached so far by the process plus that of each of its running
+     * children, or 0 where {@code /proc} is not available.
+     */
+    static long peakRssBytes(ProcessHandle process) {
+        long total = readPeakRss(process.pid());
+        if (total > 0) {
+            total += process.descendants().mapToLong(child -> readPeakRss(child.pid())).sum();
+        }
+        return total;
+    }
+
+    private static long readPeakRss(long pid) {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status, StandardCharsets.ISO_8859_1)) {
+                if (line.startsWith("VmHWM:")) {
+                    String[] fields = line.trim().split("\\s+");
+                    return Long.parseLong(fields[1]) * 1024; // reported in kB
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or the process has already exited
+        }
+        return 0;
+    }
+
     public enum Processes {
         LIBRE_OFFICE,
         PDFTOHTML,
@@ -0,0 +1,553 @@
+package stirling.software.common.util;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pixel kernels that work directly on the backing arrays of {@code TYPE_INT_RGB}, {@code
+ * TYPE_INT_ARGB} and {@code TYPE_BYTE_GRAY} images instead of going through {@link
+ * BufferedImage#getRGB}/{@link BufferedImage#setRGB} for every pixel.
+ *
+ * <p>Images are processed in bands of whole rows, so every kernel walks memory in row-major order,
+ * and large images spread their bands over the pool set with {@link #useExecutor}, normally the
+ * shared CPU pool. The calling thread works on bands too, so a kernel finishes even when the pool
+ * is busy or is the pool it runs on. Inner loops are plain array loops without per-pixel calls,
+ * which the JIT compiles to SIMD code on platforms that have it. Blurs use separable
+ * one-dimensional kernels with fixed-point weights.
+ *
+ * <p>Kernels that take {@code TYPE_INT_*} images use {@link #toIntRgb} to convert anything else.
+ */
+public final class RasterOps {
+
+    /** Rows per band are chosen so that a band holds roughly this many pixels. */
+    private static final int BAND_PIXELS = 1 << 16;
+
+    /** Images smaller than this are processed on the calling thread. */
+    private static final long PARALLEL_THRESHOLD_PIXELS = 1 << 18;
+
+    private static final int WEIGHT_BITS = 16;
+    private static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+    private static final int WEIGHT_HALF = WEIGHT_ONE >> 1;
+
+    private static volatile Executor bandExecutor;
+    private static volatile int bandThreads;
+
+    private RasterOps() {}
+
+    /**
+     * Spread the bands of large images over {@code executor}, which has {@code threads} threads.
+     * With {@code null}, every image is processed on the calling thread.
+     */
+    public static void useExecutor(Executor executor, int threads) {
+        bandThreads = Math.max(1, threads);
+        bandExecutor = executor;
+    }
+
+    /** Work on rows {@code [fromRow, toRow)}. */
+    @FunctionalInterface
+    interface BandTask {
+        void run(int fromRow, int toRow);
+    }
+
+    /**
+     * The image itself if it is {@code TYPE_INT_RGB} or {@code TYPE_INT_ARGB}, otherwise an opaque
+     * {@code TYPE_INT_RGB} copy.
+     */
+    public static BufferedImage toIntRgb(BufferedImage image) {
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            return image;
+        }
+        BufferedImage copy =
+                new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    /**
+     * Invert the colour channels in place, producing opaque pixels.
+     *
+     * @return the inverted image, which is {@code image} unless it had to be converted
+     */
+    public static BufferedImage invert(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            byte[] data = bytePixels(image);
+            int width = image.getWidth();
+            forEachBand(
+                    width,
+                    image.getHeight(),
+                    (from, to) -> {
+                        for (int i = from * width, end = to * width; i < end; i++) {
+                            data[i] = (byte) ~data[i];
+                        }
+                    });
+            return image;
+        }
+        BufferedImage target = toIntRgb(image);
+        int[] data = intPixels(target);
+        int width = target.getWidth();
+        forEachBand(
+                width,
+                target.getHeight(),
+                (from, to) -> {
+                    for (int i = from * width, end = to * width; i < end; i++) {
+                        data[i] = (data[i] ^ 0x00FFFFFF) | 0xFF000000;
+                    }
+                });
+        return target;
+    }
+
+    /** Replace every pixel with the mean of its channels, in place. */
+    public static void grayscale(BufferedImage image) {
+        int[] data = intPixels(image);
+        int width = image.getWidth();
+        forEachBand(
+                width,
+                image.getHeight(),
+                (from, to) -> {
+                    for (int i = from * width, end = to * width; i < end; i++) {
+                        int p = data[i];
+                        int gray = (((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF)) / 3;
+                        data[i] = (p & 0xFF000000) | (gray << 16) | (gray << 8) | gray;
+                    }
+                });
+    }
+
+    /**
+     * Fill the image with a linear gradient from {@code startRgb} to {@code endRgb}, running top to
+     * bottom when {@code vertical} and left to right otherwise.
+     */
+    public static void fillGradient(
+            BufferedImage image, int startRgb, int endRgb, boolean vertical) {
+        int[] data = intPixels(image);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (vertical) {
+            int[] rowColours = gradient(startRgb, endRgb, height);
+            forEachBand(
+                    width,
+                    height,
+                    (from, to) -> {
+                        for (int y = from; y < to; y++) {
+                            Arrays.fill(data, y * width, (y + 1) * width, rowColours[y]);
+                        }
+                    });
+        } else {
+            int[] row = gradient(startRgb, endRgb, width);
+            forEachBand(
+                    width,
+                    height,
+                    (from, to) -> {
+                        for (int y = from; y < to; y++) {
+                            System.arraycopy(row, 0, data, y * width, width);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Blend the image into a gradient background towards its edges: pixels closer than {@code
+     * featherRadius} to an edge are mixed with the background in proportion to their distance.
+     *
+     * @return a new opaque {@code TYPE_INT_RGB} image
+     */
+    public static BufferedImage featherEdges(
+            BufferedImage image, int featherRadius, int startRgb, int endRgb, boolean vertical) {
+        BufferedImage source = toIntRgb(image);
+        int width = source.getWidth();
+        int height = source.getHeight();
+        BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] src = intPixels(source);
+        int[] dst = intPixels(output);
+        int[] background = gradient(startRgb, endRgb, vertical ? height : width);
+        float radius = Math.max(1, featherRadius);
+
+        forEachBand(
+                width,
+                height,
+                (from, to) -> {
+                    for (int y = from; y < to; y++) {
+                        int dy = Math.min(y, height - 1 - y);
+                        int offset = y * width;
+                        for (int x = 0; x < width; x++) {
+                            int d = Math.min(Math.min(x, width - 1 - x), dy);
+                            int bg = vertical ? background[y] : background[x];
+                            int fg = src[offset + x];
+                            dst[offset + x] =
+                                    d < featherRadius ? blend(fg, bg, d / radius) : fg & 0xFFFFFF;
+                        }
+                    }
+                });
+        return output;
+    }
+
+    /**
+     * Gaussian blur with the given standard deviation in pixels, as a horizontal and a vertical
+     * pass. Pixels beyond the edge repeat the edge pixel.
+     *
+     * @return a new image of the same type, or {@code image} when {@code sigma} is not positive
+     */
+    public static BufferedImage gaussianBlur(BufferedImage image, double sigma) {
+        if (sigma <= 0) {
+            return image;
+        }
+        BufferedImage source = toIntRgb(image);
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] weights = gaussianWeights(sigma);
+        int radius = weights.length / 2;
+
+        int[] src = intPixels(source);
+        int[] horizontal = new int[src.length];
+        forEachBand(
+                width,
+                height,
+                (from, to) -> {
+                    for (int y = from; y < to; y++) {
+                        blurRow(src, horizontal, y * width, width, weights, radius);
+                    }
+                });
+
+        BufferedImage output = new BufferedImage(width, height, source.getType());
+        int[] dst = intPixels(output);
+        forEachBand(
+                width,
+                height,
+                (from, to) -> {
+                    int[] red = new int[width];
+                    int[] green = new int[width];
+                    int[] blue = new int[width];
+                    int[] alpha = new int[width];
+                    for (int y = from; y < to; y++) {
+                        blurColumns(
+                                horizontal,
+                                dst,
+                                y,
+                                width,
+                                height,
+                                weights,
+                                radius,
+                                red,
+                                green,
+                                blue,
+                                alpha);
+                    }
+                });
+        return output;
+    }
+
+    /**
+     * Apply {@code ((c - 128) * contrast + 128) * brightness} to every channel, in place. The
+     * mapping is computed once per channel value and applied through a lookup table.
+     */
+    public static void adjustBrightnessContrast(
+            BufferedImage image, float brightness, float contrast) {
+        int[] lut = new int[256];
+        for (int c = 0; c < 256; c++) {
+            int v = (int) (((c - 128) * contrast + 128) * brightness);
+            lut[c] = Math.min(255, Math.max(0, v));
+        }
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            byte[] data = bytePixels(image);
+            int width = image.getWidth();
+            forEachBand(
+                    width,
+                    image.getHeight(),
+                    (from, to) -> {
+                        for (int i = from * width, end = to * width; i < end; i++) {
+                            data[i] = (byte) lut[data[i] & 0xFF];
+                        }
+                    });
+            return;
+        }
+        int[] data = intPixels(image);
+        int width = image.getWidth();
+        forEachBand(
+                width,
+                image.getHeight(),
+                (from, to) -> {
+                    for (int i = from * width, end = to * width; i < end; i++) {
+                        int p = data[i];
+                        data[i] =
+                                (p & 0xFF000000)
+                                        | (lut[(p >> 16) & 0xFF] << 16)
+                                        | (lut[(p >> 8) & 0xFF] << 8)
+                                        | lut[p & 0xFF];
+                    }
+                });
+    }
+
+    /** Tint towards yellow in proportion to each pixel's brightness, in place. */
+    public static void yellowTint(BufferedImage image) {
+        int[] data = intPixels(image);
+        int width = image.getWidth();
+        forEachBand(
+                width,
+                image.getHeight(),
+                (from, to) -> {
+                    for (int i = from * width, end = to * width; i < end; i++) {
+                        int p = data[i];
+                        int r = (p >> 16) & 0xFF;
+                        int g = (p >> 8) & 0xFF;
+                        int b = p & 0xFF;
+                        float brightness = (r + g + b) / 765.0f;
+                        r = Math.min(255, (int) (r + (255 - r) * 0.18f * brightness));
+                        g = Math.min(255, (int) (g + (255 - g) * 0.12f * brightness));
+                        b = Math.max(0, (int) (b * (1 - 0.25f * brightness)));
+                        data[i] = (p & 0xFF000000) | (r << 16) | (g << 8) | b;
+                    }
+                });
+    }
+
+    /**
+     * Add independent Gaussian noise with the given standard deviation to every channel, in place.
+     * Each band draws from its own generator split from {@code seed}, so bands run without
+     * contention and the result depends only on the seed.
+     */
+    public static void addGaussianNoise(BufferedImage image, double strength, long seed) {
+        if (strength <= 0) {
+            return;
+        }
+        int[] data = intPixels(image);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int rowsPerBand = rowsPerBand(width);
+        int bands = (height + rowsPerBand - 1) / rowsPerBand;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] generators = new SplittableRandom[bands];
+        for (int i = 0; i < bands; i++) {
+            generators[i] = root.split();
+        }
+        forEachBand(
+                width,
+                height,
+                (from, to) -> {
+                    SplittableRandom random = generators[from / rowsPerBand];
+                    for (int i = from * width, end = to * width; i < end; i++) {
+                        int p = data[i];
+                        int r =
+                                clamp(
+                                        ((p >> 16) & 0xFF)
+                                                + (int) (random.nextGaussian() * strength));
+                        int g = clamp(((p >> 8) & 0xFF) + (int) (random.nextGaussian() * strength));
+                        int b = clamp((p & 0xFF) + (int) (random.nextGaussian() * strength));
+                        data[i] = (p & 0xFF000000) | (r << 16) | (g << 8) | b;
+                    }
+                });
+    }
+
+    static int[] intPixels(BufferedImage image) {
+        if (!(image.getRaster().getDataBuffer() instanceof DataBufferInt buffer)
+                || (image.getType() != BufferedImage.TYPE_INT_RGB
+                        && image.getType() != BufferedImage.TYPE_INT_ARGB)) {
+            throw new IllegalArgumentException(
+                    "Expected a TYPE_INT_RGB or TYPE_INT_ARGB image, got type " + image.getType());
+        }
+        return buffer.getData();
+    }
+
+    static byte[] bytePixels(BufferedImage image) {
+        if (!(image.getRaster().getDataBuffer() instanceof DataBufferByte buffer)) {
+            throw new IllegalArgumentException("Expected a byte-backed image");
+        }
+        return buffer.getData();
+    }
+
+    /**
+     * Run the task over bands of rows. For large images the calling thread and up to one helper per
+     * pool thread take bands until none are left; helpers the pool cannot take are skipped.
+     */
+    static void forEachBand(int width, int height, BandTask task) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int rowsPerBand = rowsPerBand(width);
+        int bands = (height + rowsPerBand - 1) / rowsPerBand;
+        Executor executor = bandExecutor;
+        if (executor == null || bands == 1 || (long) width * height < PARALLEL_THRESHOLD_PIXELS) {
+            task.run(0, height);
+            return;
+        }
+        AtomicInteger nextBand = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(bands);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable worker =
+                () -> {
+                    for (int band; (band = nextBand.getAndIncrement()) < bands; ) {
+                        try {
+                            if (failure.get() == null) {
+                                int from = band * rowsPerBand;
+                                task.run(from, Math.min(height, from + rowsPerBand));
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                };
+        int helpers = Math.min(bands, bandThreads) - 1;
+        try {
+            for (int i = 0; i < helpers; i++) {
+                executor.execute(worker);
+            }
+        } catch (RejectedExecutionException e) {
+            // The pool is saturated; the bands are left to the threads already working on them
+        }
+        worker.run();
+        awaitBands(done);
+        Throwable thrown = failure.get();
+        if (thrown instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (thrown instanceof Error error) {
+            throw error;
+        }
+    }
+
+    /** Wait for the bands still running on helpers. Queued helpers have not claimed any band. */
+    private static void awaitBands(CountDownLatch done) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int rowsPerBand(int width) {
+        return Math.max(1, BAND_PIXELS / Math.max(1, width));
+    }
+
+    /** Normalised Gaussian weights in 16.16 fixed point, summing to exactly one. */
+    static int[] gaussianWeights(double sigma) {
+        int radius = Math.max(1, (int) Math.ceil(sigma * 3));
+        double[] raw = new double[2 * radius + 1];
+        double sum = 0;
+        for (int i = -radius; i <= radius; i++) {
+            raw[i + radius] = Math.exp(-(i * (double) i) / (2 * sigma * sigma));
+            sum += raw[i + radius];
+        }
+        int[] weights = new int[raw.length];
+        int total = 0;
+        for (int i = 0; i < raw.length; i++) {
+            weights[i] = (int) Math.round(raw[i] / sum * WEIGHT_ONE);
+            total += weights[i];
+        }
+        weights[radius] += WEIGHT_ONE - total;
+        return weights;
+    }
+
+    private static void blurRow(
+            int[] src, int[] dst, int offset, int width, int[] weights, int radius) {
+        int last = width - 1;
+        for (int x = 0; x < width; x++) {
+            int a = 0;
+            int r = 0;
+            int g = 0;
+            int b = 0;
+            for (int k = -radius; k <= radius; k++) {
+                int sx = x + k;
+                int p = src[offset + (sx < 0 ? 0 : sx > last ? last : sx)];
+                int w = weights[k + radius];
+                a += ((p >>> 24)) * w;
+                r += ((p >> 16) & 0xFF) * w;
+                g += ((p >> 8) & 0xFF) * w;
+                b += (p & 0xFF) * w;
+            }
+            dst[offset + x] = pack(a, r, g, b);
+        }
+    }
+
+    private static void blurColumns(
+            int[] src,
+            int[] dst,
+            int y,
+            int width,
+            int height,
+            int[] weights,
+            int radius,
+            int[] red,
+            int[] green,
+            int[] blue,
+            int[] alpha) {
+        Arrays.fill(red, 0);
+        Arrays.fill(green, 0);
+        Arrays.fill(blue, 0);
+        Arrays.fill(alpha, 0);
+        int last = height - 1;
+        for (int k = -radius; k <= radius; k++) {
+            int sy = y + k;
+            int rowOffset = (sy < 0 ? 0 : sy > last ? last : sy) * width;
+            int w = weights[k + radius];
+            for (int x = 0; x < width; x++) {
+                int p = src[rowOffset + x];
+                alpha[x] += (p >>> 24) * w;
+                red[x] += ((p >> 16) & 0xFF) * w;
+                green[x] += ((p >> 8) & 0xFF) * w;
+                blue[x] += (p & 0xFF) * w;
+            }
+        }
+        int offset = y * width;
+        for (int x = 0; x < width; x++) {
+            dst[offset + x] = pack(alpha[x], red[x], green[x], blue[x]);
+        }
+    }
+
+    private static int pack(int a, int r, int g, int b) {
+        return (clamp((a + WEIGHT_HALF) >>> WEIGHT_BITS) << 24)
+                | (clamp((r + WEIGHT_HALF) >>> WEIGHT_BITS) << 16)
+                | (clamp((g + WEIGHT_HALF) >>> WEIGHT_BITS) << 8)
+                | clamp((b + WEIGHT_HALF) >>> WEIGHT_BITS);
+    }
+
+    /** Colours of a linear gradient with {@code steps} stops, matching {@link #fillGradient}. */
+    private static int[] gradient(int startRgb, int endRgb, int steps) {
+        int[] colours = new int[steps];
+        int sr = (startRgb >> 16) & 0xFF;
+        int sg = (startRgb >> 8) & 0xFF;
+        int sb = startRgb & 0xFF;
+        int dr = ((endRgb >> 16) & 0xFF) - sr;
+        int dg = ((endRgb >> 8) & 0xFF) - sg;
+        int db = (endRgb & 0xFF) - sb;
+        float divisor = Math.max(1, steps - 1);
+        for (int i = 0; i < steps; i++) {
+            float frac = i / divisor;
+            colours[i] =
+                    0xFF000000
+                            | (Math.round(sr + dr * frac) << 16)
+                            | (Math.round(sg + dg * frac) << 8)
+                            | Math.round(sb + db * frac);
+        }
+        return colours;
+    }
+
+    private static int blend(int fg, int bg, float alpha) {
+        float inverse = 1 - alpha;
+        int r = Math.round(((fg >> 16) & 0xFF) * alpha + ((bg >> 16) & 0xFF) * inverse);
+        int g = Math.round(((fg >> 8) & 0xFF) * alpha + ((bg >> 8) & 0xFF) * inverse);
+        int b = Math.round((fg & 0xFF) * alpha + (bg & 0xFF) * inverse);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+}
@@ -0,0 +1,794 @@
+package stirling.software.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.http.MediaType;
+
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.model.api.converters.EmlToPdfRequest;
+
+/**
+ * Single-pass MIME parser for EML input. The message is read once from an {@link InputStream};
+ * base64 and quoted-printable bodies are decoded line by line, text bodies are collected in memory
+ * and attachment content is spilled to temp files. Heap usage is therefore bounded by the text
+ * bodies of a message rather than by its total size.
+ *
+ * <p>The result is the same {@link EmlParser.EmailContent} model produced by {@link EmlParser}.
+ * Callers must {@link EmlParser.EmailContent#close() close} it to delete spilled attachment data.
+ */
+@Slf4j
+public final class StreamingMimeParser {
+
+    private static final int MAX_MULTIPART_DEPTH = 10;
+    private static final int MAX_LINE_CHUNK = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 256 * 1024;
+    private static final int MAX_TEXT_BODY_BYTES = 32 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final long DEFAULT_MAX_ATTACHMENT_MB = 10L;
+
+    private static final String DISPOSITION_ATTACHMENT = "attachment";
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LF = {'\n'};
+    private static final byte[] NO_TERMINATOR = {};
+
+    private final InputStream in;
+    private final byte[] readBuffer = new byte[BUFFER_SIZE];
+    private int readPosition;
+    private int readLimit;
+    private final EmlToPdfRequest request;
+    private final CustomHtmlSanitizer customHtmlSanitizer;
+    private final TempFileManager tempFileManager;
+    private final EmlParser.EmailContent content = new EmlParser.EmailContent();
+
+    /** Active multipart delimiters ("--" + boundary), innermost first. */
+    private final Deque<byte[]> boundaries = new ArrayDeque<>();
+
+    // Current line state; a line longer than MAX_LINE_CHUNK is returned in several chunks
+    private byte[] lineBuffer = new byte[1024];
+    private int lineLength;
+    private byte[] lineTerminator = NO_TERMINATOR;
+    private boolean lineAtStart;
+    private boolean nextAtStart = true;
+    private boolean pushedBack;
+
+    private StreamingMimeParser(
+            InputStream in,
+            EmlToPdfRequest request,
+            CustomHtmlSanitizer customHtmlSanitizer,
+            TempFileManager tempFileManager) {
+        this.in = in;
+        this.request = request;
+        this.customHtmlSanitizer = customHtmlSanitizer;
+        this.tempFileManager = tempFileManager;
+        this.content.setTempFileManager(tempFileManager);
+    }
+
+    /**
+     * Parse an email message from a stream. The stream is read to the end of the message but not
+     * closed.
+     *
+     * @param in the raw RFC 822 message
+     * @param request conversion options (attachment inclusion and size limit), may be null
+     * @param customHtmlSanitizer sanitizer applied to HTML bodies, may be null
+     * @param tempFileManager used to create attachment spill files, may be null
+     * @return the parsed content, which must be closed by the caller
+     * @throws IOException if reading the stream or writing a spill file fails
+     */
+    public static EmlParser.EmailContent parse(
+            InputStream in,
+            EmlToPdfRequest request,
+            CustomHtmlSanitizer customHtmlSanitizer,
+            TempFileManager tempFileManager)
+            throws IOException {
+        StreamingMimeParser parser =
+                new StreamingMimeParser(in, request, customHtmlSanitizer, tempFileManager);
+        try {
+            return parser.parseMessage();
+        } catch (IOException | RuntimeException e) {
+            parser.content.close();
+            throw e;
+        }
+    }
+
+    private EmlParser.EmailContent parseMessage() throws IOException {
+        Map<String, String> headers = readHeaders();
+
+        String subject = headers.get("subject");
+        content.setSubject(
+                subject != null && !subject.isBlank()
+                        ? EmlParser.safeMimeDecode(subject)
+                        : "No Subject");
+        content.setFrom(EmlParser.safeMimeDecode(headers.get("from")));
+        content.setTo(EmlParser.safeMimeDecode(headers.get("to")));
+        content.setCc(EmlParser.safeMimeDecode(headers.get("cc")));
+        content.setBcc(EmlParser.safeMimeDecode(headers.get("bcc")));
+
+        String date = headers.get("date");
+        if (date != null && !date.isBlank()) {
+            Date parsed = parseDate(date);
+            if (parsed != null) {
+                content.setDate(parsed);
+            } else {
+                content.setDateString(date.trim());
+            }
+        }
+
+        parseEntity(headers, 0);
+
+        // Drain anything left (e.g. an epilogue after a malformed structure)
+        while (readLine()) {
+            // discard
+        }
+        return content;
+    }
+
+    /**
+     * Parse one entity body using its headers.
+     *
+     * @return the delimiter line that ended the entity, or null at end of input
+     */
+    private Delimiter parseEntity(Map<String, String> headers, int depth) throws IOException {
+        String contentType = headers.getOrDefault("content-type", MediaType.TEXT_PLAIN_VALUE);
+        String mimeType = baseType(contentType);
+
+        if (mimeType.startsWith("multipart/")) {
+            String boundary = parameter(contentType, "boundary");
+            if (depth > MAX_MULTIPART_DEPTH) {
+                content.setHtmlBody("<div class=\"error\">Maximum multipart depth exceeded</div>");
+                return copyBody(OutputStream.nullOutputStream(), null);
+            }
+            if (boundary != null && !boundary.isEmpty()) {
+                return parseMultipart(boundary, depth);
+            }
+        }
+
+        return parseLeaf(headers, contentType, mimeType);
+    }
+
+    private Delimiter parseMultipart(String boundary, int depth) throws IOException {
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        boundaries.push(delimiter);
+        boolean popped = false;
+        try {
+            // Preamble
+            Delimiter hit = copyBody(OutputStream.nullOutputStream(), null);
+            while (hit != null && hit.boundary() == delimiter && !hit.closing()) {
+                Map<String, String> partHeaders = readHeaders();
+                hit = parseEntity(partHeaders, depth + 1);
+            }
+            if (hit != null && hit.boundary() == delimiter) {
+                // Closing delimiter; skip the epilogue up to an enclosing delimiter
+                boundaries.pop();
+                popped = true;
+                return copyBody(OutputStream.nullOutputStream(), null);
+            }
+            return hit;
+        } finally {
+            if (!popped) {
+                boundaries.remove(delimiter);
+            }
+        }
+    }
+
+    private Delimiter parseLeaf(Map<String, String> headers, String contentType, String mimeType)
+            throws IOException {
+        String transferEncoding = headers.get("content-transfer-encoding");
+        String disposition = headers.get("content-disposition");
+        String normalizedDisposition =
+                disposition != null ? disposition.toLowerCase(Locale.ROOT) : null;
+        String filename = filename(disposition, contentType);
+        boolean isAttachment =
+                (normalizedDisposition != null
+                                && normalizedDisposition.contains(DISPOSITION_ATTACHMENT))
+                        || !filename.isEmpty();
+
+        if (!isAttachment
+                && (MediaType.TEXT_PLAIN_VALUE.equals(mimeType)
+                        || MediaType.TEXT_HTML_VALUE.equals(mimeType))) {
+            LimitedBuffer buffer = new LimitedBuffer(MAX_TEXT_BODY_BYTES);
+            Delimiter hit = copyBody(buffer, transferEncoding);
+            String text = buffer.toString(charset(contentType));
+            if (MediaType.TEXT_HTML_VALUE.equals(mimeType)) {
+                content.setHtmlBody(
+                        customHtmlSanitizer != null ? customHtmlSanitizer.sanitize(text) : text);
+            } else {
+                content.setTextBody(text);
+            }
+            return hit;
+        }
+
+        if (!isAttachment) {
+            return copyBody(OutputStream.nullOutputStream(), null);
+        }
+
+        content.setAttachmentCount(content.getAttachmentCount() + 1);
+        if (filename.isEmpty()) {
+            return copyBody(OutputStream.nullOutputStream(), null);
+        }
+
+        EmlParser.EmailAttachment attachment = new EmlParser.EmailAttachment();
+        attachment.setFilename(filename);
+        attachment.setContentType(contentType);
+        attachment.setDisposition(disposition);
+        attachment.setTransferEncoding(transferEncoding);
+
+        String contentId = headers.get("content-id");
+        if (contentId != null && !contentId.trim().isEmpty()) {
+            attachment.setEmbedded(true);
+            attachment.setContentId(contentId.trim().replaceAll("[<>]", ""));
+        }
+        content.getAttachments().add(attachment);
+
+        boolean keepData =
+                (request != null && request.isIncludeAttachments()) || attachment.isEmbedded();
+        if (!keepData) {
+            return copyBody(OutputStream.nullOutputStream(), null);
+        }
+
+        long maxSizeMB =
+                request != null ? request.getMaxAttachmentSizeMB() : DEFAULT_MAX_ATTACHMENT_MB;
+        long limit = attachment.isEmbedded() ? Long.MAX_VALUE : maxSizeMB * 1024 * 1024;
+        Path dataFile = createSpillFile();
+        SpillSink sink = new SpillSink(dataFile, limit);
+        Delimiter hit;
+        try {
+            hit = copyBody(sink, transferEncoding);
+        } finally {
+            sink.close();
+        }
+
+        attachment.setSizeBytes(sink.count);
+        if (sink.overflowed || sink.count == 0) {
+            deleteSpillFile(dataFile);
+        } else {
+            attachment.setDataFile(dataFile);
+        }
+        return hit;
+    }
+
+    /**
+     * Copy an entity body into {@code out}, decoding the transfer encoding, until a delimiter of
+     * any enclosing multipart or the end of input.
+     */
+    private Delimiter copyBody(OutputStream out, String transferEncoding) throws IOException {
+        BodyDecoder decoder = BodyDecoder.forEncoding(transferEncoding, out);
+        while (readLine()) {
+            Delimiter hit = matchDelimiter();
+            if (hit != null) {
+                decoder.finish(true);
+                return hit;
+            }
+            decoder.line(lineBuffer, lineLength, lineTerminator);
+        }
+        decoder.finish(false);
+        return null;
+    }
+
+    /** Read header lines up to the blank separator line, unfolding continuation lines. */
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        StringBuilder current = null;
+        int total = 0;
+
+        while (readLine()) {
+            if (lineLength == 0 && lineAtStart) {
+                break;
+            }
+            if (matchDelimiter() != null) {
+                // Part without a body
+                pushedBack = true;
+                break;
+            }
+            total += lineLength;
+            if (total > MAX_HEADER_BYTES) {
+                continue;
+            }
+
+            String text = decodeHeaderLine(lineBuffer, lineLength);
+            boolean continuation =
+                    !lineAtStart
+                            || (!text.isEmpty()
+                                    && (text.charAt(0) == ' ' || text.charAt(0) == '\t'));
+            if (continuation) {
+                if (current != null) {
+                    current.append(lineAtStart ? " " + text.trim() : text);
+                }
+                continue;
+            }
+
+            addHeader(headers, current);
+            current = new StringBuilder(text);
+        }
+        addHeader(headers, current);
+        return headers;
+    }
+
+    private static void addHeader(Map<String, String> headers, StringBuilder header) {
+        if (header == null) {
+            return;
+        }
+        int colon = header.indexOf(":");
+        if (colon <= 0) {
+            return;
+        }
+        String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+        String value = header.substring(colon + 1).trim();
+        headers.putIfAbsent(name, value);
+    }
+
+    private static String decodeHeaderLine(byte[] bytes, int length) {
+        String text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        if (text.indexOf('\uFFFD') >= 0) {
+            text = new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+        return text;
+    }
+
+    /**
+     * Read the next line (or chunk of an overlong line) into the line buffer.
+     *
+     * @return false at end of input
+     */
+    private boolean readLine() throws IOException {
+        if (pushedBack) {
+            pushedBack = false;
+            return true;
+        }
+
+        lineAtStart = nextAtStart;
+        lineLength = 0;
+        int b;
+        while ((b = nextByte()) != -1) {
+            if (b == '\n') {
+                boolean hadCr = lineLength > 0 && lineBuffer[lineLength - 1] == '\r';
+                if (hadCr) {
+                    lineLength--;
+                }
+                lineTerminator = hadCr ? CRLF : LF;
+                nextAtStart = true;
+                return true;
+            }
+            if (lineLength == lineBuffer.length) {
+                if (lineBuffer.length >= MAX_LINE_CHUNK) {
+                    // Hand out the chunk and keep the byte for the next one
+                    readPosition--;
+                    lineTerminator = NO_TERMINATOR;
+                    nextAtStart = false;
+                    return true;
+                }
+                lineBuffer = Arrays.copyOf(lineBuffer, lineBuffer.length * 2);
+            }
+            lineBuffer[lineLength++] = (byte) b;
+        }
+        lineTerminator = NO_TERMINATOR;
+        nextAtStart = true;
+        return lineLength > 0;
+    }
+
+    private int nextByte() throws IOException {
+        if (readPosition == readLimit) {
+            readLimit = in.read(readBuffer, 0, readBuffer.length);
+            readPosition = 0;
+            if (readLimit <= 0) {
+                readLimit = 0;
+                return -1;
+            }
+        }
+        return readBuffer[readPosition++] & 0xFF;
+    }
+
+    private Delimiter matchDelimiter() {
+        if (!lineAtStart || lineLength < 2 || lineBuffer[0] != '-' || lineBuffer[1] != '-') {
+            return null;
+        }
+        for (byte[] delimiter : boundaries) {
+            if (lineLength < delimiter.length || !startsWith(lineBuffer, delimiter)) {
+                continue;
+            }
+            int pos = delimiter.length;
+            boolean closing =
+                    lineLength >= pos + 2 && lineBuffer[pos] == '-' && lineBuffer[pos + 1] == '-';
+            if (closing) {
+                pos += 2;
+            }
+            // Only linear whitespace may follow a delimiter
+            boolean valid = true;
+            for (int i = pos; i < lineLength; i++) {
+                if (lineBuffer[i] != ' ' && lineBuffer[i] != '\t') {
+                    valid = false;
+                    break;
+                }
+            }
+            if (valid) {
+                return new Delimiter(delimiter, closing);
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] line, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path createSpillFile() throws IOException {
+        if (tempFileManager != null) {
+            return tempFileManager.createTempFile(".eml-part").toPath();
+        }
+        return Files.createTempFile("stirling-pdf-eml-", ".part");
+    }
+
+    private void deleteSpillFile(Path path) {
+        if (tempFileManager != null) {
+            tempFileManager.deleteTempFile(path);
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Could not delete attachment spill file {}", path);
+        }
+    }
+
+    private static String baseType(String contentType) {
+        int semicolon = contentType.indexOf(';');
+        String type = semicolon >= 0 ? contentType.substring(0, semicolon) : contentType;
+        return type.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Extract a parameter value from a structured header such as Content-Type. */
+    static String parameter(String headerValue, String name) {
+        if (headerValue == null) {
+            return null;
+        }
+        String lower = headerValue.toLowerCase(Locale.ROOT);
+        String key = name.toLowerCase(Locale.ROOT) + "=";
+        int from = 0;
+        while (true) {
+            int idx = lower.indexOf(key, from);
+            if (idx < 0) {
+                return null;
+            }
+            // Must be at a parameter start, not inside another name (e.g. "xboundary=")
+            char before = idx > 0 ? lower.charAt(idx - 1) : ';';
+            if (before != ';' && before != ' ' && before != '\t') {
+                from = idx + key.length();
+                continue;
+            }
+            int start = idx + key.length();
+            if (start < headerValue.length() && headerValue.charAt(start) == '"') {
+                int end = headerValue.indexOf('"', start + 1);
+                return end > start
+                        ? headerValue.substring(start + 1, end)
+                        : headerValue.substring(start + 1);
+            }
+            int end = headerValue.indexOf(';', start);
+            return (end >= 0 ? headerValue.substring(start, end) : headerValue.substring(start))
+                    .trim();
+        }
+    }
+
+    private static String filename(String disposition, String contentType) {
+        String filename = EmlParser.extractFilenameFromDisposition(disposition);
+        if (filename.isEmpty()) {
+            String name = parameter(contentType, "name");
+            if (name != null) {
+                filename = EmlParser.safeMimeDecode(name);
+            }
+        }
+        return filename;
+    }
+
+    private static Charset charset(String contentType) {
+        String charset = parameter(contentType, "charset");
+        if (charset != null) {
+            try {
+                return Charset.forName(charset.trim());
+            } catch (IllegalArgumentException e) {
+                // Unknown or unsupported charset, fall back to UTF-8
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static Date parseDate(String value) {
+        String cleaned = value.replaceAll("\\s*\\([^)]*\\)\\s*$", "").trim();
+        try {
+            return Date.from(
+                    ZonedDateTime.parse(cleaned, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private record Delimiter(byte[] boundary, boolean closing) {}
+
+    /** Incremental Content-Transfer-Encoding decoder fed one line at a time. */
+    private abstract static class BodyDecoder {
+
+        protected final OutputStream out;
+
+        BodyDecoder(OutputStream out) {
+            this.out = out;
+        }
+
+        static BodyDecoder forEncoding(String encoding, OutputStream out) {
+            String normalized = encoding != null ? encoding.trim().toLowerCase(Locale.ROOT) : "";
+            return switch (normalized) {
+                case "base64" -> new Base64Decoder(out);
+                case "quoted-printable" -> new QuotedPrintableDecoder(out);
+                default -> new IdentityDecoder(out);
+            };
+        }
+
+        abstract void line(byte[] bytes, int length, byte[] terminator) throws IOException;
+
+        /**
+         * Flush decoded output.
+         *
+         * @param atDelimiter whether the body ended at a multipart delimiter rather than at the end
+         *     of input
+         */
+        void finish(boolean atDelimiter) throws IOException {
+            out.flush();
+        }
+    }
+
+    private static final class IdentityDecoder extends BodyDecoder {
+
+        // The line break before a delimiter belongs to the delimiter, so it is written lazily
+        private byte[] pendingTerminator = NO_TERMINATOR;
+
+        IdentityDecoder(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        void finish(boolean atDelimiter) throws IOException {
+            if (!atDelimiter) {
+                out.write(pendingTerminator);
+            }
+            super.finish(atDelimiter);
+        }
+
+        @Override
+        void line(byte[] bytes, int length, byte[] terminator) throws IOException {
+            out.write(pendingTerminator);
+            out.write(bytes, 0, length);
+            pendingTerminator = terminator;
+        }
+    }
+
+    private static final class QuotedPrintableDecoder extends BodyDecoder {
+
+        private byte[] pendingTerminator = NO_TERMINATOR;
+
+        QuotedPrintableDecoder(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        void finish(boolean atDelimiter) throws IOException {
+            if (!atDelimiter) {
+                out.write(pendingTerminator);
+            }
+            super.finish(atDelimiter);
+        }
+
+        @Override
+        void line(byte[] bytes, int length, byte[] terminator) throws IOException {
+            out.write(pendingTerminator);
+            int end = length;
+            if (terminator.length > 0) {
+                // Trailing whitespace on encoded lines is transport padding
+                while (end > 0 && (bytes[end - 1] == ' ' || bytes[end - 1] == '\t')) {
+                    end--;
+                }
+            }
+            boolean softBreak = end > 0 && bytes[end - 1] == '=';
+            if (softBreak) {
+                end--;
+            }
+
+            for (int i = 0; i < end; i++) {
+                byte b = bytes[i];
+                if (b == '=' && i + 2 < end) {
+                    int hi = Character.digit(bytes[i + 1], 16);
+                    int lo = Character.digit(bytes[i + 2], 16);
+                    if (hi >= 0 && lo >= 0) {
+                        out.write((hi << 4) | lo);
+                        i += 2;
+                        continue;
+                    }
+                }
+                out.write(b);
+            }
+            pendingTerminator = softBreak || terminator.length == 0 ? NO_TERMINATOR : CRLF;
+        }
+    }
+
+    private static final class Base64Decoder extends BodyDecoder {
+
+        private static final int[] DECODE_TABLE = new int[256];
+
+        static {
+            Arrays.fill(DECODE_TABLE, -1);
+            String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+            for (int i = 0; i < alphabet.length(); i++) {
+                DECODE_TABLE[alphabet.charAt(i)] = i;
+            }
+            DECODE_TABLE['-'] = 62;
+            DECODE_TABLE['_'] = 63;
+        }
+
+        private final byte[] chunk = new byte[BUFFER_SIZE];
+        private int chunkLength;
+        private int bits;
+        private int count;
+
+        Base64Decoder(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        void line(byte[] bytes, int length, byte[] terminator) throws IOException {
+            for (int i = 0; i < length; i++) {
+                int c = bytes[i] & 0xFF;
+                if (c == '=') {
+                    // Padding flushes any partial quantum
+                    if (count == 2) {
+                        emit(bits >> 4);
+                    } else if (count == 3) {
+                        emit(bits >> 10);
+                        emit(bits >> 2);
+                    }
+                    bits = 0;
+                    count = 0;
+                    continue;
+                }
+                int value = DECODE_TABLE[c];
+                if (value < 0) {
+                    continue;
+                }
+                bits = (bits << 6) | value;
+                if (++count == 4) {
+                    emit(bits >> 16);
+                    emit(bits >> 8);
+                    emit(bits);
+                    bits = 0;
+                    count = 0;
+                }
+            }
+        }
+
+        @Override
+        void finish(boolean atDelimiter) throws IOException {
+            // Unpadded input: decode what is left
+            if (count == 2) {
+                emit(bits >> 4);
+            } else if (count == 3) {
+                emit(bits >> 10);
+                emit(bits >> 2);
+            }
+            count = 0;
+            bits = 0;
+            flushChunk();
+            super.finish(atDelimiter);
+        }
+
+        private void emit(int value) throws IOException {
+            if (chunkLength == chunk.length) {
+                flushChunk();
+            }
+            chunk[chunkLength++] = (byte) value;
+        }
+
+        private void flushChunk() throws IOException {
+            out.write(chunk, 0, chunkLength);
+            chunkLength = 0;
+        }
+    }
+
+    /** In-memory sink for text bodies that silently truncates beyond a size limit. */
+    private static final class LimitedBuffer extends OutputStream {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final int limit;
+
+        LimitedBuffer(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) {
+            if (buffer.size() < limit) {
+                buffer.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            int room = limit - buffer.size();
+            if (room > 0) {
+                buffer.write(b, off, Math.min(room, len));
+            }
+        }
+
+        String toString(Charset charset) {
+            return buffer.toString(charset);
+        }
+    }
+
+    /**
+     * Sink that writes attachment content to a spill file until a size limit, after which it only
+     * counts bytes so the attachment size can still be reported.
+     */
+    private static final class SpillSink extends OutputStream {
+
+        private final long limit;
+        private OutputStream file;
+        private long count;
+        private boolean overflowed;
+
+        SpillSink(Path path, long limit) throws IOException {
+            this.file = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+            if (!overflowed && count > limit) {
+                overflowed = true;
+                file.close();
+                file = null;
+            }
+            if (file != null) {
+                file.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (file != null) {
+                file.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                file.close();
+                file = null;
+            }
+        }
+    }
+}
@@ -19,6 +19,8 @@ import io.github.pixee.security.Filenames;
 
 import lombok.extern.slf4j.Slf4j;
 
+import stirling.software.common.metrics.OperationTrace;
+
 @Slf4j
 public class WebResponseUtils {
 
@@ -65,12 +67,43 @@ public class WebResponseUtils {
 
         // Open Byte Array and save document to it
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        document.save(baos);
+        try (OperationTrace.Stage stage = OperationTrace.start(OperationTrace.SAVE)) {
+            document.save(baos);
+            stage.addBytes(baos.size());
+        }
         document.close();
 
         return baosToWebResponse(baos, docName);
     }
 
+    /**
+     * Stream a document saved as an incremental update: the bytes it was loaded from, copied
+     * straight from its source, followed by the objects changed since loading. Only use this when
+     * {@code CustomPDFDocumentFactory.canSaveIncrementally} allows it. The document is closed once
+     * the response has been written.
+     *
+     * @param document The document loaded from the uploaded file.
+     * @param docName The name of the document.
+     * @return A ResponseEntity streaming the updated document.
+     */
+    public static ResponseEntity<StreamingResponseBody> pdfDocToIncrementalWebResponse(
+            PDDocument document, String docName) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + docName + "\"");
+
+        StreamingResponseBody body =
+                os -> {
+                    try (document;
+                            os) {
+                        document.saveIncremental(os);
+                        os.flush();
+                    }
+                };
+
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
     /**
      * Convert a File to a web response (PDF default).
      *
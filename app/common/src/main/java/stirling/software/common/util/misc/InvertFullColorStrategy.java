@@ -1,12 +1,12 @@
 package stirling.software.common.util.misc;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
@@ -14,15 +14,19 @@ import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.web.multipart.MultipartFile;
 
 import stirling.software.common.model.ApplicationProperties;
 import stirling.software.common.model.api.misc.ReplaceAndInvert;
+import stirling.software.common.service.BandedPageRenderer;
 import stirling.software.common.util.ApplicationContextProvider;
-import stirling.software.common.util.ExceptionUtils;
+import stirling.software.common.util.RasterOps;
 
 public class InvertFullColorStrategy extends ReplaceAndInvertColorStrategy {
 
@@ -46,9 +50,12 @@ public class InvertFullColorStrategy extends ReplaceAndInvertColorStrategy {
 
             // Render each page and invert colors
             PDFRenderer pdfRenderer = new PDFRenderer(document);
+            BandedPageRenderer bandedRenderer =
+                    ApplicationContextProvider.getBean(BandedPageRenderer.class);
+            if (bandedRenderer == null) {
+                bandedRenderer = BandedPageRenderer.withDefaults();
+            }
             for (int page = 0; page < document.getNumberOfPages(); page++) {
-                BufferedImage image;
-
                 // Use global maximum DPI setting, fallback to 300 if not set
                 int renderDpi = 300; // Default fallback
                 ApplicationProperties properties =
@@ -57,44 +64,29 @@ public class InvertFullColorStrategy extends ReplaceAndInvertColorStrategy {
                     renderDpi = properties.getSystem().getMaxDPI();
                 }
 
-                try {
-                    image =
-                            pdfRenderer.renderImageWithDPI(
-                                    page, renderDpi); // Render page with global DPI setting
-                } catch (OutOfMemoryError e) {
-                    throw ExceptionUtils.createOutOfMemoryDpiException(page + 1, renderDpi, e);
-                } catch (NegativeArraySizeException e) {
-                    throw ExceptionUtils.createOutOfMemoryDpiException(page + 1, renderDpi, e);
-                }
-
-                // Invert the colors
-                invertImageColors(image);
-
-                // Create a new PDPage from the inverted image
+                // Replace the page content with its inverted rendering, one band at a time. The
+                // bands are encoded before the page content is overwritten.
                 PDPage pdPage = document.getPage(page);
-                File tempImageFile = null;
-                try {
-                    tempImageFile = convertToBufferedImageTpFile(image);
-                    PDImageXObject pdImage =
-                            PDImageXObject.createFromFileByContent(tempImageFile, document);
-
-                    PDPageContentStream contentStream =
-                            new PDPageContentStream(
+                List<PDImageXObject> bands;
+                try (BandedPageRenderer.RenderedPage rendered =
+                        bandedRenderer.open(
+                                document, pdfRenderer, page, renderDpi, ImageType.RGB)) {
+                    bands =
+                            rendered.createImages(
                                     document,
-                                    pdPage,
-                                    PDPageContentStream.AppendMode.OVERWRITE,
-                                    true);
-                    contentStream.drawImage(
-                            pdImage,
-                            0,
-                            0,
-                            pdPage.getMediaBox().getWidth(),
-                            pdPage.getMediaBox().getHeight());
-                    contentStream.close();
-                } finally {
-                    if (tempImageFile != null && tempImageFile.exists()) {
-                        Files.delete(tempImageFile.toPath());
-                    }
+                                    (doc, band) ->
+                                            LosslessFactory.createFromImage(
+                                                    doc, invertImageColors(band)));
+                }
+                try (PDPageContentStream contentStream =
+                        new PDPageContentStream(
+                                document, pdPage, PDPageContentStream.AppendMode.OVERWRITE, true)) {
+                    BandedPageRenderer.drawStrips(
+                            contentStream,
+                            bands,
+                            new PDRectangle(
+                                    pdPage.getMediaBox().getWidth(),
+                                    pdPage.getMediaBox().getHeight()));
                 }
             }
 
@@ -115,22 +107,9 @@ public class InvertFullColorStrategy extends ReplaceAndInvertColorStrategy {
         }
     }
 
-    // Method to invert image colors
-    private void invertImageColors(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int rgba = image.getRGB(x, y);
-                Color color = new Color(rgba, true);
-                Color invertedColor =
-                        new Color(
-                                255 - color.getRed(),
-                                255 - color.getGreen(),
-                                255 - color.getBlue());
-                image.setRGB(x, y, invertedColor.getRGB());
-            }
-        }
+    // Method to invert image colors; returns a converted copy for types without a direct kernel
+    private BufferedImage invertImageColors(BufferedImage image) {
+        return RasterOps.invert(image);
     }
 
     // Helper method to convert BufferedImage to InputStream
@@ -0,0 +1,87 @@
+package stirling.software.common.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPart;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import stirling.software.common.model.ApplicationProperties;
+
+@DisplayName("Operation timing filter tests")
+class OperationTimingFilterTest {
+
+    private static OperationTimingFilter filter(
+            SimpleMeterRegistry registry, boolean serverTimingHeader) {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getSystem().getOperationTiming().setServerTimingHeader(serverTimingHeader);
+        return new OperationTimingFilter(registry, properties);
+    }
+
+    private static MockHttpServletResponse handle(OperationTimingFilter filter, String uri)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setContent(new byte[64]);
+        request.addPart(new MockPart("fileInput", new byte[64]));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(
+                request,
+                response,
+                (req, res) -> {
+                    ((HttpServletRequest) req).getParts();
+                    req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, uri);
+                    res.getOutputStream().write(new byte[32]);
+                });
+        return response;
+    }
+
+    @Test
+    @DisplayName("API requests are published with their response size and a Server-Timing header")
+    void timesApiRequests() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        MockHttpServletResponse response = handle(filter(registry, true), "/api/v1/misc/test");
+
+        String header = response.getHeader(OperationTimingFilter.SERVER_TIMING_HEADER);
+        assertTrue(header.matches("upload;dur=[0-9.]+, handler;dur=[0-9.]+, total;dur=.*"), header);
+        assertEquals(
+                64.0,
+                registry.get("stirling.operation.stage.bytes")
+                        .tag("endpoint", "POST /api/v1/misc/test")
+                        .tag("stage", OperationTrace.UPLOAD)
+                        .summary()
+                        .totalAmount());
+        assertEquals(
+                32.0,
+                registry.get("stirling.operation.stage.bytes")
+                        .tag("endpoint", "POST /api/v1/misc/test")
+                        .tag("stage", OperationTrace.RESPONSE)
+                        .summary()
+                        .totalAmount());
+    }
+
+    @Test
+    @DisplayName("The Server-Timing header is off by default and other paths are not traced")
+    void headerOffByDefault() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OperationTimingFilter filter = filter(registry, false);
+
+        MockHttpServletResponse response = handle(filter, "/api/v1/misc/test");
+        assertNull(response.getHeader(OperationTimingFilter.SERVER_TIMING_HEADER));
+
+        MockHttpServletRequest page = new MockHttpServletRequest("GET", "/compress-pdf");
+        filter.doFilter(
+                page,
+                new MockHttpServletResponse(),
+                (req, res) -> assertNull(req.getAttribute(OperationTrace.REQUEST_ATTRIBUTE)));
+    }
+}
@@ -0,0 +1,83 @@
+package stirling.software.common.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("Operation trace tests")
+class OperationTraceTest {
+
+    @Test
+    @DisplayName("Repeated stages add up and are published when the last holder releases")
+    void publishesOnLastRelease() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OperationTrace trace = new OperationTrace(registry, System.nanoTime());
+        trace.setEndpoint("POST /api/v1/test");
+
+        trace.record(OperationTrace.LOAD, 2_000_000, 100);
+        trace.record(OperationTrace.LOAD, 3_000_000, 50);
+        trace.retain();
+        trace.release();
+        assertNull(registry.find("stirling.operation").timer());
+
+        trace.release();
+
+        var load =
+                registry.get("stirling.operation.stage")
+                        .tag("endpoint", "POST /api/v1/test")
+                        .tag("stage", OperationTrace.LOAD)
+                        .timer();
+        assertEquals(1, load.count());
+        assertEquals(5.0, load.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(
+                150.0,
+                registry.get("stirling.operation.stage.bytes")
+                        .tag("stage", OperationTrace.LOAD)
+                        .summary()
+                        .totalAmount());
+        assertEquals(1, registry.get("stirling.operation").timer().count());
+    }
+
+    @Test
+    @DisplayName("Wrapped work records its stages on another thread")
+    void wrapBindsTraceOnWorkerThread() throws Exception {
+        OperationTrace trace = new OperationTrace(null, System.nanoTime());
+
+        OperationTrace seen =
+                CompletableFuture.supplyAsync(
+                                trace.wrap(
+                                        () -> {
+                                            try (OperationTrace.Stage stage =
+                                                    OperationTrace.start(OperationTrace.SAVE)) {
+                                                stage.addBytes(10);
+                                            }
+                                            return OperationTrace.current();
+                                        }))
+                        .get();
+
+        assertSame(trace, seen);
+        assertNull(OperationTrace.current());
+        String header = trace.toServerTiming();
+        assertTrue(header.startsWith("queue;dur="), header);
+        assertTrue(header.contains(", save;dur="), header);
+        assertTrue(header.contains(", total;dur="), header);
+    }
+
+    @Test
+    @DisplayName("Stages outside a trace are ignored")
+    void noTraceIsNoOp() {
+        try (OperationTrace.Stage stage = OperationTrace.start(OperationTrace.PROCESS)) {
+            stage.addBytes(5);
+        }
+        assertNull(OperationTrace.current());
+    }
+}
@@ -0,0 +1,209 @@
+package stirling.software.common.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Banded page rendering tests")
+class BandedPageRendererTest {
+
+    private static final int DPI = 72;
+
+    private static PDDocument sampleDocument(int rotation) throws IOException {
+        PDDocument document = new PDDocument();
+        PDPage page = new PDPage(new PDRectangle(200, 300));
+        page.setRotation(rotation);
+        document.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.setNonStrokingColor(Color.RED);
+            content.addRect(20, 30, 120, 200);
+            content.fill();
+            content.setNonStrokingColor(Color.BLUE);
+            content.addRect(60, 100, 100, 150);
+            content.fill();
+            content.beginText();
+            content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 18);
+            content.newLineAtOffset(30, 150);
+            content.showText("Banded rendering");
+            content.endText();
+        }
+        return document;
+    }
+
+    /** Renders a page through bands into one image for comparison. */
+    private static BufferedImage assemble(BandedPageRenderer.RenderedPage rendered)
+            throws IOException {
+        BufferedImage full =
+                new BufferedImage(
+                        rendered.getWidth(), rendered.getHeight(), BufferedImage.TYPE_INT_RGB);
+        rendered.forEachBand((band, top) -> full.getRaster().setRect(0, top, band.getRaster()));
+        return full;
+    }
+
+    private static void assertSimilar(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        long differing = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    if (Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)) > 8) {
+                        differing++;
+                        break;
+                    }
+                }
+            }
+        }
+        // Anti-aliased text can differ by a few pixels where a glyph crosses a band edge
+        long pixels = (long) expected.getWidth() * expected.getHeight();
+        assertTrue(differing * 200 < pixels, "Too many differing pixels: " + differing);
+    }
+
+    @Test
+    @DisplayName("Bands reassemble to the same image as a full-page render")
+    void bandsMatchFullRender() throws IOException {
+        try (PDDocument document = sampleDocument(0)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage expected = renderer.renderImageWithDPI(0, DPI, ImageType.RGB);
+
+            // 200 px wide at 4 bytes a pixel: 37 rows per band
+            BandedPageRenderer banded = new BandedPageRenderer(200 * 4 * 37);
+            try (BandedPageRenderer.RenderedPage rendered =
+                    banded.open(document, renderer, 0, DPI, ImageType.RGB)) {
+                assertEquals(37, rendered.getBandHeight());
+                assertEquals(9, rendered.getBandCount());
+                assertSimilar(expected, assemble(rendered));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Rotated pages use the rotated dimensions")
+    void rotatedPage() throws IOException {
+        try (PDDocument document = sampleDocument(90)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage expected = renderer.renderImageWithDPI(0, DPI, ImageType.RGB);
+
+            BandedPageRenderer banded = new BandedPageRenderer(300 * 4 * 50);
+            try (BandedPageRenderer.RenderedPage rendered =
+                    banded.open(document, renderer, 0, DPI, ImageType.RGB)) {
+                assertEquals(300, rendered.getWidth());
+                assertEquals(200, rendered.getHeight());
+                assertEquals(4, rendered.getBandCount());
+                assertSimilar(expected, assemble(rendered));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("PNG output streamed from bands decodes to the full page")
+    void writesStreamedPng() throws IOException {
+        try (PDDocument document = sampleDocument(0)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage expected = renderer.renderImageWithDPI(0, DPI, ImageType.RGB);
+
+            BandedPageRenderer banded = new BandedPageRenderer(200 * 4 * 64);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (BandedPageRenderer.RenderedPage rendered =
+                    banded.open(document, renderer, 0, DPI, ImageType.RGB)) {
+                assertTrue(rendered.getBandCount() > 1);
+                rendered.writeImage("png", out);
+            }
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+            assertSimilar(expected, decoded);
+        }
+    }
+
+    @Test
+    @DisplayName("Bands drawn into a PDF page are placed as stacked strips")
+    void drawsStrips() throws IOException {
+        try (PDDocument source = sampleDocument(0);
+                PDDocument target = new PDDocument()) {
+            PDFRenderer renderer = new PDFRenderer(source);
+            PDPage page = new PDPage(new PDRectangle(200, 300));
+            target.addPage(page);
+
+            BandedPageRenderer banded = new BandedPageRenderer(200 * 4 * 100);
+            try (BandedPageRenderer.RenderedPage rendered =
+                            banded.open(source, renderer, 0, DPI, ImageType.RGB);
+                    PDPageContentStream content = new PDPageContentStream(target, page)) {
+                assertEquals(3, rendered.getBandCount());
+                rendered.drawInto(
+                        target, content, page.getMediaBox(), LosslessFactory::createFromImage);
+            }
+
+            int images = 0;
+            for (var name : page.getResources().getXObjectNames()) {
+                if (page.getResources().getXObject(name) instanceof PDImageXObject image) {
+                    assertEquals(200, image.getWidth());
+                    assertEquals(100, image.getHeight());
+                    images++;
+                }
+            }
+            assertEquals(3, images);
+            assertSimilar(
+                    renderer.renderImageWithDPI(0, DPI, ImageType.RGB),
+                    new PDFRenderer(target).renderImageWithDPI(0, DPI, ImageType.RGB));
+        }
+    }
+
+    @Test
+    @DisplayName("A page within the budget is rendered as a single band")
+    void smallPageSingleBand() throws IOException {
+        try (PDDocument document = sampleDocument(0)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            try (BandedPageRenderer.RenderedPage rendered =
+                    BandedPageRenderer.withDefaults()
+                            .open(document, renderer, 0, DPI, ImageType.RGB)) {
+                assertEquals(1, rendered.getBandCount());
+                assertEquals(300, rendered.getBandHeight());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Pooled buffers are bounded by bytes and released when idle")
+    void poolIsBoundedAndReleasedWhenIdle() throws IOException {
+        try (PDDocument document = sampleDocument(0)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            long bandBytes = 200 * 4 * 64;
+            BandedPageRenderer banded = new BandedPageRenderer(bandBytes);
+            for (int i = 0; i < 3; i++) {
+                try (BandedPageRenderer.RenderedPage rendered =
+                        banded.open(document, renderer, 0, DPI, ImageType.RGB)) {
+                    rendered.forEachBand((band, top) -> {});
+                }
+                assertTrue(banded.getPooledBytes() <= 2 * bandBytes);
+            }
+            assertTrue(banded.getPooledBytes() > 0);
+
+            // The first call only notes that the pool was used, the second finds it idle
+            banded.releaseIdleBuffers();
+            assertTrue(banded.getPooledBytes() > 0);
+            banded.releaseIdleBuffers();
+            assertEquals(0, banded.getPooledBytes());
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package stirling.software.common.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import stirling.software.common.metrics.OperationTrace;
+import stirling.software.common.model.ApplicationProperties;
+
+@DisplayName("Batch executor tests")
+class BatchExecutorTest {
+
+    private BatchExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.destroy();
+        }
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().toList();
+    }
+
+    @Test
+    @DisplayName("Returns results in input order even when later items finish first")
+    void keepsInputOrder() throws IOException {
+        executor = new BatchExecutor(4, Long.MAX_VALUE);
+
+        List<Integer> results =
+                executor.map(
+                        range(20),
+                        item -> 0,
+                        (index, item) -> {
+                            Thread.sleep((20 - item) % 5);
+                            return item * 10;
+                        });
+
+        assertEquals(range(20).stream().map(i -> i * 10).toList(), results);
+    }
+
+    @Test
+    @DisplayName("Runs items concurrently")
+    void runsConcurrently() throws IOException {
+        executor = new BatchExecutor(4, Long.MAX_VALUE);
+        CountDownLatch allStarted = new CountDownLatch(4);
+
+        List<Boolean> results =
+                executor.map(
+                        range(4),
+                        item -> 0,
+                        (index, item) -> {
+                            allStarted.countDown();
+                            // Only completes if all four items run at the same time
+                            return allStarted.await(5, TimeUnit.SECONDS);
+                        });
+
+        assertEquals(List.of(true, true, true, true), results);
+    }
+
+    @Test
+    @DisplayName("Limits concurrency by the memory budget and releases it after consumption")
+    void respectsMemoryBudget() throws IOException {
+        executor = new BatchExecutor(8, 100);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> consumed = new ArrayList<>();
+
+        executor.forEachOrdered(
+                range(10),
+                item -> 40,
+                (index, item) -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(10);
+                    running.decrementAndGet();
+                    return item;
+                },
+                (index, result) -> consumed.add(result));
+
+        assertTrue(maxRunning.get() <= 2, "at most two 40 byte items fit a 100 byte budget");
+        assertEquals(range(10), consumed);
+        assertEquals(0, executor.getMemoryBudget().getReservedBytes());
+    }
+
+    @Test
+    @DisplayName("Runs an item larger than the whole budget on its own")
+    void clampsOversizedItems() throws IOException {
+        executor = new BatchExecutor(4, 10);
+
+        List<Integer> results = executor.map(range(3), item -> 1_000, (index, item) -> item);
+
+        assertEquals(range(3), results);
+        assertEquals(0, executor.getMemoryBudget().getReservedBytes());
+    }
+
+    @Test
+    @DisplayName("Runs items unreserved when the caller holds part of the budget itself")
+    void runsWhenCallerHoldsBudget() throws IOException {
+        executor = new BatchExecutor(4, 100);
+        MemoryBudget budget = executor.getMemoryBudget();
+        // Like an open source document that stays reserved for the whole call
+        long held = budget.tryReserve(30);
+
+        long start = System.nanoTime();
+        List<Integer> results = executor.map(range(3), item -> 100, (index, item) -> item);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(range(3), results);
+        assertTrue(
+                elapsedMillis < 3 * BatchExecutor.RESERVE_WAIT_MILLIS,
+                "waited only once: " + elapsedMillis + " ms");
+        assertEquals(held, budget.getReservedBytes());
+        budget.release(held);
+    }
+
+    @Test
+    @DisplayName("Propagates the first failure and releases reserved memory")
+    void propagatesFailures() {
+        executor = new BatchExecutor(4, 1_000);
+
+        IOException thrown =
+                assertThrows(
+                        IOException.class,
+                        () ->
+                                executor.map(
+                                        range(10),
+                                        item -> 10,
+                                        (index, item) -> {
+                                            if (item == 3) {
+                                                throw new IOException("broken file " + item);
+                                            }
+                                            return item;
+                                        }));
+
+        assertEquals("broken file 3", thrown.getMessage());
+        assertEquals(0, executor.getMemoryBudget().getReservedBytes());
+    }
+
+    @Test
+    @DisplayName("Runs nested batches inline instead of waiting on the pool")
+    void runsNestedBatchesInline() throws IOException {
+        executor = new BatchExecutor(2, Long.MAX_VALUE);
+
+        List<Integer> results =
+                executor.map(
+                        range(4),
+                        item -> 0,
+                        (index, item) ->
+                                executor
+                                        .map(range(3), inner -> 0, (i, inner) -> inner + item)
+                                        .stream()
+                                        .mapToInt(Integer::intValue)
+                                        .sum());
+
+        assertEquals(List.of(3, 6, 9, 12), results);
+    }
+
+    @Test
+    @DisplayName("Splits pages into at most one range per worker, aligned to whole units")
+    void splitsPagesPerWorker() {
+        executor = new BatchExecutor(4, Long.MAX_VALUE);
+
+        assertEquals(List.of(new BatchExecutor.PageRange(0, 10)), executor.splitPages(10, 16, 1));
+        assertEquals(
+                List.of(
+                        new BatchExecutor.PageRange(0, 25),
+                        new BatchExecutor.PageRange(25, 50),
+                        new BatchExecutor.PageRange(50, 75),
+                        new BatchExecutor.PageRange(75, 100)),
+                executor.splitPages(100, 16, 1));
+        assertEquals(
+                List.of(new BatchExecutor.PageRange(0, 20), new BatchExecutor.PageRange(20, 35)),
+                executor.splitPages(35, 16, 4));
+        assertEquals(List.of(), executor.splitPages(0, 16, 1));
+    }
+
+    @Test
+    @DisplayName("Page ranges run on one copy per range and are consumed in page order")
+    void runsPageRangesOnCopies() throws IOException {
+        executor = new BatchExecutor(4, Long.MAX_VALUE);
+        AtomicInteger copies = new AtomicInteger();
+        List<String> consumed = new ArrayList<>();
+
+        try (PDDocument document = new PDDocument()) {
+            executor.forEachPageRange(
+                    document,
+                    executor.splitPages(64, 8, 1),
+                    0,
+                    () -> {
+                        copies.incrementAndGet();
+                        return new PDDocument();
+                    },
+                    (copy, range) -> {
+                        assertNotSame(document, copy);
+                        return range.fromPage() + "-" + range.toPage();
+                    },
+                    (range, result) -> consumed.add(result));
+        }
+
+        assertEquals(List.of("0-16", "16-32", "32-48", "48-64"), consumed);
+        assertEquals(4, copies.get());
+    }
+
+    @Test
+    @DisplayName("Binds the caller's operation trace on the workers")
+    void bindsOperationTrace() throws Exception {
+        executor = new BatchExecutor(4, Long.MAX_VALUE);
+        OperationTrace trace = new OperationTrace(null, System.nanoTime());
+
+        List<OperationTrace> seen =
+                trace.callBound(
+                        () ->
+                                executor.map(
+                                        range(8),
+                                        item -> 0,
+                                        (index, item) -> OperationTrace.current()));
+
+        assertTrue(seen.stream().allMatch(current -> current == trace));
+        assertNull(OperationTrace.current());
+    }
+
+    @Test
+    @DisplayName("Runs items on the calling thread while the shared pool is busy")
+    void runsItemsThePoolCannotTake() throws Exception {
+        ApplicationProperties.ExecutorPools settings = new ApplicationProperties.ExecutorPools();
+        settings.setCpuThreads(1);
+        settings.setCpuQueueCapacity(1);
+        ExecutorPools pools = new ExecutorPools(settings);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            pools.cpu().execute(() -> awaitQuietly(release));
+            executor = new BatchExecutor(4, new MemoryBudget(Long.MAX_VALUE), pools);
+
+            List<String> threads =
+                    executor.map(range(4), item -> 0, (index, item) -> currentThreadName());
+
+            assertEquals(4, threads.size());
+            assertTrue(threads.stream().allMatch(Thread.currentThread().getName()::equals));
+        } finally {
+            release.countDown();
+            pools.destroy();
+        }
+    }
+
+    private static String currentThreadName() {
+        return Thread.currentThread().getName();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
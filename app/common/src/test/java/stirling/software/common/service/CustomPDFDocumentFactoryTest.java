@@ -212,6 +212,72 @@ class CustomPDFDocumentFactoryTest {
         assertTrue(newBytes.length > 0);
     }
 
+    @Test
+    void testInMemoryLoadReservesBudgetUntilClosed() throws IOException {
+        assumeHeapNotLow();
+        MemoryBudgetManager budgetManager = new MemoryBudgetManager(Long.MAX_VALUE / 2);
+        factory.setMemoryBudgetManager(budgetManager);
+
+        try (PDDocument doc = factory.load(basePdfBytes)) {
+            assertEquals(1, budgetManager.getActiveReservations());
+            assertEquals(basePdfBytes.length * 2L, budgetManager.getReservedBytes());
+        }
+        assertEquals(0, budgetManager.getActiveReservations());
+        assertEquals(0, budgetManager.getReservedBytes());
+    }
+
+    @Test
+    void testLeakedDocumentReleasesBudgetWhenCollected() throws Exception {
+        assumeHeapNotLow();
+        MemoryBudgetManager budgetManager = new MemoryBudgetManager(Long.MAX_VALUE / 2);
+        factory.setMemoryBudgetManager(budgetManager);
+
+        // Read-only, so the mocked metadata service does not keep a reference to the document
+        factory.load(basePdfBytes, true);
+        assertEquals(1, budgetManager.getActiveReservations());
+
+        for (int i = 0; i < 100 && budgetManager.getActiveReservations() > 0; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertEquals(0, budgetManager.getReservedBytes());
+        assertEquals(1, budgetManager.getLeakedCount());
+    }
+
+    @Test
+    void testExhaustedBudgetDegradesToDiskCache() throws IOException {
+        assumeHeapNotLow();
+        MemoryBudgetManager budgetManager = new MemoryBudgetManager(1024);
+        factory.setMemoryBudgetManager(budgetManager);
+
+        try (PDDocument doc = factory.load(basePdfBytes)) {
+            assertTrue(doc.getNumberOfPages() > 0);
+            assertEquals(0, budgetManager.getReservedBytes());
+            // Both the memory-only and the mixed reservation were refused
+            assertEquals(2, budgetManager.getDeniedCount());
+        }
+    }
+
+    @Test
+    void canSaveIncrementally_OnlyForLoadedDocumentsKeepingTheirEncryption() throws IOException {
+        try (PDDocument loaded = factory.load(basePdfBytes, true);
+                PDDocument created = factory.createNewDocument()) {
+            assertTrue(factory.canSaveIncrementally(loaded));
+            assertFalse(factory.canSaveIncrementally(created));
+
+            loaded.setAllSecurityToBeRemoved(true);
+            assertFalse(factory.canSaveIncrementally(loaded));
+        }
+    }
+
+    private void assumeHeapNotLow() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        Assumptions.assumeTrue(
+                (double) (runtime.maxMemory() - used) / runtime.maxMemory() * 100 >= 30.0,
+                "factory always uses disk caching when the heap is low");
+    }
+
     private File writeTempFile(byte[] content) throws IOException {
         File file = Files.createTempFile("pdf-test-", ".pdf").toFile();
         Files.write(file.toPath(), content);
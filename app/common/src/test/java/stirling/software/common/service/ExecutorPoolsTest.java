@@ -0,0 +1,95 @@
+package stirling.software.common.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import stirling.software.common.model.ApplicationProperties;
+
+@DisplayName("Executor pool tests")
+class ExecutorPoolsTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExecutorPools pools;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (pools != null) {
+            pools.destroy();
+        }
+    }
+
+    private ExecutorPools singleThreadPools() {
+        ApplicationProperties.ExecutorPools settings = new ApplicationProperties.ExecutorPools();
+        settings.setCpuThreads(1);
+        settings.setCpuQueueCapacity(1);
+        settings.setProcessThreads(1);
+        settings.setProcessQueueCapacity(1);
+        return new ExecutorPools(settings);
+    }
+
+    private void block() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("The CPU pool refuses work once its thread and queue are taken")
+    void cpuPoolRejectsWhenFull() {
+        pools = singleThreadPools();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        pools.bindTo(registry);
+
+        pools.cpu().execute(this::block);
+        pools.cpu().execute(this::block);
+
+        assertThrows(RejectedExecutionException.class, () -> pools.cpu().execute(() -> {}));
+        assertEquals(1, pools.getRejectedCount(ExecutorPools.CPU));
+        assertEquals(
+                1.0,
+                registry.get("stirling.executor.rejected")
+                        .tag("name", "cpu")
+                        .functionCounter()
+                        .count());
+        assertEquals(1.0, registry.get("executor.queued").tag("name", "cpu").gauge().value());
+    }
+
+    @Test
+    @DisplayName("The process pool runs work on the submitting thread once it is full")
+    void processPoolRunsOnCallerWhenFull() {
+        pools = singleThreadPools();
+
+        pools.process().execute(this::block);
+        pools.process().execute(this::block);
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        pools.process().execute(() -> ranOn.set(Thread.currentThread()));
+
+        assertEquals(Thread.currentThread(), ranOn.get());
+        assertEquals(1, pools.getRejectedCount(ExecutorPools.PROCESS));
+    }
+
+    @Test
+    @DisplayName("Pool threads are named after their pool")
+    void threadsAreNamed() throws Exception {
+        pools = ExecutorPools.withDefaults();
+
+        String name = pools.cpu().submit(() -> Thread.currentThread().getName()).get();
+
+        assertTrue(name.startsWith("cpu-worker-"), name);
+    }
+}
@@ -6,34 +6,45 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.UUID;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.service.storage.FsyncPolicy;
+import stirling.software.common.service.storage.LocalDiskBlobStore;
+import stirling.software.common.util.ChecksumUtils;
+
 class FileStorageTest {
 
     @TempDir Path tempDir;
 
     @Mock private FileOrUploadService fileOrUploadService;
 
-    @InjectMocks private FileStorage fileStorage;
+    private LocalDiskBlobStore blobStore;
+
+    private FileStorage fileStorage;
 
     private MultipartFile mockFile;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        blobStore = new LocalDiskBlobStore(tempDir.resolve("blobs"), 2, FsyncPolicy.NONE);
+        fileStorage = new FileStorage(fileOrUploadService, blobStore, new ApplicationProperties());
         ReflectionTestUtils.setField(fileStorage, "tempDirPath", tempDir.toString());
 
         // Create a mock MultipartFile
@@ -42,6 +53,11 @@ class FileStorageTest {
         when(mockFile.getContentType()).thenReturn(MediaType.APPLICATION_PDF_VALUE);
     }
 
+    @AfterEach
+    void tearDown() {
+        blobStore.close();
+    }
+
     @Test
     void testStoreFile() throws IOException {
         // Arrange
@@ -63,7 +79,8 @@ class FileStorageTest {
 
         // Assert
         assertNotNull(fileId);
-        assertTrue(Files.exists(tempDir.resolve(fileId)));
+        assertTrue(fileStorage.fileExists(fileId));
+        assertArrayEquals(fileContent, fileStorage.retrieveBytes(fileId));
         verify(mockFile).transferTo(any(java.io.File.class));
     }
 
@@ -78,8 +95,127 @@ class FileStorageTest {
 
         // Assert
         assertNotNull(fileId);
-        assertTrue(Files.exists(tempDir.resolve(fileId)));
-        assertArrayEquals(fileContent, Files.readAllBytes(tempDir.resolve(fileId)));
+        assertTrue(fileStorage.fileExists(fileId));
+        assertArrayEquals(fileContent, fileStorage.retrieveBytes(fileId));
+        assertEquals(fileContent.length, fileStorage.getFileSize(fileId));
+    }
+
+    @Test
+    void testStoreBytes_ShardsByHashPrefix() throws IOException {
+        // Arrange
+        byte[] fileContent = "Test PDF content".getBytes();
+        String hash = ChecksumUtils.checksum(new ByteArrayInputStream(fileContent), "SHA-256");
+
+        // Act
+        fileStorage.storeBytes(fileContent, "test.pdf");
+
+        // Assert
+        Path expected =
+                tempDir.resolve("blobs")
+                        .resolve(hash.substring(0, 2))
+                        .resolve(hash.substring(2, 4))
+                        .resolve(hash);
+        assertTrue(Files.exists(expected));
+    }
+
+    @Test
+    void testStoreBytes_DeduplicatesIdenticalContent() throws IOException {
+        // Arrange
+        byte[] fileContent = "Test PDF content".getBytes();
+
+        // Act
+        String first = fileStorage.storeBytes(fileContent, "a.pdf");
+        String second = fileStorage.storeBytes(fileContent, "b.pdf");
+
+        // Assert
+        assertNotEquals(first, second);
+        assertEquals(1, fileStorage.getUniqueBlobCount());
+        assertArrayEquals(fileContent, fileStorage.retrieveBytes(second));
+    }
+
+    @Test
+    void testDeleteFile_KeepsSharedBlobUntilLastReference() throws IOException {
+        // Arrange
+        byte[] fileContent = "Test PDF content".getBytes();
+        String first = fileStorage.storeBytes(fileContent, "a.pdf");
+        String second = fileStorage.storeBytes(fileContent, "b.pdf");
+
+        // Act & Assert
+        assertTrue(fileStorage.deleteFile(first));
+        assertFalse(fileStorage.fileExists(first));
+        assertArrayEquals(fileContent, fileStorage.retrieveBytes(second));
+
+        assertTrue(fileStorage.deleteFile(second));
+        assertEquals(0, fileStorage.getUniqueBlobCount());
+        try (var files = Files.walk(tempDir.resolve("blobs"))) {
+            assertTrue(files.noneMatch(Files::isRegularFile));
+        }
+    }
+
+    @Test
+    void testStoreBytes_WithoutDeduplication() throws IOException {
+        // Arrange
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getSystem().getFileStorage().setDeduplicate(false);
+        FileStorage storage = new FileStorage(fileOrUploadService, blobStore, properties);
+        ReflectionTestUtils.setField(storage, "tempDirPath", tempDir.toString());
+        byte[] fileContent = "Test PDF content".getBytes();
+
+        // Act
+        storage.storeBytes(fileContent, "a.pdf");
+        storage.storeBytes(fileContent, "b.pdf");
+
+        // Assert
+        assertEquals(2, storage.getUniqueBlobCount());
+    }
+
+    @Test
+    void testRestoreIndex_AfterRestart() throws IOException {
+        // Arrange
+        byte[] fileContent = "Test PDF content".getBytes();
+        String first = fileStorage.storeBytes(fileContent, "a.pdf");
+        String second = fileStorage.storeBytes(fileContent, "b.pdf");
+        String orphan = ChecksumUtils.checksum(new ByteArrayInputStream(new byte[] {1}), "SHA-256");
+        blobStore.put(orphan, new byte[] {1});
+
+        // Act
+        FileStorage restarted = newStorage();
+        restarted.restoreIndex();
+
+        // Assert
+        assertArrayEquals(fileContent, restarted.retrieveBytes(first));
+        assertEquals(1, restarted.getUniqueBlobCount());
+        assertFalse(blobStore.contains(orphan));
+
+        restarted.deleteFile(first);
+        assertArrayEquals(fileContent, restarted.retrieveBytes(second));
+        restarted.deleteFile(second);
+        assertEquals(0, blobStore.keys().size());
+    }
+
+    @Test
+    void testRestoreIndex_DropsExpiredFiles() throws IOException {
+        // Arrange
+        String fileId = fileStorage.storeBytes("Test PDF content".getBytes(), "a.pdf");
+        Files.setLastModifiedTime(
+                tempDir.resolve("blob-refs").resolve(fileId),
+                FileTime.fromMillis(System.currentTimeMillis() - 60 * 60 * 1000));
+
+        // Act
+        FileStorage restarted = newStorage();
+        restarted.restoreIndex();
+
+        // Assert
+        assertFalse(restarted.fileExists(fileId));
+        assertEquals(0, blobStore.keys().size());
+        assertFalse(Files.exists(tempDir.resolve("blob-refs").resolve(fileId)));
+    }
+
+    private FileStorage newStorage() {
+        FileStorage storage =
+                new FileStorage(fileOrUploadService, blobStore, new ApplicationProperties());
+        ReflectionTestUtils.setField(storage, "tempDirPath", tempDir.toString());
+        return storage;
     }
 
     @Test
@@ -78,6 +78,20 @@ class JobExecutorServiceTest {
         verify(request).setAttribute(eq("jobId"), anyString());
     }
 
+    @Test
+    void shouldRunJobBodiesOnProcessPool() throws Exception {
+        // Given
+        Supplier<Object> work = () -> Thread.currentThread().getName();
+
+        // When
+        ResponseEntity<?> response = jobExecutorService.runJobGeneric(false, work);
+
+        // Then
+        assertTrue(
+                ((String) response.getBody()).startsWith("process-worker-"),
+                "job bodies may block on external tools and must keep the CPU pool free");
+    }
+
     @Test
     void shouldRunAsyncJobSuccessfully() throws Exception {
         // Given
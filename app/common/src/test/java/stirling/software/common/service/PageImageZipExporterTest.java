@@ -0,0 +1,145 @@
+package stirling.software.common.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+
+@DisplayName("Page image ZIP exporter tests")
+class PageImageZipExporterTest {
+
+    @TempDir Path tempDir;
+
+    /** Pages of growing width, each with a black bar whose height is the page number. */
+    private static byte[] samplePdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(new PDRectangle(72 + i * 9, 72));
+                document.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
+                    cs.addRect(0, 0, 9, i + 1);
+                    cs.fill();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private CustomPDFDocumentFactory factory() throws IOException {
+        CustomPDFDocumentFactory factory = mock(CustomPDFDocumentFactory.class);
+        when(factory.load(any(byte[].class), anyBoolean()))
+                .thenAnswer(invocation -> Loader.loadPDF((byte[]) invocation.getArgument(0)));
+        return factory;
+    }
+
+    private TempFileManager tempFileManager() throws IOException {
+        TempFileManager tempFileManager = mock(TempFileManager.class);
+        AtomicInteger counter = new AtomicInteger();
+        when(tempFileManager.createTempFile(anyString()))
+                .thenAnswer(
+                        invocation ->
+                                Files.createFile(
+                                                tempDir.resolve(
+                                                        "out-"
+                                                                + counter.incrementAndGet()
+                                                                + invocation.getArgument(0)))
+                                        .toFile());
+        when(tempFileManager.deleteTempFile(any(File.class)))
+                .thenAnswer(invocation -> ((File) invocation.getArgument(0)).delete());
+        return tempFileManager;
+    }
+
+    private static List<String> describe(TempFile zip) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(zip.getFile())) {
+            for (ZipEntry entry : zipFile.stream().toList()) {
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    BufferedImage image = ImageIO.read(new ByteArrayInputStream(in.readAllBytes()));
+                    entries.add(entry.getName() + " " + image.getWidth() + "x" + image.getHeight());
+                }
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    @DisplayName("Pages rendered in parallel are zipped in page order")
+    void zipsPagesInOrder() throws Exception {
+        byte[] pdf = samplePdf(12);
+        CustomPDFDocumentFactory factory = factory();
+
+        List<String> serial;
+        try (TempFile zip =
+                new PageImageZipExporter(
+                                factory, tempFileManager(), new BatchExecutor(1, Long.MAX_VALUE))
+                        .exportToZip(pdf, "PNG", ImageType.GRAY, 72, "doc", false)) {
+            serial = describe(zip);
+        }
+        List<String> parallel;
+        try (TempFile zip =
+                new PageImageZipExporter(
+                                factory, tempFileManager(), new BatchExecutor(4, Long.MAX_VALUE))
+                        .exportToZip(pdf, "PNG", ImageType.GRAY, 72, "doc", false)) {
+            parallel = describe(zip);
+        }
+
+        assertEquals(12, serial.size());
+        assertEquals("doc_1.png 72x72", serial.get(0));
+        assertEquals("doc_12.png 171x72", serial.get(11));
+        assertArrayEquals(serial.toArray(), parallel.toArray());
+    }
+
+    @Test
+    @DisplayName("A memory budget smaller than one page still converts every page")
+    void convertsWithinTinyBudget() throws Exception {
+        byte[] pdf = samplePdf(6);
+        CustomPDFDocumentFactory factory = factory();
+
+        try (TempFile zip =
+                new PageImageZipExporter(factory, tempFileManager(), new BatchExecutor(4, 1))
+                        .exportToZip(pdf, "PNG", ImageType.RGB, 72, "doc", false)) {
+            List<String> entries = describe(zip);
+            assertEquals(6, entries.size());
+            assertTrue(entries.get(5).startsWith("doc_6.png "), entries.get(5));
+        }
+        // Only one page fits the budget at a time, so no further copies are needed
+        verify(factory, atMost(2)).load(any(byte[].class), anyBoolean());
+    }
+}
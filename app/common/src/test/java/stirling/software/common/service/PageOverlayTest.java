@@ -0,0 +1,107 @@
+package stirling.software.common.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Page overlay tests")
+class PageOverlayTest {
+
+    private static PDDocument textDocument(String... pageTexts) throws IOException {
+        PDDocument document = new PDDocument();
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        for (String text : pageTexts) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.beginText();
+                contentStream.setFont(font, 12);
+                contentStream.newLineAtOffset(50, 700);
+                contentStream.showText(text);
+                contentStream.endText();
+            }
+        }
+        return document;
+    }
+
+    private static Set<Object> formsOn(PDDocument document) throws IOException {
+        Set<Object> forms = new HashSet<>();
+        for (PDPage page : document.getPages()) {
+            PDResources resources = page.getResources();
+            for (COSName name : resources.getXObjectNames()) {
+                forms.add(resources.getXObject(name).getCOSObject());
+            }
+        }
+        return forms;
+    }
+
+    private static void apply(PDDocument base, PageOverlay overlay) throws IOException {
+        new PageTransformEngine(null, null).transform(base, overlay);
+    }
+
+    @Test
+    @DisplayName("An overlay page applied to every page is imported once")
+    void importsEachOverlayPageOnce() throws Exception {
+        try (PDDocument base = textDocument("a", "b", "c", "d", "e", "f");
+                PDDocument letterhead = textDocument("Letterhead")) {
+            Map<Integer, PageOverlay.OverlayPage> assignments = new HashMap<>();
+            for (int i = 0; i < base.getNumberOfPages(); i++) {
+                assignments.put(i, new PageOverlay.OverlayPage(0, 0));
+            }
+
+            apply(
+                    base,
+                    new PageOverlay(
+                            List.of(letterhead), assignments, PageOverlay.Position.FOREGROUND));
+
+            assertEquals(1, formsOn(base).size());
+            String text = new PDFTextStripper().getText(base);
+            assertEquals(6, text.split("Letterhead", -1).length - 1);
+        }
+    }
+
+    @Test
+    @DisplayName("Pages get the overlay page assigned to them, behind or in front of the content")
+    void appliesAssignedPages() throws Exception {
+        try (PDDocument base = textDocument("one", "two", "three");
+                PDDocument overlay = textDocument("X", "Y")) {
+            Map<Integer, PageOverlay.OverlayPage> assignments =
+                    Map.of(
+                            0, new PageOverlay.OverlayPage(0, 1),
+                            2, new PageOverlay.OverlayPage(0, 1));
+
+            apply(
+                    base,
+                    new PageOverlay(
+                            List.of(overlay), assignments, PageOverlay.Position.BACKGROUND));
+
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(1);
+            stripper.setEndPage(1);
+            String first = stripper.getText(base);
+            assertTrue(first.indexOf("Y") < first.indexOf("one"), first);
+            stripper.setStartPage(2);
+            stripper.setEndPage(2);
+            assertFalse(stripper.getText(base).contains("Y"));
+            assertEquals(1, formsOn(base).size());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package stirling.software.common.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+
+@DisplayName("Page transform engine tests")
+class PageTransformEngineTest {
+
+    @TempDir Path tempDir;
+
+    private static PDDocument document(int pages) {
+        PDDocument document = new PDDocument();
+        for (int i = 0; i < pages; i++) {
+            document.addPage(new PDPage());
+        }
+        return document;
+    }
+
+    private static Object firstFont(PDDocument document, int page) throws IOException {
+        PDResources resources = document.getPage(page).getResources();
+        return resources.getFont(resources.getFontNames().iterator().next()).getCOSObject();
+    }
+
+    private PageTransformEngine engine(PDDocument loaded) throws Exception {
+        CustomPDFDocumentFactory factory = mock(CustomPDFDocumentFactory.class);
+        when(factory.load(any(MultipartFile.class))).thenReturn(loaded);
+        TempFileManager tempFileManager = mock(TempFileManager.class);
+        AtomicInteger counter = new AtomicInteger();
+        when(tempFileManager.createTempFile(anyString()))
+                .thenAnswer(
+                        invocation ->
+                                Files.createFile(
+                                                tempDir.resolve(
+                                                        "out-"
+                                                                + counter.incrementAndGet()
+                                                                + invocation.getArgument(0)))
+                                        .toFile());
+        when(tempFileManager.deleteTempFile(any(File.class)))
+                .thenAnswer(invocation -> ((File) invocation.getArgument(0)).delete());
+        return new PageTransformEngine(factory, tempFileManager);
+    }
+
+    @Test
+    @DisplayName("Transformers run on every page in order and can be chained")
+    void chainsInPageOrder() throws Exception {
+        List<String> calls = new ArrayList<>();
+        PageTransformer rotate =
+                (context, page, index) -> {
+                    page.setRotation(90);
+                    calls.add("rotate " + index);
+                };
+        PageTransformer record = (context, page, index) -> calls.add("record " + index);
+
+        try (PDDocument document = document(2)) {
+            engine(document).transform(document, rotate.andThen(record));
+            assertEquals(List.of("rotate 0", "record 0", "rotate 1", "record 1"), calls);
+            assertEquals(90, document.getPage(1).getRotation());
+        }
+    }
+
+    @Test
+    @DisplayName("onPages limits a transformer to the selected pages")
+    void appliesToSelectedPages() throws Exception {
+        try (PDDocument document = document(4)) {
+            PageTransformer rotate = (context, page, index) -> page.setRotation(180);
+            engine(document).transform(document, rotate.onPages(Set.of(1, 3)));
+            assertEquals(0, document.getPage(0).getRotation());
+            assertEquals(180, document.getPage(1).getRotation());
+            assertEquals(0, document.getPage(2).getRotation());
+            assertEquals(180, document.getPage(3).getRotation());
+        }
+    }
+
+    @Test
+    @DisplayName("Shared resources are created once and written once")
+    void sharesResourcesAcrossPages() throws Exception {
+        PDDocument document = document(3);
+        AtomicInteger fontsCreated = new AtomicInteger();
+        List<Object> fonts = new ArrayList<>();
+        PageTransformer label =
+                (context, page, index) -> {
+                    PDType1Font font =
+                            context.shared(
+                                    "font",
+                                    doc -> {
+                                        fontsCreated.incrementAndGet();
+                                        return new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+                                    });
+                    fonts.add(font);
+                    try (PDPageContentStream stream =
+                            new PDPageContentStream(
+                                    context.getDocument(),
+                                    page,
+                                    PDPageContentStream.AppendMode.APPEND,
+                                    true)) {
+                        stream.beginText();
+                        stream.setFont(font, 12);
+                        stream.newLineAtOffset(50, 50);
+                        stream.showText("Page " + (index + 1) + " of " + context.getPageCount());
+                        stream.endText();
+                    }
+                };
+
+        MockMultipartFile upload =
+                new MockMultipartFile("fileInput", "in.pdf", "application/pdf", new byte[0]);
+        try (TempFile output = engine(document).transform(upload, label)) {
+            assertEquals(1, fontsCreated.get());
+            assertSame(fonts.get(0), fonts.get(2));
+            try (PDDocument result = Loader.loadPDF(output.getFile())) {
+                assertEquals(3, result.getNumberOfPages());
+                String text = new PDFTextStripper().getText(result);
+                assertTrue(text.contains("Page 3 of 3"));
+                assertSame(firstFont(result, 0), firstFont(result, 2));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The output file is removed when a transformer fails")
+    void deletesOutputOnFailure() throws Exception {
+        PDDocument document = document(1);
+        PageTransformer failing =
+                (context, page, index) -> {
+                    throw new IOException("boom");
+                };
+        MockMultipartFile upload =
+                new MockMultipartFile("fileInput", "in.pdf", "application/pdf", new byte[0]);
+        PageTransformEngine engine = engine(document);
+        assertThrows(IOException.class, () -> engine.transform(upload, failing));
+        try (var files = Files.list(tempDir)) {
+            assertFalse(files.findAny().isPresent());
+        }
+    }
+}
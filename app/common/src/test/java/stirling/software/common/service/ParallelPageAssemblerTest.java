@@ -0,0 +1,156 @@
+package stirling.software.common.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.util.Matrix;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+
+@DisplayName("Parallel page assembler tests")
+class ParallelPageAssemblerTest {
+
+    @TempDir Path tempDir;
+
+    /** Two pages per A4 sheet, each page scaled into one half. */
+    private static final ParallelPageAssembler.PageRangeBuilder TWO_UP =
+            (source, target, layerUtility, fromPage, toPage) -> {
+                for (int i = fromPage; i < toPage; i += 2) {
+                    PDPage sheet = new PDPage(PDRectangle.A4);
+                    target.addPage(sheet);
+                    try (PDPageContentStream contentStream =
+                            new PDPageContentStream(target, sheet)) {
+                        for (int j = i; j < Math.min(toPage, i + 2); j++) {
+                            contentStream.saveGraphicsState();
+                            contentStream.transform(Matrix.getTranslateInstance(0, (j - i) * 420f));
+                            contentStream.transform(Matrix.getScaleInstance(0.5f, 0.5f));
+                            contentStream.drawForm(layerUtility.importPageAsForm(source, j));
+                            contentStream.restoreGraphicsState();
+                        }
+                    }
+                }
+            };
+
+    private static byte[] numberedPdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    contentStream.beginText();
+                    contentStream.setFont(font, 12);
+                    contentStream.newLineAtOffset(50, 700);
+                    contentStream.showText("Page " + (i + 1));
+                    contentStream.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private ParallelPageAssembler assembler(int parallelism) throws Exception {
+        CustomPDFDocumentFactory factory = mock(CustomPDFDocumentFactory.class);
+        when(factory.load(any(MultipartFile.class), anyBoolean()))
+                .thenAnswer(
+                        invocation ->
+                                Loader.loadPDF(
+                                        ((MultipartFile) invocation.getArgument(0)).getBytes()));
+        when(factory.createNewDocument()).thenAnswer(invocation -> new PDDocument());
+        TempFileManager tempFileManager = mock(TempFileManager.class);
+        AtomicInteger counter = new AtomicInteger();
+        when(tempFileManager.createTempFile(anyString()))
+                .thenAnswer(
+                        invocation ->
+                                Files.createFile(
+                                                tempDir.resolve(
+                                                        "out-"
+                                                                + counter.incrementAndGet()
+                                                                + invocation.getArgument(0)))
+                                        .toFile());
+        when(tempFileManager.deleteTempFile(any(File.class)))
+                .thenAnswer(invocation -> ((File) invocation.getArgument(0)).delete());
+        return new ParallelPageAssembler(
+                factory, tempFileManager, new BatchExecutor(parallelism, Long.MAX_VALUE));
+    }
+
+    private String assembleText(ParallelPageAssembler assembler, byte[] pdf, int[] pageCount)
+            throws Exception {
+        MockMultipartFile input =
+                new MockMultipartFile("fileInput", "in.pdf", "application/pdf", pdf);
+        try (PDDocument source = Loader.loadPDF(pdf);
+                TempFile result = assembler.assemble(input, source, new PDDocument(), 2, TWO_UP);
+                PDDocument output = Loader.loadPDF(result.getFile())) {
+            pageCount[0] = output.getNumberOfPages();
+            return new PDFTextStripper().getText(output);
+        }
+    }
+
+    @Test
+    @DisplayName("Pages built in parallel ranges match those built on one thread")
+    void parallelMatchesSerial() throws Exception {
+        byte[] pdf = numberedPdf(ParallelPageAssembler.MIN_PAGES_PER_RANGE * 4 + 3);
+        int[] serialPages = new int[1];
+        int[] parallelPages = new int[1];
+
+        String serial = assembleText(assembler(1), pdf, serialPages);
+        String parallel = assembleText(assembler(4), pdf, parallelPages);
+
+        assertEquals(34, serialPages[0]);
+        assertEquals(serialPages[0], parallelPages[0]);
+        assertEquals(serial, parallel);
+    }
+
+    @Test
+    @DisplayName("Ranges keep groups of pages together")
+    void rangesAlignToUnits() throws Exception {
+        // 46 pages over three ranges: a range of odd length would leave a half-filled sheet
+        int sourcePages = ParallelPageAssembler.MIN_PAGES_PER_RANGE * 3 - 2;
+        byte[] pdf = numberedPdf(sourcePages);
+        MockMultipartFile input =
+                new MockMultipartFile("fileInput", "in.pdf", "application/pdf", pdf);
+
+        try (PDDocument source = Loader.loadPDF(pdf);
+                TempFile result =
+                        assembler(3).assemble(input, source, new PDDocument(), 2, TWO_UP);
+                PDDocument output = Loader.loadPDF(result.getFile())) {
+            assertEquals(sourcePages / 2, output.getNumberOfPages());
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int sheet = 1; sheet <= output.getNumberOfPages(); sheet++) {
+                stripper.setStartPage(sheet);
+                stripper.setEndPage(sheet);
+                String text = stripper.getText(output);
+                assertTrue(text.contains("Page " + (sheet * 2 - 1)), text);
+                assertTrue(text.contains("Page " + (sheet * 2)), text);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package stirling.software.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Shared form XObject tests")
+class FormXObjectCacheTest {
+
+    private static void paintMark(PDPageContentStream stream, PDRectangle box)
+            throws java.io.IOException {
+        stream.setNonStrokingColor(Color.RED);
+        stream.addRect(box.getWidth() / 4, box.getHeight() / 4, 20, 30);
+        stream.fill();
+    }
+
+    private static Object firstXObject(PDDocument document, int page) throws Exception {
+        PDResources resources = document.getPage(page).getResources();
+        return resources.getXObject(resources.getXObjectNames().iterator().next()).getCOSObject();
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    @Test
+    @DisplayName("Pages with the same box share one form; other sizes get their own")
+    void sharesFormsByPageBox() throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            FormXObjectCache cache = new FormXObjectCache(document);
+            PDRectangle a4 = PDRectangle.A4;
+            PDRectangle letter = PDRectangle.LETTER;
+
+            PDFormXObject first =
+                    cache.get(FormXObjectCache.pageBoxKey(a4), a4, s -> paintMark(s, a4));
+            PDFormXObject second =
+                    cache.get(
+                            FormXObjectCache.pageBoxKey(
+                                    new PDRectangle(a4.getWidth(), a4.getHeight())),
+                            a4,
+                            s -> paintMark(s, a4));
+            PDFormXObject third =
+                    cache.get(
+                            FormXObjectCache.pageBoxKey(letter), letter, s -> paintMark(s, letter));
+
+            assertSame(first, second);
+            assertNotSame(first, third);
+            assertEquals(2, cache.size());
+        }
+    }
+
+    @Test
+    @DisplayName("A page drawing the form renders like a page drawing the content directly")
+    void rendersLikeDirectDrawing() throws Exception {
+        PDRectangle box = new PDRectangle(200, 200);
+        ByteArrayOutputStream shared = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument()) {
+            FormXObjectCache cache = new FormXObjectCache(document);
+            for (int i = 0; i < 3; i++) {
+                PDPage page = new PDPage(box);
+                document.addPage(page);
+                try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                    stream.drawForm(
+                            cache.get(
+                                    FormXObjectCache.pageBoxKey(box), box, s -> paintMark(s, box)));
+                }
+            }
+            document.save(shared);
+        }
+
+        try (PDDocument direct = new PDDocument();
+                PDDocument reloaded = Loader.loadPDF(shared.toByteArray())) {
+            PDPage page = new PDPage(box);
+            direct.addPage(page);
+            try (PDPageContentStream stream = new PDPageContentStream(direct, page)) {
+                paintMark(stream, box);
+            }
+            int[] expected = pixels(new PDFRenderer(direct).renderImage(0));
+            for (int i = 0; i < reloaded.getNumberOfPages(); i++) {
+                assertArrayEquals(expected, pixels(new PDFRenderer(reloaded).renderImage(i)));
+            }
+            // One form stream referenced from every page
+            assertSame(firstXObject(reloaded, 0), firstXObject(reloaded, 2));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package stirling.software.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Image encoder tests")
+class ImageEncodersTest {
+
+    private static BufferedImage sample(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        for (int i = 0; i < 8; i++) {
+            graphics.setColor(new Color(i * 32, 255 - i * 32, (i * 97) % 256));
+            graphics.fillRect(i * width / 8, 0, width / 16, height);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    private static ImageReader reader(byte[] data, String format) throws Exception {
+        ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data));
+        ImageReader reader = ImageIO.getImageReadersByFormatName(format).next();
+        reader.setInput(input);
+        return reader;
+    }
+
+    private static List<String> samplingFactors(byte[] jpeg) throws Exception {
+        ImageReader reader = reader(jpeg, "jpeg");
+        IIOMetadataNode tree =
+                (IIOMetadataNode)
+                        reader.getImageMetadata(0).getAsTree("javax_imageio_jpeg_image_1.0");
+        List<String> factors = new ArrayList<>();
+        var components = tree.getElementsByTagName("componentSpec");
+        for (int i = 0; i < components.getLength(); i++) {
+            IIOMetadataNode component = (IIOMetadataNode) components.item(i);
+            factors.add(
+                    component.getAttribute("HsamplingFactor")
+                            + "x"
+                            + component.getAttribute("VsamplingFactor"));
+        }
+        reader.dispose();
+        return factors;
+    }
+
+    @Test
+    @DisplayName("JPEG options select chroma subsampling")
+    void jpegOptions() throws Exception {
+        BufferedImage image = sample(BufferedImage.TYPE_INT_RGB, 160, 120);
+
+        byte[] baseline = ImageEncoders.forFormat("jpg").toBytes(image);
+        byte[] fullChroma =
+                ImageEncoders.jpeg(new ImageEncoders.JpegOptions(0.9f, true, false, true))
+                        .toBytes(image);
+
+        assertEquals(List.of("2x2", "1x1", "1x1"), samplingFactors(baseline));
+        assertEquals(List.of("1x1", "1x1", "1x1"), samplingFactors(fullChroma));
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(fullChroma));
+        assertEquals(160, decoded.getWidth());
+        assertEquals(120, decoded.getHeight());
+    }
+
+    @Test
+    @DisplayName("Pooled writers give the same output when shared between threads")
+    void pooledWritersAreReusable() throws Exception {
+        BufferedImage image = sample(BufferedImage.TYPE_INT_RGB, 64, 64);
+        ImageEncoders.Encoder encoder = ImageEncoders.forFormat("png");
+        byte[] expected = encoder.toBytes(image);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> encoder.toBytes(image)));
+            }
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("A TIFF sequence holds one frame per written page")
+    void writesMultiPageTiff() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(out);
+                ImageEncoders.TiffSequence tiff = ImageEncoders.openTiffSequence(ios)) {
+            tiff.writePage(sample(BufferedImage.TYPE_INT_RGB, 50, 40));
+            tiff.writePage(sample(BufferedImage.TYPE_BYTE_GRAY, 60, 40));
+            tiff.writePage(sample(BufferedImage.TYPE_BYTE_BINARY, 70, 40));
+        }
+
+        ImageReader reader = reader(out.toByteArray(), "tiff");
+        assertEquals(3, reader.getNumImages(true));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(50 + i * 10, reader.getWidth(i));
+        }
+        assertEquals(1, reader.read(2).getColorModel().getPixelSize());
+        reader.dispose();
+    }
+}
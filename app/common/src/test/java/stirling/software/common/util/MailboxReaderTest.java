@@ -0,0 +1,147 @@
+package stirling.software.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Mailbox reader tests")
+class MailboxReaderTest {
+
+    @TempDir Path tempDir;
+
+    @Mock private TempFileManager tempFileManager;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<String> messages = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(tempFileManager.createTempFile(anyString()))
+                .thenAnswer(
+                        invocation ->
+                                Files.createTempFile(tempDir, "msg", invocation.getArgument(0))
+                                        .toFile());
+    }
+
+    private int read(byte[] mailbox, String filename) throws IOException {
+        return MailboxReader.readMessages(
+                new ByteArrayInputStream(mailbox),
+                filename,
+                tempFileManager,
+                (index, name, message) -> {
+                    assertEquals(names.size(), index);
+                    names.add(name);
+                    messages.add(Files.readString(message.toPath(), StandardCharsets.UTF_8));
+                });
+    }
+
+    @Test
+    @DisplayName("Splits an mbox file on From separators")
+    void splitsMbox() throws IOException {
+        String mbox =
+                "From alice@example.com Mon Jan  1 10:00:00 2024\n"
+                        + "Subject: First\n"
+                        + "\n"
+                        + "Hello\n"
+                        + "\n"
+                        + "From bob@example.com Mon Jan  1 11:00:00 2024\n"
+                        + "Subject: Second\n"
+                        + "\n"
+                        + "World\n";
+
+        int count = read(mbox.getBytes(StandardCharsets.UTF_8), "archive.mbox");
+
+        assertEquals(2, count);
+        assertEquals(List.of("message-00001", "message-00002"), names);
+        assertEquals("Subject: First\n\nHello\n\n", messages.get(0));
+        assertEquals("Subject: Second\n\nWorld\n", messages.get(1));
+    }
+
+    @Test
+    @DisplayName("Unquotes escaped From lines and ignores From lines inside paragraphs")
+    void unquotesFromLines() throws IOException {
+        String mbox =
+                "From alice@example.com Mon Jan  1 10:00:00 2024\r\n"
+                        + "Subject: Quoted\r\n"
+                        + "\r\n"
+                        + ">From the start\r\n"
+                        + ">>From nested quote\r\n"
+                        + "From inside a paragraph\r\n";
+
+        int count = read(mbox.getBytes(StandardCharsets.UTF_8), "archive.mbox");
+
+        assertEquals(1, count);
+        assertEquals(
+                "Subject: Quoted\r\n\r\nFrom the start\r\n>From nested quote\r\n"
+                        + "From inside a paragraph\r\n",
+                messages.get(0));
+    }
+
+    @Test
+    @DisplayName("Reads EML entries from a ZIP archive and skips other files")
+    void readsZipArchive() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("inbox/first.eml"));
+            zip.write("Subject: One\r\n\r\nBody".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("readme.txt"));
+            zip.write("ignored".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("__MACOSX/inbox/._first.eml"));
+            zip.write(new byte[] {0, 1, 2});
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("second.EML"));
+            zip.write("Subject: Two\r\n\r\nBody".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        int count = read(bytes.toByteArray(), "mail.zip");
+
+        assertEquals(2, count);
+        assertEquals(List.of("first", "second"), names);
+        assertEquals("Subject: Two\r\n\r\nBody", messages.get(1));
+    }
+
+    @Test
+    @DisplayName("Returns zero messages for an mbox without separators")
+    void ignoresContentWithoutSeparator() throws IOException {
+        int count = read("no separator here\n".getBytes(StandardCharsets.UTF_8), "x.mbox");
+        assertEquals(0, count);
+    }
+
+    @Test
+    @DisplayName("Rejects a line longer than the line limit")
+    void rejectsOverlongLine() {
+        byte[] header = "From alice@example.com Mon Jan  1 10:00:00 2024\n".getBytes();
+        byte[] mbox = Arrays.copyOf(header, header.length + MailboxReader.MAX_LINE_LENGTH + 1);
+        Arrays.fill(mbox, header.length, mbox.length, (byte) 'a');
+
+        assertThrows(IllegalArgumentException.class, () -> read(mbox, "archive.mbox"));
+    }
+}
@@ -0,0 +1,142 @@
+package stirling.software.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Process concurrency limit tests")
+class ProcessConcurrencyLimitTest {
+
+    /** Start a thread that takes a slot, and wait until it is queued behind the limit. */
+    private static Thread waitingAcquirer(ProcessConcurrencyLimit limit, CountDownLatch acquired)
+            throws InterruptedException {
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                limit.acquire();
+                                acquired.countDown();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+        thread.setDaemon(true);
+        thread.start();
+        while (limit.getWaiting() == 0) {
+            Thread.sleep(5);
+        }
+        return thread;
+    }
+
+    @Test
+    @DisplayName("A fixed limit admits a waiting caller only when a slot is released")
+    void fixedLimitBlocks() throws Exception {
+        ProcessConcurrencyLimit limit = new ProcessConcurrencyLimit(1);
+        limit.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        waitingAcquirer(limit, acquired);
+
+        assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+        limit.release(false);
+
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, limit.getLimit());
+        assertEquals(1, limit.getInFlight());
+    }
+
+    @Test
+    @DisplayName("An adaptive limit grows while callers wait and the CPU has headroom")
+    void adaptiveLimitGrows() throws Exception {
+        ProcessConcurrencyLimit limit = new ProcessConcurrencyLimit(1, 2, true, 0.9, () -> 0.2);
+        limit.acquire();
+        CountDownLatch acquired = new CountDownLatch(2);
+        waitingAcquirer(limit, acquired);
+        waitingAcquirer(limit, acquired);
+
+        limit.release(false);
+
+        assertEquals(2, limit.getLimit());
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(2, limit.getInFlight());
+
+        // It never grows past its maximum
+        CountDownLatch third = new CountDownLatch(1);
+        waitingAcquirer(limit, third);
+        limit.release(false);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("An adaptive limit shrinks once per window when saturated or a process times out")
+    void adaptiveLimitShrinks() throws Exception {
+        AtomicReference<Double> load = new AtomicReference<>(0.95);
+        ProcessConcurrencyLimit limit = new ProcessConcurrencyLimit(8, 16, true, 0.9, load::get);
+
+        // CPU load is not held against a limit whose slots are not all taken
+        limit.acquire();
+        limit.release(false);
+        assertEquals(8, limit.getLimit());
+
+        for (int i = 0; i < 8; i++) {
+            limit.acquire();
+        }
+        limit.release(false);
+        assertEquals(6, limit.getLimit());
+
+        // Completions in the window after shrinking are only observed, even while saturated
+        for (int i = 0; i < 7; i++) {
+            limit.release(false);
+        }
+        assertEquals(6, limit.getLimit());
+
+        load.set(0.1);
+        limit.acquire();
+        limit.release(true);
+        assertEquals(4, limit.getLimit());
+        limit.acquire();
+        limit.release(true);
+        assertEquals(4, limit.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            limit.acquire();
+            limit.release(true);
+        }
+        assertEquals(1, limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("New settings apply to processes that are already running or waiting")
+    void reconfiguresInPlace() throws Exception {
+        ProcessConcurrencyLimit limit = new ProcessConcurrencyLimit(2);
+        limit.acquire();
+        limit.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        waitingAcquirer(limit, acquired);
+
+        limit.configure(1, 1, false, 1.0);
+        limit.release(false);
+        assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+
+        limit.release(false);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, limit.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Peak memory of a process is read from /proc")
+    void readsPeakRss() {
+        assumeTrue(Files.isDirectory(Path.of("/proc/self")));
+
+        assertTrue(ProcessExecutor.peakRssBytes(ProcessHandle.current()) > 1024 * 1024);
+    }
+}
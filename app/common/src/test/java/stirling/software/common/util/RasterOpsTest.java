@@ -0,0 +1,222 @@
+package stirling.software.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Raster kernel tests")
+class RasterOpsTest {
+
+    // Large enough to be split into several bands and processed in parallel
+    private static final int LARGE = 700;
+
+    private static ExecutorService pool;
+
+    @BeforeAll
+    static void useBandPool() {
+        pool = Executors.newFixedThreadPool(3);
+        RasterOps.useExecutor(pool, 3);
+    }
+
+    @AfterAll
+    static void releaseBandPool() {
+        RasterOps.useExecutor(null, 1);
+        pool.shutdownNow();
+    }
+
+    private static BufferedImage randomImage(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static int[] rgb(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    @Test
+    @DisplayName("Invert matches per-pixel inversion on colour and grey images")
+    void invertsColourAndGray() {
+        BufferedImage image = randomImage(LARGE, LARGE, 1);
+        int[] before = rgb(image);
+
+        BufferedImage inverted = RasterOps.invert(image);
+
+        assertSame(image, inverted);
+        int[] after = rgb(inverted);
+        for (int i = 0; i < before.length; i++) {
+            assertEquals((~before[i] & 0xFFFFFF) | 0xFF000000, after[i]);
+        }
+
+        BufferedImage gray = new BufferedImage(3, 1, BufferedImage.TYPE_BYTE_GRAY);
+        gray.getRaster().setPixels(0, 0, 3, 1, new int[] {0, 100, 255});
+        RasterOps.invert(gray);
+        assertArrayEquals(
+                new int[] {255, 155, 0}, gray.getRaster().getPixels(0, 0, 3, 1, (int[]) null));
+    }
+
+    @Test
+    @DisplayName("Converts other image types before inverting")
+    void convertsUnsupportedTypes() {
+        BufferedImage bgr = new BufferedImage(2, 2, BufferedImage.TYPE_3BYTE_BGR);
+        bgr.setRGB(0, 0, 0x102030);
+
+        BufferedImage inverted = RasterOps.invert(bgr);
+
+        assertNotSame(bgr, inverted);
+        assertEquals(BufferedImage.TYPE_INT_RGB, inverted.getType());
+        assertEquals(0xEFDFCF, inverted.getRGB(0, 0) & 0xFFFFFF);
+    }
+
+    @Test
+    @DisplayName("Grayscale, tint and brightness/contrast match the per-pixel formulas")
+    void pointOperationsMatchReference() {
+        BufferedImage image = randomImage(LARGE, 400, 2);
+        int[] source = rgb(image);
+
+        BufferedImage gray = randomImage(LARGE, 400, 2);
+        RasterOps.grayscale(gray);
+        BufferedImage tinted = randomImage(LARGE, 400, 2);
+        RasterOps.yellowTint(tinted);
+        BufferedImage adjusted = randomImage(LARGE, 400, 2);
+        RasterOps.adjustBrightnessContrast(adjusted, 1.1f, 1.3f);
+
+        int[] grayOut = rgb(gray);
+        int[] tintOut = rgb(tinted);
+        int[] adjustOut = rgb(adjusted);
+        for (int i = 0; i < source.length; i++) {
+            int r = (source[i] >> 16) & 0xFF;
+            int g = (source[i] >> 8) & 0xFF;
+            int b = source[i] & 0xFF;
+
+            int mean = (r + g + b) / 3;
+            assertEquals((mean << 16) | (mean << 8) | mean, grayOut[i] & 0xFFFFFF);
+
+            float brightness = (r + g + b) / 765.0f;
+            int tr = Math.min(255, (int) (r + (255 - r) * 0.18f * brightness));
+            int tg = Math.min(255, (int) (g + (255 - g) * 0.12f * brightness));
+            int tb = Math.max(0, (int) (b * (1 - 0.25f * brightness)));
+            assertEquals((tr << 16) | (tg << 8) | tb, tintOut[i] & 0xFFFFFF);
+
+            int ar = Math.min(255, Math.max(0, (int) (((r - 128) * 1.3f + 128) * 1.1f)));
+            int ag = Math.min(255, Math.max(0, (int) (((g - 128) * 1.3f + 128) * 1.1f)));
+            int ab = Math.min(255, Math.max(0, (int) (((b - 128) * 1.3f + 128) * 1.1f)));
+            assertEquals((ar << 16) | (ag << 8) | ab, adjustOut[i] & 0xFFFFFF);
+        }
+    }
+
+    @Test
+    @DisplayName("Gradient fill runs from start to end colour in either direction")
+    void fillsGradients() {
+        BufferedImage horizontal = new BufferedImage(11, 3, BufferedImage.TYPE_INT_RGB);
+        RasterOps.fillGradient(horizontal, 0x000000, 0x646464, false);
+        assertEquals(0x000000, horizontal.getRGB(0, 2) & 0xFFFFFF);
+        assertEquals(0x323232, horizontal.getRGB(5, 1) & 0xFFFFFF);
+        assertEquals(0x646464, horizontal.getRGB(10, 0) & 0xFFFFFF);
+
+        BufferedImage vertical = new BufferedImage(3, 11, BufferedImage.TYPE_INT_RGB);
+        RasterOps.fillGradient(vertical, 0x000000, 0x646464, true);
+        assertEquals(0x323232, vertical.getRGB(2, 5) & 0xFFFFFF);
+        assertEquals(0x646464, vertical.getRGB(0, 10) & 0xFFFFFF);
+    }
+
+    @Test
+    @DisplayName("Feathering blends edges into the background and keeps the interior")
+    void feathersEdges() {
+        BufferedImage image = new BufferedImage(41, 41, BufferedImage.TYPE_INT_RGB);
+        RasterOps.fillGradient(image, 0xFFFFFF, 0xFFFFFF, false);
+
+        BufferedImage feathered = RasterOps.featherEdges(image, 10, 0x000000, 0x000000, true);
+
+        assertEquals(0x000000, feathered.getRGB(0, 20) & 0xFFFFFF);
+        assertEquals(0x808080, feathered.getRGB(5, 20) & 0xFFFFFF);
+        assertEquals(0xFFFFFF, feathered.getRGB(20, 20) & 0xFFFFFF);
+    }
+
+    @Test
+    @DisplayName("Gaussian blur keeps flat areas, smooths edges and preserves total intensity")
+    void blurs() {
+        BufferedImage flat = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+        RasterOps.fillGradient(flat, 0x336699, 0x336699, true);
+        BufferedImage blurredFlat = RasterOps.gaussianBlur(flat, 2.5);
+        assertNotSame(flat, blurredFlat);
+        for (int pixel : rgb(blurredFlat)) {
+            assertEquals(0x336699, pixel & 0xFFFFFF);
+        }
+
+        BufferedImage dot = new BufferedImage(LARGE, LARGE, BufferedImage.TYPE_INT_RGB);
+        dot.setRGB(LARGE / 2, LARGE / 2, 0xFFFFFF);
+        BufferedImage blurredDot = RasterOps.gaussianBlur(dot, 1.0);
+        int centre = blurredDot.getRGB(LARGE / 2, LARGE / 2) & 0xFF;
+        int neighbour = blurredDot.getRGB(LARGE / 2 + 1, LARGE / 2) & 0xFF;
+        assertTrue(centre > neighbour && neighbour > 0, centre + " / " + neighbour);
+        assertEquals(
+                blurredDot.getRGB(LARGE / 2 + 1, LARGE / 2),
+                blurredDot.getRGB(LARGE / 2, LARGE / 2 + 1),
+                "horizontal and vertical passes should be symmetric");
+
+        assertSame(flat, RasterOps.gaussianBlur(flat, 0));
+    }
+
+    @Test
+    @DisplayName("Noise depends only on the seed, not on how bands are scheduled")
+    void noiseIsReproducible() {
+        BufferedImage first = randomImage(LARGE, LARGE, 3);
+        BufferedImage second = randomImage(LARGE, LARGE, 3);
+        int[] original = rgb(first);
+
+        RasterOps.addGaussianNoise(first, 8, 42);
+        RasterOps.addGaussianNoise(second, 8, 42);
+
+        int[] noisy = rgb(first);
+        assertArrayEquals(noisy, rgb(second));
+        assertFalse(java.util.Arrays.equals(original, noisy));
+    }
+
+    @Test
+    @DisplayName("Bands cover every row once and failures reach the caller")
+    void spreadsBandsOverThePool() {
+        AtomicIntegerArray visits = new AtomicIntegerArray(LARGE);
+        RasterOps.forEachBand(
+                LARGE,
+                LARGE,
+                (fromRow, toRow) -> {
+                    for (int y = fromRow; y < toRow; y++) {
+                        visits.incrementAndGet(y);
+                    }
+                });
+        for (int y = 0; y < LARGE; y++) {
+            assertEquals(1, visits.get(y), "row " + y);
+        }
+
+        assertThrows(
+                IllegalStateException.class,
+                () ->
+                        RasterOps.forEachBand(
+                                LARGE,
+                                LARGE,
+                                (fromRow, toRow) -> {
+                                    throw new IllegalStateException("band " + fromRow);
+                                }));
+    }
+}
@@ -0,0 +1,256 @@
+package stirling.software.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import stirling.software.common.model.api.converters.EmlToPdfRequest;
+
+@DisplayName("Streaming MIME parser tests")
+class StreamingMimeParserTest {
+
+    private static EmlParser.EmailContent parse(String eml, EmlToPdfRequest request)
+            throws IOException {
+        return EmlParser.extractEmailContent(
+                new ByteArrayInputStream(eml.getBytes(StandardCharsets.UTF_8)),
+                request,
+                null,
+                null);
+    }
+
+    private static EmlToPdfRequest requestWithAttachments() {
+        EmlToPdfRequest request = new EmlToPdfRequest();
+        request.setIncludeAttachments(true);
+        request.setMaxAttachmentSizeMB(10);
+        return request;
+    }
+
+    @Test
+    @DisplayName("Parses headers and a plain text body")
+    void parsesSimpleTextEmail() throws IOException {
+        String eml =
+                "From: sender@example.com\r\n"
+                        + "To: recipient@example.com\r\n"
+                        + "Subject: =?UTF-8?B?SGVsbG8gV29ybGQ=?=\r\n"
+                        + "Date: Mon, 1 Jan 2024 10:00:00 +0000\r\n"
+                        + "Content-Type: text/plain; charset=UTF-8\r\n"
+                        + "\r\n"
+                        + "Line one\r\n"
+                        + "Line two\r\n";
+
+        try (EmlParser.EmailContent content = parse(eml, null)) {
+            assertEquals("Hello World", content.getSubject());
+            assertEquals("sender@example.com", content.getFrom());
+            assertEquals("recipient@example.com", content.getTo());
+            assertNotNull(content.getDate());
+            assertEquals("Line one\nLine two\n", content.getTextBody());
+            assertNull(content.getHtmlBody());
+        }
+    }
+
+    @Test
+    @DisplayName("Unfolds continuation header lines")
+    void unfoldsHeaders() throws IOException {
+        String eml =
+                "From: sender@example.com\n"
+                        + "To: a@example.com,\n"
+                        + "\tb@example.com\n"
+                        + "Subject: Folded\n"
+                        + "  subject\n"
+                        + "\n"
+                        + "Body\n";
+
+        try (EmlParser.EmailContent content = parse(eml, null)) {
+            assertEquals("Folded subject", content.getSubject());
+            assertEquals("a@example.com, b@example.com", content.getTo());
+        }
+    }
+
+    @Test
+    @DisplayName("Decodes quoted-printable and base64 bodies in multipart/alternative")
+    void decodesAlternativeParts() throws IOException {
+        String html = "<p>Hello <b>HTML</b> world</p>";
+        String eml =
+                "From: sender@example.com\r\n"
+                        + "Subject: Alternative\r\n"
+                        + "Content-Type: multipart/alternative; boundary=\"alt\"\r\n"
+                        + "\r\n"
+                        + "preamble\r\n"
+                        + "--alt\r\n"
+                        + "Content-Type: text/plain; charset=UTF-8\r\n"
+                        + "Content-Transfer-Encoding: quoted-printable\r\n"
+                        + "\r\n"
+                        + "Caf=C3=A9 with a soft=\r\n"
+                        + " break\r\n"
+                        + "--alt\r\n"
+                        + "Content-Type: text/html; charset=UTF-8\r\n"
+                        + "Content-Transfer-Encoding: base64\r\n"
+                        + "\r\n"
+                        + Base64.getMimeEncoder()
+                                .encodeToString(html.getBytes(StandardCharsets.UTF_8))
+                        + "\r\n"
+                        + "--alt--\r\n"
+                        + "epilogue\r\n";
+
+        try (EmlParser.EmailContent content = parse(eml, null)) {
+            assertEquals("Café with a soft break", content.getTextBody());
+            assertEquals(html, content.getHtmlBody());
+        }
+    }
+
+    @Test
+    @DisplayName("Spills attachments to temp files and removes them on close")
+    void spillsAttachmentsToDisk() throws IOException {
+        byte[] payload = new byte[200_000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) (i * 31);
+        }
+        String eml =
+                "From: sender@example.com\r\n"
+                        + "Subject: Attachment\r\n"
+                        + "Content-Type: multipart/mixed; boundary=\"mix\"\r\n"
+                        + "\r\n"
+                        + "--mix\r\n"
+                        + "Content-Type: text/plain\r\n"
+                        + "\r\n"
+                        + "See attached\r\n"
+                        + "--mix\r\n"
+                        + "Content-Type: application/octet-stream\r\n"
+                        + "Content-Disposition: attachment; filename*=UTF-8''r%C3%A9sum%C3%A9.bin\r\n"
+                        + "Content-Transfer-Encoding: base64\r\n"
+                        + "\r\n"
+                        + Base64.getMimeEncoder().encodeToString(payload)
+                        + "\r\n"
+                        + "--mix--\r\n";
+
+        Path dataFile;
+        try (EmlParser.EmailContent content = parse(eml, requestWithAttachments())) {
+            assertEquals("See attached", content.getTextBody());
+            assertEquals(1, content.getAttachmentCount());
+            EmlParser.EmailAttachment attachment = content.getAttachments().get(0);
+            assertEquals("résumé.bin", attachment.getFilename());
+            assertNull(attachment.getData());
+            assertTrue(attachment.hasData());
+            assertEquals(payload.length, attachment.getSizeBytes());
+
+            dataFile = attachment.getDataFile();
+            assertNotNull(dataFile);
+            try (InputStream in = attachment.openData()) {
+                assertArrayEquals(payload, in.readAllBytes());
+            }
+        }
+        assertFalse(Files.exists(dataFile));
+    }
+
+    @Test
+    @DisplayName("Drops attachment content above the size limit but keeps its size")
+    void enforcesAttachmentSizeLimit() throws IOException {
+        byte[] payload = new byte[2 * 1024 * 1024];
+        EmlToPdfRequest request = requestWithAttachments();
+        request.setMaxAttachmentSizeMB(1);
+        String eml =
+                "From: sender@example.com\r\n"
+                        + "Subject: Big\r\n"
+                        + "Content-Type: multipart/mixed; boundary=mix\r\n"
+                        + "\r\n"
+                        + "--mix\r\n"
+                        + "Content-Type: application/pdf; name=\"big.pdf\"\r\n"
+                        + "Content-Transfer-Encoding: base64\r\n"
+                        + "\r\n"
+                        + Base64.getMimeEncoder().encodeToString(payload)
+                        + "\r\n"
+                        + "--mix--\r\n";
+
+        try (EmlParser.EmailContent content = parse(eml, request)) {
+            EmlParser.EmailAttachment attachment = content.getAttachments().get(0);
+            assertEquals("big.pdf", attachment.getFilename());
+            assertFalse(attachment.hasData());
+            assertEquals(payload.length, attachment.getSizeBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Keeps inline images referenced by Content-ID and nested multiparts")
+    void handlesNestedRelatedParts() throws IOException {
+        byte[] image = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+        String eml =
+                "From: sender@example.com\r\n"
+                        + "Subject: Inline\r\n"
+                        + "Content-Type: multipart/mixed; boundary=outer\r\n"
+                        + "\r\n"
+                        + "--outer\r\n"
+                        + "Content-Type: multipart/related; boundary=inner\r\n"
+                        + "\r\n"
+                        + "--inner\r\n"
+                        + "Content-Type: text/html\r\n"
+                        + "\r\n"
+                        + "<img src=\"cid:logo@example\">\r\n"
+                        + "--inner\r\n"
+                        + "Content-Type: image/png; name=logo.png\r\n"
+                        + "Content-ID: <logo@example>\r\n"
+                        + "Content-Transfer-Encoding: base64\r\n"
+                        + "\r\n"
+                        + Base64.getEncoder().encodeToString(image)
+                        + "\r\n"
+                        + "--inner--\r\n"
+                        + "--outer--\r\n";
+
+        try (EmlParser.EmailContent content = parse(eml, null)) {
+            assertEquals("<img src=\"cid:logo@example\">", content.getHtmlBody());
+            EmlParser.EmailAttachment attachment = content.getAttachments().get(0);
+            assertTrue(attachment.isEmbedded());
+            assertEquals("logo@example", attachment.getContentId());
+            assertArrayEquals(image, attachment.readData());
+
+            String processed =
+                    PdfAttachmentHandler.processInlineImages(content.getHtmlBody(), content);
+            assertTrue(processed.contains("src=\"data:image/png"));
+            assertFalse(processed.contains("cid:"));
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects input that is not an email")
+    void rejectsInvalidInput() {
+        byte[] notEmail = "just some random text".getBytes(StandardCharsets.UTF_8);
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        EmlParser.extractEmailContent(
+                                new ByteArrayInputStream(notEmail), null, null, null));
+    }
+
+    @Test
+    @DisplayName("Stream and byte array conversion produce the same HTML for simple emails")
+    void matchesByteArrayConversion() throws IOException {
+        String eml =
+                "From: sender@example.com\r\n"
+                        + "To: recipient@example.com\r\n"
+                        + "Subject: Same\r\n"
+                        + "Date: Mon, 1 Jan 2024 10:00:00 +0000\r\n"
+                        + "Content-Type: text/plain\r\n"
+                        + "\r\n"
+                        + "Body text\r\n";
+        byte[] bytes = eml.getBytes(StandardCharsets.UTF_8);
+
+        String fromBytes = EmlToPdf.convertEmlToHtml(bytes, null);
+        String fromStream = EmlToPdf.convertEmlToHtml(new ByteArrayInputStream(bytes), null, null);
+
+        assertEquals(fromBytes, fromStream);
+    }
+}
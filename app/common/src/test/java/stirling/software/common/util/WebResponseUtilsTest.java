@@ -1,12 +1,16 @@
 package stirling.software.common.util;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
+import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpHeaders;
@@ -14,6 +18,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 public class WebResponseUtilsTest {
 
@@ -115,4 +120,33 @@ public class WebResponseUtilsTest {
             fail("Exception thrown: " + e.getMessage());
         }
     }
+
+    @Test
+    public void testPdfDocToIncrementalWebResponse() throws IOException {
+        byte[] original;
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new org.apache.pdfbox.pdmodel.PDPage());
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            document.save(baos);
+            original = baos.toByteArray();
+        }
+
+        PDDocument document = Loader.loadPDF(original);
+        document.getDocumentInformation().setTitle("Updated");
+        ResponseEntity<StreamingResponseBody> responseEntity =
+                WebResponseUtils.pdfDocToIncrementalWebResponse(document, "sample.pdf");
+        assertEquals(MediaType.APPLICATION_PDF, responseEntity.getHeaders().getContentType());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        responseEntity.getBody().writeTo(out);
+        byte[] updated = out.toByteArray();
+
+        // The original file is kept as is and the change is appended after it
+        assertTrue(updated.length > original.length);
+        assertArrayEquals(original, Arrays.copyOf(updated, original.length));
+        try (PDDocument reloaded = Loader.loadPDF(updated)) {
+            assertEquals("Updated", reloaded.getDocumentInformation().getTitle());
+            assertEquals(1, reloaded.getNumberOfPages());
+        }
+    }
 }
@@ -25,7 +25,10 @@ public class EndpointInspector implements ApplicationListener<ContextRefreshedEv
 
     private final ApplicationContext applicationContext;
     private final Set<String> validGetEndpoints = new HashSet<>();
-    private boolean endpointsDiscovered = false;
+    private volatile boolean endpointsDiscovered = false;
+
+    // Compiled from validGetEndpoints once discovery finishes; replaced, never mutated
+    private volatile GetEndpointMatcher getEndpointMatcher = GetEndpointMatcher.empty();
 
     @Override
     public void onApplicationEvent(ContextRefreshedEvent event) {
@@ -35,7 +38,10 @@ public class EndpointInspector implements ApplicationListener<ContextRefreshedEv
         }
     }
 
-    private void discoverEndpoints() {
+    private synchronized void discoverEndpoints() {
+        if (endpointsDiscovered) {
+            return;
+        }
         try {
             Map<String, RequestMappingHandlerMapping> mappings =
                     applicationContext.getBeansOfType(RequestMappingHandlerMapping.class);
@@ -78,6 +84,8 @@ public class EndpointInspector implements ApplicationListener<ContextRefreshedEv
         } catch (Exception e) {
             log.error("Error discovering endpoints", e);
         }
+        getEndpointMatcher = GetEndpointMatcher.compile(validGetEndpoints);
+        endpointsDiscovered = true;
     }
 
     private Set<String> extractPatternsUsingDirectPaths(RequestMappingInfo mappingInfo) {
@@ -125,78 +133,24 @@ public class EndpointInspector implements ApplicationListener<ContextRefreshedEv
             endpointsDiscovered = true;
         }
 
-        if (validGetEndpoints.contains(uri)) {
-            return true;
-        }
-
-        if (matchesWildcardOrPathVariable(uri)) {
-            return true;
-        }
-
-        if (matchesPathSegments(uri)) {
-            return true;
-        }
-
-        return false;
-    }
-
-    private boolean matchesWildcardOrPathVariable(String uri) {
-        for (String pattern : validGetEndpoints) {
-            if (pattern.contains("*") || pattern.contains("{")) {
-                int wildcardIndex = pattern.indexOf('*');
-                int variableIndex = pattern.indexOf('{');
-
-                int cutoffIndex;
-                if (wildcardIndex < 0) {
-                    cutoffIndex = variableIndex;
-                } else if (variableIndex < 0) {
-                    cutoffIndex = wildcardIndex;
-                } else {
-                    cutoffIndex = Math.min(wildcardIndex, variableIndex);
-                }
-
-                String staticPrefix = pattern.substring(0, cutoffIndex);
-
-                if (uri.startsWith(staticPrefix)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return getEndpointMatcher.matches(uri);
     }
 
-    private boolean matchesPathSegments(String uri) {
-        for (String pattern : validGetEndpoints) {
-            if (!pattern.contains("*") && !pattern.contains("{")) {
-                String[] patternSegments = pattern.split("/");
-                String[] uriSegments = uri.split("/");
-
-                if (uriSegments.length < patternSegments.length) {
-                    continue;
-                }
-
-                boolean match = true;
-                for (int i = 0; i < patternSegments.length; i++) {
-                    if (!patternSegments[i].equals(uriSegments[i])) {
-                        match = false;
-                        break;
-                    }
-                }
-
-                if (match) {
-                    return true;
-                }
-            }
+    public Set<String> getValidGetEndpoints() {
+        if (!endpointsDiscovered) {
+            discoverEndpoints();
+            endpointsDiscovered = true;
         }
-        return false;
+        return new HashSet<>(validGetEndpoints);
     }
 
-    public Set<String> getValidGetEndpoints() {
+    /** Whether any GET endpoint was discovered, without copying the endpoint set. */
+    public boolean hasValidGetEndpoints() {
         if (!endpointsDiscovered) {
             discoverEndpoints();
             endpointsDiscovered = true;
         }
-        return new HashSet<>(validGetEndpoints);
+        return !validGetEndpoints.isEmpty();
     }
 
     private void logAllEndpoints() {
@@ -0,0 +1,173 @@
+package stirling.software.SPDF.config;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable matcher for discovered GET endpoint patterns, compiled once into a character trie so a
+ * lookup walks the URI once without splitting or allocating.
+ *
+ * <p>A URI is accepted when any of the following holds, which mirrors the rules the inspector has
+ * always applied:
+ *
+ * <ul>
+ *   <li>it equals a registered pattern;
+ *   <li>it starts with the static prefix of a pattern containing a wildcard ({@code *}) or path
+ *       variable (<code>{</code>), i.e. the text before the first such character;
+ *   <li>the path segments of a static pattern are a leading run of the URI's path segments.
+ * </ul>
+ *
+ * Instances are safe to share between threads without locking.
+ */
+final class GetEndpointMatcher {
+
+    private static final GetEndpointMatcher EMPTY = new GetEndpointMatcher(new Node(), false);
+
+    private final Node root;
+
+    // "".split("/") yields a single empty segment, which needs its own rule (see matchesEmpty)
+    private final boolean emptyPatternRegistered;
+
+    private GetEndpointMatcher(Node root, boolean emptyPatternRegistered) {
+        this.root = root;
+        this.emptyPatternRegistered = emptyPatternRegistered;
+    }
+
+    static GetEndpointMatcher empty() {
+        return EMPTY;
+    }
+
+    static GetEndpointMatcher compile(Collection<String> patterns) {
+        Builder root = new Builder();
+        boolean emptyPatternRegistered = false;
+        for (String pattern : patterns) {
+            root.insert(pattern).exact = true;
+
+            int cutoff = staticPrefixEnd(pattern);
+            if (cutoff >= 0) {
+                root.insert(pattern.substring(0, cutoff)).prefix = true;
+            } else if (pattern.isEmpty()) {
+                emptyPatternRegistered = true;
+            } else {
+                // Trailing slashes produce no segments, so "/a/" behaves like "/a" and "/" like ""
+                int end = pattern.length();
+                while (end > 0 && pattern.charAt(end - 1) == '/') {
+                    end--;
+                }
+                if (end == 0) {
+                    // A pattern made only of slashes has no segments and so matches every URI
+                    root.prefix = true;
+                } else {
+                    root.insert(pattern.substring(0, end)).segment = true;
+                }
+            }
+        }
+        return new GetEndpointMatcher(root.freeze(), emptyPatternRegistered);
+    }
+
+    boolean matches(String uri) {
+        if (emptyPatternRegistered && matchesEmpty(uri)) {
+            return true;
+        }
+        Node node = root;
+        int length = uri.length();
+        for (int i = 0; ; i++) {
+            if (node.prefix) {
+                return true;
+            }
+            if (node.segment && (i == length || uri.charAt(i) == '/')) {
+                return true;
+            }
+            if (i == length) {
+                return node.exact;
+            }
+            node = node.child(uri.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+    }
+
+    /** The empty pattern matches URIs whose first segment is empty: "" or "/" followed by text. */
+    private static boolean matchesEmpty(String uri) {
+        if (uri.isEmpty()) {
+            return true;
+        }
+        if (uri.charAt(0) != '/') {
+            return false;
+        }
+        for (int i = 1; i < uri.length(); i++) {
+            if (uri.charAt(i) != '/') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int staticPrefixEnd(String pattern) {
+        int wildcardIndex = pattern.indexOf('*');
+        int variableIndex = pattern.indexOf('{');
+        if (wildcardIndex < 0) {
+            return variableIndex;
+        }
+        if (variableIndex < 0) {
+            return wildcardIndex;
+        }
+        return Math.min(wildcardIndex, variableIndex);
+    }
+
+    /** Frozen trie node; children are kept in sorted arrays and found by binary search. */
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private boolean exact;
+        private boolean prefix;
+        private boolean segment;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    /** Mutable node used only while compiling. */
+    private static final class Builder {
+
+        private final Map<Character, Builder> children = new TreeMap<>();
+        private boolean exact;
+        private boolean prefix;
+        private boolean segment;
+
+        Builder insert(String path) {
+            Builder node = this;
+            for (int i = 0; i < path.length(); i++) {
+                node = node.children.computeIfAbsent(path.charAt(i), c -> new Builder());
+            }
+            return node;
+        }
+
+        Node freeze() {
+            Node node = new Node();
+            node.exact = exact;
+            node.prefix = prefix;
+            node.segment = segment;
+            if (!children.isEmpty()) {
+                node.keys = new char[children.size()];
+                node.children = new Node[children.size()];
+                int i = 0;
+                for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                    node.keys[i] = entry.getKey();
+                    node.children[i] = entry.getValue().freeze();
+                    i++;
+                }
+            }
+            return node;
+        }
+    }
+}
@@ -178,9 +178,13 @@ public class EditTableOfContentsController {
             // Add bookmarks to the outline
             addBookmarksToOutline(document, outline, bookmarks);
 
-            // Save the document to a byte array
+            // Save the document to a byte array, appending just the new outline when possible
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            document.save(baos);
+            if (pdfDocumentFactory.canSaveIncrementally(document)) {
+                document.saveIncremental(baos);
+            } else {
+                document.save(baos);
+            }
 
             String filename = file.getOriginalFilename().replaceFirst("[.][^.]+$", "");
             return WebResponseUtils.bytesToWebResponse(
@@ -1,10 +1,8 @@
 package stirling.software.SPDF.controller.api;
 
 import java.awt.*;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
-import org.apache.pdfbox.multipdf.LayerUtility;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -18,6 +16,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.github.pixee.security.Filenames;
 import io.swagger.v3.oas.annotations.Operation;
@@ -27,6 +26,8 @@ import lombok.RequiredArgsConstructor;
 
 import stirling.software.SPDF.model.api.general.MergeMultiplePagesRequest;
 import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.service.ParallelPageAssembler;
+import stirling.software.common.util.TempFile;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -36,6 +37,7 @@ import stirling.software.common.util.WebResponseUtils;
 public class MultiPageLayoutController {
 
     private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final ParallelPageAssembler parallelPageAssembler;
 
     @PostMapping(value = "/multi-page-layout", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(
@@ -43,7 +45,7 @@ public class MultiPageLayoutController {
             description =
                     "This operation takes an input PDF file and the number of pages to merge into a"
                             + " single sheet in the output PDF file. Input:PDF Output:PDF Type:SISO")
-    public ResponseEntity<byte[]> mergeMultiplePagesIntoOne(
+    public ResponseEntity<StreamingResponseBody> mergeMultiplePagesIntoOne(
             @ModelAttribute MergeMultiplePagesRequest request) throws IOException {
 
         int pagesPerSheet = request.getPagesPerSheet();
@@ -62,84 +64,95 @@ public class MultiPageLayoutController {
                         : (int) Math.sqrt(pagesPerSheet);
         int rows = pagesPerSheet == 2 || pagesPerSheet == 3 ? 1 : (int) Math.sqrt(pagesPerSheet);
 
-        PDDocument sourceDocument = pdfDocumentFactory.load(file);
-        PDDocument newDocument =
-                pdfDocumentFactory.createNewDocumentBasedOnOldDocument(sourceDocument);
-        PDPage newPage = new PDPage(PDRectangle.A4);
-        newDocument.addPage(newPage);
-
-        int totalPages = sourceDocument.getNumberOfPages();
-        float cellWidth = newPage.getMediaBox().getWidth() / cols;
-        float cellHeight = newPage.getMediaBox().getHeight() / rows;
-
-        PDPageContentStream contentStream =
-                new PDPageContentStream(
-                        newDocument, newPage, PDPageContentStream.AppendMode.APPEND, true, true);
-        LayerUtility layerUtility = new LayerUtility(newDocument);
-
         float borderThickness = 1.5f; // Specify border thickness as required
-        contentStream.setLineWidth(borderThickness);
-        contentStream.setStrokingColor(Color.BLACK);
-
-        for (int i = 0; i < totalPages; i++) {
-            if (i != 0 && i % pagesPerSheet == 0) {
-                // Close the current content stream and create a new page and content stream
-                contentStream.close();
-                newPage = new PDPage(PDRectangle.A4);
-                newDocument.addPage(newPage);
-                contentStream =
-                        new PDPageContentStream(
-                                newDocument,
-                                newPage,
-                                PDPageContentStream.AppendMode.APPEND,
-                                true,
-                                true);
-            }
 
-            PDPage sourcePage = sourceDocument.getPage(i);
-            PDRectangle rect = sourcePage.getMediaBox();
-            float scaleWidth = cellWidth / rect.getWidth();
-            float scaleHeight = cellHeight / rect.getHeight();
-            float scale = Math.min(scaleWidth, scaleHeight);
-
-            int adjustedPageIndex =
-                    i % pagesPerSheet; // This will reset the index for every new page
-            int rowIndex = adjustedPageIndex / cols;
-            int colIndex = adjustedPageIndex % cols;
-
-            float x = colIndex * cellWidth + (cellWidth - rect.getWidth() * scale) / 2;
-            float y =
-                    newPage.getMediaBox().getHeight()
-                            - ((rowIndex + 1) * cellHeight
-                                    - (cellHeight - rect.getHeight() * scale) / 2);
-
-            contentStream.saveGraphicsState();
-            contentStream.transform(Matrix.getTranslateInstance(x, y));
-            contentStream.transform(Matrix.getScaleInstance(scale, scale));
-
-            PDFormXObject formXObject = layerUtility.importPageAsForm(sourceDocument, i);
-            contentStream.drawForm(formXObject);
-
-            contentStream.restoreGraphicsState();
-
-            if (addBorder) {
-                // Draw border around each page
-                float borderX = colIndex * cellWidth;
-                float borderY = newPage.getMediaBox().getHeight() - (rowIndex + 1) * cellHeight;
-                contentStream.addRect(borderX, borderY, cellWidth, cellHeight);
-                contentStream.stroke();
+        // Ranges handed to the builder always start on a new sheet
+        ParallelPageAssembler.PageRangeBuilder layout =
+                (source, target, layerUtility, fromPage, toPage) -> {
+                    PDPage newPage = null;
+                    PDPageContentStream contentStream = null;
+                    float cellWidth = PDRectangle.A4.getWidth() / cols;
+                    float cellHeight = PDRectangle.A4.getHeight() / rows;
+                    try {
+                        for (int i = fromPage; i < toPage; i++) {
+                            if ((i - fromPage) % pagesPerSheet == 0) {
+                                // Close the current content stream and start a new sheet
+                                if (contentStream != null) {
+                                    contentStream.close();
+                                }
+                                newPage = new PDPage(PDRectangle.A4);
+                                target.addPage(newPage);
+                                contentStream =
+                                        new PDPageContentStream(
+                                                target,
+                                                newPage,
+                                                PDPageContentStream.AppendMode.APPEND,
+                                                true,
+                                                true);
+                                contentStream.setLineWidth(borderThickness);
+                                contentStream.setStrokingColor(Color.BLACK);
+                            }
+
+                            PDPage sourcePage = source.getPage(i);
+                            PDRectangle rect = sourcePage.getMediaBox();
+                            float scaleWidth = cellWidth / rect.getWidth();
+                            float scaleHeight = cellHeight / rect.getHeight();
+                            float scale = Math.min(scaleWidth, scaleHeight);
+
+                            int adjustedPageIndex =
+                                    i % pagesPerSheet; // This will reset the index for every
+                            // new page
+                            int rowIndex = adjustedPageIndex / cols;
+                            int colIndex = adjustedPageIndex % cols;
+
+                            float x =
+                                    colIndex * cellWidth
+                                            + (cellWidth - rect.getWidth() * scale) / 2;
+                            float y =
+                                    newPage.getMediaBox().getHeight()
+                                            - ((rowIndex + 1) * cellHeight
+                                                    - (cellHeight - rect.getHeight() * scale) / 2);
+
+                            contentStream.saveGraphicsState();
+                            contentStream.transform(Matrix.getTranslateInstance(x, y));
+                            contentStream.transform(Matrix.getScaleInstance(scale, scale));
+
+                            PDFormXObject formXObject = layerUtility.importPageAsForm(source, i);
+                            contentStream.drawForm(formXObject);
+
+                            contentStream.restoreGraphicsState();
+
+                            if (addBorder) {
+                                // Draw border around each page
+                                float borderX = colIndex * cellWidth;
+                                float borderY =
+                                        newPage.getMediaBox().getHeight()
+                                                - (rowIndex + 1) * cellHeight;
+                                contentStream.addRect(borderX, borderY, cellWidth, cellHeight);
+                                contentStream.stroke();
+                            }
+                        }
+                    } finally {
+                        if (contentStream != null) {
+                            contentStream.close(); // Close the final content stream
+                        }
+                    }
+                };
+
+        TempFile result;
+        try (PDDocument sourceDocument = pdfDocumentFactory.load(file)) {
+            PDDocument newDocument =
+                    pdfDocumentFactory.createNewDocumentBasedOnOldDocument(sourceDocument);
+            if (sourceDocument.getNumberOfPages() == 0) {
+                // Keep the single blank sheet an empty document has always produced
+                newDocument.addPage(new PDPage(PDRectangle.A4));
             }
+            result =
+                    parallelPageAssembler.assemble(
+                            file, sourceDocument, newDocument, pagesPerSheet, layout);
         }
 
-        contentStream.close(); // Close the final content stream
-        sourceDocument.close();
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        newDocument.save(baos);
-        newDocument.close();
-
-        byte[] result = baos.toByteArray();
-        return WebResponseUtils.bytesToWebResponse(
+        return WebResponseUtils.pdfFileToWebResponse(
                 result,
                 Filenames.toSimpleFileName(file.getOriginalFilename()).replaceFirst("[.][^.]+$", "")
                         + "_layoutChanged.pdf");
@@ -1,16 +1,11 @@
 package stirling.software.SPDF.controller.api;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.multipdf.Overlay;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +14,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.github.pixee.security.Filenames;
 import io.swagger.v3.oas.annotations.Operation;
@@ -28,7 +24,10 @@ import lombok.RequiredArgsConstructor;
 
 import stirling.software.SPDF.model.api.general.OverlayPdfsRequest;
 import stirling.software.common.service.CustomPDFDocumentFactory;
-import stirling.software.common.util.GeneralUtils;
+import stirling.software.common.service.PageOverlay;
+import stirling.software.common.service.PageTransformEngine;
+import stirling.software.common.service.PageTransformer;
+import stirling.software.common.util.TempFile;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -38,6 +37,7 @@ import stirling.software.common.util.WebResponseUtils;
 public class PdfOverlayController {
 
     private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final PageTransformEngine pageTransformEngine;
 
     @PostMapping(value = "/overlay-pdfs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(
@@ -45,79 +45,76 @@ public class PdfOverlayController {
             description =
                     "Overlay PDF files onto a base PDF with different modes: Sequential,"
                             + " Interleaved, or Fixed Repeat. Input:PDF Output:PDF Type:MIMO")
-    public ResponseEntity<byte[]> overlayPdfs(@ModelAttribute OverlayPdfsRequest request)
-            throws IOException {
+    public ResponseEntity<StreamingResponseBody> overlayPdfs(
+            @ModelAttribute OverlayPdfsRequest request) throws IOException {
         MultipartFile baseFile = request.getFileInput();
         int overlayPos = request.getOverlayPosition();
 
         MultipartFile[] overlayFiles = request.getOverlayFiles();
-        File[] overlayPdfFiles = new File[overlayFiles.length];
-        List<File> tempFiles = new ArrayList<>(); // List to keep track of temporary files
+        List<PDDocument> overlayPdfs = new ArrayList<>(overlayFiles.length);
 
         try {
-            for (int i = 0; i < overlayFiles.length; i++) {
-                overlayPdfFiles[i] = GeneralUtils.multipartToFile(overlayFiles[i]);
+            for (MultipartFile overlayFile : overlayFiles) {
+                overlayPdfs.add(pdfDocumentFactory.load(overlayFile, true));
             }
+            int[] overlayPageCounts =
+                    overlayPdfs.stream().mapToInt(PDDocument::getNumberOfPages).toArray();
 
             String mode = request.getOverlayMode(); // "SequentialOverlay", "InterleavedOverlay",
             // "FixedRepeatOverlay"
             int[] counts = request.getCounts(); // Used for FixedRepeatOverlay mode
 
-            try (PDDocument basePdf = pdfDocumentFactory.load(baseFile);
-                    Overlay overlay = new Overlay()) {
-                Map<Integer, String> overlayGuide =
-                        prepareOverlayGuide(
-                                basePdf.getNumberOfPages(),
-                                overlayPdfFiles,
-                                mode,
-                                counts,
-                                tempFiles);
-
-                overlay.setInputPDF(basePdf);
-                if (overlayPos == 0) {
-                    overlay.setOverlayPosition(Overlay.Position.FOREGROUND);
-                } else {
-                    overlay.setOverlayPosition(Overlay.Position.BACKGROUND);
-                }
-
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                overlay.overlay(overlayGuide).save(outputStream);
-                byte[] data = outputStream.toByteArray();
-                String outputFilename =
-                        Filenames.toSimpleFileName(baseFile.getOriginalFilename())
-                                        .replaceFirst("[.][^.]+$", "")
-                                + "_overlayed.pdf"; // Remove file extension and append .pdf
-
-                return WebResponseUtils.bytesToWebResponse(
-                        data, outputFilename, MediaType.APPLICATION_PDF);
-            }
+            PageOverlay.Position position =
+                    overlayPos == 0
+                            ? PageOverlay.Position.FOREGROUND
+                            : PageOverlay.Position.BACKGROUND;
+
+            // Overlay pages are assigned once the base page count is known; each distinct
+            // overlay page is then imported once and shared by the pages it is applied to
+            PageTransformer overlay =
+                    (context, page, pageIndex) -> {
+                        PageOverlay pageOverlay =
+                                context.shared(
+                                        PageOverlay.class,
+                                        document ->
+                                                new PageOverlay(
+                                                        overlayPdfs,
+                                                        prepareOverlayGuide(
+                                                                document.getNumberOfPages(),
+                                                                overlayPageCounts,
+                                                                mode,
+                                                                counts),
+                                                        position));
+                        pageOverlay.transform(context, page, pageIndex);
+                    };
+
+            TempFile result = pageTransformEngine.transform(baseFile, overlay);
+            String outputFilename =
+                    Filenames.toSimpleFileName(baseFile.getOriginalFilename())
+                                    .replaceFirst("[.][^.]+$", "")
+                            + "_overlayed.pdf"; // Remove file extension and append .pdf
+
+            return WebResponseUtils.pdfFileToWebResponse(result, outputFilename);
         } finally {
-            for (File overlayPdfFile : overlayPdfFiles) {
-                if (overlayPdfFile != null) {
-                    Files.deleteIfExists(overlayPdfFile.toPath());
-                }
-            }
-            for (File tempFile : tempFiles) { // Delete temporary files
-                if (tempFile != null) {
-                    Files.deleteIfExists(tempFile.toPath());
-                }
+            for (PDDocument overlayPdf : overlayPdfs) {
+                overlayPdf.close();
             }
         }
     }
 
-    private Map<Integer, String> prepareOverlayGuide(
-            int basePageCount, File[] overlayFiles, String mode, int[] counts, List<File> tempFiles)
-            throws IOException {
-        Map<Integer, String> overlayGuide = new HashMap<>();
+    /** The overlay page for each zero-based base page; each overlay file contributes its pages. */
+    private Map<Integer, PageOverlay.OverlayPage> prepareOverlayGuide(
+            int basePageCount, int[] overlayPageCounts, String mode, int[] counts) {
+        Map<Integer, PageOverlay.OverlayPage> overlayGuide = new HashMap<>();
         switch (mode) {
             case "SequentialOverlay":
-                sequentialOverlay(overlayGuide, overlayFiles, basePageCount, tempFiles);
+                sequentialOverlay(overlayGuide, overlayPageCounts, basePageCount);
                 break;
             case "InterleavedOverlay":
-                interleavedOverlay(overlayGuide, overlayFiles, basePageCount);
+                interleavedOverlay(overlayGuide, overlayPageCounts, basePageCount);
                 break;
             case "FixedRepeatOverlay":
-                fixedRepeatOverlay(overlayGuide, overlayFiles, counts, basePageCount);
+                fixedRepeatOverlay(overlayGuide, overlayPageCounts, counts, basePageCount);
                 break;
             default:
                 throw new IllegalArgumentException("Invalid overlay mode");
@@ -126,84 +123,57 @@ public class PdfOverlayController {
     }
 
     private void sequentialOverlay(
-            Map<Integer, String> overlayGuide,
-            File[] overlayFiles,
-            int basePageCount,
-            List<File> tempFiles)
-            throws IOException {
+            Map<Integer, PageOverlay.OverlayPage> overlayGuide,
+            int[] overlayPageCounts,
+            int basePageCount) {
         int overlayFileIndex = 0;
         int pageCountInCurrentOverlay = 0;
 
-        for (int basePageIndex = 1; basePageIndex <= basePageCount; basePageIndex++) {
+        for (int basePageIndex = 0; basePageIndex < basePageCount; basePageIndex++) {
             if (pageCountInCurrentOverlay == 0
-                    || pageCountInCurrentOverlay
-                            >= getNumberOfPages(overlayFiles[overlayFileIndex])) {
+                    || pageCountInCurrentOverlay >= overlayPageCounts[overlayFileIndex]) {
                 pageCountInCurrentOverlay = 0;
-                overlayFileIndex = (overlayFileIndex + 1) % overlayFiles.length;
+                overlayFileIndex = (overlayFileIndex + 1) % overlayPageCounts.length;
             }
 
-            try (PDDocument overlayPdf = Loader.loadPDF(overlayFiles[overlayFileIndex])) {
-                PDDocument singlePageDocument = new PDDocument();
-                singlePageDocument.addPage(overlayPdf.getPage(pageCountInCurrentOverlay));
-                File tempFile = Files.createTempFile("overlay-page-", ".pdf").toFile();
-                singlePageDocument.save(tempFile);
-                singlePageDocument.close();
-
-                overlayGuide.put(basePageIndex, tempFile.getAbsolutePath());
-                tempFiles.add(tempFile); // Keep track of the temporary file for cleanup
-            }
+            overlayGuide.put(
+                    basePageIndex,
+                    new PageOverlay.OverlayPage(overlayFileIndex, pageCountInCurrentOverlay));
 
             pageCountInCurrentOverlay++;
         }
     }
 
-    private int getNumberOfPages(File file) throws IOException {
-        try (PDDocument doc = Loader.loadPDF(file)) {
-            return doc.getNumberOfPages();
-        }
-    }
-
     private void interleavedOverlay(
-            Map<Integer, String> overlayGuide, File[] overlayFiles, int basePageCount)
-            throws IOException {
-        for (int basePageIndex = 1; basePageIndex <= basePageCount; basePageIndex++) {
-            File overlayFile = overlayFiles[(basePageIndex - 1) % overlayFiles.length];
-
-            // Load the overlay document to check its page count
-            try (PDDocument overlayPdf = Loader.loadPDF(overlayFile)) {
-                int overlayPageCount = overlayPdf.getNumberOfPages();
-                if ((basePageIndex - 1) % overlayPageCount < overlayPageCount) {
-                    overlayGuide.put(basePageIndex, overlayFile.getAbsolutePath());
-                }
+            Map<Integer, PageOverlay.OverlayPage> overlayGuide,
+            int[] overlayPageCounts,
+            int basePageCount) {
+        for (int basePageIndex = 0; basePageIndex < basePageCount; basePageIndex++) {
+            int overlayFileIndex = basePageIndex % overlayPageCounts.length;
+            if (overlayPageCounts[overlayFileIndex] > 0) {
+                overlayGuide.put(basePageIndex, new PageOverlay.OverlayPage(overlayFileIndex, 0));
             }
         }
     }
 
     private void fixedRepeatOverlay(
-            Map<Integer, String> overlayGuide, File[] overlayFiles, int[] counts, int basePageCount)
-            throws IOException {
-        if (overlayFiles.length != counts.length) {
+            Map<Integer, PageOverlay.OverlayPage> overlayGuide,
+            int[] overlayPageCounts,
+            int[] counts,
+            int basePageCount) {
+        if (counts == null || overlayPageCounts.length != counts.length) {
             throw new IllegalArgumentException(
                     "Counts array length must match the number of overlay files");
         }
-        int currentPage = 1;
-        for (int i = 0; i < overlayFiles.length; i++) {
-            File overlayFile = overlayFiles[i];
+        int currentPage = 0;
+        for (int i = 0; i < overlayPageCounts.length; i++) {
             int repeatCount = counts[i];
-
-            // Load the overlay document to check its page count
-            try (PDDocument overlayPdf = Loader.loadPDF(overlayFile)) {
-                int overlayPageCount = overlayPdf.getNumberOfPages();
-                for (int j = 0; j < repeatCount; j++) {
-                    for (int page = 0; page < overlayPageCount; page++) {
-                        if (currentPage > basePageCount) break;
-                        overlayGuide.put(currentPage++, overlayFile.getAbsolutePath());
-                    }
+            for (int j = 0; j < repeatCount; j++) {
+                for (int page = 0; page < overlayPageCounts[i]; page++) {
+                    if (currentPage >= basePageCount) break;
+                    overlayGuide.put(currentPage++, new PageOverlay.OverlayPage(i, 0));
                 }
             }
         }
     }
 }
-
-// Additional classes like OverlayPdfsRequest, WebResponseUtils, etc. are assumed to be defined
-// elsewhere.
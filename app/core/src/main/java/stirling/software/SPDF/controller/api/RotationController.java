@@ -2,9 +2,6 @@ package stirling.software.SPDF.controller.api;
 
 import java.io.IOException;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageTree;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -12,6 +9,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.github.pixee.security.Filenames;
 import io.swagger.v3.oas.annotations.Operation;
@@ -20,8 +18,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 
 import stirling.software.SPDF.model.api.general.RotatePDFRequest;
-import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.service.PageTransformEngine;
 import stirling.software.common.util.ExceptionUtils;
+import stirling.software.common.util.TempFile;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -30,7 +29,7 @@ import stirling.software.common.util.WebResponseUtils;
 @RequiredArgsConstructor
 public class RotationController {
 
-    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final PageTransformEngine pageTransformEngine;
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, value = "/rotate-pdf")
     @Operation(
@@ -38,7 +37,7 @@ public class RotationController {
             description =
                     "This endpoint rotates a given PDF file by a specified angle. The angle must be"
                             + " a multiple of 90. Input:PDF Output:PDF Type:SISO")
-    public ResponseEntity<byte[]> rotatePDF(@ModelAttribute RotatePDFRequest request)
+    public ResponseEntity<StreamingResponseBody> rotatePDF(@ModelAttribute RotatePDFRequest request)
             throws IOException {
         MultipartFile pdfFile = request.getFileInput();
         Integer angle = request.getAngle();
@@ -49,18 +48,13 @@ public class RotationController {
                     "error.angleNotMultipleOf90", "Angle must be a multiple of 90");
         }
 
-        // Load the PDF document
-        PDDocument document = pdfDocumentFactory.load(request);
+        TempFile output =
+                pageTransformEngine.transform(
+                        pdfFile,
+                        (context, page, pageIndex) -> page.setRotation(page.getRotation() + angle));
 
-        // Get the list of pages in the document
-        PDPageTree pages = document.getPages();
-
-        for (PDPage page : pages) {
-            page.setRotation(page.getRotation() + angle);
-        }
-
-        return WebResponseUtils.pdfDocToWebResponse(
-                document,
+        return WebResponseUtils.pdfFileToWebResponse(
+                output,
                 Filenames.toSimpleFileName(pdfFile.getOriginalFilename())
                                 .replaceFirst("[.][^.]+$", "")
                         + "_rotated.pdf");
@@ -1,6 +1,5 @@
 package stirling.software.SPDF.controller.api;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -19,6 +18,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.github.pixee.security.Filenames;
 import io.swagger.v3.oas.annotations.Operation;
@@ -28,7 +28,9 @@ import lombok.RequiredArgsConstructor;
 
 import stirling.software.SPDF.model.api.general.ScalePagesRequest;
 import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.service.ParallelPageAssembler;
 import stirling.software.common.util.ExceptionUtils;
+import stirling.software.common.util.TempFile;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -38,6 +40,7 @@ import stirling.software.common.util.WebResponseUtils;
 public class ScalePagesController {
 
     private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final ParallelPageAssembler parallelPageAssembler;
 
     @PostMapping(value = "/scale-pages", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(
@@ -45,38 +48,69 @@ public class ScalePagesController {
             description =
                     "This operation takes an input PDF file and the size to scale the pages to in"
                             + " the output PDF file. Input:PDF Output:PDF Type:SISO")
-    public ResponseEntity<byte[]> scalePages(@ModelAttribute ScalePagesRequest request)
-            throws IOException {
+    public ResponseEntity<StreamingResponseBody> scalePages(
+            @ModelAttribute ScalePagesRequest request) throws IOException {
         MultipartFile file = request.getFileInput();
         String targetPDRectangle = request.getPageSize();
         float scaleFactor = request.getScaleFactor();
 
-        PDDocument sourceDocument = pdfDocumentFactory.load(file);
-        PDDocument outputDocument =
-                pdfDocumentFactory.createNewDocumentBasedOnOldDocument(sourceDocument);
-
-        PDRectangle targetSize = getTargetSize(targetPDRectangle, sourceDocument);
-
-        int totalPages = sourceDocument.getNumberOfPages();
-        for (int i = 0; i < totalPages; i++) {
-            PDPage sourcePage = sourceDocument.getPage(i);
-            PDRectangle sourceSize = sourcePage.getMediaBox();
-
-            float scaleWidth = targetSize.getWidth() / sourceSize.getWidth();
-            float scaleHeight = targetSize.getHeight() / sourceSize.getHeight();
-            float scale = Math.min(scaleWidth, scaleHeight) * scaleFactor;
+        TempFile result;
+        try (PDDocument sourceDocument = pdfDocumentFactory.load(file)) {
+            PDDocument outputDocument =
+                    pdfDocumentFactory.createNewDocumentBasedOnOldDocument(sourceDocument);
 
-            PDPage newPage = new PDPage(targetSize);
-            outputDocument.addPage(newPage);
+            PDRectangle targetSize = getTargetSize(targetPDRectangle, sourceDocument);
 
-            PDPageContentStream contentStream =
-                    new PDPageContentStream(
+            result =
+                    parallelPageAssembler.assemble(
+                            file,
+                            sourceDocument,
                             outputDocument,
-                            newPage,
-                            PDPageContentStream.AppendMode.APPEND,
-                            true,
-                            true);
+                            1,
+                            (source, target, layerUtility, fromPage, toPage) -> {
+                                for (int i = fromPage; i < toPage; i++) {
+                                    scalePage(
+                                            source,
+                                            target,
+                                            layerUtility,
+                                            i,
+                                            targetSize,
+                                            scaleFactor);
+                                }
+                            });
+        }
 
+        return WebResponseUtils.pdfFileToWebResponse(
+                result,
+                Filenames.toSimpleFileName(file.getOriginalFilename()).replaceFirst("[.][^.]+$", "")
+                        + "_scaled.pdf");
+    }
+
+    private static void scalePage(
+            PDDocument sourceDocument,
+            PDDocument outputDocument,
+            LayerUtility layerUtility,
+            int pageIndex,
+            PDRectangle targetSize,
+            float scaleFactor)
+            throws IOException {
+        PDPage sourcePage = sourceDocument.getPage(pageIndex);
+        PDRectangle sourceSize = sourcePage.getMediaBox();
+
+        float scaleWidth = targetSize.getWidth() / sourceSize.getWidth();
+        float scaleHeight = targetSize.getHeight() / sourceSize.getHeight();
+        float scale = Math.min(scaleWidth, scaleHeight) * scaleFactor;
+
+        PDPage newPage = new PDPage(targetSize);
+        outputDocument.addPage(newPage);
+
+        try (PDPageContentStream contentStream =
+                new PDPageContentStream(
+                        outputDocument,
+                        newPage,
+                        PDPageContentStream.AppendMode.APPEND,
+                        true,
+                        true)) {
             float x = (targetSize.getWidth() - sourceSize.getWidth() * scale) / 2;
             float y = (targetSize.getHeight() - sourceSize.getHeight() * scale) / 2;
 
@@ -84,23 +118,12 @@ public class ScalePagesController {
             contentStream.transform(Matrix.getTranslateInstance(x, y));
             contentStream.transform(Matrix.getScaleInstance(scale, scale));
 
-            LayerUtility layerUtility = new LayerUtility(outputDocument);
-            PDFormXObject form = layerUtility.importPageAsForm(sourceDocument, i);
+            // One layer utility per range, so resources shared between pages are cloned once
+            PDFormXObject form = layerUtility.importPageAsForm(sourceDocument, pageIndex);
             contentStream.drawForm(form);
 
             contentStream.restoreGraphicsState();
-            contentStream.close();
         }
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        outputDocument.save(baos);
-        outputDocument.close();
-        sourceDocument.close();
-
-        return WebResponseUtils.bytesToWebResponse(
-                baos.toByteArray(),
-                Filenames.toSimpleFileName(file.getOriginalFilename()).replaceFirst("[.][^.]+$", "")
-                        + "_scaled.pdf");
     }
 
     private PDRectangle getTargetSize(String targetPDRectangle, PDDocument sourceDocument) {
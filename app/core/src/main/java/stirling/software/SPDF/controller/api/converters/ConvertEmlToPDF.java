@@ -1,6 +1,7 @@
 package stirling.software.SPDF.controller.api.converters;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
 import org.jetbrains.annotations.NotNull;
@@ -77,11 +78,10 @@ public class ConvertEmlToPDF {
         String baseFilename = Filenames.toSimpleFileName(originalFilename); // Use Filenames utility
 
         try {
-            byte[] fileBytes = inputFile.getBytes();
-
             if (request.isDownloadHtml()) {
-                try {
-                    String htmlContent = EmlToPdf.convertEmlToHtml(fileBytes, request);
+                try (InputStream emlStream = inputFile.getInputStream()) {
+                    String htmlContent =
+                            EmlToPdf.convertEmlToHtml(emlStream, request, tempFileManager);
                     log.info("Successfully converted EML to HTML: {}", originalFilename);
                     return WebResponseUtils.bytesToWebResponse(
                             htmlContent.getBytes(StandardCharsets.UTF_8),
@@ -96,14 +96,14 @@ public class ConvertEmlToPDF {
                 }
             }
 
-            // Convert EML to PDF with enhanced options
-            try {
+            // Convert EML to PDF with enhanced options, parsing the upload as a stream
+            try (InputStream emlStream = inputFile.getInputStream()) {
                 byte[] pdfBytes =
                         EmlToPdf.convertEmlToPdf(
                                 runtimePathConfig
                                         .getWeasyPrintPath(), // Use configured WeasyPrint path
                                 request,
-                                fileBytes,
+                                emlStream,
                                 originalFilename,
                                 pdfDocumentFactory,
                                 tempFileManager,
@@ -34,13 +34,17 @@ import lombok.extern.slf4j.Slf4j;
 
 import stirling.software.SPDF.model.api.converters.ConvertToImageRequest;
 import stirling.software.SPDF.model.api.converters.ConvertToPdfRequest;
+import stirling.software.common.service.BatchExecutor;
 import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.service.PageImageZipExporter;
 import stirling.software.common.util.CheckProgramInstall;
 import stirling.software.common.util.ExceptionUtils;
 import stirling.software.common.util.GeneralUtils;
 import stirling.software.common.util.PdfUtils;
 import stirling.software.common.util.ProcessExecutor;
 import stirling.software.common.util.ProcessExecutor.ProcessExecutorResult;
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -51,6 +55,9 @@ import stirling.software.common.util.WebResponseUtils;
 public class ConvertImgPDFController {
 
     private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final BatchExecutor batchExecutor;
+    private final PageImageZipExporter pageImageZipExporter;
+    private final TempFileManager tempFileManager;
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, value = "/pdf/img")
     @Operation(
@@ -59,7 +66,7 @@ public class ConvertImgPDFController {
                     "This endpoint converts a PDF file to image(s) with the specified image format,"
                             + " color type, and DPI. Users can choose to get a single image or multiple"
                             + " images.  Input:PDF Output:Image Type:SI-Conditional")
-    public ResponseEntity<byte[]> convertToImage(@ModelAttribute ConvertToImageRequest request)
+    public ResponseEntity<?> convertToImage(@ModelAttribute ConvertToImageRequest request)
             throws Exception {
         MultipartFile file = request.getFileInput();
         String imageFormat = request.getImageFormat();
@@ -93,32 +100,68 @@ public class ConvertImgPDFController {
                     Filenames.toSimpleFileName(new File(file.getOriginalFilename()).getName())
                             .replaceFirst("[.][^.]+$", "");
 
-            result =
-                    PdfUtils.convertFromPdf(
+            if (!singleImage && !"webp".equalsIgnoreCase(imageFormat)) {
+                // Render, encode and zip the pages in parallel, without holding them all in memory
+                TempFile zip =
+                        pageImageZipExporter.exportToZip(
+                                newPdfBytes,
+                                imageFormat.toUpperCase(),
+                                colorTypeResult,
+                                dpi,
+                                filename,
+                                includeAnnotations);
+                return WebResponseUtils.fileToWebResponse(
+                        zip,
+                        filename + "_convertedToImages.zip",
+                        MediaType.APPLICATION_OCTET_STREAM);
+            }
+            if (singleImage
+                    && ("tiff".equalsIgnoreCase(imageFormat)
+                            || "tif".equalsIgnoreCase(imageFormat))) {
+                // Write the pages into the TIFF as they are rendered, straight to disk
+                TempFile tiff = new TempFile(tempFileManager, "." + imageFormat);
+                try {
+                    PdfUtils.convertToMultiPageTiff(
                             pdfDocumentFactory,
                             newPdfBytes,
-                            "webp".equalsIgnoreCase(imageFormat)
-                                    ? "png"
-                                    : imageFormat.toUpperCase(),
                             colorTypeResult,
-                            singleImage,
                             dpi,
-                            filename,
-                            includeAnnotations);
-            if (result == null || result.length == 0) {
-                log.error("resultant bytes for {} is null, error converting ", filename);
+                            includeAnnotations,
+                            tiff.getFile());
+                } catch (IOException | RuntimeException e) {
+                    tiff.close();
+                    throw e;
+                }
+                return WebResponseUtils.fileToWebResponse(
+                        tiff,
+                        filename + "." + imageFormat,
+                        MediaType.parseMediaType(getMediaType(imageFormat)));
             }
             if ("webp".equalsIgnoreCase(imageFormat) && !CheckProgramInstall.isPythonAvailable()) {
                 throw ExceptionUtils.createPythonRequiredForWebpException();
-            } else if ("webp".equalsIgnoreCase(imageFormat)
-                    && CheckProgramInstall.isPythonAvailable()) {
-                // Write the output stream to a temp file
-                tempFile = Files.createTempFile("temp_png", ".png");
-                try (FileOutputStream fos = new FileOutputStream(tempFile.toFile())) {
-                    fos.write(result);
-                    fos.flush();
-                }
+            }
 
+            if (singleImage) {
+                result =
+                        PdfUtils.convertFromPdf(
+                                pdfDocumentFactory,
+                                newPdfBytes,
+                                "webp".equalsIgnoreCase(imageFormat)
+                                        ? "png"
+                                        : imageFormat.toUpperCase(),
+                                colorTypeResult,
+                                singleImage,
+                                dpi,
+                                filename,
+                                includeAnnotations);
+                if (result == null || result.length == 0) {
+                    log.error("resultant bytes for {} is null, error converting ", filename);
+                }
+            } else {
+                // The script renders the PDF itself when converting to multiple WebP images
+                PdfUtils.checkDpiLimit(dpi);
+            }
+            if ("webp".equalsIgnoreCase(imageFormat)) {
                 String pythonVersion = CheckProgramInstall.getAvailablePythonCommand();
                 Path pngToWebpScript = GeneralUtils.extractScript("png_to_webp.py");
 
@@ -132,6 +175,12 @@ public class ConvertImgPDFController {
                 // Create a temporary directory for the output WebP files
                 tempOutputDir = Files.createTempDirectory("webp_output");
                 if (singleImage) {
+                    // Write the output stream to a temp file
+                    tempFile = Files.createTempFile("temp_png", ".png");
+                    try (FileOutputStream fos = new FileOutputStream(tempFile.toFile())) {
+                        fos.write(result);
+                        fos.flush();
+                    }
                     // Run the Python script to convert PNG to WebP
                     command.add(tempFile.toString());
                     command.add(tempOutputDir.toString());
@@ -182,7 +231,7 @@ public class ConvertImgPDFController {
                     bodyBytes = zipOutputStream.toByteArray();
                 }
                 // Clean up the temporary files
-                Files.deleteIfExists(tempFile);
+                if (tempFile != null) Files.deleteIfExists(tempFile);
                 if (tempOutputDir != null) FileUtils.deleteDirectory(tempOutputDir.toFile());
                 result = bodyBytes;
             }
@@ -237,7 +286,8 @@ public class ConvertImgPDFController {
         }
         // Convert the file to PDF and get the resulting bytes
         byte[] bytes =
-                PdfUtils.imageToPdf(file, fitOption, autoRotate, colorType, pdfDocumentFactory);
+                PdfUtils.imageToPdf(
+                        file, fitOption, autoRotate, colorType, pdfDocumentFactory, batchExecutor);
         return WebResponseUtils.bytesToWebResponse(
                 bytes,
                 new File(file[0].getOriginalFilename()).getName().replaceFirst("[.][^.]+$", "")
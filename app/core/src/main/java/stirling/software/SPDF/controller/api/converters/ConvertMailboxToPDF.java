@@ -0,0 +1,304 @@
+package stirling.software.SPDF.controller.api.converters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import io.github.pixee.security.Filenames;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.configuration.RuntimePathConfig;
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.model.api.converters.MailboxToPdfRequest;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.service.ExecutorPools;
+import stirling.software.common.util.CustomHtmlSanitizer;
+import stirling.software.common.util.EmlToPdf;
+import stirling.software.common.util.ExceptionUtils;
+import stirling.software.common.util.MailboxReader;
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+import stirling.software.common.util.WebResponseUtils;
+
+@RestController
+@RequestMapping("/api/v1/convert")
+@Tag(name = "Convert", description = "Convert APIs")
+@Slf4j
+@RequiredArgsConstructor
+public class ConvertMailboxToPDF {
+
+    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final RuntimePathConfig runtimePathConfig;
+    private final TempFileManager tempFileManager;
+    private final CustomHtmlSanitizer customHtmlSanitizer;
+    private final ApplicationProperties applicationProperties;
+    private final ExecutorPools executorPools;
+
+    /** A converted message, kept on disk until the response is assembled. */
+    private record ConvertedMessage(String name, String title, TempFile pdf) {}
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, value = "/mbox/pdf")
+    @Operation(
+            summary = "Convert a mailbox to PDF",
+            description =
+                    "This endpoint converts every message of an mbox file or a ZIP archive of EML"
+                            + " files to PDF. Messages are converted in parallel with the same"
+                            + " options as the EML to PDF endpoint. The result is a ZIP with one PDF"
+                            + " per message, or one merged PDF with a bookmark per message."
+                            + " Input: MBOX/ZIP, Output: ZIP or PDF. Type: SIMO")
+    public ResponseEntity<StreamingResponseBody> convertMailboxToPdf(
+            @ModelAttribute MailboxToPdfRequest request) throws IOException {
+
+        MultipartFile inputFile = request.getFileInput();
+        if (inputFile == null || inputFile.isEmpty()) {
+            throw ExceptionUtils.createIllegalArgumentException(
+                    "error.fileRequired", "No file provided");
+        }
+        String originalFilename = inputFile.getOriginalFilename();
+        String baseFilename =
+                originalFilename == null
+                        ? "mailbox"
+                        : Filenames.toSimpleFileName(originalFilename)
+                                .replaceFirst("[.][^.]+$", "");
+        boolean mergeOutput = "pdf".equalsIgnoreCase(request.getOutputFormat());
+
+        List<ConvertedMessage> converted = convertMessages(request, inputFile, originalFilename);
+        try {
+            if (converted.isEmpty()) {
+                throw ExceptionUtils.createIllegalArgumentException(
+                        "error.noMessagesConverted",
+                        "No messages could be converted from {0}",
+                        originalFilename);
+            }
+            log.info("Converted {} messages from mailbox {}", converted.size(), originalFilename);
+            if (mergeOutput) {
+                TempFile merged = mergeWithBookmarks(converted);
+                return WebResponseUtils.pdfFileToWebResponse(merged, baseFilename + ".pdf");
+            }
+            TempFile zip = writeZip(converted);
+            return WebResponseUtils.zipFileToWebResponse(zip, baseFilename + ".zip");
+        } finally {
+            converted.forEach(message -> message.pdf().close());
+        }
+    }
+
+    /**
+     * Read the mailbox and convert its messages on the shared process pool. Messages are staged to
+     * disk while they are read, and reading pauses whenever this request already has a full backlog
+     * so a large mailbox never has more than a few messages staged at once. Results keep mailbox
+     * order; messages that fail to convert are logged and skipped. If reading or converting fails,
+     * every output already produced is deleted, including those of conversions that were still
+     * running when the others were cancelled.
+     */
+    private List<ConvertedMessage> convertMessages(
+            MailboxToPdfRequest request, MultipartFile inputFile, String originalFilename)
+            throws IOException {
+        int parallelism =
+                Math.max(
+                        1,
+                        Math.min(
+                                Runtime.getRuntime().availableProcessors(),
+                                applicationProperties
+                                        .getProcessExecutor()
+                                        .getSessionLimit()
+                                        .getWeasyPrintSessionLimit()));
+        Semaphore backlog = new Semaphore(parallelism * 2);
+        List<Future<ConvertedMessage>> futures = new ArrayList<>();
+        List<ConvertedMessage> converted = new ArrayList<>();
+        // Outputs of finished conversions, deleted if the request fails; guarded by itself
+        List<TempFile> outputs = new ArrayList<>();
+        AtomicBoolean abandoned = new AtomicBoolean();
+        boolean completed = false;
+        try {
+            try (InputStream in = inputFile.getInputStream()) {
+                MailboxReader.readMessages(
+                        in,
+                        originalFilename,
+                        tempFileManager,
+                        (index, name, message) -> {
+                            try {
+                                backlog.acquire();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                tempFileManager.deleteTempFile(message);
+                                throw new InterruptedIOException("Mailbox conversion interrupted");
+                            }
+                            futures.add(
+                                    executorPools
+                                            .process()
+                                            .submit(
+                                                    () -> {
+                                                        try {
+                                                            return keepOutput(
+                                                                    convertMessage(
+                                                                            request, name, message),
+                                                                    outputs,
+                                                                    abandoned);
+                                                        } finally {
+                                                            tempFileManager.deleteTempFile(message);
+                                                            backlog.release();
+                                                        }
+                                                    }));
+                        });
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    converted.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    ExceptionUtils.logException(
+                            "mailbox message " + (i + 1) + " conversion",
+                            e.getCause() instanceof Exception cause ? cause : e);
+                }
+            }
+            completed = true;
+            return converted;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Mailbox conversion interrupted");
+        } finally {
+            if (!completed) {
+                synchronized (outputs) {
+                    abandoned.set(true);
+                    outputs.forEach(TempFile::close);
+                }
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    /**
+     * Record the output of a finished conversion so it can be deleted if the request fails, or
+     * delete it straight away if the request has already failed and nobody will collect it.
+     */
+    private static ConvertedMessage keepOutput(
+            ConvertedMessage message, List<TempFile> outputs, AtomicBoolean abandoned) {
+        synchronized (outputs) {
+            if (abandoned.get()) {
+                message.pdf().close();
+                return null;
+            }
+            outputs.add(message.pdf());
+        }
+        return message;
+    }
+
+    private ConvertedMessage convertMessage(MailboxToPdfRequest request, String name, File message)
+            throws IOException, InterruptedException {
+        EmlToPdf.ConvertedEmail email;
+        try (InputStream in = Files.newInputStream(message.toPath())) {
+            email =
+                    EmlToPdf.convertEmail(
+                            runtimePathConfig.getWeasyPrintPath(),
+                            request,
+                            in,
+                            name + ".eml",
+                            pdfDocumentFactory,
+                            tempFileManager,
+                            customHtmlSanitizer);
+        }
+
+        String title =
+                email.subject() == null || email.subject().isBlank() ? name : email.subject();
+        TempFile pdf = new TempFile(tempFileManager, ".pdf");
+        try {
+            Files.write(pdf.getPath(), email.pdf());
+        } catch (IOException e) {
+            pdf.close();
+            throw e;
+        }
+        return new ConvertedMessage(name, title, pdf);
+    }
+
+    private TempFile writeZip(List<ConvertedMessage> converted) throws IOException {
+        TempFile zip = new TempFile(tempFileManager, ".zip");
+        Set<String> usedNames = new HashSet<>();
+        try (OutputStream out = Files.newOutputStream(zip.getPath());
+                ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            for (ConvertedMessage message : converted) {
+                String entryName = message.name() + ".pdf";
+                for (int suffix = 2; !usedNames.add(entryName); suffix++) {
+                    entryName = message.name() + "-" + suffix + ".pdf";
+                }
+                zipOut.putNextEntry(new ZipEntry(entryName));
+                Files.copy(message.pdf().getPath(), zipOut);
+                zipOut.closeEntry();
+            }
+        } catch (IOException e) {
+            zip.close();
+            throw e;
+        }
+        return zip;
+    }
+
+    /**
+     * Append the messages to one document with a bookmark on the first page of each. Each message
+     * is parsed once, while it is appended, which is also where its page count comes from.
+     */
+    private TempFile mergeWithBookmarks(List<ConvertedMessage> converted) throws IOException {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        // Appended pages may still read from their source, so sources stay open until the save
+        List<PDDocument> sources = new ArrayList<>();
+        TempFile output = new TempFile(tempFileManager, ".pdf");
+        try (PDDocument merged = pdfDocumentFactory.createNewDocument()) {
+            PDDocumentOutline outline = new PDDocumentOutline();
+            for (ConvertedMessage message : converted) {
+                PDDocument source = pdfDocumentFactory.load(message.pdf().getFile(), true);
+                sources.add(source);
+                int firstPage = merged.getNumberOfPages();
+                merger.appendDocument(merged, source);
+                if (merged.getNumberOfPages() > firstPage) {
+                    PDOutlineItem item = new PDOutlineItem();
+                    item.setTitle(message.title());
+                    item.setDestination(merged.getPage(firstPage));
+                    outline.addLast(item);
+                }
+            }
+            // Replace the outlines carried over from the sources with one entry per message
+            merged.getDocumentCatalog().setDocumentOutline(outline);
+            merged.save(output.getFile());
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        } finally {
+            for (PDDocument source : sources) {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close merged message", e);
+                }
+            }
+        }
+        return output;
+    }
+}
@@ -1,6 +1,5 @@
 package stirling.software.SPDF.controller.api.misc;
 
-import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -10,9 +9,6 @@ import java.util.zip.ZipOutputStream;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageTree;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -30,11 +26,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import stirling.software.SPDF.model.api.misc.RemoveBlankPagesRequest;
+import stirling.software.SPDF.service.BlankPageDetectionService;
 import stirling.software.common.model.ApplicationProperties;
 import stirling.software.common.service.CustomPDFDocumentFactory;
 import stirling.software.common.util.ApplicationContextProvider;
-import stirling.software.common.util.ExceptionUtils;
-import stirling.software.common.util.PdfUtils;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -45,32 +40,7 @@ import stirling.software.common.util.WebResponseUtils;
 public class BlankPageController {
 
     private final CustomPDFDocumentFactory pdfDocumentFactory;
-
-    public static boolean isBlankImage(
-            BufferedImage image, int threshold, double whitePercent, int blurSize) {
-        if (image == null) {
-            log.info("Error: Image is null");
-            return false;
-        }
-
-        // Convert to binary image based on the threshold
-        int whitePixels = 0;
-        int totalPixels = image.getWidth() * image.getHeight();
-
-        for (int i = 0; i < image.getHeight(); i++) {
-            for (int j = 0; j < image.getWidth(); j++) {
-                int color = image.getRGB(j, i) & 0xFF;
-                if (color >= 255 - threshold) {
-                    whitePixels++;
-                }
-            }
-        }
-
-        double whitePixelPercentage = (whitePixels / (double) totalPixels) * 100;
-        log.info(String.format("Page has white pixel percent of %.2f%%", whitePixelPercentage));
-
-        return whitePixelPercentage >= whitePercent;
-    }
+    private final BlankPageDetectionService blankPageDetectionService;
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, value = "/remove-blanks")
     @Operation(
@@ -86,62 +56,27 @@ public class BlankPageController {
         float whitePercent = request.getWhitePercent();
 
         try (PDDocument document = pdfDocumentFactory.load(inputFile)) {
-            PDPageTree pages = document.getDocumentCatalog().getPages();
-            PDFTextStripper textStripper = new PDFTextStripper();
+            // Use global maximum DPI setting as the limit for pages that must be rendered
+            int maxDpi = 30; // Default fallback
+            ApplicationProperties properties =
+                    ApplicationContextProvider.getBean(ApplicationProperties.class);
+            if (properties != null && properties.getSystem() != null) {
+                maxDpi = properties.getSystem().getMaxDPI();
+            }
+            boolean[] blank =
+                    blankPageDetectionService.findBlankPages(
+                            inputFile, document, threshold, whitePercent, maxDpi);
 
             List<PDPage> nonBlankPages = new ArrayList<>();
             List<PDPage> blankPages = new ArrayList<>();
             int pageIndex = 0;
-
-            PDFRenderer pdfRenderer = new PDFRenderer(document);
-            pdfRenderer.setSubsamplingAllowed(true);
-            for (PDPage page : pages) {
-                log.info("checking page {}", pageIndex);
-                textStripper.setStartPage(pageIndex + 1);
-                textStripper.setEndPage(pageIndex + 1);
-                String pageText = textStripper.getText(document);
-                boolean hasText = !pageText.trim().isEmpty();
-
-                boolean blank = true;
-                if (hasText) {
-                    log.info("page {} has text, not blank", pageIndex);
-                    blank = false;
-                } else {
-                    boolean hasImages = PdfUtils.hasImagesOnPage(page);
-                    if (hasImages) {
-                        log.info("page {} has image, running blank detection", pageIndex);
-                        // Render image and save as temp file
-                        BufferedImage image;
-
-                        // Use global maximum DPI setting
-                        int renderDpi = 30; // Default fallback
-                        ApplicationProperties properties =
-                                ApplicationContextProvider.getBean(ApplicationProperties.class);
-                        if (properties != null && properties.getSystem() != null) {
-                            renderDpi = properties.getSystem().getMaxDPI();
-                        }
-
-                        try {
-                            image = pdfRenderer.renderImageWithDPI(pageIndex, renderDpi);
-                        } catch (OutOfMemoryError e) {
-                            throw ExceptionUtils.createOutOfMemoryDpiException(
-                                    pageIndex + 1, renderDpi, e);
-                        } catch (NegativeArraySizeException e) {
-                            throw ExceptionUtils.createOutOfMemoryDpiException(
-                                    pageIndex + 1, renderDpi, e);
-                        }
-                        blank = isBlankImage(image, threshold, whitePercent, threshold);
-                    }
-                }
-
-                if (blank) {
-                    log.info("Skipping, Image was  blank for page #{}", pageIndex);
+            for (PDPage page : document.getPages()) {
+                if (blank[pageIndex]) {
+                    log.info("Skipping, page #{} is blank", pageIndex);
                     blankPages.add(page);
                 } else {
-                    log.info("page {} has image which is not blank", pageIndex);
                     nonBlankPages.add(page);
                 }
-
                 pageIndex++;
             }
 
@@ -2,7 +2,6 @@ package stirling.software.SPDF.controller.api.misc;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -13,18 +12,10 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import javax.imageio.IIOImage;
-import javax.imageio.ImageIO;
-import javax.imageio.ImageWriteParam;
-import javax.imageio.ImageWriter;
-import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
-import javax.imageio.stream.ImageOutputStream;
-
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -56,6 +47,7 @@ import stirling.software.SPDF.model.api.misc.OptimizePdfRequest;
 import stirling.software.common.service.CustomPDFDocumentFactory;
 import stirling.software.common.util.ExceptionUtils;
 import stirling.software.common.util.GeneralUtils;
+import stirling.software.common.util.ImageEncoders;
 import stirling.software.common.util.ProcessExecutor;
 import stirling.software.common.util.ProcessExecutor.ProcessExecutorResult;
 import stirling.software.common.util.WebResponseUtils;
@@ -562,33 +554,12 @@ public class CompressController {
 
     // Convert image to byte array with quality settings
     private byte[] convertToBytes(BufferedImage scaledImage, float jpegQuality) throws IOException {
-        String format = scaledImage.getColorModel().hasAlpha() ? "png" : "jpeg";
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-        if ("jpeg".equals(format)) {
-            // Get the best available JPEG writer
-            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
-            ImageWriter writer = writers.next();
-
-            JPEGImageWriteParam param = (JPEGImageWriteParam) writer.getDefaultWriteParam();
-
-            // Set compression parameters
-            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-            param.setCompressionQuality(jpegQuality);
-            param.setOptimizeHuffmanTables(true); // Better compression
-            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT); // Progressive scanning
-
-            // Write compressed image
-            try (ImageOutputStream ios = ImageIO.createImageOutputStream(outputStream)) {
-                writer.setOutput(ios);
-                writer.write(null, new IIOImage(scaledImage, null, null), param);
-            }
-            writer.dispose();
-        } else {
-            ImageIO.write(scaledImage, format, outputStream);
+        if (scaledImage.getColorModel().hasAlpha()) {
+            return ImageEncoders.forFormat("png").toBytes(scaledImage);
         }
-
-        return outputStream.toByteArray();
+        // Progressive with optimized Huffman tables for the smallest output
+        return ImageEncoders.jpeg(new ImageEncoders.JpegOptions(jpegQuality, true, true, true))
+                .toBytes(scaledImage);
     }
 
     // Hash function to identify identical images
@@ -1,8 +1,9 @@
 package stirling.software.SPDF.controller.api.misc;
 
-import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -12,10 +13,9 @@ import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import javax.imageio.ImageIO;
-
 import org.apache.commons.io.FileUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -33,6 +33,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import stirling.software.SPDF.model.api.misc.ExtractImageScansRequest;
 import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.service.BandedPageRenderer;
 import stirling.software.common.service.CustomPDFDocumentFactory;
 import stirling.software.common.util.ApplicationContextProvider;
 import stirling.software.common.util.CheckProgramInstall;
@@ -52,6 +53,7 @@ public class ExtractImageScansController {
     private static final String REPLACEFIRST = "[.][^.]+$";
 
     private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final BandedPageRenderer bandedPageRenderer;
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, value = "/extract-image-scans")
     @Operation(
@@ -98,9 +100,6 @@ public class ExtractImageScansController {
                         // Create temp file to save the image
                         Path tempFile = Files.createTempFile("image_", ".png");
 
-                        // Render image and save as temp file
-                        BufferedImage image;
-
                         // Use global maximum DPI setting, fallback to 300 if not set
                         int renderDpi = 300; // Default fallback
                         ApplicationProperties properties =
@@ -109,14 +108,18 @@ public class ExtractImageScansController {
                             renderDpi = properties.getSystem().getMaxDPI();
                         }
 
-                        try {
-                            image = pdfRenderer.renderImageWithDPI(i, renderDpi);
-                        } catch (OutOfMemoryError e) {
-                            throw ExceptionUtils.createOutOfMemoryDpiException(i + 1, renderDpi, e);
-                        } catch (NegativeArraySizeException e) {
-                            throw ExceptionUtils.createOutOfMemoryDpiException(i + 1, renderDpi, e);
+                        // Render the page and stream it to the temp file band by band
+                        try (BandedPageRenderer.RenderedPage rendered =
+                                        bandedPageRenderer.open(
+                                                document,
+                                                pdfRenderer,
+                                                i,
+                                                renderDpi,
+                                                ImageType.RGB);
+                                OutputStream out =
+                                        new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                            rendered.writeImage("png", out);
                         }
-                        ImageIO.write(image, "png", tempFile.toFile());
 
                         // Add temp file path to images list
                         images.add(tempFile.toString());
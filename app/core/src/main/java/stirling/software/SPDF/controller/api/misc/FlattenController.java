@@ -1,13 +1,12 @@
 package stirling.software.SPDF.controller.api.misc;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
@@ -28,9 +27,9 @@ import lombok.extern.slf4j.Slf4j;
 
 import stirling.software.SPDF.model.api.misc.FlattenRequest;
 import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.service.BandedPageRenderer;
 import stirling.software.common.service.CustomPDFDocumentFactory;
 import stirling.software.common.util.ApplicationContextProvider;
-import stirling.software.common.util.ExceptionUtils;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -41,6 +40,7 @@ import stirling.software.common.util.WebResponseUtils;
 public class FlattenController {
 
     private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final BandedPageRenderer bandedPageRenderer;
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, value = "/flatten")
     @Operation(
@@ -70,8 +70,6 @@ public class FlattenController {
             int numPages = document.getNumberOfPages();
             for (int i = 0; i < numPages; i++) {
                 try {
-                    BufferedImage image;
-
                     // Use global maximum DPI setting, fallback to 300 if not set
                     int renderDpi = 300; // Default fallback
                     ApplicationProperties properties =
@@ -80,23 +78,23 @@ public class FlattenController {
                         renderDpi = properties.getSystem().getMaxDPI();
                     }
 
-                    try {
-                        image = pdfRenderer.renderImageWithDPI(i, renderDpi, ImageType.RGB);
-                    } catch (OutOfMemoryError e) {
-                        throw ExceptionUtils.createOutOfMemoryDpiException(i + 1, renderDpi, e);
-                    } catch (NegativeArraySizeException e) {
-                        throw ExceptionUtils.createOutOfMemoryDpiException(i + 1, renderDpi, e);
-                    }
                     PDPage page = new PDPage();
                     page.setMediaBox(document.getPage(i).getMediaBox());
                     newDocument.addPage(page);
-                    try (PDPageContentStream contentStream =
-                            new PDPageContentStream(newDocument, page)) {
-                        PDImageXObject pdImage = JPEGFactory.createFromImage(newDocument, image);
+                    try (BandedPageRenderer.RenderedPage rendered =
+                                    bandedPageRenderer.open(
+                                            document, pdfRenderer, i, renderDpi, ImageType.RGB);
+                            PDPageContentStream contentStream =
+                                    new PDPageContentStream(newDocument, page)) {
                         float pageWidth = page.getMediaBox().getWidth();
                         float pageHeight = page.getMediaBox().getHeight();
 
-                        contentStream.drawImage(pdImage, 0, 0, pageWidth, pageHeight);
+                        // Pages too large for one raster are drawn as stacked image strips
+                        rendered.drawInto(
+                                newDocument,
+                                contentStream,
+                                new PDRectangle(0, 0, pageWidth, pageHeight),
+                                JPEGFactory::createFromImage);
                     }
                 } catch (IOException e) {
                     log.error("exception", e);
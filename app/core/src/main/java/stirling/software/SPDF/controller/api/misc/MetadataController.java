@@ -4,9 +4,13 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
@@ -59,8 +63,7 @@ public class MetadataController {
                     "This endpoint allows you to update the metadata of a given PDF file. You can"
                             + " add, modify, or delete standard and custom metadata fields. Input:PDF"
                             + " Output:PDF Type:SISO")
-    public ResponseEntity<byte[]> metadata(@ModelAttribute MetadataRequest request)
-            throws IOException {
+    public ResponseEntity<?> metadata(@ModelAttribute MetadataRequest request) throws IOException {
 
         // Extract PDF file from the request object
         MultipartFile pdfFile = request.getFileInput();
@@ -87,6 +90,7 @@ public class MetadataController {
 
         // Get the document information from the PDF
         PDDocumentInformation info = document.getDocumentInformation();
+        Map<COSName, COSBase> originalValues = infoValues(info.getCOSObject());
 
         // Check if each metadata value is "undefined" and set it to null if it is
         author = checkUndefined(author);
@@ -177,10 +181,35 @@ public class MetadataController {
         info.setTrapped(trapped);
 
         document.setDocumentInformation(info);
-        return WebResponseUtils.pdfDocToWebResponse(
-                document,
+        String outputFilename =
                 Filenames.toSimpleFileName(pdfFile.getOriginalFilename())
                                 .replaceFirst("[.][^.]+$", "")
-                        + "_metadata.pdf");
+                        + "_metadata.pdf";
+        // When fields are only added, append the Info dictionary rather than rewriting the file. A
+        // changed or removed value must not stay readable in an earlier revision of the file.
+        if (!deleteAll
+                && keepsAllValues(originalValues, info.getCOSObject())
+                && pdfDocumentFactory.canSaveIncrementally(document)) {
+            return WebResponseUtils.pdfDocToIncrementalWebResponse(document, outputFilename);
+        }
+        return WebResponseUtils.pdfDocToWebResponse(document, outputFilename);
+    }
+
+    private static Map<COSName, COSBase> infoValues(COSDictionary info) {
+        Map<COSName, COSBase> values = new HashMap<>();
+        for (COSName key : info.keySet()) {
+            values.put(key, info.getDictionaryObject(key));
+        }
+        return values;
+    }
+
+    /** Whether every value present before the edit is still present and unchanged. */
+    private static boolean keepsAllValues(Map<COSName, COSBase> original, COSDictionary info) {
+        for (Entry<COSName, COSBase> entry : original.entrySet()) {
+            if (!Objects.equals(entry.getValue(), info.getDictionaryObject(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -1,6 +1,5 @@
 package stirling.software.SPDF.controller.api.misc;
 
-import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -8,11 +7,10 @@ import java.util.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import javax.imageio.ImageIO;
-
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.http.MediaType;
@@ -33,6 +31,7 @@ import lombok.extern.slf4j.Slf4j;
 import stirling.software.SPDF.config.EndpointConfiguration;
 import stirling.software.SPDF.model.api.misc.ProcessPdfWithOcrRequest;
 import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.service.BandedPageRenderer;
 import stirling.software.common.service.CustomPDFDocumentFactory;
 import stirling.software.common.util.ExceptionUtils;
 import stirling.software.common.util.ProcessExecutor;
@@ -53,6 +52,7 @@ public class OCRController {
     private final CustomPDFDocumentFactory pdfDocumentFactory;
     private final TempFileManager tempFileManager;
     private final EndpointConfiguration endpointConfiguration;
+    private final BandedPageRenderer bandedPageRenderer;
 
     private boolean isOcrMyPdfEnabled() {
         return endpointConfiguration.isGroupEnabled("OCRmyPDF");
@@ -358,9 +358,6 @@ public class OCRController {
                             new File(tempOutputDir, String.format("page_%d.pdf", pageNum));
 
                     if (shouldOcr) {
-                        // Convert page to image
-                        BufferedImage image;
-
                         // Use global maximum DPI setting, fallback to 300 if not set
                         int renderDpi = 300; // Default fallback
                         if (applicationProperties != null
@@ -368,18 +365,20 @@ public class OCRController {
                             renderDpi = applicationProperties.getSystem().getMaxDPI();
                         }
 
-                        try {
-                            image = pdfRenderer.renderImageWithDPI(pageNum, renderDpi);
-                        } catch (OutOfMemoryError e) {
-                            throw ExceptionUtils.createOutOfMemoryDpiException(
-                                    pageNum + 1, renderDpi, e);
-                        } catch (NegativeArraySizeException e) {
-                            throw ExceptionUtils.createOutOfMemoryDpiException(
-                                    pageNum + 1, renderDpi, e);
-                        }
+                        // Stream the page image to disk band by band
                         File imagePath =
                                 new File(tempImagesDir, String.format("page_%d.png", pageNum));
-                        ImageIO.write(image, "png", imagePath);
+                        try (BandedPageRenderer.RenderedPage rendered =
+                                        bandedPageRenderer.open(
+                                                document,
+                                                pdfRenderer,
+                                                pageNum,
+                                                renderDpi,
+                                                ImageType.RGB);
+                                OutputStream out =
+                                        new BufferedOutputStream(new FileOutputStream(imagePath))) {
+                            rendered.writeImage("png", out);
+                        }
 
                         // Build OCR command
                         List<String> command = new ArrayList<>();
@@ -1,10 +1,12 @@
 package stirling.software.SPDF.controller.api.misc;
 
 import java.awt.Color;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -19,6 +21,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.github.pixee.security.Filenames;
 import io.swagger.v3.oas.annotations.Operation;
@@ -27,8 +30,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 
 import stirling.software.SPDF.model.api.misc.AddPageNumbersRequest;
-import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.service.PageTransformEngine;
+import stirling.software.common.service.PageTransformer;
 import stirling.software.common.util.GeneralUtils;
+import stirling.software.common.util.TempFile;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -37,7 +42,7 @@ import stirling.software.common.util.WebResponseUtils;
 @RequiredArgsConstructor
 public class PageNumbersController {
 
-    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final PageTransformEngine pageTransformEngine;
 
     @PostMapping(value = "/add-page-numbers", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(
@@ -45,29 +50,33 @@ public class PageNumbersController {
             description =
                     "This operation takes an input PDF file and adds page numbers to it. Input:PDF"
                             + " Output:PDF Type:SISO")
-    public ResponseEntity<byte[]> addPageNumbers(@ModelAttribute AddPageNumbersRequest request)
-            throws IOException {
-
+    public ResponseEntity<StreamingResponseBody> addPageNumbers(
+            @ModelAttribute AddPageNumbersRequest request) throws IOException {
         MultipartFile file = request.getFileInput();
         String customMargin = request.getCustomMargin();
         int position = request.getPosition();
-        int pageNumber = request.getStartingNumber();
-        String pagesToNumber = request.getPagesToNumber();
-        String customText = request.getCustomText();
+        int startingNumber = request.getStartingNumber();
+        String pagesToNumber =
+                request.getPagesToNumber() == null || request.getPagesToNumber().isEmpty()
+                        ? "all"
+                        : request.getPagesToNumber();
+        String customText =
+                request.getCustomText() == null || request.getCustomText().isEmpty()
+                        ? "{n}"
+                        : request.getCustomText();
         float fontSize = request.getFontSize();
         String fontType = request.getFontType();
         String fontColor = request.getFontColor();
 
-        Color color = Color.BLACK;
+        Color parsedColor = Color.BLACK;
         if (fontColor != null && !fontColor.trim().isEmpty()) {
             try {
-                color = Color.decode(fontColor);
+                parsedColor = Color.decode(fontColor);
             } catch (NumberFormatException e) {
-                color = Color.BLACK;
+                parsedColor = Color.BLACK;
             }
         }
-
-        PDDocument document = pdfDocumentFactory.load(file);
+        Color color = parsedColor;
 
         float marginFactor =
                 switch (customMargin == null ? "" : customMargin.toLowerCase(Locale.ROOT)) {
@@ -78,99 +87,129 @@ public class PageNumbersController {
                     default -> 0.035f;
                 };
 
-        if (pagesToNumber == null || pagesToNumber.isEmpty()) {
-            pagesToNumber = "all";
-        }
-        if (customText == null || customText.isEmpty()) {
-            customText = "{n}";
-        }
-
         final String baseFilename =
                 Filenames.toSimpleFileName(file.getOriginalFilename())
                         .replaceFirst("[.][^.]+$", "");
 
-        List<Integer> pagesToNumberList =
-                GeneralUtils.parsePageList(pagesToNumber.split(","), document.getNumberOfPages());
-
         // Clamp position to 1..9 (1 = top-left, 9 = bottom-right)
         int pos = Math.max(1, Math.min(9, position));
 
-        for (int i : pagesToNumberList) {
-            PDPage page = document.getPage(i);
-            PDRectangle pageSize = page.getMediaBox();
-
-            String text =
-                    customText
-                            .replace("{n}", String.valueOf(pageNumber))
-                            .replace("{total}", String.valueOf(document.getNumberOfPages()))
-                            .replace("{filename}", baseFilename);
-
-            PDType1Font currentFont =
-                    switch (fontType == null ? "" : fontType.toLowerCase(Locale.ROOT)) {
-                        case "courier" -> new PDType1Font(Standard14Fonts.FontName.COURIER);
-                        case "times" -> new PDType1Font(Standard14Fonts.FontName.TIMES_ROMAN);
-                        default -> new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-                    };
-
-            // Text dimensions and font metrics
-            float textWidth = currentFont.getStringWidth(text) / 1000f * fontSize;
-            float ascent = currentFont.getFontDescriptor().getAscent() / 1000f * fontSize;
-            float descent = currentFont.getFontDescriptor().getDescent() / 1000f * fontSize;
-
-            // Derive column/row in range 1..3 (1 = left/top, 2 = center/middle, 3 = right/bottom)
-            int col = ((pos - 1) % 3) + 1; // 1 = left, 2 = center, 3 = right
-            int row = ((pos - 1) / 3) + 1; // 1 = top, 2 = middle, 3 = bottom
-
-            // Anchor coordinates with margin
-            float leftX = pageSize.getLowerLeftX() + marginFactor * pageSize.getWidth();
-            float midX = pageSize.getLowerLeftX() + pageSize.getWidth() / 2f;
-            float rightX = pageSize.getUpperRightX() - marginFactor * pageSize.getWidth();
-
-            float botY = pageSize.getLowerLeftY() + marginFactor * pageSize.getHeight();
-            float midY = pageSize.getLowerLeftY() + pageSize.getHeight() / 2f;
-            float topY = pageSize.getUpperRightY() - marginFactor * pageSize.getHeight();
-
-            // Horizontal alignment: left = anchor, center = centered, right = right-aligned
-            float x =
-                    switch (col) {
-                        case 1 -> leftX;
-                        case 2 -> midX - textWidth / 2f;
-                        default -> rightX - textWidth;
-                    };
-
-            // Vertical alignment (baseline!):
-            // top    = align text top at topY,
-            // middle = optical middle using ascent/descent,
-            // bottom = baseline at botY
-            float y =
-                    switch (row) {
-                        case 1 -> topY - ascent;
-                        case 2 -> midY - (ascent + descent) / 2f;
-                        default -> botY;
-                    };
-
-            try (PDPageContentStream contentStream =
-                    new PDPageContentStream(
-                            document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
-                contentStream.beginText();
-                contentStream.setFont(currentFont, fontSize);
-                contentStream.setNonStrokingColor(color);
-                contentStream.newLineAtOffset(x, y);
-                contentStream.showText(text);
-                contentStream.endText();
-            }
+        // Pages are visited in document order; numbers follow the order pages were listed in
+        PageTransformer numbering =
+                (context, page, pageIndex) -> {
+                    Map<Integer, List<Integer>> numbersByPage =
+                            context.shared(
+                                    "numbers",
+                                    document ->
+                                            assignNumbers(
+                                                    GeneralUtils.parsePageList(
+                                                            pagesToNumber.split(","),
+                                                            document.getNumberOfPages()),
+                                                    startingNumber));
+                    List<Integer> numbers = numbersByPage.get(pageIndex);
+                    if (numbers == null) {
+                        return;
+                    }
+                    // One font resource shared by every numbered page
+                    PDType1Font font = context.shared("font", document -> standardFont(fontType));
+                    for (int number : numbers) {
+                        String text =
+                                customText
+                                        .replace("{n}", String.valueOf(number))
+                                        .replace("{total}", String.valueOf(context.getPageCount()))
+                                        .replace("{filename}", baseFilename);
+                        drawPageNumber(
+                                context.getDocument(),
+                                page,
+                                text,
+                                font,
+                                fontSize,
+                                color,
+                                marginFactor,
+                                pos);
+                    }
+                };
 
-            pageNumber++;
+        TempFile output = pageTransformEngine.transform(file, numbering);
+        return WebResponseUtils.pdfFileToWebResponse(output, baseFilename + "_numbersAdded.pdf");
+    }
+
+    private static Map<Integer, List<Integer>> assignNumbers(
+            List<Integer> pageIndexes, int startingNumber) {
+        Map<Integer, List<Integer>> numbersByPage = new HashMap<>();
+        int number = startingNumber;
+        for (int pageIndex : pageIndexes) {
+            numbersByPage.computeIfAbsent(pageIndex, k -> new ArrayList<>(1)).add(number++);
         }
+        return numbersByPage;
+    }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        document.save(baos);
-        document.close();
+    private static PDType1Font standardFont(String fontType) {
+        return switch (fontType == null ? "" : fontType.toLowerCase(Locale.ROOT)) {
+            case "courier" -> new PDType1Font(Standard14Fonts.FontName.COURIER);
+            case "times" -> new PDType1Font(Standard14Fonts.FontName.TIMES_ROMAN);
+            default -> new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        };
+    }
 
-        return WebResponseUtils.bytesToWebResponse(
-                baos.toByteArray(),
-                Filenames.toSimpleFileName(file.getOriginalFilename()).replaceFirst("[.][^.]+$", "")
-                        + "_numbersAdded.pdf",
-                MediaType.APPLICATION_PDF);
+    private static void drawPageNumber(
+            PDDocument document,
+            PDPage page,
+            String text,
+            PDType1Font font,
+            float fontSize,
+            Color color,
+            float marginFactor,
+            int pos)
+            throws IOException {
+        PDRectangle pageSize = page.getMediaBox();
+
+        // Text dimensions and font metrics
+        float textWidth = font.getStringWidth(text) / 1000f * fontSize;
+        float ascent = font.getFontDescriptor().getAscent() / 1000f * fontSize;
+        float descent = font.getFontDescriptor().getDescent() / 1000f * fontSize;
+
+        // Derive column/row in range 1..3 (1 = left/top, 2 = center/middle, 3 = right/bottom)
+        int col = ((pos - 1) % 3) + 1; // 1 = left, 2 = center, 3 = right
+        int row = ((pos - 1) / 3) + 1; // 1 = top, 2 = middle, 3 = bottom
+
+        // Anchor coordinates with margin
+        float leftX = pageSize.getLowerLeftX() + marginFactor * pageSize.getWidth();
+        float midX = pageSize.getLowerLeftX() + pageSize.getWidth() / 2f;
+        float rightX = pageSize.getUpperRightX() - marginFactor * pageSize.getWidth();
+
+        float botY = pageSize.getLowerLeftY() + marginFactor * pageSize.getHeight();
+        float midY = pageSize.getLowerLeftY() + pageSize.getHeight() / 2f;
+        float topY = pageSize.getUpperRightY() - marginFactor * pageSize.getHeight();
+
+        // Horizontal alignment: left = anchor, center = centered, right = right-aligned
+        float x =
+                switch (col) {
+                    case 1 -> leftX;
+                    case 2 -> midX - textWidth / 2f;
+                    default -> rightX - textWidth;
+                };
+
+        // Vertical alignment (baseline!):
+        // top    = align text top at topY,
+        // middle = optical middle using ascent/descent,
+        // bottom = baseline at botY
+        float y =
+                switch (row) {
+                    case 1 -> topY - ascent;
+                    case 2 -> midY - (ascent + descent) / 2f;
+                    default -> botY;
+                };
+
+        try (PDPageContentStream contentStream =
+                new PDPageContentStream(
+                        document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+            contentStream.beginText();
+            contentStream.setFont(font, fontSize);
+            contentStream.setNonStrokingColor(color);
+            contentStream.newLineAtOffset(x, y);
+            contentStream.showText(text);
+            contentStream.endText();
+        }
     }
 }
@@ -3,28 +3,20 @@ package stirling.software.SPDF.controller.api.misc;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyEditorSupport;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
 
 import javax.imageio.ImageIO;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
-import org.apache.pdfbox.pdmodel.font.PDType0Font;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.util.Matrix;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.WebDataBinder;
@@ -42,9 +34,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 
 import stirling.software.SPDF.model.api.misc.AddStampRequest;
+import stirling.software.SPDF.utils.text.WidthCalculator;
 import stirling.software.common.service.CustomPDFDocumentFactory;
-import stirling.software.common.util.TempFile;
-import stirling.software.common.util.TempFileManager;
+import stirling.software.common.service.FontCache;
+import stirling.software.common.util.FormXObjectCache;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -54,7 +47,7 @@ import stirling.software.common.util.WebResponseUtils;
 public class StampController {
 
     private final CustomPDFDocumentFactory pdfDocumentFactory;
-    private final TempFileManager tempFileManager;
+    private final FontCache fontCache;
 
     /**
      * Initialize data binder for multipart file uploads. This method registers a custom editor for
@@ -124,6 +117,17 @@ public class StampController {
         // Load the input PDF
         PDDocument document = pdfDocumentFactory.load(pdfFile);
 
+        // One embedded font for all stamped pages
+        PDFont font =
+                "text".equalsIgnoreCase(stampType)
+                        ? fontCache.loadFontForAlphabet(document, alphabet)
+                        : null;
+
+        FormXObjectCache sharedForms =
+                Boolean.FALSE.equals(request.getShareAcrossPages())
+                        ? null
+                        : new FormXObjectCache(document);
+
         List<Integer> pageNumbers = request.getPageNumbersList(document, true);
 
         for (int pageIndex : pageNumbers) {
@@ -141,32 +145,43 @@ public class StampController {
                 graphicsState.setNonStrokingAlphaConstant(opacity);
                 contentStream.setGraphicsStateParameters(graphicsState);
 
-                if ("text".equalsIgnoreCase(stampType)) {
-                    addTextStamp(
-                            contentStream,
-                            stampText,
-                            document,
-                            page,
-                            rotation,
-                            position,
-                            fontSize,
-                            alphabet,
-                            overrideX,
-                            overrideY,
-                            margin,
-                            customColor);
-                } else if ("image".equalsIgnoreCase(stampType)) {
-                    addImageStamp(
-                            contentStream,
-                            stampImage,
-                            document,
-                            page,
-                            rotation,
-                            position,
-                            fontSize,
-                            overrideX,
-                            overrideY,
-                            margin);
+                FormXObjectCache.FormPainter painter =
+                        stream -> {
+                            if ("text".equalsIgnoreCase(stampType)) {
+                                addTextStamp(
+                                        stream,
+                                        stampText,
+                                        document,
+                                        page,
+                                        rotation,
+                                        position,
+                                        fontSize,
+                                        font,
+                                        overrideX,
+                                        overrideY,
+                                        margin,
+                                        customColor);
+                            } else if ("image".equalsIgnoreCase(stampType)) {
+                                addImageStamp(
+                                        stream,
+                                        stampImage,
+                                        document,
+                                        page,
+                                        rotation,
+                                        position,
+                                        fontSize,
+                                        overrideX,
+                                        overrideY,
+                                        margin);
+                            }
+                        };
+                if (sharedForms != null) {
+                    // The stamp only depends on the media box, so same-sized pages share it
+                    contentStream.drawForm(
+                            sharedForms.get(
+                                    FormXObjectCache.pageBoxKey(pageSize), pageSize, painter));
+                } else {
+                    painter.paint(contentStream);
                 }
 
                 contentStream.close();
@@ -187,40 +202,12 @@ public class StampController {
             float rotation,
             int position, // 1-9 positioning logic
             float fontSize,
-            String alphabet,
+            PDFont font,
             float overrideX, // X override
             float overrideY,
             float margin,
             String colorString) // Y override
             throws IOException {
-        String resourceDir = "";
-        PDFont font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-        resourceDir =
-                switch (alphabet) {
-                    case "arabic" -> "static/fonts/NotoSansArabic-Regular.ttf";
-                    case "japanese" -> "static/fonts/Meiryo.ttf";
-                    case "korean" -> "static/fonts/malgun.ttf";
-                    case "chinese" -> "static/fonts/SimSun.ttf";
-                    case "thai" -> "static/fonts/NotoSansThai-Regular.ttf";
-                    case "roman" -> "static/fonts/NotoSans-Regular.ttf";
-                    default -> "static/fonts/NotoSans-Regular.ttf";
-                };
-
-        if (!"".equals(resourceDir)) {
-            ClassPathResource classPathResource = new ClassPathResource(resourceDir);
-            String fileExtension = resourceDir.substring(resourceDir.lastIndexOf("."));
-
-            // Use TempFile with try-with-resources for automatic cleanup
-            try (TempFile tempFileWrapper = new TempFile(tempFileManager, fileExtension)) {
-                File tempFile = tempFileWrapper.getFile();
-                try (InputStream is = classPathResource.getInputStream();
-                        FileOutputStream os = new FileOutputStream(tempFile)) {
-                    IOUtils.copy(is, os);
-                    font = PDType0Font.load(document, tempFile);
-                }
-            }
-        }
-
         contentStream.setFont(font, fontSize);
 
         Color redactColor;
@@ -352,8 +339,8 @@ public class StampController {
         };
     }
 
-    private float calculateTextWidth(String text, PDFont font, float fontSize) throws IOException {
-        return font.getStringWidth(text) / 1000 * fontSize;
+    private float calculateTextWidth(String text, PDFont font, float fontSize) {
+        return WidthCalculator.calculateAccurateWidth(font, text, fontSize);
     }
 
     private float calculateTextCapHeight(PDFont font, float fontSize) {
@@ -108,12 +108,18 @@ public class ValidateSignatureController {
                     Store<X509CertificateHolder> certStore = signedData.getCertificates();
                     SignerInformationStore signerStore = signedData.getSignerInfos();
 
+                    // Intermediates shipped with the signature complete the chain to a root
+                    JcaX509CertificateConverter converter = new JcaX509CertificateConverter();
+                    List<X509Certificate> embeddedCerts = new ArrayList<>();
+                    for (X509CertificateHolder holder : certStore.getMatches(null)) {
+                        embeddedCerts.add(converter.getCertificate(holder));
+                    }
+
                     for (SignerInformation signer : signerStore.getSigners()) {
                         X509CertificateHolder certHolder =
                                 (X509CertificateHolder)
                                         certStore.getMatches(signer.getSID()).iterator().next();
-                        X509Certificate cert =
-                                new JcaX509CertificateConverter().getCertificate(certHolder);
+                        X509Certificate cert = converter.getCertificate(certHolder);
 
                         boolean isValid =
                                 signer.verify(new JcaSimpleSignerInfoVerifierBuilder().build(cert));
@@ -125,7 +131,8 @@ public class ValidateSignatureController {
                                         ? certValidationService
                                                 .validateCertificateChainWithCustomCert(
                                                         cert, customCert)
-                                        : certValidationService.validateCertificateChain(cert));
+                                        : certValidationService.validateCertificateChain(
+                                                cert, embeddedCerts));
 
                         result.setTrustValid(
                                 customCert != null
@@ -133,7 +140,7 @@ public class ValidateSignatureController {
                                                 cert, customCert)
                                         : certValidationService.validateTrustStore(cert));
 
-                        result.setNotRevoked(!certValidationService.isRevoked(cert));
+                        result.setNotRevoked(!certValidationService.isRevoked(cert, embeddedCerts));
                         result.setNotExpired(!cert.getNotAfter().before(new Date()));
 
                         // Set basic signature info
@@ -3,27 +3,19 @@ package stirling.software.SPDF.controller.api.security;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyEditorSupport;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 
 import javax.imageio.ImageIO;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
-import org.apache.pdfbox.pdmodel.font.PDType0Font;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.util.Matrix;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.WebDataBinder;
@@ -33,6 +25,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.github.pixee.security.Filenames;
 import io.swagger.v3.oas.annotations.Operation;
@@ -41,8 +34,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 
 import stirling.software.SPDF.model.api.security.AddWatermarkRequest;
+import stirling.software.SPDF.utils.text.WidthCalculator;
 import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.service.FontCache;
+import stirling.software.common.service.PageTransformEngine;
+import stirling.software.common.service.PageTransformer;
+import stirling.software.common.util.FormXObjectCache;
 import stirling.software.common.util.PdfUtils;
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
 import stirling.software.common.util.WebResponseUtils;
 
 @RestController
@@ -52,6 +52,9 @@ import stirling.software.common.util.WebResponseUtils;
 public class WatermarkController {
 
     private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final FontCache fontCache;
+    private final PageTransformEngine pageTransformEngine;
+    private final TempFileManager tempFileManager;
 
     @InitBinder
     public void initBinder(WebDataBinder binder) {
@@ -72,8 +75,8 @@ public class WatermarkController {
                     "This endpoint adds a watermark to a given PDF file. Users can specify the"
                             + " watermark type (text or image), rotation, opacity, width spacer, and"
                             + " height spacer. Input:PDF Output:PDF Type:SISO")
-    public ResponseEntity<byte[]> addWatermark(@ModelAttribute AddWatermarkRequest request)
-            throws IOException, Exception {
+    public ResponseEntity<StreamingResponseBody> addWatermark(
+            @ModelAttribute AddWatermarkRequest request) throws IOException, Exception {
         MultipartFile pdfFile = request.getFileInput();
         String pdfFileName = pdfFile.getOriginalFilename();
         if (pdfFileName != null && (pdfFileName.contains("..") || pdfFileName.startsWith("/"))) {
@@ -99,61 +102,95 @@ public class WatermarkController {
         String customColor = request.getCustomColor();
         boolean convertPdfToImage = Boolean.TRUE.equals(request.getConvertPDFToImage());
 
-        // Load the input PDF
-        PDDocument document = pdfDocumentFactory.load(pdfFile);
-
-        // Create a page in the document
-        for (PDPage page : document.getPages()) {
-
-            // Get the page's content stream
-            PDPageContentStream contentStream =
-                    new PDPageContentStream(
-                            document, page, PDPageContentStream.AppendMode.APPEND, true, true);
-
-            // Set transparency
-            PDExtendedGraphicsState graphicsState = new PDExtendedGraphicsState();
-            graphicsState.setNonStrokingAlphaConstant(opacity);
-            contentStream.setGraphicsStateParameters(graphicsState);
-
-            if ("text".equalsIgnoreCase(watermarkType)) {
-                addTextWatermark(
-                        contentStream,
-                        watermarkText,
-                        document,
-                        page,
-                        rotation,
-                        widthSpacer,
-                        heightSpacer,
-                        fontSize,
-                        alphabet,
-                        customColor);
-            } else if ("image".equalsIgnoreCase(watermarkType)) {
-                addImageWatermark(
-                        contentStream,
-                        watermarkImage,
-                        document,
-                        page,
-                        rotation,
-                        widthSpacer,
-                        heightSpacer,
-                        fontSize);
-            }
+        // Pages are watermarked as they are visited; the font and, unless disabled, one form per
+        // page size are created once per document and shared by every page
+        boolean shareAcrossPages = !Boolean.FALSE.equals(request.getShareAcrossPages());
+        PageTransformer watermark =
+                (context, page, pageIndex) -> {
+                    PDDocument document = context.getDocument();
+                    PDFont font =
+                            "text".equalsIgnoreCase(watermarkType)
+                                    ? context.shared(
+                                            "font",
+                                            doc -> fontCache.loadFontForAlphabet(doc, alphabet))
+                                    : null;
+
+                    // Get the page's content stream
+                    try (PDPageContentStream contentStream =
+                            new PDPageContentStream(
+                                    document,
+                                    page,
+                                    PDPageContentStream.AppendMode.APPEND,
+                                    true,
+                                    true)) {
+
+                        // Set transparency
+                        PDExtendedGraphicsState graphicsState = new PDExtendedGraphicsState();
+                        graphicsState.setNonStrokingAlphaConstant(opacity);
+                        contentStream.setGraphicsStateParameters(graphicsState);
+
+                        FormXObjectCache.FormPainter painter =
+                                stream -> {
+                                    if ("text".equalsIgnoreCase(watermarkType)) {
+                                        addTextWatermark(
+                                                stream,
+                                                watermarkText,
+                                                document,
+                                                page,
+                                                rotation,
+                                                widthSpacer,
+                                                heightSpacer,
+                                                fontSize,
+                                                font,
+                                                customColor);
+                                    } else if ("image".equalsIgnoreCase(watermarkType)) {
+                                        addImageWatermark(
+                                                stream,
+                                                watermarkImage,
+                                                document,
+                                                page,
+                                                rotation,
+                                                widthSpacer,
+                                                heightSpacer,
+                                                fontSize);
+                                    }
+                                };
+                        if (shareAcrossPages) {
+                            // Pages with the same media box reference one form holding the grid
+                            PDRectangle mediaBox = page.getMediaBox();
+                            contentStream.drawForm(
+                                    context.getForms()
+                                            .get(
+                                                    FormXObjectCache.pageBoxKey(mediaBox),
+                                                    mediaBox,
+                                                    painter));
+                        } else {
+                            painter.paint(contentStream);
+                        }
+                    }
+                };
 
-            // Close the content stream
-            contentStream.close();
+        String outputName =
+                Filenames.toSimpleFileName(pdfFile.getOriginalFilename())
+                                .replaceFirst("[.][^.]+$", "")
+                        + "_watermarked.pdf";
+        if (!convertPdfToImage) {
+            TempFile output = pageTransformEngine.transform(pdfFile, watermark);
+            return WebResponseUtils.pdfFileToWebResponse(output, outputName);
         }
 
-        if (convertPdfToImage) {
-            PDDocument convertedPdf = PdfUtils.convertPdfToPdfImage(document);
-            document.close();
-            document = convertedPdf;
+        // Rasterising needs the whole watermarked document
+        TempFile output = new TempFile(tempFileManager, ".pdf");
+        try (PDDocument document = pdfDocumentFactory.load(pdfFile)) {
+            pageTransformEngine.transform(document, watermark);
+            try (PDDocument result = PdfUtils.convertPdfToPdfImage(document)) {
+                result.save(output.getFile());
+            }
+        } catch (IOException | RuntimeException e) {
+            output.close();
+            throw e;
         }
-
-        return WebResponseUtils.pdfDocToWebResponse(
-                document,
-                Filenames.toSimpleFileName(pdfFile.getOriginalFilename())
-                                .replaceFirst("[.][^.]+$", "")
-                        + "_watermarked.pdf");
+        return WebResponseUtils.pdfFileToWebResponse(output, outputName);
     }
 
     private void addTextWatermark(
@@ -165,46 +202,9 @@ public class WatermarkController {
             int widthSpacer,
             int heightSpacer,
             float fontSize,
-            String alphabet,
+            PDFont font,
             String colorString)
             throws IOException {
-        String resourceDir = "";
-        PDFont font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-        switch (alphabet) {
-            case "arabic":
-                resourceDir = "static/fonts/NotoSansArabic-Regular.ttf";
-                break;
-            case "japanese":
-                resourceDir = "static/fonts/Meiryo.ttf";
-                break;
-            case "korean":
-                resourceDir = "static/fonts/malgun.ttf";
-                break;
-            case "chinese":
-                resourceDir = "static/fonts/SimSun.ttf";
-                break;
-            case "thai":
-                resourceDir = "static/fonts/NotoSansThai-Regular.ttf";
-                break;
-            case "roman":
-            default:
-                resourceDir = "static/fonts/NotoSans-Regular.ttf";
-                break;
-        }
-
-        if (!"".equals(resourceDir)) {
-            ClassPathResource classPathResource = new ClassPathResource(resourceDir);
-            String fileExtension = resourceDir.substring(resourceDir.lastIndexOf("."));
-            File tempFile = Files.createTempFile("NotoSansFont", fileExtension).toFile();
-            try (InputStream is = classPathResource.getInputStream();
-                    FileOutputStream os = new FileOutputStream(tempFile)) {
-                IOUtils.copy(is, os);
-                font = PDType0Font.load(document, tempFile);
-            } finally {
-                if (tempFile != null) Files.deleteIfExists(tempFile.toPath());
-            }
-        }
-
         contentStream.setFont(font, fontSize);
 
         Color redactColor;
@@ -223,11 +223,14 @@ public class WatermarkController {
         float maxLineWidth = 0;
 
         for (int i = 0; i < textLines.length; ++i) {
-            maxLineWidth = Math.max(maxLineWidth, font.getStringWidth(textLines[i]));
+            maxLineWidth =
+                    Math.max(
+                            maxLineWidth,
+                            WidthCalculator.calculateAccurateWidth(font, textLines[i], fontSize));
         }
 
         // Set size and location of text watermark
-        float watermarkWidth = widthSpacer + maxLineWidth * fontSize / 1000;
+        float watermarkWidth = widthSpacer + maxLineWidth;
         float watermarkHeight = heightSpacer + fontSize * textLines.length;
         float pageWidth = page.getMediaBox().getWidth();
         float pageHeight = page.getMediaBox().getHeight();
@@ -84,4 +84,11 @@ public class AddStampRequest extends PDFWithPageNums {
 
     @Schema(description = "The color of the stamp text", defaultValue = "#d3d3d3")
     private String customColor;
+
+    @Schema(
+            description =
+                    "Draw the stamp once as a form XObject shared by all pages of the same size,"
+                            + " instead of repeating it in every page's content",
+            defaultValue = "true")
+    private Boolean shareAcrossPages;
 }
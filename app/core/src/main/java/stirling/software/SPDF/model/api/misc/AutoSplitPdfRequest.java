@@ -17,4 +17,13 @@ public class AutoSplitPdfRequest extends PDFFile {
             requiredMode = Schema.RequiredMode.NOT_REQUIRED,
             defaultValue = "false")
     private Boolean duplexMode;
+
+    @Schema(
+            description =
+                    "Also look for QR codes too small to be located at low resolution. Pages with"
+                            + " content but no visible code are then scanned again at full"
+                            + " resolution, which makes scanning large documents much slower.",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED,
+            defaultValue = "false")
+    private Boolean detectSmallCodes;
 }
@@ -49,6 +49,13 @@ public class AddWatermarkRequest extends PDFFile {
     @Schema(description = "The color for watermark", defaultValue = "#d3d3d3")
     private String customColor;
 
+    @Schema(
+            description =
+                    "Draw the watermark once as a form XObject shared by all pages of the same"
+                            + " size, instead of repeating it in every page's content",
+            defaultValue = "true")
+    private Boolean shareAcrossPages;
+
     @Schema(
             description = "Convert the redacted PDF to an image",
             defaultValue = "false",
@@ -0,0 +1,302 @@
+package stirling.software.SPDF.service;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.util.Matrix;
+
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.util.ExceptionUtils;
+
+/**
+ * Decides whether pages of one document are blank, rendering only the pages that cannot be decided
+ * from their content.
+ *
+ * <p>A page is blank when it shows no text and, if it paints images, at least {@code whitePercent}
+ * of it is white. Vector drawings alone do not make a page non-blank. The content stream is walked
+ * first, without decoding fonts or images:
+ *
+ * <ul>
+ *   <li>Pages that show text are checked with the text stripper and are not blank if it finds any.
+ *   <li>Pages that paint no image are blank.
+ *   <li>Pages whose images cover too little of the page to reach the limit are blank.
+ *   <li>A page that paints a single opaque image and nothing else, as scans do, is judged from the
+ *       image itself, decoded with subsampling at about {@link #DETECTION_DPI}.
+ * </ul>
+ *
+ * Only the remaining pages are rendered, in grayscale at {@link #DETECTION_DPI} at most. A
+ * classifier is bound to one document and must only be used by one thread.
+ */
+@Slf4j
+class BlankPageClassifier {
+
+    /** Resolution at which images are sampled and ambiguous pages are rendered. */
+    static final int DETECTION_DPI = 72;
+
+    /** How far, in points, an image may reach past the crop box and still be judged by itself. */
+    private static final float CROP_TOLERANCE = 1f;
+
+    private final PDDocument document;
+    private final int threshold;
+    private final float whitePercent;
+    private final int renderDpi;
+    private final PDFTextStripper textStripper;
+    private PDFRenderer renderer;
+
+    BlankPageClassifier(PDDocument document, int threshold, float whitePercent, int maxDpi)
+            throws IOException {
+        this.document = document;
+        this.threshold = threshold;
+        this.whitePercent = whitePercent;
+        this.renderDpi = Math.max(1, Math.min(maxDpi, DETECTION_DPI));
+        this.textStripper = new PDFTextStripper();
+    }
+
+    boolean isBlank(int pageIndex) throws IOException {
+        PDPage page = document.getPage(pageIndex);
+        ContentSummary content = new ContentSummary(page);
+        content.processPage(page);
+
+        if (content.showsText && hasText(pageIndex)) {
+            log.debug("Page {} has text", pageIndex + 1);
+            return false;
+        }
+        if (content.images.isEmpty()) {
+            log.debug("Page {} paints no image", pageIndex + 1);
+            return true;
+        }
+
+        PDRectangle cropBox = page.getCropBox();
+        Rectangle2D crop =
+                new Rectangle2D.Float(
+                        cropBox.getLowerLeftX(),
+                        cropBox.getLowerLeftY(),
+                        cropBox.getWidth(),
+                        cropBox.getHeight());
+        double pageArea = crop.getWidth() * crop.getHeight();
+        if (pageArea <= 0) {
+            return true;
+        }
+
+        if (!content.paintsVectors) {
+            double imageArea = 0;
+            for (PlacedImage placed : content.images) {
+                Rectangle2D visible = placed.bounds().createIntersection(crop);
+                if (!visible.isEmpty()) {
+                    imageArea += visible.getWidth() * visible.getHeight();
+                }
+            }
+            if (100 * imageArea / pageArea <= 100 - whitePercent) {
+                log.debug("Page {} has images on too little of the page", pageIndex + 1);
+                return true;
+            }
+
+            if (content.images.size() == 1 && isOpaque(content.images.get(0).image())) {
+                Rectangle2D bounds = content.images.get(0).bounds();
+                Rectangle2D tolerated =
+                        new Rectangle2D.Double(
+                                crop.getX() - CROP_TOLERANCE,
+                                crop.getY() - CROP_TOLERANCE,
+                                crop.getWidth() + 2 * CROP_TOLERANCE,
+                                crop.getHeight() + 2 * CROP_TOLERANCE);
+                if (tolerated.contains(bounds)) {
+                    double coverage =
+                            Math.min(1, bounds.getWidth() * bounds.getHeight() / pageArea);
+                    double dark =
+                            100 - whitePixelPercentage(sample(content.images.get(0)), threshold);
+                    log.debug("Page {} judged from its only image", pageIndex + 1);
+                    return 100 - dark * coverage >= whitePercent;
+                }
+            }
+        }
+
+        log.debug("Page {} is rendered for blank detection", pageIndex + 1);
+        BufferedImage image;
+        try {
+            image = renderer().renderImageWithDPI(pageIndex, renderDpi, ImageType.GRAY);
+        } catch (OutOfMemoryError | NegativeArraySizeException e) {
+            throw ExceptionUtils.createOutOfMemoryDpiException(pageIndex + 1, renderDpi, e);
+        }
+        return whitePixelPercentage(image, threshold) >= whitePercent;
+    }
+
+    private boolean hasText(int pageIndex) throws IOException {
+        textStripper.setStartPage(pageIndex + 1);
+        textStripper.setEndPage(pageIndex + 1);
+        return !textStripper.getText(document).trim().isEmpty();
+    }
+
+    private PDFRenderer renderer() {
+        if (renderer == null) {
+            renderer = new PDFRenderer(document);
+            renderer.setSubsamplingAllowed(true);
+        }
+        return renderer;
+    }
+
+    private BufferedImage sample(PlacedImage placed) throws IOException {
+        PDImage image = placed.image();
+        double longEdgePoints = Math.max(placed.bounds().getWidth(), placed.bounds().getHeight());
+        int longEdgePixels = Math.max(image.getWidth(), image.getHeight());
+        int subsampling = Math.max(1, (int) (longEdgePixels / (longEdgePoints * renderDpi / 72)));
+        return image.getImage(null, subsampling);
+    }
+
+    private static boolean isOpaque(PDImage image) {
+        if (image.isStencil()) {
+            return false;
+        }
+        if (image instanceof PDImageXObject xObject) {
+            return !xObject.getCOSObject().containsKey(COSName.SMASK)
+                    && !xObject.getCOSObject().containsKey(COSName.MASK);
+        }
+        return true;
+    }
+
+    /** Percentage of pixels whose gray value is within {@code threshold} of white. */
+    static double whitePixelPercentage(BufferedImage image, int threshold) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long total = (long) width * height;
+        if (total == 0) {
+            return 100;
+        }
+        int[] row = new int[width];
+        int limit = 255 - threshold;
+        long white = 0;
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        for (int y = 0; y < height; y++) {
+            if (gray) {
+                image.getRaster().getSamples(0, y, width, 1, 0, row);
+            } else {
+                image.getRGB(0, y, width, 1, row, 0, width);
+            }
+            for (int x = 0; x < width; x++) {
+                int value;
+                if (gray) {
+                    value = row[x];
+                } else {
+                    int argb = row[x];
+                    value =
+                            (argb >>> 24) == 0
+                                    ? 255
+                                    : (306 * ((argb >> 16) & 0xff)
+                                                    + 601 * ((argb >> 8) & 0xff)
+                                                    + 117 * (argb & 0xff)
+                                                    + 0x200)
+                                            >> 10;
+                }
+                if (value >= limit) {
+                    white++;
+                }
+            }
+        }
+        return white * 100.0 / total;
+    }
+
+    private record PlacedImage(PDImage image, Rectangle2D bounds) {}
+
+    /**
+     * Walks a page's content, including form XObjects, noting what it paints. Text is recorded
+     * without decoding any font and images without decoding their data.
+     */
+    private static class ContentSummary extends PDFGraphicsStreamEngine {
+
+        private boolean showsText;
+        private boolean paintsVectors;
+        private final List<PlacedImage> images = new ArrayList<>();
+
+        ContentSummary(PDPage page) {
+            super(page);
+        }
+
+        @Override
+        public void showTextString(byte[] string) {
+            showsText = true;
+        }
+
+        @Override
+        public void showTextStrings(COSArray array) {
+            showsText = true;
+        }
+
+        @Override
+        public void drawImage(PDImage pdImage) {
+            Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int corner = 0; corner < 4; corner++) {
+                Point2D.Float point = ctm.transformPoint(corner & 1, corner >> 1);
+                minX = Math.min(minX, point.x);
+                minY = Math.min(minY, point.y);
+                maxX = Math.max(maxX, point.x);
+                maxY = Math.max(maxY, point.y);
+            }
+            images.add(
+                    new PlacedImage(
+                            pdImage, new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY)));
+        }
+
+        @Override
+        public void strokePath() {
+            paintsVectors = true;
+        }
+
+        @Override
+        public void fillPath(int windingRule) {
+            paintsVectors = true;
+        }
+
+        @Override
+        public void fillAndStrokePath(int windingRule) {
+            paintsVectors = true;
+        }
+
+        @Override
+        public void shadingFill(COSName shadingName) {
+            paintsVectors = true;
+        }
+
+        @Override
+        public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {}
+
+        @Override
+        public void clip(int windingRule) {}
+
+        @Override
+        public void moveTo(float x, float y) {}
+
+        @Override
+        public void lineTo(float x, float y) {}
+
+        @Override
+        public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {}
+
+        @Override
+        public Point2D getCurrentPoint() {
+            return new Point2D.Float();
+        }
+
+        @Override
+        public void closePath() {}
+
+        @Override
+        public void endPath() {}
+    }
+}
@@ -0,0 +1,69 @@
+package stirling.software.SPDF.service;
+
+import java.io.IOException;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.RequiredArgsConstructor;
+
+import stirling.software.common.service.BatchExecutor;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+
+/**
+ * Finds the blank pages of a document.
+ *
+ * <p>Pages are classified by {@link BlankPageClassifier}, which decides most pages from their
+ * content streams and renders only the rest, at low resolution. Large documents are split by {@link
+ * BatchExecutor#forEachPageRange} into one range of consecutive pages per worker, each classified
+ * from a single copy of the upload.
+ */
+@Service
+@RequiredArgsConstructor
+public class BlankPageDetectionService {
+
+    /** Fewer pages than this per worker are not worth loading another copy for. */
+    static final int MIN_PAGES_PER_RANGE = 8;
+
+    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final BatchExecutor batchExecutor;
+
+    /**
+     * Whether each page of the document is blank.
+     *
+     * @param input the upload the document was loaded from, read again by each worker
+     * @param document the loaded document, used when classifying on the calling thread
+     * @param threshold how far from pure white (0-255) a pixel may be and still count as white
+     * @param whitePercent the share of white pixels from which a page with images is blank
+     * @param maxDpi the highest resolution pages may be rendered at
+     */
+    public boolean[] findBlankPages(
+            MultipartFile input, PDDocument document, int threshold, float whitePercent, int maxDpi)
+            throws IOException {
+        boolean[] blank = new boolean[document.getNumberOfPages()];
+        batchExecutor.forEachPageRange(
+                document,
+                batchExecutor.splitPages(blank.length, MIN_PAGES_PER_RANGE, 1),
+                input.getSize(),
+                () -> pdfDocumentFactory.load(input, true),
+                (rangeDocument, range) ->
+                        classifyRange(
+                                new BlankPageClassifier(
+                                        rangeDocument, threshold, whitePercent, maxDpi),
+                                range),
+                (range, rangeBlank) ->
+                        System.arraycopy(
+                                rangeBlank, 0, blank, range.fromPage(), rangeBlank.length));
+        return blank;
+    }
+
+    private static boolean[] classifyRange(
+            BlankPageClassifier classifier, BatchExecutor.PageRange range) throws IOException {
+        boolean[] blank = new boolean[range.size()];
+        for (int page = range.fromPage(); page < range.toPage(); page++) {
+            blank[page - range.fromPage()] = classifier.isBlank(page);
+        }
+        return blank;
+    }
+}
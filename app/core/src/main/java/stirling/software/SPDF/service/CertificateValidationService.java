@@ -1,125 +1,214 @@
 package stirling.software.SPDF.service;
 
 import java.io.*;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
+import java.nio.file.Path;
 import java.security.cert.*;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.*;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import io.github.pixee.security.BoundedLineReader;
-
 import jakarta.annotation.PostConstruct;
 
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.SPDF.service.trust.CertificateIdentifiers;
+import stirling.software.SPDF.service.trust.ExpiringCache;
+import stirling.software.SPDF.service.trust.HttpRevocationFetcher;
+import stirling.software.SPDF.service.trust.RevocationChecker;
+import stirling.software.SPDF.service.trust.RevocationFetcher;
+import stirling.software.SPDF.service.trust.RevocationResponseCache;
+import stirling.software.SPDF.service.trust.TrustAnchorIndex;
+import stirling.software.common.configuration.InstallationPathConfig;
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.service.SsrfProtectionService;
+
 @Service
+@Slf4j
 public class CertificateValidationService {
-    private KeyStore trustStore;
+
+    private static final int CHAIN_CACHE_SIZE = 1024;
+
+    private final Path cacheDirectory;
+    private final Duration cacheTtl;
+    private final Clock clock = Clock.systemUTC();
+    private final RevocationChecker revocationChecker;
+
+    // Path-building results keyed by the certificate and the intermediates it was offered
+    private final ExpiringCache<Boolean> chainResults =
+            new ExpiringCache<>(CHAIN_CACHE_SIZE, clock);
+
+    private volatile TrustAnchorIndex trustAnchors = TrustAnchorIndex.empty();
+
+    /** Validation without revocation lookups or on-disk caches. */
+    public CertificateValidationService() {
+        this.cacheDirectory = null;
+        this.cacheTtl = Duration.ofHours(1);
+        this.revocationChecker = null;
+    }
+
+    @Autowired
+    public CertificateValidationService(
+            ApplicationProperties applicationProperties,
+            ObjectProvider<RevocationFetcher> revocationFetcher,
+            SsrfProtectionService ssrfProtectionService) {
+        ApplicationProperties.CertificateValidation settings =
+                applicationProperties.getSystem().getCertificateValidation();
+        String configuredDir = settings.getCacheDir();
+        this.cacheDirectory =
+                configuredDir != null && !configuredDir.isBlank()
+                        ? Path.of(configuredDir)
+                        : Path.of(InstallationPathConfig.getConfigPath(), "cache", "trust");
+        this.cacheTtl = Duration.ofMinutes(Math.max(1, settings.getCacheTtlMinutes()));
+        if (settings.isRevocationCheck()) {
+            Duration timeout = Duration.ofSeconds(Math.max(1, settings.getFetchTimeoutSeconds()));
+            RevocationFetcher fetcher =
+                    revocationFetcher.getIfAvailable(
+                            () ->
+                                    new HttpRevocationFetcher(
+                                            timeout, ssrfProtectionService::isUrlAllowed));
+            this.revocationChecker =
+                    new RevocationChecker(
+                            fetcher,
+                            new RevocationResponseCache(
+                                    cacheDirectory.resolve("revocation"), clock),
+                            cacheTtl,
+                            clock);
+        } else {
+            this.revocationChecker = null;
+        }
+    }
 
     @PostConstruct
     private void initializeTrustStore() throws Exception {
-        trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
-        trustStore.load(null, null);
-        loadMozillaCertificates();
+        trustAnchors = loadMozillaCertificates();
+        log.debug("Loaded {} trust anchors", trustAnchors.size());
     }
 
-    private void loadMozillaCertificates() throws Exception {
+    private TrustAnchorIndex loadMozillaCertificates() throws Exception {
         try (InputStream is = getClass().getResourceAsStream("/certdata.txt")) {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-            String line;
-            StringBuilder certData = new StringBuilder();
-            boolean inCert = false;
-            int certCount = 0;
-
-            while ((line = BoundedLineReader.readLine(reader, 5_000_000)) != null) {
-                if (line.startsWith("CKA_VALUE MULTILINE_OCTAL")) {
-                    inCert = true;
-                    certData = new StringBuilder();
-                    continue;
-                }
-                if (inCert) {
-                    if ("END".equals(line)) {
-                        inCert = false;
-                        byte[] certBytes = parseOctalData(certData.toString());
-                        if (certBytes != null) {
-                            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-                            X509Certificate cert =
-                                    (X509Certificate)
-                                            cf.generateCertificate(
-                                                    new ByteArrayInputStream(certBytes));
-                            trustStore.setCertificateEntry("mozilla-cert-" + certCount++, cert);
-                        }
-                    } else {
-                        certData.append(line).append("\n");
-                    }
-                }
+            if (is == null) {
+                log.warn("certdata.txt not found, no trust anchors loaded");
+                return TrustAnchorIndex.empty();
             }
+            return TrustAnchorIndex.load(is.readAllBytes(), cacheDirectory);
         }
     }
 
-    private byte[] parseOctalData(String data) {
+    public boolean validateCertificateChain(X509Certificate cert) {
+        return validateCertificateChain(cert, List.of());
+    }
+
+    /**
+     * Build a path from the certificate to a trusted root.
+     *
+     * @param intermediates certificates that may complete the chain, e.g. those embedded in the
+     *     signature
+     */
+    public boolean validateCertificateChain(
+            X509Certificate cert, Collection<X509Certificate> intermediates) {
+        String key;
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            String[] tokens = data.split("\\\\");
-            for (String token : tokens) {
-                token = token.trim();
-                if (!token.isEmpty()) {
-                    baos.write(Integer.parseInt(token, 8));
-                }
-            }
-            return baos.toByteArray();
-        } catch (Exception e) {
-            return null;
+            key = chainKey(cert, intermediates);
+        } catch (CertificateEncodingException e) {
+            return false;
+        }
+        Boolean cached = chainResults.get(key);
+        if (cached != null) {
+            return cached;
         }
+        boolean valid = buildPath(cert, intermediates);
+        // A path stops being valid when the certificate expires
+        long expiresAt =
+                Math.min(clock.millis() + cacheTtl.toMillis(), cert.getNotAfter().getTime());
+        chainResults.put(key, valid, expiresAt);
+        return valid;
     }
 
-    public boolean validateCertificateChain(X509Certificate cert) {
+    private boolean buildPath(X509Certificate cert, Collection<X509Certificate> intermediates) {
         try {
-            CertPathValidator validator = CertPathValidator.getInstance("PKIX");
-            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-            List<X509Certificate> certList = Collections.singletonList(cert);
-            CertPath certPath = cf.generateCertPath(certList);
-
-            Set<TrustAnchor> anchors = new HashSet<>();
-            Enumeration<String> aliases = trustStore.aliases();
-            while (aliases.hasMoreElements()) {
-                Object trustCert = trustStore.getCertificate(aliases.nextElement());
-                if (trustCert instanceof X509Certificate x509Cert) {
-                    anchors.add(new TrustAnchor(x509Cert, null));
-                }
-            }
-
-            PKIXParameters params = new PKIXParameters(anchors);
+            X509CertSelector target = new X509CertSelector();
+            target.setCertificate(cert);
+            PKIXBuilderParameters params =
+                    new PKIXBuilderParameters(trustAnchors.getTrustAnchors(), target);
             params.setRevocationEnabled(false);
-            validator.validate(certPath, params);
+            List<X509Certificate> candidates = new ArrayList<>(intermediates.size() + 1);
+            candidates.add(cert);
+            candidates.addAll(intermediates);
+            params.addCertStore(
+                    CertStore.getInstance(
+                            "Collection", new CollectionCertStoreParameters(candidates)));
+            CertPathBuilder.getInstance("PKIX").build(params);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
 
-    public boolean validateTrustStore(X509Certificate cert) {
-        try {
-            Enumeration<String> aliases = trustStore.aliases();
-            while (aliases.hasMoreElements()) {
-                Object trustCert = trustStore.getCertificate(aliases.nextElement());
-                if (trustCert instanceof X509Certificate && cert.equals(trustCert)) {
-                    return true;
-                }
+    private static String chainKey(X509Certificate cert, Collection<X509Certificate> intermediates)
+            throws CertificateEncodingException {
+        StringBuilder key = new StringBuilder(CertificateIdentifiers.fingerprint(cert));
+        List<String> others = new ArrayList<>(intermediates.size());
+        for (X509Certificate intermediate : intermediates) {
+            if (!intermediate.equals(cert)) {
+                others.add(CertificateIdentifiers.fingerprint(intermediate));
             }
-            return false;
-        } catch (KeyStoreException e) {
-            return false;
         }
+        Collections.sort(others);
+        for (String other : others) {
+            key.append(':').append(other);
+        }
+        return key.toString();
+    }
+
+    public boolean validateTrustStore(X509Certificate cert) {
+        return trustAnchors.contains(cert);
     }
 
     public boolean isRevoked(X509Certificate cert) {
+        return isRevoked(cert, List.of());
+    }
+
+    /**
+     * Whether the certificate is outside its validity period or has been revoked by its issuer. The
+     * issuer is looked up among the given certificates and the trust anchors; when it cannot be
+     * found, or no responder gives a verified answer, only the validity period is checked.
+     */
+    public boolean isRevoked(X509Certificate cert, Collection<X509Certificate> chain) {
         try {
             cert.checkValidity();
-            return false;
         } catch (CertificateExpiredException | CertificateNotYetValidException e) {
             return true;
         }
+        if (revocationChecker == null) {
+            return false;
+        }
+        X509Certificate issuer = findIssuer(cert, chain);
+        return issuer != null
+                && revocationChecker.check(cert, issuer) == RevocationChecker.Status.REVOKED;
+    }
+
+    private X509Certificate findIssuer(X509Certificate cert, Collection<X509Certificate> chain) {
+        List<X509Certificate> candidates = new ArrayList<>();
+        for (X509Certificate candidate : chain) {
+            if (!candidate.equals(cert)
+                    && candidate.getSubjectX500Principal().equals(cert.getIssuerX500Principal())) {
+                candidates.add(candidate);
+            }
+        }
+        candidates.addAll(trustAnchors.findIssuerCandidates(cert));
+        for (X509Certificate candidate : candidates) {
+            try {
+                cert.verify(candidate.getPublicKey());
+                return candidate;
+            } catch (Exception e) {
+                // Not the issuer
+            }
+        }
+        return null;
     }
 
     public boolean validateCertificateChainWithCustomCert(
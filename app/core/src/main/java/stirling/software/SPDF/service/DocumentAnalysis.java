@@ -0,0 +1,93 @@
+package stirling.software.SPDF.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Facts about one PDF, gathered in a single pass over the document by the {@link
+ * DocumentAnalysisService} and shared by every analysis endpoint that asks about the same content.
+ *
+ * <p>Callers may attach further, more expensive facets such as the full information report; these
+ * are computed on first request and then kept with the rest of the analysis.
+ */
+@Getter
+@Builder
+public class DocumentAnalysis {
+
+    private final String contentHash;
+    private final long fileSize;
+    private final int pageCount;
+    private final float pdfVersion;
+    private final Map<String, String> properties;
+    private final List<Map<String, Float>> pageDimensions;
+    private final Map<String, Object> formFields;
+    private final Map<String, Object> annotationInfo;
+    private final Map<String, Object> fontInfo;
+    private final Map<String, Object> securityInfo;
+
+    /**
+     * Random handle returned to the uploader, which can then fetch the cached analysis without
+     * uploading the file again. Unlike the content hash it cannot be derived from the file.
+     */
+    @Builder.Default private final String cacheToken = UUID.randomUUID().toString();
+
+    @Getter(AccessLevel.NONE)
+    @Builder.Default
+    private final Map<String, Object> facets = new ConcurrentHashMap<>();
+
+    /** An additional facet computed earlier, or null. */
+    public Object getFacet(String name) {
+        return facets.get(name);
+    }
+
+    void putFacet(String name, Object value) {
+        facets.put(name, value);
+    }
+
+    public Map<String, Object> getBasicInfo() {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("pageCount", pageCount);
+        info.put("pdfVersion", pdfVersion);
+        info.put("fileSize", fileSize);
+        info.put("cacheToken", cacheToken);
+        return info;
+    }
+
+    /** All facets of the single-pass analysis, as returned for a lookup by cache token. */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>(getBasicInfo());
+        map.put("documentProperties", properties);
+        map.put("pageDimensions", pageDimensions);
+        map.put("formFields", formFields);
+        map.put("annotationInfo", annotationInfo);
+        map.put("fontInfo", fontInfo);
+        map.put("securityInfo", securityInfo);
+        return map;
+    }
+
+    /** A rough estimate of the heap held by the analysis and its facets. */
+    long estimatedBytes() {
+        long bytes = 1024 + 200L * pageDimensions.size();
+        if (fontInfo.get("fonts") instanceof Collection<?> fonts) {
+            bytes += 64L * fonts.size();
+        }
+        for (Object facet : facets.values()) {
+            if (facet instanceof byte[] data) {
+                bytes += data.length;
+            } else if (facet instanceof CharSequence text) {
+                bytes += 2L * text.length();
+            } else {
+                bytes += 256;
+            }
+        }
+        return bytes;
+    }
+}
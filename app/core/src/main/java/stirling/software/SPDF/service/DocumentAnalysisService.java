@@ -0,0 +1,308 @@
+package stirling.software.SPDF.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.PDEncryption;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.model.ApplicationProperties;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.util.ChecksumUtils;
+
+/**
+ * Analyses uploaded PDFs for the analysis and info endpoints.
+ *
+ * <p>Clients tend to ask several questions about the same file in a row (page count, fonts, form
+ * fields, ...). The first request parses the document once, gathers every {@link DocumentAnalysis}
+ * facet in one pass and caches the result under the SHA-256 of the file content, so later uploads
+ * of the same content skip parsing. Each analysis also carries a random cache token that is
+ * returned to whoever uploads the content; the analysis can be fetched again with that token
+ * without re-uploading. Results are never handed out by content hash, which anyone holding the file
+ * could compute, so the cache only answers callers who uploaded the content themselves. The cache
+ * is bounded by the estimated size of its entries, including facets such as full reports, drops the
+ * least recently used first, and entries expire a fixed time after they were computed.
+ */
+@Service
+@Slf4j
+public class DocumentAnalysisService {
+
+    /** Computes an additional facet from the parsed document and its single-pass analysis. */
+    @FunctionalInterface
+    public interface Facet<T> {
+        T compute(PDDocument document, DocumentAnalysis analysis) throws IOException;
+    }
+
+    private record Entry(DocumentAnalysis analysis, long expiresAt, long bytes) {}
+
+    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Cache token -> content hash of the entries in the cache, guarded by the cache
+    private final Map<String, String> tokens = new HashMap<>();
+    private long cachedBytes;
+
+    @Autowired
+    public DocumentAnalysisService(
+            CustomPDFDocumentFactory pdfDocumentFactory,
+            ApplicationProperties applicationProperties) {
+        this(
+                pdfDocumentFactory,
+                applicationProperties.getSystem().getAnalysisCache().getMaxMb() * 1024L * 1024L,
+                Duration.ofMinutes(
+                        applicationProperties.getSystem().getAnalysisCache().getTtlMinutes()),
+                System::nanoTime);
+    }
+
+    DocumentAnalysisService(
+            CustomPDFDocumentFactory pdfDocumentFactory,
+            long maxBytes,
+            Duration ttl,
+            LongSupplier nanoClock) {
+        this.pdfDocumentFactory = pdfDocumentFactory;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /** The analysis of the uploaded file, parsing it only if its content is not cached. */
+    public DocumentAnalysis analyze(MultipartFile file) throws IOException {
+        String contentHash = contentHash(file);
+        Optional<DocumentAnalysis> cached = lookup(contentHash);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        try (PDDocument document = pdfDocumentFactory.load(file, true)) {
+            return store(analyze(document, contentHash, file.getSize()));
+        }
+    }
+
+    /**
+     * An additional facet of the uploaded file, such as a full report. When it is missing it is
+     * computed from the same parse that produces the rest of the analysis, and kept with it.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T facet(MultipartFile file, String name, Facet<T> facet) throws IOException {
+        String contentHash = contentHash(file);
+        DocumentAnalysis analysis = lookup(contentHash).orElse(null);
+        if (analysis != null && analysis.getFacet(name) != null) {
+            return (T) analysis.getFacet(name);
+        }
+        try (PDDocument document = pdfDocumentFactory.load(file, true)) {
+            if (analysis == null) {
+                analysis = analyze(document, contentHash, file.getSize());
+            }
+            T value = facet.compute(document, analysis);
+            if (value != null) {
+                analysis.putFacet(name, value);
+            }
+            store(analysis);
+            return value;
+        }
+    }
+
+    /** A cached analysis by the lowercase hex SHA-256 of the file content. */
+    Optional<DocumentAnalysis> lookup(String contentHash) {
+        synchronized (cache) {
+            Entry entry = cache.get(contentHash);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (nanoClock.getAsLong() - entry.expiresAt() > 0) {
+                remove(contentHash);
+                return Optional.empty();
+            }
+            return Optional.of(entry.analysis());
+        }
+    }
+
+    /** A cached analysis by the cache token handed out with it. */
+    public Optional<DocumentAnalysis> lookupByToken(String cacheToken) {
+        synchronized (cache) {
+            String contentHash = tokens.get(cacheToken);
+            return contentHash == null ? Optional.empty() : lookup(contentHash);
+        }
+    }
+
+    /** Bytes the cached entries are estimated to hold. */
+    long getCachedBytes() {
+        synchronized (cache) {
+            return cachedBytes;
+        }
+    }
+
+    private DocumentAnalysis store(DocumentAnalysis analysis) {
+        if (maxBytes == 0) {
+            return analysis;
+        }
+        String key = analysis.getContentHash();
+        // Facets may have grown the analysis since it was stored, so measure it again
+        long bytes = analysis.estimatedBytes();
+        synchronized (cache) {
+            Entry existing = cache.get(key);
+            long expiresAt =
+                    existing != null && existing.analysis() == analysis
+                            ? existing.expiresAt()
+                            : nanoClock.getAsLong() + ttlNanos;
+            remove(key);
+            if (bytes > maxBytes) {
+                return analysis;
+            }
+            cache.put(key, new Entry(analysis, expiresAt, bytes));
+            tokens.put(analysis.getCacheToken(), key);
+            cachedBytes += bytes;
+            Iterator<Entry> eldest = cache.values().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                cachedBytes -= evicted.bytes();
+                tokens.remove(evicted.analysis().getCacheToken());
+                eldest.remove();
+            }
+        }
+        return analysis;
+    }
+
+    private void remove(String key) {
+        Entry removed = cache.remove(key);
+        if (removed != null) {
+            cachedBytes -= removed.bytes();
+            tokens.remove(removed.analysis().getCacheToken());
+        }
+    }
+
+    private static String contentHash(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return ChecksumUtils.checksum(in, "SHA-256");
+        }
+    }
+
+    /** Gather every facet in one walk over the pages. */
+    static DocumentAnalysis analyze(PDDocument document, String contentHash, long fileSize)
+            throws IOException {
+        List<Map<String, Float>> dimensions = new ArrayList<>();
+        int totalAnnotations = 0;
+        Map<String, Integer> annotationTypes = new HashMap<>();
+        Set<String> fontNames = new HashSet<>();
+
+        for (PDPage page : document.getPages()) {
+            Map<String, Float> pageDim = new HashMap<>();
+            pageDim.put("width", page.getBBox().getWidth());
+            pageDim.put("height", page.getBBox().getHeight());
+            dimensions.add(pageDim);
+
+            for (PDAnnotation annot : page.getAnnotations()) {
+                totalAnnotations++;
+                annotationTypes.merge(annot.getSubtype(), 1, Integer::sum);
+            }
+
+            PDResources resources = page.getResources();
+            if (resources != null) {
+                for (COSName font : resources.getFontNames()) {
+                    fontNames.add(font.getName());
+                }
+            }
+        }
+
+        Map<String, Object> annotationInfo = new HashMap<>();
+        annotationInfo.put("totalCount", totalAnnotations);
+        annotationInfo.put("typeBreakdown", annotationTypes);
+
+        Map<String, Object> fontInfo = new HashMap<>();
+        fontInfo.put("fontCount", fontNames.size());
+        fontInfo.put("fonts", fontNames);
+
+        return DocumentAnalysis.builder()
+                .contentHash(contentHash)
+                .fileSize(fileSize)
+                .pageCount(document.getNumberOfPages())
+                .pdfVersion(document.getVersion())
+                .properties(documentProperties(document))
+                .pageDimensions(dimensions)
+                .formFields(formFields(document))
+                .annotationInfo(annotationInfo)
+                .fontInfo(fontInfo)
+                .securityInfo(securityInfo(document))
+                .build();
+    }
+
+    private static Map<String, String> documentProperties(PDDocument document) {
+        PDDocumentInformation info = document.getDocumentInformation();
+        Map<String, String> properties = new HashMap<>();
+        properties.put("title", info.getTitle());
+        properties.put("author", info.getAuthor());
+        properties.put("subject", info.getSubject());
+        properties.put("keywords", info.getKeywords());
+        properties.put("creator", info.getCreator());
+        properties.put("producer", info.getProducer());
+        properties.put(
+                "creationDate",
+                info.getCreationDate() == null ? null : info.getCreationDate().toString());
+        properties.put(
+                "modificationDate",
+                info.getModificationDate() == null ? null : info.getModificationDate().toString());
+        return properties;
+    }
+
+    private static Map<String, Object> formFields(PDDocument document) {
+        Map<String, Object> formInfo = new HashMap<>();
+        PDAcroForm form = document.getDocumentCatalog().getAcroForm();
+
+        if (form != null) {
+            formInfo.put("fieldCount", form.getFields().size());
+            formInfo.put("hasXFA", form.hasXFA());
+            formInfo.put("isSignaturesExist", form.isSignaturesExist());
+        } else {
+            formInfo.put("fieldCount", 0);
+            formInfo.put("hasXFA", false);
+            formInfo.put("isSignaturesExist", false);
+        }
+        return formInfo;
+    }
+
+    private static Map<String, Object> securityInfo(PDDocument document) {
+        Map<String, Object> securityInfo = new HashMap<>();
+        PDEncryption encryption = document.getEncryption();
+
+        if (encryption != null) {
+            securityInfo.put("isEncrypted", true);
+            securityInfo.put("keyLength", encryption.getLength());
+
+            AccessPermission ap = document.getCurrentAccessPermission();
+            Map<String, Boolean> permissions = new HashMap<>();
+            permissions.put("preventPrinting", !ap.canPrint());
+            permissions.put("preventModify", !ap.canModify());
+            permissions.put("preventExtractContent", !ap.canExtractContent());
+            permissions.put("preventModifyAnnotations", !ap.canModifyAnnotations());
+
+            securityInfo.put("permissions", permissions);
+        } else {
+            securityInfo.put("isEncrypted", false);
+        }
+        return securityInfo;
+    }
+}
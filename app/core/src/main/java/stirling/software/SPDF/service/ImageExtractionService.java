@@ -0,0 +1,315 @@
+package stirling.software.SPDF.service;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.service.BatchExecutor;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.util.ExceptionUtils;
+import stirling.software.common.util.ImageEncoders;
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+
+/**
+ * Extracts the images of a PDF into a ZIP archive.
+ *
+ * <p>The pages are first scanned on the calling thread for the image XObjects they use, without
+ * decoding any of them. Unless duplicates are wanted, an image is kept only the first time it is
+ * seen: a stream used by several pages is recognised by identity, and separate streams with the
+ * same content by a hash of their encoded data. Only the remaining images are then decoded and
+ * encoded, on the shared {@link BatchExecutor}, whose memory budget bounds how many decoded images
+ * are held at once. JPEG images are copied to the archive without decoding when JPEG output is
+ * requested. Entries are written in page order straight to a temporary file.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ImageExtractionService {
+
+    /** Stop scanning after this many pages in a row cannot be read. */
+    private static final int MAX_CONSECUTIVE_PAGE_FAILURES = 3;
+
+    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final TempFileManager tempFileManager;
+    private final BatchExecutor batchExecutor;
+
+    /** An image to extract: the XObject {@code name} on the zero-based page {@code pageIndex}. */
+    private record ImageJob(int pageIndex, COSName name, String entryName, long memoryEstimate) {}
+
+    private record ExtractedImage(String entryName, byte[] data) {}
+
+    /**
+     * Extract the images of the document into a ZIP archive, named {@code
+     * <baseName>_page_<page>_<n>.<format>}. The caller owns the returned archive.
+     *
+     * @param input the upload the document was loaded from, read again by parallel workers
+     * @param document the loaded document; it is used by one worker and is not closed
+     * @param format the output format, {@code png}, {@code jpeg} or {@code gif}
+     * @param baseName prefix of the image file names
+     * @param allowDuplicates whether images that were already extracted are extracted again
+     */
+    public TempFile extractToZip(
+            MultipartFile input,
+            PDDocument document,
+            String format,
+            String baseName,
+            boolean allowDuplicates)
+            throws IOException {
+        List<ImageJob> jobs = plan(document, format, baseName, allowDuplicates);
+        boolean passJpeg = "jpeg".equalsIgnoreCase(format) || "jpg".equalsIgnoreCase(format);
+        ImageEncoders.Encoder encoder = ImageEncoders.forFormat(format);
+
+        ConcurrentLinkedQueue<PDDocument> idle = new ConcurrentLinkedQueue<>();
+        idle.add(document);
+        List<PDDocument> copies = new ArrayList<>();
+        TempFile zip = new TempFile(tempFileManager, ".zip");
+        try (ZipOutputStream zipOut =
+                new ZipOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(zip.getPath())))) {
+            // The images are compressed already, so deflating them again gains next to nothing
+            zipOut.setLevel(Deflater.BEST_SPEED);
+            batchExecutor.forEachOrdered(
+                    jobs,
+                    ImageJob::memoryEstimate,
+                    (index, job) -> {
+                        PDDocument source = idle.poll();
+                        if (source == null) {
+                            source = pdfDocumentFactory.load(input, true);
+                            synchronized (copies) {
+                                copies.add(source);
+                            }
+                        }
+                        try {
+                            return new ExtractedImage(
+                                    job.entryName(),
+                                    extract(source, job, format, passJpeg, encoder));
+                        } finally {
+                            idle.add(source);
+                        }
+                    },
+                    (index, image) -> {
+                        zipOut.putNextEntry(new ZipEntry(image.entryName()));
+                        zipOut.write(image.data());
+                        zipOut.closeEntry();
+                    });
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        } finally {
+            synchronized (copies) {
+                for (PDDocument copy : copies) {
+                    copy.close();
+                }
+            }
+        }
+        log.debug("Extracted {} images using {} document copies", jobs.size(), copies.size() + 1);
+        return zip;
+    }
+
+    /** The images to extract, in the order they are written. */
+    private List<ImageJob> plan(
+            PDDocument document, String format, String baseName, boolean allowDuplicates)
+            throws IOException {
+        String extension = format.toLowerCase(Locale.ROOT);
+        List<ImageJob> jobs = new ArrayList<>();
+        Set<COSBase> seenStreams = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<ByteBuffer> seenHashes = new HashSet<>();
+        MessageDigest md = newDigest();
+
+        int pageCount = document.getNumberOfPages();
+        int consecutiveFailures = 0;
+        for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+            PDResources resources;
+            try {
+                resources = document.getPage(pageIndex).getResources();
+                consecutiveFailures = 0;
+            } catch (RuntimeException e) {
+                ExceptionUtils.logException("page access for page " + (pageIndex + 1), e);
+                if (++consecutiveFailures >= MAX_CONSECUTIVE_PAGE_FAILURES) {
+                    log.warn("Stopping page iteration after 3 consecutive failures");
+                    break;
+                }
+                continue;
+            }
+            if (resources == null) {
+                continue;
+            }
+            int count = 1;
+            for (COSName name : resources.getXObjectNames()) {
+                PDXObject xObject;
+                try {
+                    xObject = resources.getXObject(name);
+                } catch (IOException e) {
+                    ExceptionUtils.logException("image extraction", e);
+                    throw ExceptionUtils.handlePdfException(e, "during image extraction");
+                }
+                if (!(xObject instanceof PDImageXObject image)) {
+                    continue;
+                }
+                if (!allowDuplicates) {
+                    if (!seenStreams.add(image.getCOSObject())
+                            || !seenHashes.add(ByteBuffer.wrap(contentHash(image, md)))) {
+                        continue;
+                    }
+                }
+                String entryName =
+                        baseName + "_page_" + (pageIndex + 1) + "_" + count++ + "." + extension;
+                // The decoded image and its converted copy
+                long estimate = 8L * image.getWidth() * image.getHeight();
+                jobs.add(new ImageJob(pageIndex, name, entryName, estimate));
+            }
+        }
+        return jobs;
+    }
+
+    private static byte[] extract(
+            PDDocument document,
+            ImageJob job,
+            String format,
+            boolean passJpeg,
+            ImageEncoders.Encoder encoder)
+            throws IOException {
+        PDPage page = document.getPage(job.pageIndex());
+        PDImageXObject image = (PDImageXObject) page.getResources().getXObject(job.name());
+        try {
+            if (passJpeg && isPlainJpeg(image)) {
+                try (InputStream jpeg =
+                        image.createInputStream(List.of(COSName.DCT_DECODE.getName()))) {
+                    return jpeg.readAllBytes();
+                }
+            }
+            return encoder.toBytes(convert(image.getImage(), format));
+        } catch (IOException e) {
+            ExceptionUtils.logException("image extraction", e);
+            throw ExceptionUtils.handlePdfException(e, "during image extraction");
+        }
+    }
+
+    /**
+     * Whether the image's data is, after any other filters, a JPEG file that shows the image as it
+     * is: DCT encoded last, in a gray or RGB colour space and with no decode array.
+     */
+    private static boolean isPlainJpeg(PDImageXObject image) throws IOException {
+        List<COSName> filters = image.getStream().getFilters();
+        if (filters.isEmpty() || !COSName.DCT_DECODE.equals(filters.get(filters.size() - 1))) {
+            return false;
+        }
+        if (image.getDecode() != null) {
+            return false;
+        }
+        PDColorSpace colorSpace = image.getColorSpace();
+        if (colorSpace instanceof PDICCBased iccBased) {
+            int components = iccBased.getNumberOfComponents();
+            return components == 1 || components == 3;
+        }
+        return colorSpace instanceof PDDeviceGray || colorSpace instanceof PDDeviceRGB;
+    }
+
+    /** The image in a pixel layout the format can store, copying it only if needed. */
+    private static BufferedImage convert(BufferedImage image, String format) {
+        int type;
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "png" -> {
+                if (image.getType() == BufferedImage.TYPE_INT_ARGB
+                        || image.getType() == BufferedImage.TYPE_INT_RGB) {
+                    return image;
+                }
+                type = BufferedImage.TYPE_INT_ARGB;
+            }
+            case "gif" -> type = BufferedImage.TYPE_BYTE_INDEXED;
+            default -> {
+                if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+                    return image;
+                }
+                type = BufferedImage.TYPE_INT_RGB;
+            }
+        }
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D g = converted.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return converted;
+    }
+
+    /** Hash of the encoded image data, its masks and the entries that change how it is decoded. */
+    private static byte[] contentHash(PDImageXObject image, MessageDigest md) throws IOException {
+        COSStream stream = image.getCOSObject();
+        md.reset();
+        md.update(
+                (image.getWidth()
+                                + "x"
+                                + image.getHeight()
+                                + "/"
+                                + image.getBitsPerComponent()
+                                + "/"
+                                + stream.getDictionaryObject(COSName.COLORSPACE)
+                                + "/"
+                                + stream.getDictionaryObject(COSName.DECODE))
+                        .getBytes(StandardCharsets.UTF_8));
+        digestRaw(stream, md);
+        for (COSName maskKey : List.of(COSName.SMASK, COSName.MASK)) {
+            COSBase mask = stream.getDictionaryObject(maskKey);
+            if (mask instanceof COSStream maskStream) {
+                digestRaw(maskStream, md);
+            } else if (mask != null) {
+                md.update(mask.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return md.digest();
+    }
+
+    private static void digestRaw(COSStream stream, MessageDigest md) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream raw = stream.createRawInputStream()) {
+            int read;
+            while ((read = raw.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
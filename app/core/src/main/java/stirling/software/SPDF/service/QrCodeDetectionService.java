@@ -0,0 +1,76 @@
+package stirling.software.SPDF.service;
+
+import java.io.IOException;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.common.service.BatchExecutor;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+
+/**
+ * Reads the QR code on every page of a document, for example to find the separator sheets of a scan
+ * batch.
+ *
+ * <p>Pages are scanned by {@link QrCodePageScanner}, which only renders at high resolution where a
+ * low resolution pass found something that looks like a QR code, or, when small codes are to be
+ * detected, could not rule one out. Large documents are split by {@link
+ * BatchExecutor#forEachPageRange} into one range of consecutive pages per worker, each scanned from
+ * a single copy of the upload.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class QrCodeDetectionService {
+
+    /** Fewer pages than this per worker are not worth loading another copy for. */
+    static final int MIN_PAGES_PER_RANGE = 8;
+
+    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final BatchExecutor batchExecutor;
+
+    /**
+     * The text of the QR code on each page, or null for pages without one.
+     *
+     * @param input the upload the document was loaded from, read again by each worker
+     * @param document the loaded document, used when scanning on the calling thread
+     * @param highDpi resolution at which regions that may hold a QR code are decoded again
+     * @param detectSmallCodes whether pages with content but no code found at low resolution are
+     *     decoded again as a whole at {@code highDpi}
+     */
+    public String[] decodePages(
+            MultipartFile input, PDDocument document, float highDpi, boolean detectSmallCodes)
+            throws IOException {
+        String[] codes = new String[document.getNumberOfPages()];
+        batchExecutor.forEachPageRange(
+                document,
+                batchExecutor.splitPages(codes.length, MIN_PAGES_PER_RANGE, 1),
+                input.getSize(),
+                () -> pdfDocumentFactory.load(input, true),
+                (rangeDocument, range) ->
+                        scanRange(rangeDocument, range, highDpi, detectSmallCodes),
+                (range, rangeCodes) ->
+                        System.arraycopy(
+                                rangeCodes, 0, codes, range.fromPage(), rangeCodes.length));
+        return codes;
+    }
+
+    private static String[] scanRange(
+            PDDocument document,
+            BatchExecutor.PageRange range,
+            float highDpi,
+            boolean detectSmallCodes)
+            throws IOException {
+        QrCodePageScanner scanner = new QrCodePageScanner(document, highDpi, detectSmallCodes);
+        String[] codes = new String[range.size()];
+        for (int page = range.fromPage(); page < range.toPage(); page++) {
+            codes[page - range.fromPage()] = scanner.scan(page);
+            log.debug("Page {} has QR code {}", page + 1, codes[page - range.fromPage()]);
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,367 @@
+package stirling.software.SPDF.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DetectorResult;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.detector.Detector;
+
+import stirling.software.common.util.ExceptionUtils;
+
+/**
+ * Finds the QR code on pages of one document, spending as little rendering as possible.
+ *
+ * <p>Each page goes through up to three stages:
+ *
+ * <ol>
+ *   <li>A scanned page, one image and nothing else painted by its content stream, is searched in
+ *       its embedded image, subsampled to about {@link #SCAN_DPI}. The page is not rendered at all.
+ *   <li>Any other page is rendered in grayscale at {@link #SCAN_DPI}.
+ *   <li>If the low resolution image holds a QR code that does not decode, only the region around
+ *       its finder patterns is decoded again at full resolution: read from the embedded image, or
+ *       rendered at the high DPI. Only when small codes are to be detected, a page with dark
+ *       content but no finder patterns at all is decoded again as a whole at the high DPI, since
+ *       its code may be too small to resolve at this resolution.
+ * </ol>
+ *
+ * <p>Pages without a code therefore cost one cheap low resolution pass, unless small codes are to
+ * be detected, and so do pages whose code is large enough to be located in it. A scanner keeps its
+ * luminance buffer between pages, is bound to one document and must only be used by one thread.
+ */
+class QrCodePageScanner {
+
+    /** Resolution of the first pass over every page. */
+    static final float SCAN_DPI = 72f;
+
+    /**
+     * Share of the distance between finder pattern centres added on each side, enough to take in
+     * the rest of a version 1 code and its quiet zone.
+     */
+    private static final float CANDIDATE_MARGIN = 0.6f;
+
+    /** Pages whose low resolution image has no pixel darker than this hold no small code. */
+    private static final int CONTENT_LUMINANCE = 160;
+
+    /** Content stream operators that paint something other than the page's single image. */
+    private static final Set<String> OTHER_PAINTING_OPERATORS =
+            Set.of(
+                    "S", "s", "f", "F", "f*", "B", "B*", "b", "b*", "sh", "BI", "Tj", "TJ", "'",
+                    "\"");
+
+    private static final Map<DecodeHintType, Object> HINTS = new EnumMap<>(DecodeHintType.class);
+
+    private static final Map<DecodeHintType, Object> HINTS_TRY_HARDER =
+            new EnumMap<>(DecodeHintType.class);
+
+    static {
+        HINTS.put(DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.QR_CODE));
+        HINTS_TRY_HARDER.putAll(HINTS);
+        HINTS_TRY_HARDER.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    }
+
+    private final PDDocument document;
+    private final PDFRenderer renderer;
+    private final float highDpi;
+    private final boolean detectSmallCodes;
+    private final QRCodeReader reader = new QRCodeReader();
+    private byte[] luminances = new byte[0];
+    private int[] row = new int[0];
+
+    QrCodePageScanner(PDDocument document, float highDpi, boolean detectSmallCodes) {
+        this(document, new PDFRenderer(document), highDpi, detectSmallCodes);
+    }
+
+    QrCodePageScanner(
+            PDDocument document, PDFRenderer renderer, float highDpi, boolean detectSmallCodes) {
+        this.document = document;
+        this.renderer = renderer;
+        this.renderer.setSubsamplingAllowed(true);
+        this.highDpi = highDpi;
+        this.detectSmallCodes = detectSmallCodes;
+    }
+
+    /** The text of the QR code on the page, or null when there is none. */
+    String scan(int pageIndex) throws IOException {
+        PDPage page = document.getPage(pageIndex);
+        PDImageXObject scan = scannedImage(page);
+        if (scan != null) {
+            return scanImage(page, scan);
+        }
+        return scanRendered(pageIndex);
+    }
+
+    private String scanImage(PDPage page, PDImageXObject image) throws IOException {
+        float longEdgePoints =
+                Math.max(page.getCropBox().getWidth(), page.getCropBox().getHeight());
+        int longEdgePixels = Math.max(image.getWidth(), image.getHeight());
+        int subsampling = Math.max(1, (int) (longEdgePixels / (longEdgePoints * SCAN_DPI / 72f)));
+        BufferedImage lowRes = image.getImage(null, subsampling);
+
+        Candidate candidate = find(lowRes);
+        if (candidate.text() != null) {
+            return candidate.text();
+        }
+        if (candidate.region() == null) {
+            if (!detectSmallCodes || !hasContent(lowRes)) {
+                return null;
+            }
+            int highResSubsampling =
+                    Math.max(1, (int) (longEdgePixels / (longEdgePoints * highDpi / 72f)));
+            return decode(image.getImage(null, highResSubsampling), HINTS_TRY_HARDER);
+        }
+        Rectangle region =
+                scale(candidate.region(), subsampling)
+                        .intersection(new Rectangle(image.getWidth(), image.getHeight()));
+        if (region.isEmpty()) {
+            return null;
+        }
+        return decode(image.getImage(region, 1), HINTS_TRY_HARDER);
+    }
+
+    private String scanRendered(int pageIndex) throws IOException {
+        BufferedImage lowRes = renderer.renderImageWithDPI(pageIndex, SCAN_DPI, ImageType.GRAY);
+
+        Candidate candidate = find(lowRes);
+        if (candidate.text() != null) {
+            return candidate.text();
+        }
+        if (candidate.region() == null) {
+            if (!detectSmallCodes || !hasContent(lowRes)) {
+                return null;
+            }
+            try {
+                return decode(
+                        renderer.renderImageWithDPI(pageIndex, highDpi, ImageType.GRAY),
+                        HINTS_TRY_HARDER);
+            } catch (OutOfMemoryError | NegativeArraySizeException e) {
+                throw ExceptionUtils.createOutOfMemoryDpiException(pageIndex + 1, (int) highDpi, e);
+            }
+        }
+        Rectangle region = scale(candidate.region(), highDpi / SCAN_DPI);
+        if (region.isEmpty()) {
+            return null;
+        }
+        BufferedImage highRes;
+        try {
+            highRes = renderRegion(pageIndex, region, highDpi / 72f);
+        } catch (OutOfMemoryError | NegativeArraySizeException e) {
+            throw ExceptionUtils.createOutOfMemoryDpiException(pageIndex + 1, (int) highDpi, e);
+        }
+        return decode(highRes, HINTS_TRY_HARDER);
+    }
+
+    /** Render only the given pixel region of the page at the given scale. */
+    private BufferedImage renderRegion(int pageIndex, Rectangle region, float scale)
+            throws IOException {
+        BufferedImage image =
+                new BufferedImage(region.width, region.height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(0, 0, region.width, region.height);
+            graphics.translate(-region.x, -region.y);
+            renderer.renderPageToGraphics(pageIndex, graphics, scale);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private record Candidate(String text, Rectangle region) {}
+
+    /**
+     * Decode the image, or locate the finder patterns of a code that does not decode at this
+     * resolution.
+     */
+    private Candidate find(BufferedImage image) {
+        BitMatrix matrix;
+        try {
+            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(luminance(image)));
+            try {
+                return new Candidate(reader.decode(bitmap, HINTS).getText(), null);
+            } catch (NotFoundException | ChecksumException | FormatException e) {
+                // Fall through to look for finder patterns
+            } finally {
+                reader.reset();
+            }
+            matrix = bitmap.getBlackMatrix();
+        } catch (NotFoundException e) {
+            return new Candidate(null, null);
+        }
+
+        DetectorResult detected;
+        try {
+            detected = new Detector(matrix).detect(HINTS);
+        } catch (NotFoundException | FormatException e) {
+            return new Candidate(null, null);
+        }
+        return new Candidate(
+                null, around(detected.getPoints(), image.getWidth(), image.getHeight()));
+    }
+
+    /** Whether the image has any pixel dark enough to be part of a code. */
+    private boolean hasContent(BufferedImage image) {
+        LuminanceSource source = luminance(image);
+        byte[] pixels = source.getMatrix();
+        int count = source.getWidth() * source.getHeight();
+        for (int i = 0; i < count; i++) {
+            if ((pixels[i] & 0xff) < CONTENT_LUMINANCE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String decode(BufferedImage image, Map<DecodeHintType, Object> hints) {
+        try {
+            return reader.decode(new BinaryBitmap(new HybridBinarizer(luminance(image))), hints)
+                    .getText();
+        } catch (NotFoundException | ChecksumException | FormatException e) {
+            return null;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /** The bounding box of the finder patterns, grown to take in the whole code and its border. */
+    private static Rectangle around(ResultPoint[] points, int width, int height) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (ResultPoint point : points) {
+            minX = Math.min(minX, point.getX());
+            minY = Math.min(minY, point.getY());
+            maxX = Math.max(maxX, point.getX());
+            maxY = Math.max(maxY, point.getY());
+        }
+        float margin = Math.max(maxX - minX, maxY - minY) * CANDIDATE_MARGIN + 4;
+        Rectangle box =
+                new Rectangle(
+                        (int) Math.floor(minX - margin),
+                        (int) Math.floor(minY - margin),
+                        (int) Math.ceil(maxX - minX + 2 * margin),
+                        (int) Math.ceil(maxY - minY + 2 * margin));
+        return box.intersection(new Rectangle(width, height));
+    }
+
+    private static Rectangle scale(Rectangle region, float factor) {
+        int x = (int) Math.floor(region.x * factor);
+        int y = (int) Math.floor(region.y * factor);
+        return new Rectangle(
+                x,
+                y,
+                (int) Math.ceil((region.x + region.width) * factor) - x,
+                (int) Math.ceil((region.y + region.height) * factor) - y);
+    }
+
+    /**
+     * The only image of a page without text or vector graphics, as produced by scanners, or null
+     * when the page has other content that only rendering would show.
+     */
+    private static PDImageXObject scannedImage(PDPage page) throws IOException {
+        PDResources resources = page.getResources();
+        if (resources == null || resources.getFontNames().iterator().hasNext()) {
+            return null;
+        }
+        List<PDImageXObject> images = new ArrayList<>();
+        for (COSName name : resources.getXObjectNames()) {
+            PDXObject xObject = resources.getXObject(name);
+            if (!(xObject instanceof PDImageXObject image) || images.size() == 1) {
+                return null;
+            }
+            images.add(image);
+        }
+        if (images.isEmpty() || images.get(0).isStencil() || paintsOtherContent(page)) {
+            return null;
+        }
+        return images.get(0);
+    }
+
+    /** Whether the page's content stream draws paths, text or inline images. */
+    private static boolean paintsOtherContent(PDPage page) throws IOException {
+        PDFStreamParser parser = new PDFStreamParser(page);
+        for (Object token = parser.parseNextToken();
+                token != null;
+                token = parser.parseNextToken()) {
+            if (token instanceof Operator operator
+                    && OTHER_PAINTING_OPERATORS.contains(operator.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Luminance of the image. Gray images whose raster is a plain byte array are wrapped as they
+     * are; anything else is converted into a buffer that is reused for the following pages.
+     */
+    private LuminanceSource luminance(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && image.getRaster().getDataBuffer() instanceof DataBufferByte buffer
+                && image.getRaster().getSampleModel() instanceof ComponentSampleModel model
+                && model.getScanlineStride() == width
+                && image.getRaster().getSampleModelTranslateX() == 0
+                && image.getRaster().getSampleModelTranslateY() == 0) {
+            return new PlanarYUVLuminanceSource(
+                    buffer.getData(), width, height, 0, 0, width, height, false);
+        }
+
+        if (luminances.length < width * height) {
+            luminances = new byte[width * height];
+        }
+        if (row.length < width) {
+            row = new int[width];
+        }
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int argb = row[x];
+                if ((argb >>> 24) == 0) {
+                    // Transparent areas count as white paper
+                    luminances[offset + x] = (byte) 0xff;
+                } else {
+                    int r = (argb >> 16) & 0xff;
+                    int g = (argb >> 8) & 0xff;
+                    int b = argb & 0xff;
+                    luminances[offset + x] = (byte) ((306 * r + 601 * g + 117 * b + 0x200) >> 10);
+                }
+            }
+        }
+        return new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+    }
+}
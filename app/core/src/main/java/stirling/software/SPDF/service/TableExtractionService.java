@@ -0,0 +1,157 @@
+package stirling.software.SPDF.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.QuoteMode;
+import org.apache.commons.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import stirling.software.SPDF.pdf.FlexibleCSVWriter;
+import stirling.software.common.service.BatchExecutor;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+
+import technology.tabula.ObjectExtractor;
+import technology.tabula.Page;
+import technology.tabula.Table;
+import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
+
+/**
+ * Extracts the tables of a PDF as CSV files written into a ZIP archive.
+ *
+ * <p>Large page selections are split by {@link BatchExecutor#forEachPageRange} into one range of
+ * consecutive pages per worker, each read from a single copy of the upload with one {@link
+ * ObjectExtractor} for all of its pages. Each worker spools the CSV text of its range to a temp
+ * file of its own, one table at a time, and the calling thread copies the spooled tables into the
+ * archive in page order as soon as their range is done. Only the table being converted is held on
+ * the heap, however large the ranges are.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TableExtractionService {
+
+    /** Fewer selected pages than this per worker are not worth loading another copy for. */
+    static final int MIN_PAGES_PER_RANGE = 4;
+
+    private static final CSVFormat CSV_FORMAT =
+            CSVFormat.EXCEL.builder().setEscape('"').setQuoteMode(QuoteMode.ALL).build();
+
+    private final CustomPDFDocumentFactory pdfDocumentFactory;
+    private final TempFileManager tempFileManager;
+    private final BatchExecutor batchExecutor;
+
+    /** The archive of CSV files and the names of its entries, in page order. */
+    public record ExtractedTables(TempFile zip, List<String> entryNames) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            zip.close();
+        }
+    }
+
+    /** A CSV file spooled to a range's temp file. */
+    private record CsvEntry(String entryName, long bytes) {}
+
+    /** The CSV files of one page range, stored back to back in {@code file}. */
+    private record SpooledTables(TempFile file, List<CsvEntry> entries) {}
+
+    /**
+     * Extract the tables on the given pages into a ZIP archive. The caller owns the returned
+     * archive.
+     *
+     * @param input the upload the document was loaded from, read again by each worker
+     * @param document the loaded document, used when extracting on the calling thread
+     * @param pageNumbers one-based page numbers, in the order their tables are written
+     * @param baseName prefix of the CSV file names
+     */
+    public ExtractedTables extractToZip(
+            MultipartFile input, PDDocument document, List<Integer> pageNumbers, String baseName)
+            throws IOException {
+        TempFile zip = new TempFile(tempFileManager, ".zip");
+        List<String> entryNames = new ArrayList<>();
+        try (ZipOutputStream zipOut =
+                new ZipOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(zip.getPath())))) {
+            batchExecutor.forEachPageRange(
+                    document,
+                    batchExecutor.splitPages(pageNumbers.size(), MIN_PAGES_PER_RANGE, 1),
+                    input.getSize(),
+                    () -> pdfDocumentFactory.load(input, true),
+                    (rangeDocument, range) ->
+                            extractRange(
+                                    rangeDocument,
+                                    pageNumbers.subList(range.fromPage(), range.toPage()),
+                                    baseName),
+                    (range, tables) -> {
+                        try (TempFile spool = tables.file();
+                                InputStream in =
+                                        new BufferedInputStream(
+                                                Files.newInputStream(spool.getPath()))) {
+                            for (CsvEntry entry : tables.entries()) {
+                                zipOut.putNextEntry(new ZipEntry(entry.entryName()));
+                                IOUtils.copyLarge(in, zipOut, 0, entry.bytes());
+                                zipOut.closeEntry();
+                                entryNames.add(entry.entryName());
+                            }
+                        }
+                    });
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+        log.debug("Extracted {} tables from {} pages", entryNames.size(), pageNumbers.size());
+        return new ExtractedTables(zip, entryNames);
+    }
+
+    private SpooledTables extractRange(
+            PDDocument document, List<Integer> pageNumbers, String baseName) throws IOException {
+        TempFile spool = new TempFile(tempFileManager, ".csv");
+        List<CsvEntry> entries = new ArrayList<>();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(spool.getPath()))) {
+            // Closing the extractor would close the document, which belongs to the caller
+            ObjectExtractor extractor = new ObjectExtractor(document);
+            SpreadsheetExtractionAlgorithm sea = new SpreadsheetExtractionAlgorithm();
+            for (int pageNum : pageNumbers) {
+                Page page = extractor.extract(pageNum);
+                List<Table> tables = sea.extract(page);
+                for (int i = 0; i < tables.size(); i++) {
+                    StringBuilder csv = new StringBuilder();
+                    new FlexibleCSVWriter(CSV_FORMAT)
+                            .write(csv, Collections.singletonList(tables.get(i)));
+                    byte[] content = csv.toString().getBytes(StandardCharsets.UTF_8);
+                    out.write(content);
+                    entries.add(
+                            new CsvEntry(
+                                    generateEntryName(baseName, pageNum, i + 1), content.length));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            spool.close();
+            throw e;
+        }
+        return new SpooledTables(spool, entries);
+    }
+
+    private static String generateEntryName(String baseName, int pageNum, int tableIndex) {
+        return String.format("%s_p%d_t%d.csv", baseName, pageNum, tableIndex);
+    }
+}
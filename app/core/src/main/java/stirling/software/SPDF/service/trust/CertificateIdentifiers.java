@@ -0,0 +1,145 @@
+package stirling.software.SPDF.service.trust;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+
+/** Fingerprints, key identifiers and revocation URLs read from X.509 certificates. */
+public final class CertificateIdentifiers {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private CertificateIdentifiers() {}
+
+    /** SHA-256 of the DER encoding, as lower-case hex. */
+    public static String fingerprint(X509Certificate cert) throws CertificateEncodingException {
+        return sha256Hex(cert.getEncoded());
+    }
+
+    public static String sha256Hex(byte[] data) {
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /** The subject key identifier as hex, or {@code null} if the extension is absent. */
+    public static String subjectKeyId(X509Certificate cert) {
+        byte[] octets = extensionOctets(cert, Extension.subjectKeyIdentifier.getId());
+        if (octets == null) {
+            return null;
+        }
+        try {
+            return HEX.formatHex(ASN1OctetString.getInstance(octets).getOctets());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** The key identifier of the authority key identifier as hex, or {@code null}. */
+    public static String authorityKeyId(X509Certificate cert) {
+        byte[] octets = extensionOctets(cert, Extension.authorityKeyIdentifier.getId());
+        if (octets == null) {
+            return null;
+        }
+        try {
+            byte[] keyId = AuthorityKeyIdentifier.getInstance(octets).getKeyIdentifier();
+            return keyId != null ? HEX.formatHex(keyId) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** HTTP(S) OCSP responder URLs from the authority information access extension. */
+    public static List<URI> ocspUris(X509Certificate cert) {
+        List<URI> uris = new ArrayList<>();
+        byte[] octets = extensionOctets(cert, Extension.authorityInfoAccess.getId());
+        if (octets == null) {
+            return uris;
+        }
+        try {
+            for (AccessDescription description :
+                    AuthorityInformationAccess.getInstance(octets).getAccessDescriptions()) {
+                if (AccessDescription.id_ad_ocsp.equals(description.getAccessMethod())) {
+                    addHttpUri(uris, description.getAccessLocation());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed extension: no responders
+        }
+        return uris;
+    }
+
+    /** HTTP(S) URLs of the CRL distribution points; LDAP locations are skipped. */
+    public static List<URI> crlUris(X509Certificate cert) {
+        List<URI> uris = new ArrayList<>();
+        byte[] octets = extensionOctets(cert, Extension.cRLDistributionPoints.getId());
+        if (octets == null) {
+            return uris;
+        }
+        try {
+            for (DistributionPoint point :
+                    CRLDistPoint.getInstance(octets).getDistributionPoints()) {
+                DistributionPointName name = point.getDistributionPoint();
+                if (name == null || name.getType() != DistributionPointName.FULL_NAME) {
+                    continue;
+                }
+                for (GeneralName location : GeneralNames.getInstance(name.getName()).getNames()) {
+                    addHttpUri(uris, location);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed extension: no distribution points
+        }
+        return uris;
+    }
+
+    private static void addHttpUri(List<URI> uris, GeneralName location) {
+        if (location.getTagNo() != GeneralName.uniformResourceIdentifier
+                || !(location.getName() instanceof ASN1String value)) {
+            return;
+        }
+        try {
+            URI uri = URI.create(value.getString().trim());
+            String scheme = uri.getScheme();
+            if (scheme != null
+                    && ("http".equals(scheme.toLowerCase(Locale.ROOT))
+                            || "https".equals(scheme.toLowerCase(Locale.ROOT)))) {
+                uris.add(uri);
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a usable URL
+        }
+    }
+
+    private static byte[] extensionOctets(X509Certificate cert, String oid) {
+        byte[] value = cert.getExtensionValue(oid);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ASN1OctetString.getInstance(value).getOctets();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
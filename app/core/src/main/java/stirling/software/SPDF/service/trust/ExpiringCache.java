@@ -0,0 +1,48 @@
+package stirling.software.SPDF.service.trust;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Small in-memory LRU cache whose entries carry their own expiry time. */
+public final class ExpiringCache<V> {
+
+    private record Entry<V>(V value, long expiresAtMillis) {}
+
+    private final Map<String, Entry<V>> entries;
+    private final Clock clock;
+
+    public ExpiringCache(int maxEntries, Clock clock) {
+        this.clock = clock;
+        this.entries =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                        return size() > maxEntries;
+                    }
+                };
+    }
+
+    /** The cached value, or {@code null} if absent or expired. */
+    public synchronized V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() <= clock.millis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public synchronized void put(String key, V value, long expiresAtMillis) {
+        if (expiresAtMillis > clock.millis()) {
+            entries.put(key, new Entry<>(value, expiresAtMillis));
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,71 @@
+package stirling.software.SPDF.service.trust;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Default {@link RevocationFetcher} over plain HTTP. Redirects are not followed and every URL must
+ * pass the given filter, since the locations come from certificates inside uploaded documents.
+ *
+ * <p>The filter sees the host name before the client resolves it again, so it can't rule out DNS
+ * rebinding. That is why revocation fetching is off unless {@code
+ * system.certificateValidation.revocationCheck} is enabled.
+ */
+public class HttpRevocationFetcher implements RevocationFetcher {
+
+    private static final int MAX_RESPONSE_BYTES = 20 * 1024 * 1024;
+
+    private final HttpClient client;
+    private final Duration timeout;
+    private final Predicate<String> urlFilter;
+
+    public HttpRevocationFetcher(Duration timeout, Predicate<String> urlFilter) {
+        this.timeout = timeout;
+        this.urlFilter = urlFilter;
+        this.client =
+                HttpClient.newBuilder()
+                        .connectTimeout(timeout)
+                        .followRedirects(HttpClient.Redirect.NEVER)
+                        .build();
+    }
+
+    @Override
+    public byte[] fetch(URI uri, String contentType, byte[] requestBody) throws IOException {
+        if (!urlFilter.test(uri.toString())) {
+            throw new IOException("Revocation URL not allowed: " + uri);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(timeout);
+        if (requestBody == null) {
+            request.GET();
+        } else {
+            request.header("Content-Type", contentType)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody));
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Revocation fetch was interrupted");
+        }
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException(
+                        "Revocation fetch from " + uri + " returned " + response.statusCode());
+            }
+            byte[] data = body.readNBytes(MAX_RESPONSE_BYTES + 1);
+            if (data.length > MAX_RESPONSE_BYTES) {
+                throw new IOException("Revocation response from " + uri + " is too large");
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package stirling.software.SPDF.service.trust;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Checks whether a certificate has been revoked by asking its OCSP responders and, failing that,
+ * its CRL distribution points.
+ *
+ * <p>Raw responses are kept in a {@link RevocationResponseCache} until their {@code nextUpdate} and
+ * the resulting status per certificate is kept in memory for the same time, so a document signed
+ * many times with the same certificate triggers at most one lookup. Locations that could not be
+ * reached are not retried for a while, so an offline server pays the timeout once rather than per
+ * signature. Anything that cannot be answered with a verified, current response is reported as
+ * {@link Status#UNKNOWN}: responses issued in the future, past their {@code nextUpdate}, or without
+ * a {@code nextUpdate} and older than the default TTL are not trusted and not cached, so a stale or
+ * replayed "good" answer can't vouch for a certificate.
+ */
+@Slf4j
+public class RevocationChecker {
+
+    public enum Status {
+        GOOD,
+        REVOKED,
+        UNKNOWN
+    }
+
+    private record Outcome(Status status, long expiresAtMillis) {}
+
+    private record Response(byte[] body, boolean fresh) {}
+
+    private static final String OCSP_REQUEST_TYPE = "application/ocsp-request";
+    private static final String OCSP_SIGNING_PURPOSE = "1.3.6.1.5.5.7.3.9";
+    private static final int STATUS_CACHE_SIZE = 4096;
+    private static final Duration FAILURE_BACKOFF = Duration.ofMinutes(5);
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+
+    private final RevocationFetcher fetcher;
+    private final RevocationResponseCache responseCache;
+    private final Duration defaultTtl;
+    private final Clock clock;
+    private final ExpiringCache<Status> statusCache;
+    private final Map<URI, Long> unreachableUntil = new ConcurrentHashMap<>();
+
+    public RevocationChecker(
+            RevocationFetcher fetcher,
+            RevocationResponseCache responseCache,
+            Duration defaultTtl,
+            Clock clock) {
+        this.fetcher = fetcher;
+        this.responseCache = responseCache;
+        this.defaultTtl = defaultTtl;
+        this.clock = clock;
+        this.statusCache = new ExpiringCache<>(STATUS_CACHE_SIZE, clock);
+    }
+
+    /**
+     * The revocation status of a certificate.
+     *
+     * @param cert the certificate to check
+     * @param issuer the certificate that issued it, used to build OCSP requests and verify
+     *     responses
+     */
+    public Status check(X509Certificate cert, X509Certificate issuer) {
+        String key;
+        try {
+            key =
+                    CertificateIdentifiers.fingerprint(cert)
+                            + ':'
+                            + CertificateIdentifiers.fingerprint(issuer);
+        } catch (CertificateException e) {
+            return Status.UNKNOWN;
+        }
+        Status cached = statusCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Outcome outcome = checkOcsp(cert, issuer);
+        if (outcome.status() == Status.UNKNOWN) {
+            outcome = checkCrl(cert, issuer);
+        }
+        long expiresAt =
+                outcome.status() == Status.UNKNOWN
+                        ? clock.millis() + FAILURE_BACKOFF.toMillis()
+                        : outcome.expiresAtMillis();
+        statusCache.put(key, outcome.status(), expiresAt);
+        return outcome.status();
+    }
+
+    private Outcome checkOcsp(X509Certificate cert, X509Certificate issuer) {
+        List<URI> responders = CertificateIdentifiers.ocspUris(cert);
+        if (responders.isEmpty()) {
+            return unknown();
+        }
+        CertificateID certId;
+        byte[] request;
+        try {
+            certId =
+                    new CertificateID(
+                            new JcaDigestCalculatorProviderBuilder()
+                                    .build()
+                                    .get(CertificateID.HASH_SHA1),
+                            new JcaX509CertificateHolder(issuer),
+                            cert.getSerialNumber());
+            request = new OCSPReqBuilder().addRequest(certId).build().getEncoded();
+        } catch (Exception e) {
+            log.debug("Could not build OCSP request: {}", e.getMessage());
+            return unknown();
+        }
+
+        for (URI responder : responders) {
+            String cacheKey = "ocsp " + responder + ' ' + CertificateIdentifiers.sha256Hex(request);
+            Response response = fetch(cacheKey, responder, OCSP_REQUEST_TYPE, request);
+            if (response == null) {
+                continue;
+            }
+            try {
+                OCSPResp ocspResponse = new OCSPResp(response.body());
+                if (ocspResponse.getStatus() != OCSPResp.SUCCESSFUL
+                        || !(ocspResponse.getResponseObject() instanceof BasicOCSPResp basic)
+                        || !isSignedByIssuer(basic, issuer)) {
+                    continue;
+                }
+                for (SingleResp single : basic.getResponses()) {
+                    if (!certId.equals(single.getCertID())) {
+                        continue;
+                    }
+                    CertificateStatus certStatus = single.getCertStatus();
+                    Status status =
+                            certStatus == CertificateStatus.GOOD
+                                    ? Status.GOOD
+                                    : certStatus instanceof RevokedStatus
+                                            ? Status.REVOKED
+                                            : Status.UNKNOWN;
+                    if (status == Status.UNKNOWN) {
+                        break;
+                    }
+                    long expiresAt = validUntil(single.getThisUpdate(), single.getNextUpdate());
+                    if (expiresAt < 0) {
+                        log.debug("Ignoring outdated OCSP response from {}", responder);
+                        break;
+                    }
+                    if (response.fresh()) {
+                        responseCache.put(cacheKey, response.body(), expiresAt);
+                    }
+                    return new Outcome(status, expiresAt);
+                }
+            } catch (IOException | OCSPException | RuntimeException e) {
+                log.debug("Unusable OCSP response from {}: {}", responder, e.getMessage());
+            }
+        }
+        return unknown();
+    }
+
+    private Outcome checkCrl(X509Certificate cert, X509Certificate issuer) {
+        for (URI location : CertificateIdentifiers.crlUris(cert)) {
+            String cacheKey = "crl " + location;
+            Response response = fetch(cacheKey, location, null, null);
+            if (response == null) {
+                continue;
+            }
+            try {
+                X509CRL crl =
+                        (X509CRL)
+                                CertificateFactory.getInstance("X.509")
+                                        .generateCRL(new ByteArrayInputStream(response.body()));
+                if (!crl.getIssuerX500Principal().equals(issuer.getSubjectX500Principal())) {
+                    continue;
+                }
+                crl.verify(issuer.getPublicKey());
+                long expiresAt = validUntil(crl.getThisUpdate(), crl.getNextUpdate());
+                if (expiresAt < 0) {
+                    log.debug("Ignoring outdated CRL from {}", location);
+                    continue;
+                }
+                if (response.fresh()) {
+                    responseCache.put(cacheKey, response.body(), expiresAt);
+                }
+                return new Outcome(crl.isRevoked(cert) ? Status.REVOKED : Status.GOOD, expiresAt);
+            } catch (Exception e) {
+                log.debug("Unusable CRL from {}: {}", location, e.getMessage());
+            }
+        }
+        return unknown();
+    }
+
+    /** A response is trusted if the issuer signed it or delegated OCSP signing to the signer. */
+    private static boolean isSignedByIssuer(BasicOCSPResp response, X509Certificate issuer) {
+        try {
+            if (response.isSignatureValid(
+                    new JcaContentVerifierProviderBuilder().build(issuer.getPublicKey()))) {
+                return true;
+            }
+        } catch (Exception e) {
+            // Not signed by the issuer key itself, try delegated responders
+        }
+        JcaX509CertificateConverter converter = new JcaX509CertificateConverter();
+        for (X509CertificateHolder holder : response.getCerts()) {
+            try {
+                X509Certificate responder = converter.getCertificate(holder);
+                List<String> purposes = responder.getExtendedKeyUsage();
+                if (purposes == null || !purposes.contains(OCSP_SIGNING_PURPOSE)) {
+                    continue;
+                }
+                responder.verify(issuer.getPublicKey());
+                responder.checkValidity();
+                if (response.isSignatureValid(
+                        new JcaContentVerifierProviderBuilder().build(responder))) {
+                    return true;
+                }
+            } catch (Exception e) {
+                // Try the next certificate
+            }
+        }
+        return false;
+    }
+
+    private Response fetch(String cacheKey, URI uri, String contentType, byte[] body) {
+        byte[] cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            return new Response(cached, false);
+        }
+        Long blockedUntil = unreachableUntil.get(uri);
+        if (blockedUntil != null && blockedUntil > clock.millis()) {
+            return null;
+        }
+        try {
+            byte[] fetched = fetcher.fetch(uri, contentType, body);
+            unreachableUntil.remove(uri);
+            return new Response(fetched, true);
+        } catch (IOException e) {
+            log.debug("Revocation lookup at {} failed: {}", uri, e.getMessage());
+            long now = clock.millis();
+            if (unreachableUntil.size() > STATUS_CACHE_SIZE) {
+                unreachableUntil.values().removeIf(until -> until <= now);
+            }
+            unreachableUntil.put(uri, now + FAILURE_BACKOFF.toMillis());
+            return null;
+        }
+    }
+
+    /**
+     * Until when a response may be relied on, or -1 if it must not be used at all: it claims to be
+     * issued later than now (allowing for clock skew), its {@code nextUpdate} has passed, or it has
+     * no {@code nextUpdate} and was issued longer than the default TTL ago.
+     */
+    private long validUntil(Date thisUpdate, Date nextUpdate) {
+        long now = clock.millis();
+        if (thisUpdate == null || thisUpdate.getTime() > now + CLOCK_SKEW.toMillis()) {
+            return -1;
+        }
+        long expiresAt =
+                nextUpdate != null
+                        ? nextUpdate.getTime()
+                        : thisUpdate.getTime() + defaultTtl.toMillis();
+        return expiresAt > now ? expiresAt : -1;
+    }
+
+    private Outcome unknown() {
+        return new Outcome(Status.UNKNOWN, clock.millis());
+    }
+}
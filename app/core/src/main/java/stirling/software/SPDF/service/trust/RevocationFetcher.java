@@ -0,0 +1,22 @@
+package stirling.software.SPDF.service.trust;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Retrieves CRLs and OCSP responses. Declare a bean of this type to replace the default HTTP
+ * client, e.g. to go through a proxy or to answer from a local responder.
+ */
+@FunctionalInterface
+public interface RevocationFetcher {
+
+    /**
+     * Fetch a revocation response.
+     *
+     * @param uri the CRL distribution point or OCSP responder
+     * @param contentType content type of the request body, or {@code null} for a GET
+     * @param requestBody the DER-encoded OCSP request, or {@code null} for a GET
+     * @return the response body
+     */
+    byte[] fetch(URI uri, String contentType, byte[] requestBody) throws IOException;
+}
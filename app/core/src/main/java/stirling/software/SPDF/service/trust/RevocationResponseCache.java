@@ -0,0 +1,82 @@
+package stirling.software.SPDF.service.trust;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * On-disk cache of raw CRL and OCSP responses. Each response is stored with the time it stops being
+ * fresh (its {@code nextUpdate}, or a configured TTL), so responses survive restarts and are shared
+ * by all requests until then.
+ */
+@Slf4j
+public class RevocationResponseCache {
+
+    private static final int MAX_CACHED_BYTES = 20 * 1024 * 1024;
+
+    private final Path directory;
+    private final Clock clock;
+
+    public RevocationResponseCache(Path directory, Clock clock) {
+        this.directory = directory;
+        this.clock = clock;
+    }
+
+    /** The cached response for the key, or {@code null} if absent or expired. */
+    public byte[] get(String key) {
+        Path file = fileFor(key);
+        try {
+            byte[] body;
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                body = in.readLong() <= clock.millis() ? null : in.readNBytes(MAX_CACHED_BYTES + 1);
+            }
+            if (body == null) {
+                // Expired; the stream is closed first so the file can be deleted on Windows too
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return body.length > MAX_CACHED_BYTES ? null : body;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable revocation cache entry {}", file, e);
+            return null;
+        }
+    }
+
+    public void put(String key, byte[] body, long expiresAtMillis) {
+        if (expiresAtMillis <= clock.millis()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "response-", ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp);
+                        DataOutputStream data = new DataOutputStream(out)) {
+                    data.writeLong(expiresAtMillis);
+                    data.write(body);
+                }
+                Files.move(temp, fileFor(key), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.debug("Could not cache revocation response in {}", directory, e);
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(
+                CertificateIdentifiers.sha256Hex(key.getBytes(StandardCharsets.UTF_8)) + ".resp");
+    }
+}
@@ -0,0 +1,264 @@
+package stirling.software.SPDF.service.trust;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable set of trust anchors indexed by subject key identifier and subject name.
+ *
+ * <p>The Mozilla {@code certdata.txt} stores every root as octal-escaped text, which is slow to
+ * parse. {@link #load} parses it once and keeps a compiled bundle of the DER encodings next to the
+ * other caches, named after the hash of the source so that an updated {@code certdata.txt} is
+ * compiled again. Later starts read the bundle instead.
+ */
+@Slf4j
+public final class TrustAnchorIndex {
+
+    private static final int BUNDLE_MAGIC = 0x53544131; // "STA1"
+    private static final int MAX_BUNDLE_ENTRIES = 10_000;
+    private static final int MAX_CERTIFICATE_BYTES = 64 * 1024;
+    private static final String CERTDATA_VALUE_START = "CKA_VALUE MULTILINE_OCTAL";
+
+    private static final TrustAnchorIndex EMPTY = new TrustAnchorIndex(List.of());
+
+    private final List<X509Certificate> certificates;
+    private final Set<X509Certificate> certificateSet;
+    private final Map<String, List<X509Certificate>> bySubjectKeyId = new HashMap<>();
+    private final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+    private final Set<TrustAnchor> trustAnchors;
+
+    private TrustAnchorIndex(Collection<X509Certificate> certificates) {
+        this.certificates = List.copyOf(new LinkedHashSet<>(certificates));
+        this.certificateSet = Set.copyOf(this.certificates);
+        Set<TrustAnchor> anchors = new HashSet<>();
+        for (X509Certificate cert : this.certificates) {
+            String keyId = CertificateIdentifiers.subjectKeyId(cert);
+            if (keyId != null) {
+                bySubjectKeyId.computeIfAbsent(keyId, k -> new ArrayList<>(1)).add(cert);
+            }
+            bySubject
+                    .computeIfAbsent(cert.getSubjectX500Principal(), k -> new ArrayList<>(1))
+                    .add(cert);
+            anchors.add(new TrustAnchor(cert, null));
+        }
+        this.trustAnchors = Set.copyOf(anchors);
+    }
+
+    public static TrustAnchorIndex empty() {
+        return EMPTY;
+    }
+
+    public static TrustAnchorIndex of(Collection<X509Certificate> certificates) {
+        return certificates.isEmpty() ? EMPTY : new TrustAnchorIndex(certificates);
+    }
+
+    /**
+     * Index the certificates of a {@code certdata.txt}, reading the compiled bundle from the cache
+     * directory when one exists for this exact source.
+     *
+     * @param certdata contents of {@code certdata.txt}
+     * @param cacheDirectory where compiled bundles are kept, or {@code null} to always parse
+     */
+    public static TrustAnchorIndex load(byte[] certdata, Path cacheDirectory)
+            throws IOException, CertificateException {
+        if (cacheDirectory == null) {
+            return parseCertdata(certdata);
+        }
+        String sourceHash = CertificateIdentifiers.sha256Hex(certdata).substring(0, 16);
+        Path bundle = cacheDirectory.resolve("trust-anchors-" + sourceHash + ".bundle");
+        if (Files.isRegularFile(bundle)) {
+            try (InputStream in = Files.newInputStream(bundle)) {
+                return readBundle(in);
+            } catch (IOException | CertificateException e) {
+                log.warn("Ignoring unreadable trust anchor bundle {}: {}", bundle, e.getMessage());
+            }
+        }
+
+        TrustAnchorIndex index = parseCertdata(certdata);
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path temp = Files.createTempFile(cacheDirectory, "trust-anchors-", ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    index.writeBundle(out);
+                }
+                Files.move(temp, bundle, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.debug("Could not write trust anchor bundle to {}", cacheDirectory, e);
+        }
+        return index;
+    }
+
+    /** Parse the certificate objects of a Mozilla {@code certdata.txt}. */
+    public static TrustAnchorIndex parseCertdata(byte[] certdata) throws CertificateException {
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        List<X509Certificate> parsed = new ArrayList<>();
+        ByteArrayOutputStream der = new ByteArrayOutputStream(2048);
+        byte[] marker = CERTDATA_VALUE_START.getBytes(StandardCharsets.US_ASCII);
+
+        int position = 0;
+        while ((position = indexOf(certdata, marker, position)) >= 0) {
+            position += marker.length;
+            der.reset();
+            // Octal escapes run until a line that reads "END"
+            while (position < certdata.length) {
+                byte b = certdata[position];
+                if (b == '\\') {
+                    int value = 0;
+                    int digits = 0;
+                    position++;
+                    while (digits < 3
+                            && position < certdata.length
+                            && certdata[position] >= '0'
+                            && certdata[position] <= '7') {
+                        value = value * 8 + (certdata[position++] - '0');
+                        digits++;
+                    }
+                    if (digits > 0) {
+                        der.write(value);
+                    }
+                } else if (b == 'E'
+                        && position + 2 < certdata.length
+                        && certdata[position + 1] == 'N'
+                        && certdata[position + 2] == 'D') {
+                    position += 3;
+                    break;
+                } else {
+                    position++;
+                }
+            }
+            try {
+                parsed.add(
+                        (X509Certificate)
+                                factory.generateCertificate(
+                                        new ByteArrayInputStream(der.toByteArray())));
+            } catch (CertificateException e) {
+                log.debug("Skipping unparsable certificate in certdata: {}", e.getMessage());
+            }
+        }
+        return of(parsed);
+    }
+
+    /** Read a bundle written by {@link #writeBundle}. */
+    public static TrustAnchorIndex readBundle(InputStream in)
+            throws IOException, CertificateException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != BUNDLE_MAGIC) {
+            throw new IOException("Not a trust anchor bundle");
+        }
+        int count = data.readInt();
+        if (count < 0 || count > MAX_BUNDLE_ENTRIES) {
+            throw new IOException("Invalid trust anchor count " + count);
+        }
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        List<X509Certificate> certs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = data.readInt();
+            if (length <= 0 || length > MAX_CERTIFICATE_BYTES) {
+                throw new IOException("Invalid certificate length " + length);
+            }
+            byte[] encoded = new byte[length];
+            data.readFully(encoded);
+            certs.add(
+                    (X509Certificate)
+                            factory.generateCertificate(new ByteArrayInputStream(encoded)));
+        }
+        return of(certs);
+    }
+
+    public void writeBundle(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(BUNDLE_MAGIC);
+        data.writeInt(certificates.size());
+        for (X509Certificate cert : certificates) {
+            byte[] encoded;
+            try {
+                encoded = cert.getEncoded();
+            } catch (CertificateEncodingException e) {
+                throw new IOException("Cannot encode trust anchor", e);
+            }
+            data.writeInt(encoded.length);
+            data.write(encoded);
+        }
+        data.flush();
+    }
+
+    public int size() {
+        return certificates.size();
+    }
+
+    public boolean contains(X509Certificate cert) {
+        return certificateSet.contains(cert);
+    }
+
+    public List<X509Certificate> getCertificates() {
+        return certificates;
+    }
+
+    /** Anchors for PKIX path building and validation; the set never changes. */
+    public Set<TrustAnchor> getTrustAnchors() {
+        return trustAnchors;
+    }
+
+    public List<X509Certificate> findBySubjectKeyId(String subjectKeyId) {
+        return bySubjectKeyId.getOrDefault(subjectKeyId, List.of());
+    }
+
+    /**
+     * Anchors that may have issued the certificate, looked up by its authority key identifier and
+     * falling back to the issuer name. Signatures are not checked.
+     */
+    public List<X509Certificate> findIssuerCandidates(X509Certificate cert) {
+        String authorityKeyId = CertificateIdentifiers.authorityKeyId(cert);
+        if (authorityKeyId != null) {
+            List<X509Certificate> byKeyId = bySubjectKeyId.get(authorityKeyId);
+            if (byKeyId != null) {
+                return byKeyId;
+            }
+        }
+        X500Principal issuer = cert.getIssuerX500Principal();
+        return issuer != null ? bySubject.getOrDefault(issuer, List.of()) : List.of();
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
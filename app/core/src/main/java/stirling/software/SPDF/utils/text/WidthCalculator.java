@@ -5,6 +5,8 @@ import org.apache.pdfbox.pdmodel.font.PDFont;
 
 import lombok.extern.slf4j.Slf4j;
 
+import stirling.software.common.util.GlyphWidthTable;
+
 @Slf4j
 public class WidthCalculator {
 
@@ -15,6 +17,12 @@ public class WidthCalculator {
             return 0;
         }
 
+        // Fonts from the shared font cache have precomputed widths
+        GlyphWidthTable widths = GlyphWidthTable.lookup(font);
+        if (widths != null && widths.canMeasure(text)) {
+            return (widths.getStringWidth(text) / FONT_SCALE_FACTOR) * fontSize;
+        }
+
         if (!TextEncodingHelper.canEncodeCharacters(font, text)) {
             log.debug(
                     "Text cannot be encoded by font {}, using fallback width calculation",
@@ -0,0 +1,130 @@
+package stirling.software.SPDF.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class GetEndpointMatcherTest {
+
+    private static final List<String> URIS =
+            List.of(
+                    "",
+                    "/",
+                    "//",
+                    "/about",
+                    "/about/",
+                    "/about/team",
+                    "/aboutus",
+                    "/api/v1/info/status",
+                    "/api/v1/info",
+                    "/api/v1/infos",
+                    "/files/report.pdf",
+                    "/files",
+                    "/filesystem",
+                    "/docs/a/b",
+                    "/docs",
+                    "/doc",
+                    "/merge-pdfs",
+                    "/merge-pdfs//x",
+                    "merge-pdfs",
+                    "/unknown",
+                    "/static/css/app.css",
+                    "/static",
+                    "relative/path");
+
+    /** The matching rules EndpointInspector used before patterns were compiled. */
+    private static boolean referenceMatches(Set<String> patterns, String uri) {
+        if (patterns.contains(uri)) {
+            return true;
+        }
+        for (String pattern : patterns) {
+            if (pattern.contains("*") || pattern.contains("{")) {
+                int wildcardIndex = pattern.indexOf('*');
+                int variableIndex = pattern.indexOf('{');
+                int cutoff =
+                        wildcardIndex < 0
+                                ? variableIndex
+                                : variableIndex < 0
+                                        ? wildcardIndex
+                                        : Math.min(wildcardIndex, variableIndex);
+                if (uri.startsWith(pattern.substring(0, cutoff))) {
+                    return true;
+                }
+            }
+        }
+        for (String pattern : patterns) {
+            if (!pattern.contains("*") && !pattern.contains("{")) {
+                String[] patternSegments = pattern.split("/");
+                String[] uriSegments = uri.split("/");
+                if (uriSegments.length < patternSegments.length) {
+                    continue;
+                }
+                boolean match = true;
+                for (int i = 0; i < patternSegments.length; i++) {
+                    if (!patternSegments[i].equals(uriSegments[i])) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (match) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void assertSameAsReference(Set<String> patterns) {
+        GetEndpointMatcher matcher = GetEndpointMatcher.compile(patterns);
+        for (String uri : URIS) {
+            assertEquals(
+                    referenceMatches(patterns, uri),
+                    matcher.matches(uri),
+                    () -> "patterns " + patterns + ", uri '" + uri + "'");
+        }
+    }
+
+    @Test
+    void matchesStaticPatternsBySegmentPrefix() {
+        GetEndpointMatcher matcher = GetEndpointMatcher.compile(Set.of("/about", "/merge-pdfs"));
+
+        assertTrue(matcher.matches("/about"));
+        assertTrue(matcher.matches("/about/team"));
+        assertFalse(matcher.matches("/aboutus"));
+        assertFalse(matcher.matches("/unknown"));
+    }
+
+    @Test
+    void matchesWildcardAndVariablePatternsByStaticPrefix() {
+        GetEndpointMatcher matcher =
+                GetEndpointMatcher.compile(Set.of("/files/**", "/api/v1/info/{id}", "/docs*"));
+
+        assertTrue(matcher.matches("/files/report.pdf"));
+        assertTrue(matcher.matches("/api/v1/info/status"));
+        assertTrue(matcher.matches("/docs/a/b"));
+        assertFalse(matcher.matches("/files"));
+        assertFalse(matcher.matches("/api/v1/info"));
+    }
+
+    @Test
+    void emptyMatcherRejectsEverything() {
+        assertFalse(GetEndpointMatcher.empty().matches("/about"));
+        assertFalse(GetEndpointMatcher.compile(Set.of()).matches(""));
+    }
+
+    @Test
+    void agreesWithPreviousMatchingRules() {
+        assertSameAsReference(Set.of("/about", "/merge-pdfs", "/static/**"));
+        assertSameAsReference(Set.of("/files/**", "/api/v1/info/{id}", "/docs*", "/about/"));
+        assertSameAsReference(Set.of("/"));
+        assertSameAsReference(Set.of(""));
+        assertSameAsReference(Set.of("//", "/doc"));
+        assertSameAsReference(Set.of("/**"));
+        assertSameAsReference(Set.of("merge-pdfs", "/merge-pdfs//x", "{page}"));
+    }
+}
@@ -3,31 +3,40 @@ package stirling.software.SPDF.controller.api;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageTree;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import stirling.software.SPDF.model.api.general.RotatePDFRequest;
-import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.service.PageTransformEngine;
+import stirling.software.common.service.PageTransformer;
+import stirling.software.common.util.TempFile;
 
 @ExtendWith(MockitoExtension.class)
 public class RotationControllerTest {
 
-    @Mock private CustomPDFDocumentFactory pdfDocumentFactory;
+    @Mock private PageTransformEngine pageTransformEngine;
+
+    @TempDir Path tempDir;
 
     @InjectMocks private RotationController rotationController;
 
@@ -41,20 +50,22 @@ public class RotationControllerTest {
         request.setFileInput(mockFile);
         request.setAngle(90);
 
-        PDDocument mockDocument = mock(PDDocument.class);
-        PDPageTree mockPages = mock(PDPageTree.class);
         PDPage mockPage = mock(PDPage.class);
+        TempFile output = mock(TempFile.class);
+        when(output.getFile()).thenReturn(Files.createFile(tempDir.resolve("out.pdf")).toFile());
+        ArgumentCaptor<PageTransformer> transformer =
+                ArgumentCaptor.forClass(PageTransformer.class);
 
-        when(pdfDocumentFactory.load(request)).thenReturn(mockDocument);
-        when(mockDocument.getPages()).thenReturn(mockPages);
-        when(mockPages.iterator())
-                .thenReturn(java.util.Collections.singletonList(mockPage).iterator());
+        when(pageTransformEngine.transform(eq(mockFile), any(PageTransformer.class)))
+                .thenReturn(output);
         when(mockPage.getRotation()).thenReturn(0);
 
         // Act
-        ResponseEntity<byte[]> response = rotationController.rotatePDF(request);
+        ResponseEntity<StreamingResponseBody> response = rotationController.rotatePDF(request);
 
-        // Assert
+        // Assert: the transformer handed to the engine rotates each page
+        verify(pageTransformEngine).transform(eq(mockFile), transformer.capture());
+        transformer.getValue().transform(null, mockPage, 0);
         verify(mockPage).setRotation(90);
         assertNotNull(response);
         assertEquals(200, response.getStatusCode().value());
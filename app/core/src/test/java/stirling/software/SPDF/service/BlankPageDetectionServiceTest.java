@@ -0,0 +1,159 @@
+package stirling.software.SPDF.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import stirling.software.common.service.BatchExecutor;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+
+@DisplayName("Blank page detection service tests")
+class BlankPageDetectionServiceTest {
+
+    private static final int THRESHOLD = 10;
+    private static final float WHITE_PERCENT = 99.9f;
+
+    private static PDPage addPage(PDDocument document) {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        return page;
+    }
+
+    /** A white 150 DPI scan, with a dark block of the given share of its height. */
+    private static PDImageXObject scan(PDDocument document, double darkShare) throws IOException {
+        BufferedImage image = new BufferedImage(1275, 1650, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.setColor(Color.DARK_GRAY);
+        graphics.fillRect(0, 0, image.getWidth(), (int) (image.getHeight() * darkShare));
+        graphics.dispose();
+        return LosslessFactory.createFromImage(document, image);
+    }
+
+    private static void addScannedPage(PDDocument document, double darkShare) throws IOException {
+        PDPage page = addPage(document);
+        try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
+            cs.drawImage(scan(document, darkShare), 0, 0, 612, 792);
+        }
+    }
+
+    private static byte[] samplePdf() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            // 0: empty
+            addPage(document);
+            // 1: text
+            PDPage textPage = addPage(document);
+            try (PDPageContentStream cs = new PDPageContentStream(document, textPage)) {
+                cs.beginText();
+                cs.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                cs.newLineAtOffset(72, 700);
+                cs.showText("Hello");
+                cs.endText();
+            }
+            // 2: vector drawing only, which has never counted as content
+            PDPage vectorPage = addPage(document);
+            try (PDPageContentStream cs = new PDPageContentStream(document, vectorPage)) {
+                cs.addRect(100, 100, 300, 300);
+                cs.fill();
+            }
+            // 3: blank scan, 4: scan with content
+            addScannedPage(document, 0);
+            addScannedPage(document, 0.2);
+            // 5: a dark image on a tiny part of the page
+            PDPage stampPage = addPage(document);
+            try (PDPageContentStream cs = new PDPageContentStream(document, stampPage)) {
+                cs.drawImage(scan(document, 1), 10, 10, 2, 2);
+            }
+            // 6: blank scan with a large drawing on top, which needs rendering
+            PDPage mixedPage = addPage(document);
+            try (PDPageContentStream cs = new PDPageContentStream(document, mixedPage)) {
+                cs.drawImage(scan(document, 0), 0, 0, 612, 792);
+                cs.addRect(100, 100, 300, 300);
+                cs.fill();
+            }
+            // 7: blank scan with a whitespace-only text layer
+            PDPage spacePage = addPage(document);
+            try (PDPageContentStream cs = new PDPageContentStream(document, spacePage)) {
+                cs.drawImage(scan(document, 0), 0, 0, 612, 792);
+                cs.beginText();
+                cs.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                cs.newLineAtOffset(72, 700);
+                cs.showText("   ");
+                cs.endText();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static boolean[] findBlankPages(int parallelism, byte[] pdf) throws IOException {
+        CustomPDFDocumentFactory factory = mock(CustomPDFDocumentFactory.class);
+        when(factory.load(any(MultipartFile.class), anyBoolean()))
+                .thenAnswer(
+                        invocation ->
+                                Loader.loadPDF(
+                                        ((MultipartFile) invocation.getArgument(0)).getBytes()));
+        BlankPageDetectionService service =
+                new BlankPageDetectionService(
+                        factory, new BatchExecutor(parallelism, Long.MAX_VALUE));
+        MockMultipartFile input =
+                new MockMultipartFile("fileInput", "scan.pdf", "application/pdf", pdf);
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            return service.findBlankPages(input, document, THRESHOLD, WHITE_PERCENT, 300);
+        }
+    }
+
+    @Test
+    @DisplayName("Pages are classified by text, images and rendered pixels")
+    void classifiesPages() throws Exception {
+        boolean[] blank = findBlankPages(1, samplePdf());
+
+        assertArrayEquals(new boolean[] {true, false, true, true, false, true, false, true}, blank);
+    }
+
+    @Test
+    @DisplayName("Pages classified in parallel ranges give the same result as on one thread")
+    void parallelMatchesSerial() throws Exception {
+        byte[] pdf;
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < BlankPageDetectionService.MIN_PAGES_PER_RANGE * 4; i++) {
+                addScannedPage(document, i % 3 == 0 ? 0.1 : 0);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            pdf = out.toByteArray();
+        }
+
+        boolean[] serial = findBlankPages(1, pdf);
+        boolean[] parallel = findBlankPages(4, pdf);
+
+        assertArrayEquals(serial, parallel);
+        for (int i = 0; i < serial.length; i++) {
+            assertArrayEquals(new boolean[] {i % 3 != 0}, new boolean[] {serial[i]}, "page " + i);
+        }
+    }
+}
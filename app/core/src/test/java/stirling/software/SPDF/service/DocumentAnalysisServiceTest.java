@@ -0,0 +1,149 @@
+package stirling.software.SPDF.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import stirling.software.common.service.CustomPDFDocumentFactory;
+
+@DisplayName("Document analysis service tests")
+class DocumentAnalysisServiceTest {
+
+    private CustomPDFDocumentFactory factory;
+    private final AtomicLong clock = new AtomicLong();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        factory = mock(CustomPDFDocumentFactory.class);
+        when(factory.load(any(MultipartFile.class), anyBoolean()))
+                .thenAnswer(
+                        invocation ->
+                                Loader.loadPDF(
+                                        ((MultipartFile) invocation.getArgument(0)).getBytes()));
+    }
+
+    private DocumentAnalysisService service(long maxBytes) {
+        return new DocumentAnalysisService(factory, maxBytes, Duration.ofMinutes(10), clock::get);
+    }
+
+    private static MockMultipartFile pdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return new MockMultipartFile(
+                    "fileInput", "doc.pdf", "application/pdf", out.toByteArray());
+        }
+    }
+
+    @Test
+    @DisplayName("Repeated requests for the same content parse it once")
+    void cachesByContent() throws Exception {
+        DocumentAnalysisService service = service(1024 * 1024);
+        MockMultipartFile file = pdf(3);
+
+        DocumentAnalysis first = service.analyze(file);
+        DocumentAnalysis second =
+                service.analyze(
+                        new MockMultipartFile(
+                                "fileInput", "copy.pdf", "application/pdf", file.getBytes()));
+        String report =
+                service.facet(file, "report", (doc, analysis) -> "pages=" + doc.getNumberOfPages());
+        String again = service.facet(file, "report", (doc, analysis) -> "recomputed");
+
+        assertSame(first, second);
+        assertEquals(3, first.getPageCount());
+        assertEquals(3, first.getPageDimensions().size());
+        assertEquals("pages=3", report);
+        assertEquals("pages=3", again);
+        // One parse for the analysis, one for the report facet
+        verify(factory, times(2)).load(any(MultipartFile.class), anyBoolean());
+        assertSame(first, service.lookup(first.getContentHash()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("A cached analysis is returned by its cache token but not by content hash")
+    void looksUpByToken() throws Exception {
+        DocumentAnalysisService service = service(1024 * 1024);
+        DocumentAnalysis analysis = service.analyze(pdf(2));
+        String token = (String) analysis.getBasicInfo().get("cacheToken");
+
+        assertSame(analysis, service.lookupByToken(token).orElseThrow());
+        assertFalse(service.lookupByToken(analysis.getContentHash()).isPresent());
+        assertFalse(analysis.toMap().containsValue(analysis.getContentHash()));
+
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+        assertFalse(service.lookupByToken(token).isPresent());
+    }
+
+    @Test
+    @DisplayName("Entries expire after their time to live")
+    void expiresEntries() throws Exception {
+        DocumentAnalysisService service = service(1024 * 1024);
+        String hash = service.analyze(pdf(1)).getContentHash();
+
+        clock.addAndGet(Duration.ofMinutes(9).toNanos());
+        assertTrue(service.lookup(hash).isPresent());
+
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertFalse(service.lookup(hash).isPresent());
+    }
+
+    @Test
+    @DisplayName("The least recently used entry is dropped when the cache is full")
+    void boundsBytes() throws Exception {
+        DocumentAnalysisService sizing = service(1024 * 1024);
+        long oneBytes = sizing.analyze(pdf(1)).estimatedBytes();
+        long threeBytes = sizing.analyze(pdf(3)).estimatedBytes();
+        // Room for the first and third document, but not for all three
+        DocumentAnalysisService service = service(oneBytes + threeBytes);
+        String one = service.analyze(pdf(1)).getContentHash();
+        String two = service.analyze(pdf(2)).getContentHash();
+        service.lookup(one);
+        String three = service.analyze(pdf(3)).getContentHash();
+
+        assertTrue(service.lookup(one).isPresent());
+        assertFalse(service.lookup(two).isPresent());
+        assertTrue(service.lookup(three).isPresent());
+        assertTrue(service.getCachedBytes() <= oneBytes + threeBytes);
+    }
+
+    @Test
+    @DisplayName("Large facets count towards the bound and an oversized entry is not kept")
+    void countsFacetBytes() throws Exception {
+        DocumentAnalysisService service = service(64 * 1024);
+        MockMultipartFile file = pdf(1);
+        String hash = service.analyze(file).getContentHash();
+        long withoutReport = service.getCachedBytes();
+
+        byte[] report = service.facet(file, "report", (doc, analysis) -> new byte[128 * 1024]);
+
+        assertEquals(128 * 1024, report.length);
+        assertFalse(service.lookup(hash).isPresent());
+        assertTrue(withoutReport > 0);
+        assertEquals(0, service.getCachedBytes());
+    }
+}
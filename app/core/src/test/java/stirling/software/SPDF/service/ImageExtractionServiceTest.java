@@ -0,0 +1,194 @@
+package stirling.software.SPDF.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import stirling.software.common.service.BatchExecutor;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.util.TempFile;
+import stirling.software.common.util.TempFileManager;
+
+@DisplayName("Image extraction service tests")
+class ImageExtractionServiceTest {
+
+    @TempDir Path tempDir;
+
+    private static BufferedImage picture(int width, Color color) {
+        BufferedImage image = new BufferedImage(width, 40, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, 40);
+        graphics.setColor(color);
+        graphics.fillOval(5, 5, width - 10, 30);
+        graphics.dispose();
+        return image;
+    }
+
+    private static void addPage(PDDocument document, PDImageXObject image) throws IOException {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
+            cs.drawImage(image, 50, 50);
+        }
+    }
+
+    /**
+     * A JPEG shown on pages 1 and 2, an identical but separate lossless image on pages 3 and 4, and
+     * a different image on page 5.
+     */
+    private static byte[] samplePdf() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDImageXObject jpeg = JPEGFactory.createFromImage(document, picture(60, Color.RED));
+            addPage(document, jpeg);
+            addPage(document, jpeg);
+            addPage(document, LosslessFactory.createFromImage(document, picture(70, Color.BLUE)));
+            addPage(document, LosslessFactory.createFromImage(document, picture(70, Color.BLUE)));
+            addPage(document, LosslessFactory.createFromImage(document, picture(80, Color.GREEN)));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private ImageExtractionService service(int parallelism) throws IOException {
+        CustomPDFDocumentFactory factory = mock(CustomPDFDocumentFactory.class);
+        when(factory.load(any(MultipartFile.class), anyBoolean()))
+                .thenAnswer(
+                        invocation ->
+                                Loader.loadPDF(
+                                        ((MultipartFile) invocation.getArgument(0)).getBytes()));
+        TempFileManager tempFileManager = mock(TempFileManager.class);
+        AtomicInteger counter = new AtomicInteger();
+        when(tempFileManager.createTempFile(anyString()))
+                .thenAnswer(
+                        invocation ->
+                                Files.createFile(
+                                                tempDir.resolve(
+                                                        "out-"
+                                                                + counter.incrementAndGet()
+                                                                + invocation.getArgument(0)))
+                                        .toFile());
+        when(tempFileManager.deleteTempFile(any(File.class)))
+                .thenAnswer(invocation -> ((File) invocation.getArgument(0)).delete());
+        return new ImageExtractionService(
+                factory, tempFileManager, new BatchExecutor(parallelism, Long.MAX_VALUE));
+    }
+
+    private Map<String, byte[]> extract(
+            int parallelism, byte[] pdf, String format, boolean allowDuplicates)
+            throws IOException {
+        MockMultipartFile input =
+                new MockMultipartFile("fileInput", "photos.pdf", "application/pdf", pdf);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (PDDocument document = Loader.loadPDF(pdf);
+                TempFile zip =
+                        service(parallelism)
+                                .extractToZip(input, document, format, "photos", allowDuplicates);
+                ZipFile zipFile = new ZipFile(zip.getFile())) {
+            for (ZipEntry entry : zipFile.stream().toList()) {
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    entries.put(entry.getName(), in.readAllBytes());
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static int width(byte[] image) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(image)).getWidth();
+    }
+
+    @Test
+    @DisplayName("Shared and identical images are extracted once")
+    void skipsDuplicates() throws Exception {
+        byte[] pdf = samplePdf();
+
+        Map<String, byte[]> unique = extract(1, pdf, "png", false);
+        Map<String, byte[]> all = extract(1, pdf, "png", true);
+
+        assertEquals(
+                List.of("photos_page_1_1.png", "photos_page_3_1.png", "photos_page_5_1.png"),
+                List.copyOf(unique.keySet()));
+        assertEquals(60, width(unique.get("photos_page_1_1.png")));
+        assertEquals(70, width(unique.get("photos_page_3_1.png")));
+        assertEquals(80, width(unique.get("photos_page_5_1.png")));
+        assertEquals(5, all.size());
+    }
+
+    @Test
+    @DisplayName("JPEG images are copied without re-encoding when JPEG output is requested")
+    void passesJpegThrough() throws Exception {
+        byte[] pdf = samplePdf();
+        byte[] original;
+        try (PDDocument document = Loader.loadPDF(pdf);
+                InputStream raw =
+                        document.getPage(0)
+                                .getResources()
+                                .getXObject(
+                                        document.getPage(0)
+                                                .getResources()
+                                                .getXObjectNames()
+                                                .iterator()
+                                                .next())
+                                .getCOSObject()
+                                .createRawInputStream()) {
+            original = raw.readAllBytes();
+        }
+
+        Map<String, byte[]> entries = extract(1, pdf, "jpeg", false);
+
+        assertArrayEquals(original, entries.get("photos_page_1_1.jpeg"));
+        assertEquals(70, width(entries.get("photos_page_3_1.jpeg")));
+    }
+
+    @Test
+    @DisplayName("Images extracted in parallel match those extracted on one thread")
+    void parallelMatchesSerial() throws Exception {
+        byte[] pdf = samplePdf();
+
+        Map<String, byte[]> serial = extract(1, pdf, "png", true);
+        Map<String, byte[]> parallel = extract(4, pdf, "png", true);
+
+        assertEquals(List.copyOf(serial.keySet()), List.copyOf(parallel.keySet()));
+        for (String name : serial.keySet()) {
+            assertArrayEquals(serial.get(name), parallel.get(name), name);
+        }
+    }
+}
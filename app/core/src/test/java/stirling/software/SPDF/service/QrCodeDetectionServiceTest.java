@@ -0,0 +1,244 @@
+package stirling.software.SPDF.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import stirling.software.common.service.BatchExecutor;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+
+@DisplayName("QR code detection service tests")
+class QrCodeDetectionServiceTest {
+
+    private static final String SEPARATOR = "https://stirlingpdf.com";
+
+    private static BitMatrix qrCode(String text) throws Exception {
+        return new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 0, 0);
+    }
+
+    /** A page scanned at 150 DPI: one image holding a one inch QR code, and no text. */
+    private static void addScannedPage(PDDocument document, String text) throws Exception {
+        BufferedImage scan = new BufferedImage(1275, 1650, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = scan.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, scan.getWidth(), scan.getHeight());
+        graphics.setColor(Color.BLACK);
+        BitMatrix code = qrCode(text);
+        int module = 150 / code.getWidth();
+        for (int y = 0; y < code.getHeight(); y++) {
+            for (int x = 0; x < code.getWidth(); x++) {
+                if (code.get(x, y)) {
+                    graphics.fillRect(900 + x * module, 150 + y * module, module, module);
+                }
+            }
+        }
+        graphics.dispose();
+
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
+            cs.drawImage(LosslessFactory.createFromImage(document, scan), 0, 0, 612, 792);
+        }
+    }
+
+    /** A born-digital page with text and, optionally, a small vector QR code. */
+    private static void addVectorPage(PDDocument document, String text, float size)
+            throws Exception {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
+            cs.beginText();
+            cs.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+            cs.newLineAtOffset(72, 700);
+            cs.showText("Page text");
+            cs.endText();
+            if (text != null) {
+                BitMatrix code = qrCode(text);
+                float module = size / code.getWidth();
+                for (int y = 0; y < code.getHeight(); y++) {
+                    for (int x = 0; x < code.getWidth(); x++) {
+                        if (code.get(x, y)) {
+                            cs.addRect(300 + x * module, 400 - (y + 1) * module, module, module);
+                        }
+                    }
+                }
+                cs.fill();
+            }
+        }
+    }
+
+    /** A scanned page without a code, with a vector QR code drawn over the scan. */
+    private static void addScanWithVectorCode(PDDocument document, String text) throws Exception {
+        BufferedImage scan = new BufferedImage(1275, 1650, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = scan.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, scan.getWidth(), scan.getHeight());
+        graphics.dispose();
+
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
+            cs.drawImage(LosslessFactory.createFromImage(document, scan), 0, 0, 612, 792);
+            BitMatrix code = qrCode(text);
+            float module = 72f / code.getWidth();
+            for (int y = 0; y < code.getHeight(); y++) {
+                for (int x = 0; x < code.getWidth(); x++) {
+                    if (code.get(x, y)) {
+                        cs.addRect(300 + x * module, 400 - (y + 1) * module, module, module);
+                    }
+                }
+            }
+            cs.fill();
+        }
+    }
+
+    private static byte[] save(PDDocument document) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.save(out);
+        return out.toByteArray();
+    }
+
+    private static String[] decode(int parallelism, byte[] pdf) throws IOException {
+        return decode(parallelism, pdf, false);
+    }
+
+    private static String[] decode(int parallelism, byte[] pdf, boolean detectSmallCodes)
+            throws IOException {
+        CustomPDFDocumentFactory factory = mock(CustomPDFDocumentFactory.class);
+        when(factory.load(any(MultipartFile.class), anyBoolean()))
+                .thenAnswer(
+                        invocation ->
+                                Loader.loadPDF(
+                                        ((MultipartFile) invocation.getArgument(0)).getBytes()));
+        QrCodeDetectionService service =
+                new QrCodeDetectionService(factory, new BatchExecutor(parallelism, Long.MAX_VALUE));
+        MockMultipartFile input =
+                new MockMultipartFile("fileInput", "scan.pdf", "application/pdf", pdf);
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            return service.decodePages(input, document, 300, detectSmallCodes);
+        }
+    }
+
+    @Test
+    @DisplayName("QR codes are found in scanned images and in rendered vector content")
+    void findsCodes() throws Exception {
+        byte[] pdf;
+        try (PDDocument document = new PDDocument()) {
+            addVectorPage(document, null, 0);
+            addScannedPage(document, SEPARATOR);
+            addVectorPage(document, SEPARATOR, 72);
+            addVectorPage(document, "small", 40);
+            pdf = save(document);
+        }
+
+        String[] codes = decode(1, pdf);
+
+        assertEquals(4, codes.length);
+        assertNull(codes[0]);
+        assertEquals(SEPARATOR, codes[1]);
+        assertEquals(SEPARATOR, codes[2]);
+        assertEquals("small", codes[3]);
+    }
+
+    @Test
+    @DisplayName("Small codes are found on request, vector codes over a scan always")
+    void findsCodesTheFirstPassMisses() throws Exception {
+        byte[] pdf;
+        try (PDDocument document = new PDDocument()) {
+            addVectorPage(document, "tiny", 22);
+            addScanWithVectorCode(document, SEPARATOR);
+            pdf = save(document);
+        }
+
+        String[] codes = decode(1, pdf, true);
+        assertEquals("tiny", codes[0]);
+        assertEquals(SEPARATOR, codes[1]);
+
+        codes = decode(1, pdf);
+        assertNull(codes[0]);
+        assertEquals(SEPARATOR, codes[1]);
+    }
+
+    @Test
+    @DisplayName("A page of plain text is rendered only once")
+    void rendersTextPagesOnce() throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            addVectorPage(document, null, 0);
+            AtomicInteger renders = new AtomicInteger();
+            PDFRenderer renderer =
+                    new PDFRenderer(document) {
+                        @Override
+                        public BufferedImage renderImageWithDPI(
+                                int pageIndex, float dpi, ImageType type) throws IOException {
+                            renders.incrementAndGet();
+                            return super.renderImageWithDPI(pageIndex, dpi, type);
+                        }
+
+                        @Override
+                        public void renderPageToGraphics(
+                                int pageIndex, Graphics2D graphics, float scale)
+                                throws IOException {
+                            renders.incrementAndGet();
+                            super.renderPageToGraphics(pageIndex, graphics, scale);
+                        }
+                    };
+
+            assertNull(new QrCodePageScanner(document, renderer, 300, false).scan(0));
+            assertEquals(1, renders.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Pages scanned in parallel ranges give the same result as on one thread")
+    void parallelMatchesSerial() throws Exception {
+        byte[] pdf;
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < QrCodeDetectionService.MIN_PAGES_PER_RANGE * 4; i++) {
+                if (i % 5 == 0) {
+                    addScannedPage(document, SEPARATOR);
+                } else {
+                    addVectorPage(document, null, 0);
+                }
+            }
+            pdf = save(document);
+        }
+
+        String[] serial = decode(1, pdf);
+        String[] parallel = decode(4, pdf);
+
+        assertArrayEquals(serial, parallel);
+        for (int i = 0; i < serial.length; i++) {
+            assertEquals(i % 5 == 0 ? SEPARATOR : null, serial[i], "page " + i);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package stirling.software.SPDF.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import stirling.software.common.service.BatchExecutor;
+import stirling.software.common.service.CustomPDFDocumentFactory;
+import stirling.software.common.util.TempFileManager;
+
+@DisplayName("Table extraction service tests")
+class TableExtractionServiceTest {
+
+    @TempDir Path tempDir;
+
+    /** Pages with one ruled 2x2 table each, labelled with the page number. */
+    private static byte[] tablePdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int p = 1; p <= pages; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(document, page)) {
+                    float left = 100, top = 700, cell = 100;
+                    for (int i = 0; i <= 2; i++) {
+                        cs.moveTo(left, top - i * cell / 2);
+                        cs.lineTo(left + 2 * cell, top - i * cell / 2);
+                        cs.moveTo(left + i * cell, top);
+                        cs.lineTo(left + i * cell, top - cell);
+                    }
+                    cs.stroke();
+                    String[][] cells = {{"p" + p, "a"}, {"b", "c"}};
+                    cs.setFont(font, 10);
+                    for (int row = 0; row < 2; row++) {
+                        for (int col = 0; col < 2; col++) {
+                            cs.beginText();
+                            cs.newLineAtOffset(left + col * cell + 10, top - row * cell / 2 - 30);
+                            cs.showText(cells[row][col]);
+                            cs.endText();
+                        }
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private TableExtractionService service(int parallelism) throws IOException {
+        CustomPDFDocumentFactory factory = mock(CustomPDFDocumentFactory.class);
+        when(factory.load(any(MultipartFile.class), anyBoolean()))
+                .thenAnswer(
+                        invocation ->
+                                Loader.loadPDF(
+                                        ((MultipartFile) invocation.getArgument(0)).getBytes()));
+        TempFileManager tempFileManager = mock(TempFileManager.class);
+        AtomicInteger counter = new AtomicInteger();
+        when(tempFileManager.createTempFile(anyString()))
+                .thenAnswer(
+                        invocation ->
+                                Files.createFile(
+                                                tempDir.resolve(
+                                                        "out-"
+                                                                + counter.incrementAndGet()
+                                                                + invocation.getArgument(0)))
+                                        .toFile());
+        when(tempFileManager.deleteTempFile(any(File.class)))
+                .thenAnswer(invocation -> ((File) invocation.getArgument(0)).delete());
+        return new TableExtractionService(
+                factory, tempFileManager, new BatchExecutor(parallelism, Long.MAX_VALUE));
+    }
+
+    private static List<String> readEntries(TableExtractionService.ExtractedTables tables)
+            throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(tables.zip().getFile())) {
+            for (ZipEntry entry : zipFile.stream().toList()) {
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    entries.add(
+                            entry.getName()
+                                    + "\n"
+                                    + new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private List<String> extract(int parallelism, byte[] pdf, List<Integer> pages)
+            throws IOException {
+        MockMultipartFile input =
+                new MockMultipartFile("fileInput", "report.pdf", "application/pdf", pdf);
+        try (PDDocument document = Loader.loadPDF(pdf);
+                TableExtractionService.ExtractedTables tables =
+                        service(parallelism).extractToZip(input, document, pages, "report")) {
+            List<String> entries = readEntries(tables);
+            assertEquals(tables.entryNames().size(), entries.size());
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertTrue(
+                        files.noneMatch(file -> file.toString().endsWith(".csv")),
+                        "spooled CSV files are deleted once copied into the archive");
+            }
+            return entries;
+        }
+    }
+
+    @Test
+    @DisplayName("Tables extracted in parallel ranges match those extracted on one thread")
+    void parallelMatchesSerial() throws Exception {
+        int pageCount = TableExtractionService.MIN_PAGES_PER_RANGE * 6;
+        byte[] pdf = tablePdf(pageCount);
+        List<Integer> pages = IntStream.rangeClosed(1, pageCount).boxed().toList();
+
+        List<String> serial = extract(1, pdf, pages);
+        List<String> parallel = extract(4, pdf, pages);
+
+        assertEquals(pageCount, serial.size());
+        assertEquals(serial, parallel);
+        assertTrue(serial.get(0).startsWith("report_p1_t1.csv\n"), serial.get(0));
+        assertTrue(serial.get(0).contains("\"p1\""), serial.get(0));
+    }
+
+    @Test
+    @DisplayName("Tables follow the order the pages were selected in")
+    void keepsSelectionOrder() throws Exception {
+        byte[] pdf = tablePdf(TableExtractionService.MIN_PAGES_PER_RANGE * 4);
+        List<Integer> pages = List.of(3, 1, 2, 16, 15, 14, 13, 12, 11, 10, 9, 8);
+
+        List<String> entries = extract(4, pdf, pages);
+
+        assertEquals(pages.size(), entries.size());
+        for (int i = 0; i < pages.size(); i++) {
+            assertTrue(
+                    entries.get(i).startsWith("report_p" + pages.get(i) + "_t1.csv"),
+                    entries.get(i));
+        }
+    }
+}
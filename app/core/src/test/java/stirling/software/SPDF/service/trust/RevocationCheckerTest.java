@@ -0,0 +1,347 @@
+package stirling.software.SPDF.service.trust;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/** Runs the checker against a local stand-in for a CA's CRL and OCSP endpoints. */
+class RevocationCheckerTest {
+
+    private static final Duration DEFAULT_TTL = Duration.ofHours(1);
+    private static final Duration NEXT_UPDATE = Duration.ofHours(6);
+
+    @TempDir Path cacheDir;
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger crlHits = new AtomicInteger();
+    private final AtomicInteger ocspHits = new AtomicInteger();
+    private final Set<BigInteger> revokedSerials = ConcurrentHashMap.newKeySet();
+    private final Map<String, Boolean> signOcspWithIssuer = new ConcurrentHashMap<>();
+    private final AtomicBoolean staleOcsp = new AtomicBoolean();
+    private final MutableClock clock = new MutableClock();
+
+    private KeyPair caKeys;
+    private X509Certificate caCert;
+    private KeyPair otherKeys;
+
+    @BeforeEach
+    void startResponder() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        caKeys = generator.generateKeyPair();
+        otherKeys = generator.generateKeyPair();
+        caCert = createCaCertificate();
+        signOcspWithIssuer.put("signer", true);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(
+                "/crl",
+                exchange -> {
+                    crlHits.incrementAndGet();
+                    respond(exchange, "application/pkix-crl", createCrl());
+                });
+        server.createContext(
+                "/ocsp",
+                exchange -> {
+                    ocspHits.incrementAndGet();
+                    byte[] request = exchange.getRequestBody().readAllBytes();
+                    respond(exchange, "application/ocsp-response", createOcspResponse(request));
+                });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopResponder() {
+        server.stop(0);
+    }
+
+    @Test
+    void reportsRevocationFromCrlAndCachesTheResponse() throws Exception {
+        X509Certificate revoked = createLeaf(BigInteger.valueOf(100), true, false);
+        X509Certificate good = createLeaf(BigInteger.valueOf(101), true, false);
+        revokedSerials.add(revoked.getSerialNumber());
+        RevocationChecker checker = newChecker();
+
+        assertEquals(RevocationChecker.Status.REVOKED, checker.check(revoked, caCert));
+        assertEquals(RevocationChecker.Status.GOOD, checker.check(good, caCert));
+        assertEquals(RevocationChecker.Status.REVOKED, checker.check(revoked, caCert));
+
+        assertEquals(1, crlHits.get(), "the CRL should be fetched once for both certificates");
+    }
+
+    @Test
+    void prefersOcspAndReusesResponsesFromDiskAcrossInstances() throws Exception {
+        X509Certificate leaf = createLeaf(BigInteger.valueOf(200), true, true);
+
+        assertEquals(RevocationChecker.Status.GOOD, newChecker().check(leaf, caCert));
+        assertEquals(RevocationChecker.Status.GOOD, newChecker().check(leaf, caCert));
+
+        assertEquals(1, ocspHits.get());
+        assertEquals(0, crlHits.get());
+    }
+
+    @Test
+    void refetchesOnceTheResponseExpires() throws Exception {
+        X509Certificate leaf = createLeaf(BigInteger.valueOf(300), false, true);
+        RevocationChecker checker = newChecker();
+
+        assertEquals(RevocationChecker.Status.GOOD, checker.check(leaf, caCert));
+        revokedSerials.add(leaf.getSerialNumber());
+        clock.advance(NEXT_UPDATE.minusMinutes(1));
+        assertEquals(RevocationChecker.Status.GOOD, checker.check(leaf, caCert));
+        clock.advance(Duration.ofMinutes(2));
+        assertEquals(RevocationChecker.Status.REVOKED, checker.check(leaf, caCert));
+
+        assertEquals(2, ocspHits.get());
+    }
+
+    @Test
+    void ignoresResponsesNotSignedByTheIssuer() throws Exception {
+        X509Certificate leaf = createLeaf(BigInteger.valueOf(400), false, true);
+        signOcspWithIssuer.put("signer", false);
+
+        assertEquals(RevocationChecker.Status.UNKNOWN, newChecker().check(leaf, caCert));
+    }
+
+    @Test
+    void rejectsOutdatedResponsesWithoutCachingThem() throws Exception {
+        X509Certificate leaf = createLeaf(BigInteger.valueOf(450), false, true);
+        staleOcsp.set(true);
+
+        assertEquals(RevocationChecker.Status.UNKNOWN, newChecker().check(leaf, caCert));
+        assertEquals(RevocationChecker.Status.UNKNOWN, newChecker().check(leaf, caCert));
+
+        assertEquals(2, ocspHits.get(), "an outdated response must not be cached");
+    }
+
+    @Test
+    void backsOffFromUnreachableLocations() throws Exception {
+        X509Certificate leaf = createLeaf(BigInteger.valueOf(500), true, false);
+        AtomicInteger attempts = new AtomicInteger();
+        RevocationFetcher failing =
+                (uri, contentType, body) -> {
+                    attempts.incrementAndGet();
+                    throw new IOException("connection refused");
+                };
+        RevocationChecker checker =
+                new RevocationChecker(
+                        failing, new RevocationResponseCache(cacheDir, clock), DEFAULT_TTL, clock);
+        X509Certificate other = createLeaf(BigInteger.valueOf(501), true, false);
+
+        assertEquals(RevocationChecker.Status.UNKNOWN, checker.check(leaf, caCert));
+        assertEquals(RevocationChecker.Status.UNKNOWN, checker.check(other, caCert));
+
+        assertEquals(1, attempts.get());
+    }
+
+    private RevocationChecker newChecker() {
+        return new RevocationChecker(
+                new HttpRevocationFetcher(Duration.ofSeconds(5), url -> true),
+                new RevocationResponseCache(cacheDir, clock),
+                DEFAULT_TTL,
+                clock);
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private ContentSigner signer(KeyPair keys) throws Exception {
+        return new JcaContentSignerBuilder("SHA256withECDSA").build(keys.getPrivate());
+    }
+
+    private X509Certificate createCaCertificate() throws Exception {
+        X500Name name = new X500Name("CN=Test Revocation CA");
+        JcaX509v3CertificateBuilder builder =
+                new JcaX509v3CertificateBuilder(
+                        name,
+                        BigInteger.ONE,
+                        Date.from(Instant.now().minus(Duration.ofDays(1))),
+                        Date.from(Instant.now().plus(Duration.ofDays(365))),
+                        name,
+                        caKeys.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        builder.addExtension(
+                Extension.subjectKeyIdentifier,
+                false,
+                new JcaX509ExtensionUtils().createSubjectKeyIdentifier(caKeys.getPublic()));
+        return new JcaX509CertificateConverter().getCertificate(builder.build(signer(caKeys)));
+    }
+
+    private X509Certificate createLeaf(BigInteger serial, boolean withCrl, boolean withOcsp)
+            throws Exception {
+        JcaX509v3CertificateBuilder builder =
+                new JcaX509v3CertificateBuilder(
+                        caCert,
+                        serial,
+                        Date.from(Instant.now().minus(Duration.ofDays(1))),
+                        Date.from(Instant.now().plus(Duration.ofDays(30))),
+                        new X500Name("CN=Signer " + serial),
+                        otherKeys.getPublic());
+        builder.addExtension(
+                Extension.authorityKeyIdentifier,
+                false,
+                new JcaX509ExtensionUtils().createAuthorityKeyIdentifier(caCert));
+        if (withCrl) {
+            GeneralNames location =
+                    new GeneralNames(
+                            new GeneralName(
+                                    GeneralName.uniformResourceIdentifier, baseUrl + "/crl"));
+            builder.addExtension(
+                    Extension.cRLDistributionPoints,
+                    false,
+                    new CRLDistPoint(
+                            new DistributionPoint[] {
+                                new DistributionPoint(
+                                        new DistributionPointName(location), null, null)
+                            }));
+        }
+        if (withOcsp) {
+            builder.addExtension(
+                    Extension.authorityInfoAccess,
+                    false,
+                    new AuthorityInformationAccess(
+                            AccessDescription.id_ad_ocsp,
+                            new GeneralName(
+                                    GeneralName.uniformResourceIdentifier, baseUrl + "/ocsp")));
+        }
+        return new JcaX509CertificateConverter().getCertificate(builder.build(signer(caKeys)));
+    }
+
+    private byte[] createCrl() throws IOException {
+        try {
+            Date now = new Date(clock.millis());
+            X509v2CRLBuilder builder =
+                    new X509v2CRLBuilder(new X500Name("CN=Test Revocation CA"), now);
+            builder.setNextUpdate(new Date(clock.millis() + NEXT_UPDATE.toMillis()));
+            for (BigInteger serial : revokedSerials) {
+                builder.addCRLEntry(serial, now, CRLReason.keyCompromise);
+            }
+            return builder.build(signer(caKeys)).getEncoded();
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private byte[] createOcspResponse(byte[] requestBytes) throws IOException {
+        try {
+            OCSPReq request = new OCSPReq(requestBytes);
+            KeyPair responderKeys = signOcspWithIssuer.get("signer") ? caKeys : otherKeys;
+            BasicOCSPRespBuilder builder =
+                    new JcaBasicOCSPRespBuilder(
+                            responderKeys.getPublic(),
+                            new JcaDigestCalculatorProviderBuilder()
+                                    .build()
+                                    .get(CertificateID.HASH_SHA1));
+            long issuedAt =
+                    staleOcsp.get() ? clock.millis() - 2 * NEXT_UPDATE.toMillis() : clock.millis();
+            Date now = new Date(issuedAt);
+            Date nextUpdate = new Date(issuedAt + NEXT_UPDATE.toMillis());
+            for (Req single : request.getRequestList()) {
+                CertificateID id = single.getCertID();
+                CertificateStatus status =
+                        revokedSerials.contains(id.getSerialNumber())
+                                ? new RevokedStatus(now, CRLReason.keyCompromise)
+                                : CertificateStatus.GOOD;
+                builder.addResponse(id, status, now, nextUpdate);
+            }
+            BasicOCSPResp basic =
+                    builder.build(signer(responderKeys), new X509CertificateHolder[0], now);
+            return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basic).getEncoded();
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /** A clock the tests can move forward to expire cached responses. */
+    private static final class MutableClock extends Clock {
+
+        private final AtomicLong millis = new AtomicLong(java.lang.System.currentTimeMillis());
+
+        void advance(Duration duration) {
+            millis.addAndGet(duration.toMillis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package stirling.software.SPDF.service.trust;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrustAnchorIndexTest {
+
+    private static byte[] certdata;
+
+    @BeforeAll
+    static void readCertdata() throws Exception {
+        try (InputStream in = TrustAnchorIndexTest.class.getResourceAsStream("/certdata.txt")) {
+            assertNotNull(in, "certdata.txt should be on the classpath");
+            certdata = in.readAllBytes();
+        }
+    }
+
+    @Test
+    void parsesCertdataAndIndexesBySubjectKeyId() throws Exception {
+        TrustAnchorIndex index = TrustAnchorIndex.parseCertdata(certdata);
+
+        assertTrue(index.size() > 100, "expected the Mozilla root set, got " + index.size());
+        assertEquals(index.size(), index.getTrustAnchors().size());
+        X509Certificate root =
+                index.getCertificates().stream()
+                        .filter(cert -> CertificateIdentifiers.subjectKeyId(cert) != null)
+                        .findFirst()
+                        .orElseThrow();
+        List<X509Certificate> found =
+                index.findBySubjectKeyId(CertificateIdentifiers.subjectKeyId(root));
+        assertTrue(found.contains(root));
+        assertTrue(index.contains(root));
+        // Roots are self-issued, so they are their own issuer candidates
+        assertTrue(index.findIssuerCandidates(root).contains(root));
+    }
+
+    @Test
+    void bundleRoundTripKeepsAllAnchors() throws Exception {
+        TrustAnchorIndex parsed = TrustAnchorIndex.parseCertdata(certdata);
+        ByteArrayOutputStream bundle = new ByteArrayOutputStream();
+        parsed.writeBundle(bundle);
+
+        TrustAnchorIndex read =
+                TrustAnchorIndex.readBundle(new ByteArrayInputStream(bundle.toByteArray()));
+
+        assertEquals(parsed.getCertificates(), read.getCertificates());
+    }
+
+    @Test
+    void loadCompilesBundleOnceAndRecoversFromCorruptBundles(@TempDir Path cacheDir)
+            throws Exception {
+        TrustAnchorIndex first = TrustAnchorIndex.load(certdata, cacheDir);
+        List<Path> bundles;
+        try (var files = Files.list(cacheDir)) {
+            bundles = files.filter(p -> p.toString().endsWith(".bundle")).toList();
+        }
+        assertEquals(1, bundles.size());
+
+        TrustAnchorIndex fromBundle = TrustAnchorIndex.load(certdata, cacheDir);
+        assertEquals(first.getCertificates(), fromBundle.getCertificates());
+
+        Files.write(bundles.get(0), new byte[] {1, 2, 3});
+        TrustAnchorIndex reparsed = TrustAnchorIndex.load(certdata, cacheDir);
+        assertEquals(first.size(), reparsed.size());
+        assertFalse(Files.size(bundles.get(0)) <= 3, "corrupt bundle should be rewritten");
+    }
+}
@@ -0,0 +1,107 @@
+package stirling.software.SPDF.utils.text;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import stirling.software.common.service.FontCache;
+import stirling.software.common.util.GlyphWidthTable;
+
+@DisplayName("Width calculation with cached fonts")
+class WidthCalculatorTest {
+
+    private static final String NOTO_SANS = FontCache.resourceForAlphabet("roman");
+
+    private final FontCache fontCache = new FontCache();
+
+    @Test
+    @DisplayName("Fonts are parsed once and shared between documents")
+    void parsesFontOnce() throws Exception {
+        assertSame(fontCache.getTrueTypeFont(NOTO_SANS), fontCache.getTrueTypeFont(NOTO_SANS));
+
+        try (PDDocument first = new PDDocument();
+                PDDocument second = new PDDocument()) {
+            PDType0Font a = fontCache.loadFontForAlphabet(first, "roman");
+            PDType0Font b = fontCache.loadFontForAlphabet(second, "roman");
+            assertNotNull(GlyphWidthTable.lookup(a));
+            assertSame(GlyphWidthTable.lookup(a), GlyphWidthTable.lookup(b));
+        }
+    }
+
+    @Test
+    @DisplayName("Precomputed widths match the widths PDFBox reads from the font")
+    void widthsMatchFont() throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            PDType0Font font = fontCache.loadFont(document, NOTO_SANS);
+            GlyphWidthTable widths = GlyphWidthTable.lookup(font);
+            for (String text : new String[] {"Stirling PDF", "Ångström 123 €", "WWW iii"}) {
+                float expected = font.getStringWidth(text);
+                assertTrue(widths.canMeasure(text));
+                assertEquals(expected, widths.getStringWidth(text), 0.01f, text);
+                assertEquals(
+                        expected / 1000 * 12,
+                        WidthCalculator.calculateAccurateWidth(font, text, 12),
+                        0.01f);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Text the font cannot show falls back to PDFBox measuring")
+    void fallsBackForMissingGlyphs() throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            PDType0Font font = fontCache.loadFont(document, NOTO_SANS);
+            GlyphWidthTable widths = GlyphWidthTable.lookup(font);
+            // Thai is not covered by the Latin Noto Sans
+            assertFalse(widths.canMeasure("สวัสดี"));
+            assertTrue(WidthCalculator.calculateAccurateWidth(font, "สวัสดี", 12) > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Standard 14 and document fonts have no table")
+    void noTableForOtherFonts() {
+        PDFont helvetica = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        assertNull(GlyphWidthTable.lookup(helvetica));
+        assertTrue(WidthCalculator.calculateAccurateWidth(helvetica, "abc", 10) > 0);
+    }
+
+    @Test
+    @DisplayName("A cached font embeds into a document and round-trips its text")
+    void embedsSharedFont() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDType0Font font = fontCache.loadFont(document, NOTO_SANS);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(font, 12);
+                content.newLineAtOffset(50, 700);
+                content.showText("Shared font");
+                content.endText();
+            }
+            document.save(out);
+        }
+        try (PDDocument reloaded = Loader.loadPDF(out.toByteArray())) {
+            assertEquals("Shared font", new PDFTextStripper().getText(reloaded).trim());
+        }
+    }
+}